@@ -87,6 +87,7 @@ tokens
     CONSTRAINT='constraint';
     TABLES='tables';
     ALL='all';
+    ANY='any';
     INDEX='index';
     INCLUDE='include';
     WITHIN='within';
@@ -144,6 +145,7 @@ package com.salesforce.phoenix.parse;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
 import org.apache.hadoop.hbase.util.Pair;
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -705,12 +707,9 @@ condition_not returns [ParseNode ret]
     ;
 
 boolean_expr returns [ParseNode ret]
-    :   l=expression ((EQ r=expression {$ret = factory.equal(l,r); } )
-                  |  ((NOEQ1 | NOEQ2) r=expression {$ret = factory.notEqual(l,r); } )
-                  |  (LT r=expression {$ret = factory.lt(l,r); } )
-                  |  (GT r=expression {$ret = factory.gt(l,r); } )
-                  |  (LT EQ r=expression {$ret = factory.lte(l,r); } )
-                  |  (GT EQ r=expression {$ret = factory.gte(l,r); } )
+    :   l=expression ((op=comparison_op ((ANY LPAREN r=expression RPAREN {$ret = factory.arrayAny(l,r,op); } )
+                                      |  (ALL LPAREN r=expression RPAREN {$ret = factory.arrayAll(l,r,op); } )
+                                      |  (r=expression {$ret = factory.comparison(op,l,r); } ) ))
                   |  (IS n=NOT? NULL {$ret = factory.isNull(l,n!=null); } )
                   |  ( n=NOT? ((LIKE r=expression {$ret = factory.like(l,r,n!=null); } )
                       |        (EXISTS LPAREN r=subquery_expression RPAREN {$ret = factory.exists(l,r,n!=null);} )
@@ -723,6 +722,15 @@ boolean_expr returns [ParseNode ret]
                    |  { $ret = l; } )
     ;
 
+comparison_op returns [CompareOp ret]
+    :   EQ { $ret = CompareOp.EQUAL; }
+    |   (NOEQ1 | NOEQ2) { $ret = CompareOp.NOT_EQUAL; }
+    |   LT { $ret = CompareOp.LESS; }
+    |   GT { $ret = CompareOp.GREATER; }
+    |   LT EQ { $ret = CompareOp.LESS_OR_EQUAL; }
+    |   GT EQ { $ret = CompareOp.GREATER_OR_EQUAL; }
+    ;
+
 bind_expression  returns [BindParseNode ret]
     :   b=bind_name { $ret = factory.bind(b); }
     ;
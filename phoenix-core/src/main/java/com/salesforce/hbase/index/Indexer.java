@@ -80,6 +80,8 @@ import com.salesforce.hbase.index.write.IndexWriter;
 import com.salesforce.hbase.index.write.recovery.PerRegionIndexWriteCache;
 import com.salesforce.hbase.index.write.recovery.StoreFailuresInCachePolicy;
 import com.salesforce.hbase.index.write.recovery.TrackingParallelWriterIndexCommitter;
+import com.salesforce.phoenix.monitoring.ServerMetricType;
+import com.salesforce.phoenix.monitoring.ServerMetrics;
 import com.salesforce.phoenix.util.MetaDataUtil;
 
 /**
@@ -145,6 +147,11 @@ public class Indexer extends BaseRegionObserver {
    */
   private IndexWriter recoveryWriter;
 
+  /**
+   * Records the latency and number of the index updates written
+   */
+  private ServerMetrics metrics;
+
   private boolean stopped;
   private boolean disabled;
 
@@ -181,6 +188,7 @@ public class Indexer extends BaseRegionObserver {
     
         // setup the actual index writer
         this.writer = new IndexWriter(env, serverName + "-index-writer");
+        this.metrics = ServerMetrics.getInstance(env.getConfiguration());
     
         // setup the recovery writer that does retries on the failed edits
         TrackingParallelWriterIndexCommitter recoveryCommmiter =
@@ -443,6 +451,11 @@ public class Indexer extends BaseRegionObserver {
     }
   }
 
+  private void recordIndexWrite(Collection<Pair<Mutation, byte[]>> indexUpdates, long startTime) {
+    metrics.update(ServerMetricType.INDEX_WRITE_TIME_MS, System.currentTimeMillis() - startTime);
+    metrics.update(ServerMetricType.INDEX_UPDATE_COUNT, indexUpdates.size());
+  }
+
   /**
    * Add the index updates to the WAL, or write to the index table, if the WAL has been disabled
    * @return <tt>true</tt> if the WAL has been updated.
@@ -459,7 +472,9 @@ public class Indexer extends BaseRegionObserver {
     // update right away
     if (!writeToWAL) {
       try {
+        long startTime = System.currentTimeMillis();
         this.writer.write(indexUpdates);
+        recordIndexWrite(indexUpdates, startTime);
         return false;
       } catch (Throwable e) {
         LOG.error("Failed to update index with entries:" + indexUpdates, e);
@@ -549,7 +564,9 @@ public class Indexer extends BaseRegionObserver {
       // references originally - therefore, we just pass in a null factory here and use the ones
       // already specified on each reference
       try {
+          long startTime = System.currentTimeMillis();
           writer.writeAndKillYourselfOnFailure(indexUpdates);
+          recordIndexWrite(indexUpdates, startTime);
       } finally {
         // With a custom kill policy, we may throw instead of kill the server.
         // Without doing this in a finally block (at least with the mini cluster),
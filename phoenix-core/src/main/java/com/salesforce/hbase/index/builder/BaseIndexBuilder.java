@@ -66,6 +66,11 @@ public abstract class BaseIndexBuilder implements IndexBuilder {
     // noop
   }
 
+  @Override
+  public void batchUpdatesBuilt(MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp) {
+    // noop
+  }
+
   @Override
   public void batchCompleted(MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp) {
     // noop
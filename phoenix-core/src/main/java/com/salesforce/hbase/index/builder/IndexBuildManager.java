@@ -128,7 +128,15 @@ public class IndexBuildManager implements Stoppable {
       Collection<? extends Mutation> mutations) throws Throwable {
     // notify the delegate that we have started processing a batch
     this.delegate.batchStarted(miniBatchOp);
+    try {
+      return buildIndexUpdates(mutations);
+    } finally {
+      this.delegate.batchUpdatesBuilt(miniBatchOp);
+    }
+  }
 
+  private Collection<Pair<Mutation, byte[]>> buildIndexUpdates(
+      Collection<? extends Mutation> mutations) throws Throwable {
     // parallelize each mutation into its own task
     // each task is cancelable via two mechanisms: (1) underlying HRegion is closing (which would
     // fail lookups/scanning) and (2) by stopping this via the #stop method. Interrupts will only be
@@ -128,6 +128,13 @@ public interface IndexBuilder extends Stoppable {
    */
   public void batchStarted(MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp) throws IOException;
 
+  /**
+   * Notification that the index updates of a batch started with {@link #batchStarted} have been
+   * built, whether successfully or not. Any state kept for the batch may be released.
+   * @param miniBatchOp the full batch operation to be written
+   */
+  public void batchUpdatesBuilt(MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp);
+
   /**
    * This allows the codec to dynamically change whether or not indexing should take place for a
    * table. If it doesn't take place, we can save a lot of time on the regular Put patch. By making
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.hbase.index.write;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Mutation;
+
+/**
+ * Group commit stage for the index updates sent to a single index table. Rather than each writer
+ * issuing its own {@link HTableInterface#batch(List)}, the first writer to arrive becomes the
+ * leader and sends the updates of all the writers queued up behind it as a single batch, while the
+ * other writers wait for the batch that carries their updates to complete. Writers that arrive
+ * while a batch is in flight are queued up and sent together by the next leader, so under
+ * concurrent load updates coalesce without any added latency. The leader can additionally be told
+ * to wait up to a short window for more updates before sending its batch.
+ * <p>
+ * Each writer still only returns once its own updates have been written (or throws if they could
+ * not be), so the durability guarantees of the caller are the same as writing the batch directly.
+ * If a combined batch fails, the updates of each writer in it are retried on their own, so a writer
+ * only fails if its own updates could not be written.
+ */
+public class IndexGroupCommitter {
+
+  private final long windowMs;
+  private final int maxBatchSize;
+  private final LinkedList<PendingWrite> pending = new LinkedList<PendingWrite>();
+  private int pendingSize;
+  private boolean writing;
+
+  /**
+   * @param windowMs max time, in milliseconds, the leader waits for more updates before writing
+   *          its batch. If <tt>0</tt>, only the updates already queued up are combined.
+   * @param maxBatchSize max number of mutations to combine into a single batch. A single writer's
+   *          updates are never split, so a batch may be larger if one writer exceeds this size.
+   */
+  public IndexGroupCommitter(long windowMs, int maxBatchSize) {
+    this.windowMs = windowMs;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Write the mutations to the table, possibly combined with the mutations of other concurrent
+   * writers. Blocks until the mutations have been written.
+   * @param table table to use if this writer ends up sending the batch
+   * @param mutations mutations to write
+   * @throws IOException if the batch carrying the mutations failed
+   * @throws InterruptedException if the writer was interrupted before its mutations were written
+   */
+  public void write(HTableInterface table, List<Mutation> mutations) throws IOException,
+      InterruptedException {
+    PendingWrite write = new PendingWrite(mutations);
+    synchronized (this) {
+      pending.add(write);
+      pendingSize += mutations.size();
+      // wake up a leader waiting out its window
+      notifyAll();
+    }
+    while (true) {
+      List<PendingWrite> group;
+      synchronized (this) {
+        try {
+          while (writing && !write.done) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          abandon(write);
+          throw e;
+        }
+        if (write.done) {
+          write.throwIfFailed();
+          return;
+        }
+        writing = true;
+        try {
+          waitForBatch();
+        } catch (InterruptedException e) {
+          abandon(write);
+          writing = false;
+          notifyAll();
+          throw e;
+        }
+        group = nextBatch();
+      }
+      writeBatch(table, group);
+      synchronized (this) {
+        writing = false;
+        notifyAll();
+        // our updates may not have fit into the batch we just wrote
+        if (!write.done && Thread.currentThread().isInterrupted()) {
+          abandon(write);
+          throw new InterruptedException("Interrupted while waiting to write index updates");
+        }
+      }
+    }
+  }
+
+  /**
+   * Wait up to the window for enough updates to fill up a batch. Must hold the lock on
+   * <tt>this</tt>.
+   */
+  private void waitForBatch() throws InterruptedException {
+    if (windowMs <= 0) {
+      return;
+    }
+    long deadline = System.currentTimeMillis() + windowMs;
+    long remaining = windowMs;
+    while (pendingSize < maxBatchSize && remaining > 0) {
+      wait(remaining);
+      remaining = deadline - System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Take the writes for the next batch off the queue. Must hold the lock on <tt>this</tt>.
+   */
+  private List<PendingWrite> nextBatch() {
+    List<PendingWrite> group = new ArrayList<PendingWrite>();
+    int size = 0;
+    while (!pending.isEmpty()) {
+      PendingWrite next = pending.getFirst();
+      if (!group.isEmpty() && size + next.mutations.size() > maxBatchSize) {
+        break;
+      }
+      pending.removeFirst();
+      pendingSize -= next.mutations.size();
+      size += next.mutations.size();
+      group.add(next);
+    }
+    return group;
+  }
+
+  /**
+   * Drop a write that is no longer waited on, if it hasn't been picked up by a leader yet. Must
+   * hold the lock on <tt>this</tt>.
+   */
+  private void abandon(PendingWrite write) {
+    if (pending.remove(write)) {
+      pendingSize -= write.mutations.size();
+    }
+  }
+
+  /**
+   * Write the batch and hand the outcome to each of the writers in it. Failures are not thrown, but
+   * left for each writer to pick up.
+   * <p>
+   * If a combined batch fails, we don't know which of the writers' updates caused the failure, so
+   * each writer's updates are retried on their own and each writer only sees its own failure. If
+   * the leader is interrupted, the updates it hasn't written are handed back to the queue for the
+   * next leader, rather than failing the other writers with an interrupt that isn't theirs.
+   */
+  private void writeBatch(HTableInterface table, List<PendingWrite> group) {
+    List<Mutation> batch;
+    if (group.size() == 1) {
+      batch = group.get(0).mutations;
+    } else {
+      batch = new ArrayList<Mutation>();
+      for (PendingWrite write : group) {
+        batch.addAll(write.mutations);
+      }
+    }
+    IOException failure;
+    try {
+      failure = writeOrFail(table, batch);
+    } catch (InterruptedException e) {
+      // reset the interrupt status on the thread
+      Thread.currentThread().interrupt();
+      requeue(group);
+      return;
+    }
+    if (failure == null || group.size() == 1) {
+      complete(group, failure);
+      return;
+    }
+    // writes are idempotent, so it's safe to resend updates the failed batch may have applied
+    for (int i = 0; i < group.size(); i++) {
+      PendingWrite write = group.get(i);
+      try {
+        failure = writeOrFail(table, write.mutations);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        requeue(group.subList(i, group.size()));
+        return;
+      }
+      complete(Collections.singletonList(write), failure);
+    }
+  }
+
+  /**
+   * Write the mutations to the table
+   * @return the failure, if the mutations could not be written, or <tt>null</tt>
+   * @throws InterruptedException if the writing thread was interrupted
+   */
+  private static IOException writeOrFail(HTableInterface table, List<Mutation> mutations)
+      throws InterruptedException {
+    try {
+      table.batch(mutations);
+      return null;
+    } catch (IOException e) {
+      return e;
+    } catch (RuntimeException e) {
+      return new IOException(e);
+    }
+  }
+
+  /**
+   * Hand the outcome of writing their updates to the writers
+   */
+  private synchronized void complete(List<PendingWrite> writes, IOException failure) {
+    for (PendingWrite write : writes) {
+      write.done = true;
+      write.failure = failure;
+    }
+  }
+
+  /**
+   * Put writes whose updates were not written back at the head of the queue, in their original
+   * order, so the next leader picks them up first.
+   */
+  private synchronized void requeue(List<PendingWrite> writes) {
+    for (int i = writes.size() - 1; i >= 0; i--) {
+      PendingWrite write = writes.get(i);
+      pending.addFirst(write);
+      pendingSize += write.mutations.size();
+    }
+  }
+
+  /**
+   * Exposed for TESTING
+   * @return the number of mutations waiting to be picked up by a leader
+   */
+  synchronized int getPendingSize() {
+    return pendingSize;
+  }
+
+  private static class PendingWrite {
+    private final List<Mutation> mutations;
+    private boolean done;
+    private IOException failure;
+
+    public PendingWrite(List<Mutation> mutations) {
+      this.mutations = mutations;
+    }
+
+    public void throwIfFailed() throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+}
@@ -32,6 +32,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
@@ -65,6 +67,13 @@ import com.salesforce.hbase.index.table.HTableInterfaceReference;
  * </ol>
  * We attempt to quickly determine if any write has failed and not write to the remaining indexes to
  * ensure a timely recovery of the failed index writes.
+ * <p>
+ * If {@link #GROUP_COMMIT_CONF_KEY} is <tt>true</tt>, the updates for an index table are combined
+ * with those of other handlers concurrently writing to the same index table through an
+ * {@link IndexGroupCommitter}, so that they share a single batch rather than each paying for its
+ * own round trip. The leader of a group can wait up to {@link #GROUP_COMMIT_WINDOW_CONF_KEY} ms for
+ * more updates, and a group holds at most {@link #GROUP_COMMIT_MAX_SIZE_CONF_KEY} mutations. Group
+ * commit is off by default, so each handler sends its own batch.
  */
 public class ParallelWriterIndexCommitter implements IndexCommitter {
 
@@ -72,11 +81,22 @@ public class ParallelWriterIndexCommitter implements IndexCommitter {
   private static final int DEFAULT_CONCURRENT_INDEX_WRITER_THREADS = 10;
   private static final String INDEX_WRITER_KEEP_ALIVE_TIME_CONF_KEY =
       "index.writer.threads.keepalivetime";
+  public static final String GROUP_COMMIT_CONF_KEY = "index.writer.groupcommit.enabled";
+  private static final boolean DEFAULT_GROUP_COMMIT = false;
+  public static final String GROUP_COMMIT_WINDOW_CONF_KEY = "index.writer.groupcommit.window.ms";
+  private static final long DEFAULT_GROUP_COMMIT_WINDOW = 0;
+  public static final String GROUP_COMMIT_MAX_SIZE_CONF_KEY = "index.writer.groupcommit.max.size";
+  private static final int DEFAULT_GROUP_COMMIT_MAX_SIZE = 1000;
   private static final Log LOG = LogFactory.getLog(ParallelWriterIndexCommitter.class);
 
   private HTableFactory factory;
   private Stoppable stopped;
   private QuickFailingTaskRunner pool;
+  private boolean groupCommit = DEFAULT_GROUP_COMMIT;
+  private long groupCommitWindowMs = DEFAULT_GROUP_COMMIT_WINDOW;
+  private int groupCommitMaxSize = DEFAULT_GROUP_COMMIT_MAX_SIZE;
+  private final ConcurrentMap<HTableInterfaceReference, IndexGroupCommitter> groupCommitters =
+      new ConcurrentHashMap<HTableInterfaceReference, IndexGroupCommitter>();
 
   @Override
   public void setup(IndexWriter parent, RegionCoprocessorEnvironment env, String name) {
@@ -88,6 +108,9 @@ public class ParallelWriterIndexCommitter implements IndexCommitter {
             DEFAULT_CONCURRENT_INDEX_WRITER_THREADS).
           setCoreTimeout(INDEX_WRITER_KEEP_ALIVE_TIME_CONF_KEY), env),
       env.getRegionServerServices(), parent, CachingHTableFactory.getCacheSize(conf));
+    this.groupCommit = conf.getBoolean(GROUP_COMMIT_CONF_KEY, DEFAULT_GROUP_COMMIT);
+    this.groupCommitWindowMs = conf.getLong(GROUP_COMMIT_WINDOW_CONF_KEY, DEFAULT_GROUP_COMMIT_WINDOW);
+    this.groupCommitMaxSize = conf.getInt(GROUP_COMMIT_MAX_SIZE_CONF_KEY, DEFAULT_GROUP_COMMIT_MAX_SIZE);
   }
 
   /**
@@ -151,7 +174,11 @@ public class ParallelWriterIndexCommitter implements IndexCommitter {
           try {
             HTableInterface table = factory.getTable(tableReference.get());
             throwFailureIfDone();
-            table.batch(mutations);
+            if (groupCommit) {
+              getGroupCommitter(tableReference).write(table, mutations);
+            } else {
+              table.batch(mutations);
+            }
           } catch (SingleIndexWriteFailureException e) {
             throw e;
           } catch (IOException e) {
@@ -186,6 +213,18 @@ public class ParallelWriterIndexCommitter implements IndexCommitter {
 
   }
 
+  private IndexGroupCommitter getGroupCommitter(HTableInterfaceReference tableReference) {
+    IndexGroupCommitter committer = groupCommitters.get(tableReference);
+    if (committer == null) {
+      committer = new IndexGroupCommitter(groupCommitWindowMs, groupCommitMaxSize);
+      IndexGroupCommitter existing = groupCommitters.putIfAbsent(tableReference, committer);
+      if (existing != null) {
+        committer = existing;
+      }
+    }
+    return committer;
+  }
+
   private void propagateFailure(Throwable throwable) throws SingleIndexWriteFailureException {
     try {
       throw throwable;
@@ -41,6 +41,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import com.salesforce.hbase.index.util.ImmutableBytesPtr;
 import com.salesforce.phoenix.memory.ChildMemoryManager;
 import com.salesforce.phoenix.memory.GlobalMemoryManager;
+import com.salesforce.phoenix.monitoring.ServerMetrics;
 import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.PTable;
@@ -93,8 +94,11 @@ public class GlobalCache extends TenantCacheImpl {
         super(new GlobalMemoryManager(Runtime.getRuntime().totalMemory() * 
                                           config.getInt(MAX_MEMORY_PERC_ATTRIB, QueryServicesOptions.DEFAULT_MAX_MEMORY_PERC) / 100,
                                       config.getInt(MAX_MEMORY_WAIT_MS_ATTRIB, QueryServicesOptions.DEFAULT_MAX_MEMORY_WAIT_MS)),
-              config.getInt(QueryServices.MAX_SERVER_CACHE_TIME_TO_LIVE_MS, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_TIME_TO_LIVE_MS));
+              config.getInt(QueryServices.MAX_SERVER_CACHE_TIME_TO_LIVE_MS, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_TIME_TO_LIVE_MS),
+              config.getInt(QueryServices.MAX_REUSABLE_SERVER_CACHE_TIME_TO_LIVE_MS, QueryServicesOptions.DEFAULT_MAX_REUSABLE_SERVER_CACHE_TIME_TO_LIVE_MS),
+              config.getLong(QueryServices.MAX_REUSABLE_SERVER_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MAX_REUSABLE_SERVER_CACHE_SIZE));
         this.config = config;
+        ServerMetrics.getInstance(config).setGlobalMemoryManager(getMemoryManager());
     }
     
     public Configuration getConfig() {
@@ -111,7 +115,10 @@ public class GlobalCache extends TenantCacheImpl {
         if (tenantCache == null) {
             int maxTenantMemoryPerc = config.getInt(MAX_TENANT_MEMORY_PERC_ATTRIB, QueryServicesOptions.DEFAULT_MAX_TENANT_MEMORY_PERC);
             int maxServerCacheTimeToLive = config.getInt(QueryServices.MAX_SERVER_CACHE_TIME_TO_LIVE_MS, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_TIME_TO_LIVE_MS);
-            TenantCacheImpl newTenantCache = new TenantCacheImpl(new ChildMemoryManager(getMemoryManager(), maxTenantMemoryPerc), maxServerCacheTimeToLive);
+            int maxReusableServerCacheTimeToLive = config.getInt(QueryServices.MAX_REUSABLE_SERVER_CACHE_TIME_TO_LIVE_MS, QueryServicesOptions.DEFAULT_MAX_REUSABLE_SERVER_CACHE_TIME_TO_LIVE_MS);
+            long maxReusableServerCacheSize = config.getLong(QueryServices.MAX_REUSABLE_SERVER_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MAX_REUSABLE_SERVER_CACHE_SIZE);
+            TenantCacheImpl newTenantCache = new TenantCacheImpl(new ChildMemoryManager(getMemoryManager(), maxTenantMemoryPerc), maxServerCacheTimeToLive,
+                    maxReusableServerCacheTimeToLive, maxReusableServerCacheSize);
             tenantCache = perTenantCacheMap.putIfAbsent(tenantId, newTenantCache);
             if (tenantCache == null) {
                 tenantCache = newTenantCache;
@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -52,6 +53,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.salesforce.phoenix.compile.ScanRanges;
 import com.salesforce.phoenix.coprocessor.ServerCachingProtocol;
 import com.salesforce.phoenix.coprocessor.ServerCachingProtocol.ServerCacheFactory;
@@ -68,7 +70,9 @@ import com.salesforce.phoenix.util.SQLCloseables;
 
 /**
  * 
- * Client for sending cache to each region server
+ * Client for sending cache to each region server. The cache is sent directly to a
+ * few region servers which relay it on to the others, so that the amount of data
+ * sent by the client does not grow with the size of the cluster.
  * 
  * @author jtaylor
  * @since 0.1
@@ -107,11 +111,21 @@ public class ServerCacheClient {
         private final int size;
         private final byte[] id;
         private final ImmutableSet<HRegionLocation> servers;
+        private final byte[] pinId;
         
         public ServerCache(byte[] id, Set<HRegionLocation> servers, int size) {
+            this(id, servers, size, null);
+        }
+        
+        /**
+         * @param pinId for a reusable cache, the identifier under which it is pinned
+         * on the region servers, and otherwise null
+         */
+        public ServerCache(byte[] id, Set<HRegionLocation> servers, int size, byte[] pinId) {
             this.id = id;
             this.servers = ImmutableSet.copyOf(servers);
             this.size = size;
+            this.pinId = pinId;
         }
 
         /**
@@ -121,6 +135,13 @@ public class ServerCacheClient {
             return size;
         }
 
+        /**
+         * Gets the number of region servers holding this cache
+         */
+        public int getServerCount() {
+            return servers.size();
+        }
+
         /**
          * Gets the unique identifier for this hash cache
          */
@@ -129,23 +150,129 @@ public class ServerCacheClient {
         }
 
         /**
-         * Call to free up cache on region servers when no longer needed
+         * Call to free up cache on region servers when no longer needed. A reusable
+         * cache is only unpinned, and left in place for other queries until it expires
+         * on the region servers.
          */
         @Override
         public void close() throws SQLException {
-            removeServerCache(id, servers);
+            removeServerCache(pinId == null ? id : pinId, servers);
         }
 
     }
     
+    /**
+     * Find the region servers hosting the regions of the table that intersect with the key ranges.
+     * @param keys filled in with the start key of a region on each of the region servers
+     * @return the set of region servers
+     */
+    private Set<HRegionLocation> getServers(ScanRanges keyRanges, byte[] tableName, List<byte[]> keys) throws SQLException {
+        List<HRegionLocation> locations = connection.getQueryServices().getAllTableRegions(tableName);
+        int nRegions = locations.size();
+        // Size these based on worst case
+        Set<HRegionLocation> servers = new HashSet<HRegionLocation>(nRegions);
+        for (HRegionLocation entry : locations) {
+            // Keep track of servers we've sent to and only send once
+            if ( ! servers.contains(entry) && 
+                    keyRanges.intersect(entry.getRegionInfo().getStartKey(), entry.getRegionInfo().getEndKey())) {  // Call RPC once per server
+                servers.add(entry);
+                if (LOG.isDebugEnabled()) {LOG.debug("Adding cache entry to be sent for " + entry);}
+                keys.add(entry.getRegionInfo().getStartKey());
+            } else {
+                if (LOG.isDebugEnabled()) {LOG.debug("NOT adding cache entry to be sent for " + entry + " since one already exists for that entry");}
+            }
+        }
+        return servers;
+    }
+    
     public ServerCache addServerCache(ScanRanges keyRanges, final ImmutableBytesWritable cachePtr, final ServerCacheFactory cacheFactory, final TableRef cacheUsingTableRef) throws SQLException {
+        return addServerCache(keyRanges, generateId(), cachePtr, cacheFactory, cacheUsingTableRef, false);
+    }
+    
+    /**
+     * Send a cache that is kept on the region servers after the returned {@link ServerCache} is closed,
+     * so that it may be used by other queries through {@link #getReusableServerCache(ScanRanges, byte[], TableRef)}.
+     * @param cacheId identifier derived from the content of the cache
+     */
+    public ServerCache addReusableServerCache(ScanRanges keyRanges, byte[] cacheId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory, TableRef cacheUsingTableRef) throws SQLException {
+        return addServerCache(keyRanges, cacheId, cachePtr, cacheFactory, cacheUsingTableRef, true);
+    }
+    
+    /**
+     * Get a reusable cache previously added through {@link #addReusableServerCache(ScanRanges, byte[], ImmutableBytesWritable, ServerCacheFactory, TableRef)}
+     * @param cacheId identifier derived from the content of the cache
+     * @return the cache, pinned on each region server until the returned {@link ServerCache} is closed,
+     * if each region server that would be sent the cache already holds it, and otherwise null.
+     */
+    public ServerCache getReusableServerCache(ScanRanges keyRanges, final byte[] cacheId, TableRef cacheUsingTableRef) throws SQLException {
+        ConnectionQueryServices services = connection.getQueryServices();
+        final byte[] tableName = cacheUsingTableRef.getTable().getPhysicalName().getBytes();
+        List<byte[]> keys = new ArrayList<byte[]>();
+        Set<HRegionLocation> servers = getServers(keyRanges, tableName, keys);
+        final byte[] tenantId = connection.getTenantId() == null ? null : connection.getTenantId().getBytes();
+        final byte[] pinId = generateId();
+        cacheUsingTableRefMap.put(Bytes.mapKey(pinId), cacheUsingTableRef);
+        ServerCache cache = new ServerCache(cacheId, servers, 0, pinId);
+        List<Closeable> closeables = new ArrayList<Closeable>(keys.size());
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(keys.size());
+        SQLException firstException = null;
+        boolean hasCache = true;
+        try {
+            for (final byte[] key : keys) {
+                final HTableInterface htable = services.getTable(tableName);
+                closeables.add(htable);
+                futures.add(services.getExecutor().submit(new JobCallable<Boolean>() {
+                    
+                    @Override
+                    public Boolean call() throws Exception {
+                        ServerCachingProtocol protocol = htable.coprocessorProxy(ServerCachingProtocol.class, key);
+                        return protocol.pinReusableServerCache(tenantId, cacheId, pinId);
+                    }
+
+                    @Override
+                    public Object getJobId() {
+                        return ServerCacheClient.this;
+                    }
+                }));
+            }
+            int timeoutMs = services.getProps().getInt(QueryServices.THREAD_TIMEOUT_MS_ATTRIB, QueryServicesOptions.DEFAULT_THREAD_TIMEOUT_MS);
+            for (Future<Boolean> future : futures) {
+                hasCache &= future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            firstException = new SQLException(e);
+        } finally {
+            try {
+                Closeables.closeAll(closeables);
+            } catch (IOException e) {
+                if (firstException == null) {
+                    firstException = new SQLException(e);
+                }
+            } finally {
+                if (firstException != null || !hasCache) {
+                    // Release the pins taken on the region servers that do hold the cache
+                    SQLCloseables.closeAllQuietly(Collections.singletonList(cache));
+                }
+                if (firstException != null) {
+                    throw firstException;
+                }
+            }
+        }
+        if (!hasCache) {
+            return null;
+        }
+        if (LOG.isDebugEnabled()) {LOG.debug("Reusing cache " + idToString(cacheId) + " on " + servers);}
+        return cache;
+    }
+    
+    private ServerCache addServerCache(ScanRanges keyRanges, final byte[] cacheId, final ImmutableBytesWritable cachePtr, final ServerCacheFactory cacheFactory, 
+            final TableRef cacheUsingTableRef, final boolean reusable) throws SQLException {
         ConnectionQueryServices services = connection.getQueryServices();
         MemoryChunk chunk = services.getMemoryManager().allocate(cachePtr.getLength());
         List<Closeable> closeables = new ArrayList<Closeable>();
         closeables.add(chunk);
         ServerCache hashCacheSpec = null;
         SQLException firstException = null;
-        final byte[] cacheId = generateId();
         /**
          * Execute EndPoint in parallel on each server to send compressed hash cache 
          */
@@ -155,51 +282,50 @@ public class ServerCacheClient {
         ExecutorService executor = services.getExecutor();
         List<Future<Boolean>> futures = Collections.emptyList();
         try {
-            List<HRegionLocation> locations = services.getAllTableRegions(cacheUsingTableRef.getTable().getPhysicalName().getBytes());
-            int nRegions = locations.size();
-            // Size these based on worst case
-            futures = new ArrayList<Future<Boolean>>(nRegions);
-            Set<HRegionLocation> servers = new HashSet<HRegionLocation>(nRegions);
-            for (HRegionLocation entry : locations) {
-                // Keep track of servers we've sent to and only send once
-                if ( ! servers.contains(entry) && 
-                        keyRanges.intersect(entry.getRegionInfo().getStartKey(), entry.getRegionInfo().getEndKey())) {  // Call RPC once per server
-                    servers.add(entry);
-                    if (LOG.isDebugEnabled()) {LOG.debug("Adding cache entry to be sent for " + entry);}
-                    final byte[] key = entry.getRegionInfo().getStartKey();
-                    final HTableInterface htable = services.getTable(cacheUsingTableRef.getTable().getPhysicalName().getBytes());
-                    closeables.add(htable);
-                    futures.add(executor.submit(new JobCallable<Boolean>() {
-                        
-                        @Override
-                        public Boolean call() throws Exception {
-                            ServerCachingProtocol protocol = htable.coprocessorProxy(ServerCachingProtocol.class, key);
-                            return protocol.addServerCache(connection.getTenantId() == null ? null : connection.getTenantId().getBytes(), cacheId, cachePtr, cacheFactory);
-                        }
+            final byte[] tableName = cacheUsingTableRef.getTable().getPhysicalName().getBytes();
+            List<byte[]> keys = new ArrayList<byte[]>();
+            Set<HRegionLocation> servers = getServers(keyRanges, tableName, keys);
+            /**
+             * Rather than sending the cache to every server ourselves, send it to at most fanout servers,
+             * each of which relays it on to its share of the remaining servers.
+             */
+            final int fanout = services.getProps().getInt(QueryServices.SERVER_CACHE_RELAY_FANOUT_ATTRIB, QueryServicesOptions.DEFAULT_SERVER_CACHE_RELAY_FANOUT);
+            final int relayWaitMs = services.getProps().getInt(QueryServices.SERVER_CACHE_RELAY_WAIT_MS_ATTRIB, QueryServicesOptions.DEFAULT_SERVER_CACHE_RELAY_WAIT_MS);
+            List<List<byte[]>> groups = partitionForRelay(keys, fanout);
+            futures = new ArrayList<Future<Boolean>>(groups.size());
+            final byte[] tenantId = connection.getTenantId() == null ? null : connection.getTenantId().getBytes();
+            final byte[] pinId = reusable ? generateId() : null;
+            for (final List<byte[]> group : groups) {
+                final HTableInterface htable = services.getTable(tableName);
+                closeables.add(htable);
+                futures.add(executor.submit(new JobCallable<Boolean>() {
+                    
+                    @Override
+                    public Boolean call() throws Exception {
+                        sendServerCache(htable, tenantId, cacheId, pinId, cachePtr, cacheFactory, group, fanout);
+                        return confirmRelayedServerCache(htable, tenantId, cacheId, pinId, cachePtr, cacheFactory, group.subList(1, group.size()), relayWaitMs);
+                    }
 
-                        /**
-                         * Defines the grouping for round robin behavior.  All threads spawned to process
-                         * this scan will be grouped together and time sliced with other simultaneously
-                         * executing parallel scans.
-                         */
-                        @Override
-                        public Object getJobId() {
-                            return ServerCacheClient.this;
-                        }
-                    }));
-                } else {
-                    if (LOG.isDebugEnabled()) {LOG.debug("NOT adding cache entry to be sent for " + entry + " since one already exists for that entry");}
-                }
+                    /**
+                     * Defines the grouping for round robin behavior.  All threads spawned to process
+                     * this scan will be grouped together and time sliced with other simultaneously
+                     * executing parallel scans.
+                     */
+                    @Override
+                    public Object getJobId() {
+                        return ServerCacheClient.this;
+                    }
+                }));
             }
             
-            hashCacheSpec = new ServerCache(cacheId,servers,cachePtr.getLength());
+            hashCacheSpec = new ServerCache(cacheId,servers,cachePtr.getLength(),pinId);
+            cacheUsingTableRefMap.put(Bytes.mapKey(pinId == null ? cacheId : pinId), cacheUsingTableRef);
             // Execute in parallel
             int timeoutMs = services.getProps().getInt(QueryServices.THREAD_TIMEOUT_MS_ATTRIB, QueryServicesOptions.DEFAULT_THREAD_TIMEOUT_MS);
             for (Future<Boolean> future : futures) {
                 future.get(timeoutMs, TimeUnit.MILLISECONDS);
             }
             
-            cacheUsingTableRefMap.put(Bytes.mapKey(cacheId), cacheUsingTableRef);
             success = true;
         } catch (SQLException e) {
             firstException = e;
@@ -230,6 +356,82 @@ public class ServerCacheClient {
         return hashCacheSpec;
     }
     
+    /**
+     * Split the region servers to which a cache needs to be sent into at most fanout groups.
+     * The cache is sent to the first region server of each group, which relays it on to the
+     * rest of its group.
+     * @param keys the start key of a region on each region server
+     * @param fanout the maximum number of groups or a non positive number for a group per region server
+     */
+    public static List<List<byte[]>> partitionForRelay(List<byte[]> keys, int fanout) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int groupSize = fanout <= 0 ? 1 : (keys.size() + fanout - 1) / fanout;
+        return Lists.partition(keys, groupSize);
+    }
+    
+    /**
+     * Send the cache to the region server hosting the first key, having it relay the cache on to
+     * the region servers hosting the rest of the keys. The relay completes in the background, after
+     * this returns, so use {@link #confirmRelayedServerCache(HTableInterface, byte[], byte[], byte[], ImmutableBytesWritable, ServerCacheFactory, List, int)}
+     * to wait for it.
+     * @param htable the table whose regions are used to locate the region servers
+     * @param pinId for a cache kept for use by other queries, the identifier under which it
+     * is pinned for this query, and otherwise null
+     * @param keys the start key of a region on each region server to which the cache is sent
+     * @param fanout the number of region servers to which each region server relays the cache
+     * @return true on success and otherwise throws
+     */
+    public static boolean sendServerCache(HTableInterface htable, byte[] tenantId, byte[] cacheId, byte[] pinId, ImmutableBytesWritable cachePtr,
+            ServerCacheFactory cacheFactory, List<byte[]> keys, int fanout) throws SQLException {
+        ServerCachingProtocol protocol = htable.coprocessorProxy(ServerCachingProtocol.class, keys.get(0));
+        if (keys.size() == 1) {
+            return pinId != null ? protocol.addReusableServerCache(tenantId, cacheId, pinId, cachePtr, cacheFactory) 
+                    : protocol.addServerCache(tenantId, cacheId, cachePtr, cacheFactory);
+        }
+        List<byte[]> relayKeys = keys.subList(1, keys.size());
+        return protocol.relayServerCache(tenantId, cacheId, pinId, cachePtr, cacheFactory, htable.getTableName(), relayKeys.toArray(new byte[relayKeys.size()][]), fanout);
+    }
+    
+    /**
+     * Wait for a cache relayed by {@link #sendServerCache(HTableInterface, byte[], byte[], byte[], ImmutableBytesWritable, ServerCacheFactory, List, int)}
+     * to reach the region servers hosting the keys, sending it directly to any region server that
+     * does not hold it once the wait time has passed.
+     * @param keys the start key of a region on each region server to which the cache was relayed
+     * @param waitMs the time to wait for the relay before sending the cache directly
+     * @return true on success and otherwise throws
+     */
+    public static boolean confirmRelayedServerCache(HTableInterface htable, byte[] tenantId, byte[] cacheId, byte[] pinId, ImmutableBytesWritable cachePtr,
+            ServerCacheFactory cacheFactory, List<byte[]> keys, int waitMs) throws SQLException {
+        List<byte[]> missingKeys = new ArrayList<byte[]>(keys);
+        long waitUntil = System.currentTimeMillis() + waitMs;
+        long sleepMs = 10;
+        while (true) {
+            for (Iterator<byte[]> iterator = missingKeys.iterator(); iterator.hasNext(); ) {
+                if (htable.coprocessorProxy(ServerCachingProtocol.class, iterator.next()).hasServerCache(tenantId, cacheId)) {
+                    iterator.remove();
+                }
+            }
+            long remainingMs = waitUntil - System.currentTimeMillis();
+            if (missingKeys.isEmpty() || remainingMs <= 0) {
+                break;
+            }
+            try {
+                Thread.sleep(Math.min(sleepMs, remainingMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(e);
+            }
+            sleepMs = Math.min(sleepMs * 2, 1000);
+        }
+        for (byte[] key : missingKeys) {
+            LOG.warn("Server cache " + idToString(cacheId) + " was not relayed to the region server hosting " + Bytes.toStringBinary(key) + ", so sending it directly");
+            sendServerCache(htable, tenantId, cacheId, pinId, cachePtr, cacheFactory, Collections.singletonList(key), 0);
+        }
+        return true;
+    }
+    
     /**
      * Remove the cached table from all region servers
      * @param cacheId unique identifier for the hash join (returned from {@link #addHashCache(HTable, Scan, Set)})
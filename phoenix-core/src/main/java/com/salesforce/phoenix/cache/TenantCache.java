@@ -48,5 +48,7 @@ public interface TenantCache {
     MemoryManager getMemoryManager();
     Closeable getServerCache(ImmutableBytesPtr cacheId);
     Closeable addServerCache(ImmutableBytesPtr cacheId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory) throws SQLException;
+    Closeable addReusableServerCache(ImmutableBytesPtr cacheId, ImmutableBytesPtr pinId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory) throws SQLException;
+    boolean pinReusableServerCache(ImmutableBytesPtr cacheId, ImmutableBytesPtr pinId);
     void removeServerCache(ImmutableBytesPtr cacheId) throws SQLException;
 }
@@ -30,6 +30,8 @@ package com.salesforce.phoenix.cache;
 import java.io.Closeable;
 import java.sql.SQLException;
 import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -39,6 +41,7 @@ import com.salesforce.hbase.index.util.ImmutableBytesPtr;
 import com.salesforce.phoenix.coprocessor.ServerCachingProtocol.ServerCacheFactory;
 import com.salesforce.phoenix.memory.MemoryManager;
 import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.util.Closeables;
 
 /**
@@ -51,12 +54,45 @@ import com.salesforce.phoenix.util.Closeables;
  */
 public class TenantCacheImpl implements TenantCache {
     private final int maxTimeToLiveMs;
+    private final int maxReusableTimeToLiveMs;
+    private final long maxReusableBytes;
     private final MemoryManager memoryManager;
     private volatile Cache<ImmutableBytesPtr, Closeable> serverCaches;
+    private volatile Cache<ImmutableBytesPtr, ReusableServerCache> reusableServerCaches;
+    private volatile Cache<ImmutableBytesPtr, ReusableServerCache> pins;
+    // Reusable caches in use by a query, which remain available to it after being evicted
+    private final ConcurrentMap<ImmutableBytesPtr, ReusableServerCache> pinnedServerCaches = new ConcurrentHashMap<ImmutableBytesPtr, ReusableServerCache>();
 
+    /**
+     * A server cache that is not removed when the query that added it completes, but
+     * is kept for a fixed amount of time so that later queries may use it as well.
+     * Each query using the cache pins it, so that it is only closed once it has been
+     * removed and is no longer pinned.
+     */
+    private static class ReusableServerCache {
+        private final ImmutableBytesPtr cacheId;
+        private final Closeable cache;
+        private final int size;
+        private int pinCount;
+        private boolean isRemoved;
+        
+        private ReusableServerCache(ImmutableBytesPtr cacheId, Closeable cache, int size) {
+            this.cacheId = cacheId;
+            this.cache = cache;
+            this.size = size;
+        }
+    }
+    
     public TenantCacheImpl(MemoryManager memoryManager, int maxTimeToLiveMs) {
+        this(memoryManager, maxTimeToLiveMs, 
+                QueryServicesOptions.DEFAULT_MAX_REUSABLE_SERVER_CACHE_TIME_TO_LIVE_MS, QueryServicesOptions.DEFAULT_MAX_REUSABLE_SERVER_CACHE_SIZE);
+    }
+    
+    public TenantCacheImpl(MemoryManager memoryManager, int maxTimeToLiveMs, int maxReusableTimeToLiveMs, long maxReusableBytes) {
         this.memoryManager = memoryManager;
         this.maxTimeToLiveMs = maxTimeToLiveMs;
+        this.maxReusableTimeToLiveMs = maxReusableTimeToLiveMs;
+        this.maxReusableBytes = maxReusableBytes;
     }
     
     @Override
@@ -84,9 +120,102 @@ public class TenantCacheImpl implements TenantCache {
         return serverCaches;
     }
     
+    private Cache<ImmutableBytesPtr,ReusableServerCache> getReusableServerCaches() {
+        /* Delay creation of this map until it's needed */
+        if (reusableServerCaches == null) {
+            synchronized(this) {
+                if (reusableServerCaches == null) {
+                    // Expire after write, as the cache reflects the data at the time it was built.
+                    // Use a single segment, as Guava splits the maximum weight between segments.
+                    reusableServerCaches = CacheBuilder.newBuilder()
+                        .concurrencyLevel(1)
+                        .expireAfterWrite(Math.max(0, maxReusableTimeToLiveMs), TimeUnit.MILLISECONDS)
+                        .maximumWeight(maxReusableBytes)
+                        .weigher(new Weigher<ImmutableBytesPtr, ReusableServerCache>() {
+                            @Override
+                            public int weigh(ImmutableBytesPtr key, ReusableServerCache value) {
+                                return value.size;
+                            }
+                        })
+                        .removalListener(new RemovalListener<ImmutableBytesPtr, ReusableServerCache>(){
+                            @Override
+                            public void onRemoval(RemovalNotification<ImmutableBytesPtr, ReusableServerCache> notification) {
+                                remove(notification.getValue());
+                            }
+                        })
+                        .build();
+                }
+            }
+        }
+        return reusableServerCaches;
+    }
+    
+    private Cache<ImmutableBytesPtr,ReusableServerCache> getPins() {
+        /* Delay creation of this map until it's needed */
+        if (pins == null) {
+            synchronized(this) {
+                if (pins == null) {
+                    pins = CacheBuilder.newBuilder()
+                        .expireAfterAccess(maxTimeToLiveMs, TimeUnit.MILLISECONDS)
+                        .removalListener(new RemovalListener<ImmutableBytesPtr, ReusableServerCache>(){
+                            @Override
+                            public void onRemoval(RemovalNotification<ImmutableBytesPtr, ReusableServerCache> notification) {
+                                unpin(notification.getValue());
+                            }
+                        })
+                        .build();
+                }
+            }
+        }
+        return pins;
+    }
+    
+    private boolean pin(ReusableServerCache reusableCache, ImmutableBytesPtr pinId) {
+        synchronized (reusableCache) {
+            if (reusableCache.isRemoved) {
+                return false;
+            }
+            if (reusableCache.pinCount++ == 0) {
+                pinnedServerCaches.put(reusableCache.cacheId, reusableCache);
+            }
+        }
+        getPins().put(pinId, reusableCache);
+        return true;
+    }
+    
+    private void unpin(ReusableServerCache reusableCache) {
+        synchronized (reusableCache) {
+            if (--reusableCache.pinCount == 0) {
+                pinnedServerCaches.remove(reusableCache.cacheId, reusableCache);
+                if (reusableCache.isRemoved) {
+                    Closeables.closeAllQuietly(Collections.singletonList(reusableCache.cache));
+                }
+            }
+        }
+    }
+    
+    private void remove(ReusableServerCache reusableCache) {
+        synchronized (reusableCache) {
+            reusableCache.isRemoved = true;
+            if (reusableCache.pinCount == 0) {
+                Closeables.closeAllQuietly(Collections.singletonList(reusableCache.cache));
+            }
+        }
+    }
+    
     @Override
     public Closeable getServerCache(ImmutableBytesPtr cacheId) {
-        return getServerCaches().getIfPresent(cacheId);
+        Closeable cache = getServerCaches().getIfPresent(cacheId);
+        if (cache == null) {
+            ReusableServerCache reusableCache = getReusableServerCaches().getIfPresent(cacheId);
+            if (reusableCache == null) {
+                reusableCache = pinnedServerCaches.get(cacheId);
+            }
+            if (reusableCache != null) {
+                cache = reusableCache.cache;
+            }
+        }
+        return cache;
     }
     
     @Override
@@ -97,8 +226,32 @@ public class TenantCacheImpl implements TenantCache {
         return element;
     }
     
+    @Override
+    public Closeable addReusableServerCache(ImmutableBytesPtr cacheId, ImmutableBytesPtr pinId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory) throws SQLException {
+        MemoryChunk chunk = this.getMemoryManager().allocate(cachePtr.getLength());
+        Closeable element = cacheFactory.newCache(cachePtr, chunk);
+        ReusableServerCache reusableCache = new ReusableServerCache(cacheId, element, cachePtr.getLength());
+        // Pin before adding, so that the cache stays available to the query adding it even if evicted right away
+        pin(reusableCache, pinId);
+        if (cachePtr.getLength() <= maxReusableBytes) {
+            getReusableServerCaches().put(cacheId, reusableCache);
+        } else {
+            // Too big to keep for other queries, so only used by the query adding it
+            remove(reusableCache);
+        }
+        return element;
+    }
+    
+    @Override
+    public boolean pinReusableServerCache(ImmutableBytesPtr cacheId, ImmutableBytesPtr pinId) {
+        ReusableServerCache reusableCache = getReusableServerCaches().getIfPresent(cacheId);
+        return reusableCache != null && pin(reusableCache, pinId);
+    }
+    
     @Override
     public void removeServerCache(ImmutableBytesPtr cacheId) throws SQLException {
         getServerCaches().invalidate(cacheId);
+        getReusableServerCaches().invalidate(cacheId);
+        getPins().invalidate(cacheId);
     }
 }
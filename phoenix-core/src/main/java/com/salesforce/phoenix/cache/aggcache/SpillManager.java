@@ -38,7 +38,7 @@ import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import com.salesforce.hbase.index.util.ImmutableBytesPtr;
 import com.salesforce.phoenix.expression.aggregator.Aggregator;
-import com.salesforce.phoenix.expression.aggregator.ServerAggregators;
+import com.salesforce.phoenix.expression.aggregator.Aggregators;
 import com.salesforce.phoenix.expression.function.SingleAggregateFunction;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.schema.KeyValueSchema;
@@ -96,21 +96,22 @@ public class SpillManager implements Closeable {
     private final ArrayList<SpillMap> spillMaps;
     private final int numSpillFiles;
 
-    private final ServerAggregators aggregators;
+    private final Aggregators aggregators;
     private final Configuration conf;
 
     /**
      * SpillManager takes care of spilling and loading tuples from spilled data structs
      * @param numSpillFiles
-     * @param serverAggregators
+     * @param aggregators either the server or the client aggregators
+     * @param conf HBase configuration or null if not available
      */
-    public SpillManager(int numSpillFiles, ServerAggregators serverAggregators,
+    public SpillManager(int numSpillFiles, Aggregators aggregators,
             Configuration conf, SpillableGroupByCache.QueryCache cache) {
         try {
-            int estValueSize = serverAggregators.getEstimatedByteSize();
+            int estValueSize = aggregators.getEstimatedByteSize();
             spillMaps = Lists.newArrayList();
             this.numSpillFiles = numSpillFiles;
-            this.aggregators = serverAggregators;
+            this.aggregators = aggregators;
             this.conf = conf;
             
             // Ensure that a single element fits onto a page!!!
@@ -130,7 +131,7 @@ public class SpillManager implements Closeable {
     // serialize a key/value tuple into a byte array
     // WARNING: expensive
     private byte[] serialize(ImmutableBytesPtr key, Aggregator[] aggs,
-            ServerAggregators serverAggs) throws IOException {
+            Aggregators aggregators) throws IOException {
 
         DataOutputStream output = null;
         ByteArrayOutputStream bai = null;
@@ -141,7 +142,7 @@ public class SpillManager implements Closeable {
             WritableUtils.writeVInt(output, key.getLength());
             // key
             output.write(key.get(), key.getOffset(), key.getLength());
-            byte[] aggsByte = serverAggs.toBytes(aggs);
+            byte[] aggsByte = aggregators.toBytes(aggs);
             // aggs length
             WritableUtils.writeVInt(output, aggsByte.length);
             // aggs
@@ -216,9 +217,7 @@ public class SpillManager implements Closeable {
             schema.iterator(ptr);
             while ((hasValue = schema.next(ptr, i, maxOffset, tempValueSet)) != null) {
                 SingleAggregateFunction func = funcArray[i];
-                sAggs[i++] =
-                        hasValue ? func.newServerAggregator(conf, ptr) : func
-                                .newServerAggregator(conf);
+                sAggs[i++] = aggregators.newAggregator(func, conf, hasValue ? ptr : null);
             }
             return sAggs;
 
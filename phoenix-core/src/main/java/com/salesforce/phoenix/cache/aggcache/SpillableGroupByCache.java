@@ -37,6 +37,8 @@ import com.salesforce.phoenix.expression.aggregator.Aggregator;
 import com.salesforce.phoenix.expression.aggregator.ServerAggregators;
 import com.salesforce.phoenix.memory.InsufficientMemoryException;
 import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+import com.salesforce.phoenix.monitoring.ServerMetricType;
+import com.salesforce.phoenix.monitoring.ServerMetrics;
 import com.salesforce.phoenix.util.KeyValueUtil;
 
 /**
@@ -91,13 +93,11 @@ public class SpillableGroupByCache implements GroupByCache {
     private final MemoryChunk chunk;
 
     /*
-     * inner class that makes cache queryable for other classes that should not get the full instance. Queryable view of
+     * Interface that makes a cache queryable for other classes that should not get the full instance. Queryable view of
      * the cache
      */
-    public class QueryCache {
-        public boolean isKeyContained(ImmutableBytesPtr key) {
-            return cache.containsKey(key);
-        }
+    public static interface QueryCache {
+        public boolean isKeyContained(ImmutableBytesPtr key);
     }
 
     /**
@@ -167,9 +167,15 @@ public class SpillableGroupByCache implements GroupByCache {
                             // Only create spill data structs if LRU
                             // cache is too small
                             spillManager = new SpillManager(numSpillFilesConf, aggregators, env.getConfiguration(),
-                                    new QueryCache());
+                                    new QueryCache() {
+                                        @Override
+                                        public boolean isKeyContained(ImmutableBytesPtr key) {
+                                            return cache.containsKey(key);
+                                        }
+                                    });
                         }
                         spillManager.spill(eldest.getKey(), eldest.getValue());
+                        ServerMetrics.getInstance(env.getConfiguration()).update(ServerMetricType.GROUP_BY_SPILL_COUNT, 1);
                         // keep track of elements in cache
                         curNumCacheElements--;
                     } catch (IOException ioe) {
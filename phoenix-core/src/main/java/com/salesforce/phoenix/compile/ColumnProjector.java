@@ -74,5 +74,40 @@ public interface ColumnProjector {
      */
     Object getValue(Tuple tuple, PDataType type, ImmutableBytesWritable ptr) throws SQLException;
     
+    /**
+     * Get the value of the column as a primitive, coercing it if necessary. Numeric values are
+     * decoded directly from their serialized form without being boxed.
+     * @param tuple the row containing the column
+     * @param ptr used to retrieve the value, with a length of zero upon return if the value is null
+     * @return the value of the column or 0 if the value is null
+     * @throws SQLException
+     */
+    long getLong(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * @see #getLong(Tuple, ImmutableBytesWritable)
+     */
+    int getInt(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * @see #getLong(Tuple, ImmutableBytesWritable)
+     */
+    short getShort(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * @see #getLong(Tuple, ImmutableBytesWritable)
+     */
+    byte getByte(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * @see #getLong(Tuple, ImmutableBytesWritable)
+     */
+    double getDouble(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * @see #getLong(Tuple, ImmutableBytesWritable)
+     */
+    float getFloat(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
     boolean isCaseSensitive();
 }
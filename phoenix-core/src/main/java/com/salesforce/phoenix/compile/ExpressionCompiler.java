@@ -112,6 +112,7 @@ import com.salesforce.phoenix.schema.RowKeyValueAccessor;
 import com.salesforce.phoenix.schema.TableRef;
 import com.salesforce.phoenix.schema.TypeMismatchException;
 import com.salesforce.phoenix.util.ByteUtil;
+import com.salesforce.phoenix.util.PackedRowUtil;
 import com.salesforce.phoenix.util.SchemaUtil;
 
 
@@ -524,7 +525,7 @@ public class ExpressionCompiler extends UnsupportedAllParseNodeVisitor<Expressio
         TableRef tableRef = ref.getTableRef();
         if (tableRef.equals(context.getCurrentTable()) 
                 && !SchemaUtil.isPKColumn(ref.getColumn())) { // project only kv columns
-            context.getScan().addColumn(ref.getColumn().getFamilyName().getBytes(), ref.getColumn().getName().getBytes());
+            context.getScan().addColumn(ref.getColumn().getFamilyName().getBytes(), PackedRowUtil.getColumnQualifier(ref.getTable(), ref.getColumn()));
         }
         Expression expression = ref.newColumnExpression();
         Expression wrappedExpression = wrapGroupByExpression(expression);
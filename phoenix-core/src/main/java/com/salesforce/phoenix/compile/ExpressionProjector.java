@@ -29,12 +29,15 @@ package com.salesforce.phoenix.compile;
 
 
 import java.sql.SQLException;
+import java.util.EnumSet;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
 import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
 
 
 
@@ -46,6 +49,12 @@ import com.salesforce.phoenix.schema.tuple.Tuple;
  * @since 0.1
  */
 public class ExpressionProjector implements ColumnProjector {
+    // Types whose values are converted to any of the primitive types through their codec
+    private static final EnumSet<PDataType> CODEC_TYPES = EnumSet.of(
+            PDataType.LONG, PDataType.UNSIGNED_LONG, PDataType.INTEGER, PDataType.UNSIGNED_INT,
+            PDataType.SMALLINT, PDataType.UNSIGNED_SMALLINT, PDataType.TINYINT, PDataType.UNSIGNED_TINYINT,
+            PDataType.FLOAT, PDataType.UNSIGNED_FLOAT, PDataType.DOUBLE, PDataType.UNSIGNED_DOUBLE);
+    
     private final String name;
     private final Expression expression;
     private final String tableName;
@@ -85,12 +94,111 @@ public class ExpressionProjector implements ColumnProjector {
             }        
             return type.toObject(ptr, expression.getDataType(), expression.getColumnModifier());
         } catch (RuntimeException e) {
-            // FIXME: Expression.evaluate does not throw SQLException
-            // so this will unwrap throws from that.
-            if (e.getCause() instanceof SQLException) {
-                throw (SQLException) e.getCause();
+            throw unwrap(e);
+        }
+    }
+    
+    private static RuntimeException unwrap(RuntimeException e) throws SQLException {
+        // FIXME: Expression.evaluate does not throw SQLException
+        // so this will unwrap throws from that.
+        if (e.getCause() instanceof SQLException) {
+            throw (SQLException) e.getCause();
+        }
+        return e;
+    }
+    
+    /**
+     * Evaluates the expression, leaving ptr empty if the value is null.
+     * @return true if the value may be decoded through the codec of the expression type
+     * and false if it needs to be converted through {@link PDataType#toObject(ImmutableBytesWritable, PDataType, ColumnModifier)}
+     */
+    private boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        if (!expression.evaluate(tuple, ptr)) {
+            ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            return false;
+        }
+        return ptr.getLength() > 0 && CODEC_TYPES.contains(expression.getDataType());
+    }
+    
+    private Number toNumber(PDataType type, ImmutableBytesWritable ptr) {
+        return ptr.getLength() == 0 ? null : (Number)type.toObject(ptr, expression.getDataType(), expression.getColumnModifier());
+    }
+    
+    @Override
+    public final long getLong(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        try {
+            if (evaluate(tuple, ptr)) {
+                return expression.getDataType().getCodec().decodeLong(ptr, expression.getColumnModifier());
+            }
+            Number value = toNumber(PDataType.LONG, ptr);
+            return value == null ? 0 : value.longValue();
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+    
+    @Override
+    public final int getInt(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        try {
+            if (evaluate(tuple, ptr)) {
+                return expression.getDataType().getCodec().decodeInt(ptr, expression.getColumnModifier());
+            }
+            Number value = toNumber(PDataType.INTEGER, ptr);
+            return value == null ? 0 : value.intValue();
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+    
+    @Override
+    public final short getShort(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        try {
+            if (evaluate(tuple, ptr)) {
+                return expression.getDataType().getCodec().decodeShort(ptr, expression.getColumnModifier());
+            }
+            Number value = toNumber(PDataType.SMALLINT, ptr);
+            return value == null ? 0 : value.shortValue();
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+    
+    @Override
+    public final byte getByte(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        try {
+            if (evaluate(tuple, ptr)) {
+                return expression.getDataType().getCodec().decodeByte(ptr, expression.getColumnModifier());
             }
-            throw e;
+            Number value = toNumber(PDataType.TINYINT, ptr);
+            return value == null ? 0 : value.byteValue();
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+    
+    @Override
+    public final double getDouble(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        try {
+            if (evaluate(tuple, ptr)) {
+                return expression.getDataType().getCodec().decodeDouble(ptr, expression.getColumnModifier());
+            }
+            Number value = toNumber(PDataType.DOUBLE, ptr);
+            return value == null ? 0 : value.doubleValue();
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+    
+    @Override
+    public final float getFloat(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        try {
+            if (evaluate(tuple, ptr)) {
+                return expression.getDataType().getCodec().decodeFloat(ptr, expression.getColumnModifier());
+            }
+            Number value = toNumber(PDataType.FLOAT, ptr);
+            return value == null ? 0 : value.floatValue();
+        } catch (RuntimeException e) {
+            throw unwrap(e);
         }
     }
 
@@ -97,7 +97,7 @@ public class FromCompiler {
         NamedTableNode tableNode = NamedTableNode.create(null, baseTable, Collections.<ColumnDef>emptyList());
         // Always use non-tenant-specific connection here
         try {
-            SingleTableColumnResolver visitor = new SingleTableColumnResolver(connection, tableNode, false, true);
+            SingleTableColumnResolver visitor = new SingleTableColumnResolver(connection, tableNode, false, true, false);
             return visitor;
         } catch (TableNotFoundException e) {
             // Used for mapped VIEW, since we won't be able to resolve that.
@@ -138,7 +138,7 @@ public class FromCompiler {
     		throws SQLException {
     	List<TableNode> fromNodes = statement.getFrom();
     	if (fromNodes.size() > 1) { throw new SQLFeatureNotSupportedException("Joins not supported"); }
-    	SingleTableColumnResolver visitor = new SingleTableColumnResolver(connection, (NamedTableNode)fromNodes.get(0), false, false);
+    	SingleTableColumnResolver visitor = new SingleTableColumnResolver(connection, (NamedTableNode)fromNodes.get(0), false, false, true);
     	return visitor;
     }
     
@@ -153,13 +153,13 @@ public class FromCompiler {
     }
 
     public static ColumnResolver getResolver(NamedTableNode tableNode, PhoenixConnection connection) throws SQLException {
-        SingleTableColumnResolver visitor = new SingleTableColumnResolver(connection, tableNode, false, false);
+        SingleTableColumnResolver visitor = new SingleTableColumnResolver(connection, tableNode, false, false, false);
         return visitor;
     }
     
     public static ColumnResolver getResolver(SingleTableSQLStatement statement, PhoenixConnection connection,
             List<ColumnDef> dyn_columns) throws SQLException {
-        SingleTableColumnResolver visitor = new SingleTableColumnResolver(connection, statement.getTable(), true, false);
+        SingleTableColumnResolver visitor = new SingleTableColumnResolver(connection, statement.getTable(), true, false, false);
         return visitor;
     }
 
@@ -187,7 +187,7 @@ public class FromCompiler {
            tableRefs = ImmutableList.of(new TableRef(alias, theTable, timeStamp, !table.getDynamicColumns().isEmpty()));
        }
        
-        public SingleTableColumnResolver(PhoenixConnection connection, NamedTableNode table, boolean updateCacheOnlyIfAutoCommit, boolean allowMultiTenant) throws SQLException {
+        public SingleTableColumnResolver(PhoenixConnection connection, NamedTableNode table, boolean updateCacheOnlyIfAutoCommit, boolean allowMultiTenant, boolean isQuery) throws SQLException {
             super(connection);
             alias = table.getAlias();
             TableName tableNameNode = table.getName();
@@ -204,8 +204,8 @@ public class FromCompiler {
                 try {
                     if (!updateCacheOnlyIfAutoCommit || connection.getAutoCommit()) {
                         retry = false; // No reason to retry after this
-                        result = client.updateCache(schemaName, tableName);
-                        timeStamp = result.getMutationTime();
+                        result = isQuery ? client.updateCacheForQuery(schemaName, tableName) : client.updateCache(schemaName, tableName);
+                        timeStamp = getResolvedTimeStamp(connection, result);
                     }
                     PTable theTable;
                     try {
@@ -286,6 +286,18 @@ public class FromCompiler {
             this.client = new MetaDataClient(connection);
         }
 
+        /**
+         * Meta data trusted without a server round trip comes back without a server time, in
+         * which case the statement sees the latest data rather than the data as of that time.
+         */
+        protected static long getResolvedTimeStamp(PhoenixConnection connection, MetaDataMutationResult result) {
+            long timeStamp = result.getMutationTime();
+            if (timeStamp == QueryConstants.UNSET_TIMESTAMP && connection.getSCN() == null && result.getTable() != null) {
+                return HConstants.LATEST_TIMESTAMP;
+            }
+            return timeStamp;
+        }
+
         protected PTable addDynamicColumns(List<ColumnDef> dynColumns, PTable theTable)
                 throws SQLException {
             if (!dynColumns.isEmpty()) {
@@ -339,8 +351,8 @@ public class FromCompiler {
 
         private TableRef createTableRef(String alias, String schemaName, String tableName,
                 List<ColumnDef> dynamicColumnDefs) throws SQLException {
-            MetaDataMutationResult result = client.updateCache(schemaName, tableName);
-            long timeStamp = result.getMutationTime();
+            MetaDataMutationResult result = client.updateCacheForQuery(schemaName, tableName);
+            long timeStamp = getResolvedTimeStamp(connection, result);
             PTable theTable = connection.getPMetaData().getTable(SchemaUtil.getTableName(schemaName, tableName));
 
             // If dynamic columns have been specified add them to the table declaration
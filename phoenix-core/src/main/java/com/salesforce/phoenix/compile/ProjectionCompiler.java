@@ -258,7 +258,8 @@ public class ProjectionCompiler {
         int estimatedByteSize = 0;
         for (Map.Entry<byte[],NavigableSet<byte[]>> entry : scan.getFamilyMap().entrySet()) {
             PColumnFamily family = table.getColumnFamily(entry.getKey());
-            if (entry.getValue() == null) {
+            // A packed row holds the values of every column of the family
+            if (entry.getValue() == null || table.isPackedRows()) {
                 for (PColumn column : family.getColumns()) {
                     Integer byteSize = column.getByteSize();
                     estimatedByteSize += SizedUtil.KEY_VALUE_SIZE + estimatedKeySize + (byteSize == null ? RowKeySchema.ESTIMATED_VARIABLE_LENGTH_SIZE : byteSize);
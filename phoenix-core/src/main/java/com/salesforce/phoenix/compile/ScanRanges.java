@@ -32,10 +32,12 @@ import java.util.List;
 
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.salesforce.phoenix.filter.SkipScanFilter;
+import com.salesforce.phoenix.filter.UnionSkipScanFilter;
 import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.schema.RowKeySchema;
 import com.salesforce.phoenix.util.ScanUtil;
@@ -60,10 +62,45 @@ public class ScanRanges {
         return new ScanRanges(ranges, schema, forceRangeScan);
     }
 
+    /**
+     * Creates the union of the given scan ranges, used when the children of an OR constrain
+     * different primary key columns. Identical branches are only kept once, and since the
+     * branches are navigated by a single {@link UnionSkipScanFilter}, a row matched by more
+     * than one branch is only returned once.
+     * @param branches the scan ranges of each OR child, none of which may be EVERYTHING
+     * @return the union of the branches
+     */
+    public static ScanRanges createUnion(List<ScanRanges> branches) {
+        List<ScanRanges> distinctBranches = Lists.newArrayListWithExpectedSize(branches.size());
+        for (ScanRanges branch : branches) {
+            if (branch.isDegenerate()) {
+                continue;
+            }
+            boolean isDuplicate = false;
+            for (ScanRanges distinctBranch : distinctBranches) {
+                if (distinctBranch.ranges.equals(branch.ranges) && distinctBranch.schema.equals(branch.schema)) {
+                    isDuplicate = true;
+                    break;
+                }
+            }
+            if (!isDuplicate) {
+                distinctBranches.add(branch);
+            }
+        }
+        if (distinctBranches.isEmpty()) {
+            return NOTHING;
+        }
+        if (distinctBranches.size() == 1) {
+            return distinctBranches.get(0);
+        }
+        return new ScanRanges(distinctBranches);
+    }
+
     private SkipScanFilter filter;
     private final List<List<KeyRange>> ranges;
     private final RowKeySchema schema;
     private final boolean forceRangeScan;
+    private final List<ScanRanges> branches;
 
     private ScanRanges (List<List<KeyRange>> ranges, RowKeySchema schema, boolean forceRangeScan) {
         List<List<KeyRange>> sortedRanges = Lists.newArrayListWithExpectedSize(ranges.size());
@@ -78,16 +115,67 @@ public class ScanRanges {
             this.filter = new SkipScanFilter(this.ranges, schema);
         }
         this.forceRangeScan = forceRangeScan;
+        this.branches = null;
+    }
+
+    private ScanRanges (List<ScanRanges> branches) {
+        this.ranges = EVERYTHING_RANGES;
+        this.schema = null;
+        this.forceRangeScan = false;
+        this.branches = ImmutableList.copyOf(branches);
+        List<SkipScanFilter> filters = Lists.newArrayListWithExpectedSize(branches.size());
+        for (ScanRanges branch : branches) {
+            filters.add(branch.getSkipScanFilter());
+        }
+        this.filter = new UnionSkipScanFilter(filters);
     }
 
     public SkipScanFilter getSkipScanFilter() {
         return filter;
     }
     
+    /**
+     * @return the ranges for each primary key slot. Empty for a union, in which case
+     * the ranges of each branch are available through {@link #getBranches()}.
+     */
     public List<List<KeyRange>> getRanges() {
         return ranges;
     }
 
+    /**
+     * @return the number of leading slots that constrain the scan, not counting the slots after
+     * a slot that is skip scanned through without constraint (for example because the column
+     * has few distinct values). For a union, the smallest count across the branches.
+     */
+    public int getLeadingBoundSlotCount() {
+        if (isUnion()) {
+            int count = Integer.MAX_VALUE;
+            for (ScanRanges branch : branches) {
+                count = Math.min(count, branch.getLeadingBoundSlotCount());
+            }
+            return count;
+        }
+        int count = 0;
+        for (List<KeyRange> slot : ranges) {
+            if (slot.size() == 1 && KeyRange.EVERYTHING_RANGE.equals(slot.get(0))) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the scan ranges that are unioned together or null if this is not a union
+     */
+    public List<ScanRanges> getBranches() {
+        return branches;
+    }
+
+    public boolean isUnion() {
+        return branches != null;
+    }
+
     public RowKeySchema getSchema() {
         return schema;
     }
@@ -110,6 +198,9 @@ public class ScanRanges {
         if (forceRangeScan) {
             return false;
         }
+        if (isUnion()) {
+            return true;
+        }
         boolean hasRangeKey = false, useSkipScan = false;
         for (List<KeyRange> orRanges : ranges) {
             useSkipScan |= orRanges.size() > 1 | hasRangeKey;
@@ -149,6 +240,10 @@ public class ScanRanges {
             scan.setStopRow(KeyRange.EMPTY_RANGE.getUpperRange());
             return;
         }
+        if (isUnion()) {
+            setUnionScanStartStopRow(scan);
+            return;
+        }
         
         byte[] expectedKey;
         expectedKey = ScanUtil.getMinKey(schema, ranges);
@@ -161,6 +256,25 @@ public class ScanRanges {
         }
     }
 
+    private void setUnionScanStartStopRow(Scan scan) {
+        byte[] startRow = null;
+        byte[] stopRow = null;
+        for (ScanRanges branch : branches) {
+            Scan branchScan = new Scan();
+            branch.setScanStartStopRow(branchScan);
+            byte[] branchStartRow = branchScan.getStartRow();
+            if (startRow == null || Bytes.compareTo(branchStartRow, startRow) < 0) {
+                startRow = branchStartRow;
+            }
+            byte[] branchStopRow = branchScan.getStopRow();
+            if (stopRow == null || (stopRow.length > 0 && (branchStopRow.length == 0 || Bytes.compareTo(branchStopRow, stopRow) > 0))) {
+                stopRow = branchStopRow;
+            }
+        }
+        scan.setStartRow(startRow);
+        scan.setStopRow(stopRow);
+    }
+
     public static final ImmutableBytesWritable UNBOUND = new ImmutableBytesWritable(KeyRange.UNBOUND);
 
     /**
@@ -187,6 +301,9 @@ public class ScanRanges {
 
     @Override
     public String toString() {
+        if (isUnion()) {
+            return "ScanRanges" + branches.toString();
+        }
         return "ScanRanges[" + ranges.toString() + "]";
     }
 
@@ -31,12 +31,14 @@ import java.sql.SQLException;
 import java.text.Format;
 import java.util.List;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.jdbc.PhoenixStatement;
+import com.salesforce.phoenix.monitoring.StatementMetrics;
 import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.query.QueryServices;
@@ -198,7 +200,7 @@ public class StatementContext {
 
     public long getCurrentTime() throws SQLException {
         long ts = this.getCurrentTable().getTimeStamp();
-        if (ts != QueryConstants.UNSET_TIMESTAMP) {
+        if (ts != QueryConstants.UNSET_TIMESTAMP && ts != HConstants.LATEST_TIMESTAMP) {
             return ts;
         }
         if (currentTime != QueryConstants.UNSET_TIMESTAMP) {
@@ -232,4 +234,11 @@ public class StatementContext {
     public SequenceManager getSequenceManager(){
         return sequences;
     }
+    
+    /**
+     * @return the metrics of the statement currently being executed
+     */
+    public StatementMetrics getMetrics() {
+        return statement.getMetrics();
+    }
 }
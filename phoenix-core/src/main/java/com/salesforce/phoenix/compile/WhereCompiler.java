@@ -130,6 +130,10 @@ public class WhereCompiler {
             // just use that.
             try {
                 if (!SchemaUtil.isPKColumn(ref.getColumn())) {
+                    // Every column family of a packed table uses the same qualifier
+                    if (table.isPackedRows() && table.getColumnFamilies().size() > 1) {
+                        disambiguateWithFamily = true;
+                    }
                     table.getColumn(ref.getColumn().getName().getString());
                 }
             } catch (AmbiguousColumnException e) {
@@ -64,6 +64,7 @@ import com.salesforce.phoenix.parse.FilterableStatement;
 import com.salesforce.phoenix.parse.HintNode.Hint;
 import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.query.StatsManager;
 import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PColumn;
 import com.salesforce.phoenix.schema.PDataType;
@@ -71,6 +72,7 @@ import com.salesforce.phoenix.schema.PName;
 import com.salesforce.phoenix.schema.PTable;
 import com.salesforce.phoenix.schema.RowKeySchema;
 import com.salesforce.phoenix.schema.SaltingUtil;
+import com.salesforce.phoenix.schema.TableRef;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.ByteUtil;
 import com.salesforce.phoenix.util.ScanUtil;
@@ -123,7 +125,7 @@ public class WhereOptimizer {
             keySlots = whereClause.accept(visitor);
     
             if (keySlots == null && (tenantId == null || !table.isMultiTenant())) {
-                context.setScanRanges(ScanRanges.EVERYTHING);
+                context.setScanRanges(getUnionScanRanges(context, table, statement, whereClause));
                 return whereClause;
             }
             // If a parameter is bound to null (as will be the case for calculating ResultSetMetaData and
@@ -142,6 +144,20 @@ public class WhereOptimizer {
             extractNodes = new HashSet<Expression>(table.getPKColumns().size());
         }
 
+        context.setScanRanges(getScanRanges(context, tenantId, table, statement, keySlots, extractNodes), keySlots.getMinMaxRange());
+        if (whereClause == null) {
+            return null;
+        } else {
+            return whereClause.accept(new RemoveExtractedNodesVisitor(extractNodes));
+        }
+    }
+
+    /**
+     * Forms the scan ranges from the key slots of a where clause, adding to extractNodes the
+     * expressions that are fully captured by the ranges and may be removed from the filter.
+     */
+    private static ScanRanges getScanRanges(StatementContext context, PName tenantId, PTable table, FilterableStatement statement,
+            KeyExpressionVisitor.KeySlots keySlots, Set<Expression> extractNodes) {
         // We're fully qualified if all columns except the salt column are specified
         int fullyQualifiedColumnCount = table.getPKColumns().size() - (table.getBucketNum() == null ? 0 : 1);
         int pkPos = table.getBucketNum() == null ? -1 : 0;
@@ -171,7 +187,8 @@ public class WhereOptimizer {
                 continue;
             }
             if (slot.getPKPosition() != pkPos + 1) {
-                if (!forcedSkipScan) break;
+                // Skip scan over the unconstrained columns if we know they have few distinct values
+                if (!forcedSkipScan && (forcedRangeScan || !isLowCardinality(context, slot.getPKPosition()))) break;
                 for (int i=pkPos + 1; i < slot.getPKPosition(); i++) {
                     cnf.add(Collections.singletonList(KeyRange.EVERYTHING_RANGE));
                 }
@@ -198,11 +215,10 @@ public class WhereOptimizer {
                 List<Expression> nodesToExtract = keyPart.getExtractNodes();
                 extractNodes.addAll(nodesToExtract);
             }
-            // Stop building start/stop key once we encounter a non single key range.
-            if (hasUnboundedRange && !forcedSkipScan) {
-                // TODO: when stats are available, we may want to continue this loop if the
-                // cardinality of this slot is low. We could potentially even continue this
-                // loop in the absence of a range for a key slot.
+            // Stop building start/stop key once we encounter a non single key range,
+            // unless the columns up to and including this slot have few distinct values
+            // in which case we can skip scan through them.
+            if (hasUnboundedRange && !forcedSkipScan && (forcedRangeScan || !isLowCardinality(context, pkPos + 1))) {
                 break;
             }
             hasAnyRange |= keyRanges.size() > 1 || (keyRanges.size() == 1 && !keyRanges.get(0).isSingleKey());
@@ -222,14 +238,52 @@ public class WhereOptimizer {
                 }
             }
         }
-        context.setScanRanges(
-                ScanRanges.create(ranges, schema, statement.getHint().hasHint(Hint.RANGE_SCAN)),
-                keySlots.getMinMaxRange());
-        if (whereClause == null) {
-            return null;
-        } else {
-            return whereClause.accept(new RemoveExtractedNodesVisitor(extractNodes));
+        return ScanRanges.create(ranges, schema, forcedRangeScan);
+    }
+
+    /**
+     * @return true if the number of distinct values formed by the leading pkCount primary key
+     * columns is known to be low enough that it's cheaper to seek once for each of them than
+     * to scan through all of them.
+     */
+    private static boolean isLowCardinality(StatementContext context, int pkCount) {
+        TableRef tableRef = context.getResolver().getTables().get(0);
+        StatsManager statsManager = context.getConnection().getQueryServices().getStatsManager();
+        return statsManager.getLeadingPKCardinality(tableRef, pkCount) >= 0;
+    }
+
+    /**
+     * Attempts to form a union of skip scans for a top level OR whose children constrain
+     * different primary key columns (for example WHERE a=1 OR b=2 when the leading column
+     * may be skipped, either through the SKIP_SCAN hint or because it has few distinct values). Each child is compiled to its own ScanRanges
+     * and the resulting {@link com.salesforce.phoenix.filter.UnionSkipScanFilter} seeks to the
+     * smallest key any of them may match. Since no expressions are extracted, the full where
+     * clause is still evaluated as a filter.
+     * @return the union of the scan ranges or {@link ScanRanges#EVERYTHING} if any child
+     * would require a full scan.
+     */
+    private static ScanRanges getUnionScanRanges(StatementContext context, PTable table, FilterableStatement statement, Expression whereClause) {
+        if (!(whereClause instanceof OrExpression) || statement.getHint().hasHint(Hint.RANGE_SCAN)) {
+            return ScanRanges.EVERYTHING;
+        }
+        List<ScanRanges> branches = Lists.newArrayListWithExpectedSize(whereClause.getChildren().size());
+        for (Expression child : whereClause.getChildren()) {
+            KeyExpressionVisitor.KeySlots childSlots = child.accept(new KeyExpressionVisitor(context, table));
+            if (childSlots == null || childSlots.getMinMaxRange() != null) {
+                return ScanRanges.EVERYTHING;
+            }
+            if (childSlots == KeyExpressionVisitor.DEGENERATE_KEY_PARTS) {
+                continue;
+            }
+            ScanRanges branch = getScanRanges(context, null, table, statement, childSlots, new HashSet<Expression>());
+            if (branch.isEverything()) {
+                return ScanRanges.EVERYTHING;
+            }
+            if (!branch.isDegenerate()) {
+                branches.add(branch);
+            }
         }
+        return ScanRanges.createUnion(branches);
     }
 
     private static class RemoveExtractedNodesVisitor extends TraverseNoExpressionVisitor<Expression> {
@@ -33,10 +33,31 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.*;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 
+import com.salesforce.phoenix.monitoring.ServerMetricType;
+import com.salesforce.phoenix.monitoring.ServerMetrics;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
+import com.salesforce.phoenix.util.ScanUtil;
 import com.salesforce.phoenix.util.ServerUtil;
 
 
 abstract public class BaseScannerRegionObserver extends BaseRegionObserver {
+    /**
+     * Scan admitted by the {@link TenantGovernor} in {@link #preScannerOpen(ObserverContext, Scan, RegionScanner)}
+     * along with its lease, which is picked up by {@link #postScannerOpen(ObserverContext, Scan, RegionScanner)}.
+     * Both are called by the RPC handler thread opening the scanner.
+     */
+    private static final ThreadLocal<AdmittedScan> ADMITTED_SCAN = new ThreadLocal<AdmittedScan>();
+    
+    private static class AdmittedScan {
+        private final Scan scan;
+        private final TenantGovernor.Lease lease;
+        
+        private AdmittedScan(Scan scan, TenantGovernor.Lease lease) {
+            this.scan = scan;
+            this.lease = lease;
+        }
+    }
     
     /**
      * Used by logger to identify coprocessor
@@ -46,17 +67,102 @@ abstract public class BaseScannerRegionObserver extends BaseRegionObserver {
         return this.getClass().getName();
     }
     
+    /**
+     * Determines whether the WHERE clause of the scan may be evaluated over a batch
+     * of rows at a time by wrapping the region scanner with a {@link BatchFilterRegionScanner}
+     * in {@link #doPostScannerOpen(ObserverContext, Scan, RegionScanner)}.
+     */
+    protected boolean isBatchFilterScan(Scan scan) {
+        return false;
+    }
+    
+    /**
+     * Takes the filter evaluating the WHERE clause off of the scan before it is opened
+     * when it may be evaluated in batch instead. The scan of a tenant is then admitted by the
+     * {@link TenantGovernor}, which may hold it back or reject it when the tenant is over its
+     * quotas, so that no scanner is opened for a scan that is held back or rejected.
+     */
+    @Override
+    public RegionScanner preScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws IOException {
+        try {
+            if (isBatchFilterScan(scan)) {
+                int batchSize = c.getEnvironment().getConfiguration().getInt(QueryServices.FILTER_BATCH_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_FILTER_BATCH_SIZE);
+                BatchFilterRegionScanner.serializeIntoScan(scan, batchSize, c.getEnvironment().getRegion().getTableDesc().getFamiliesKeys());
+            }
+            admit(c, scan);
+        } catch (Throwable t) {
+            ServerUtil.throwIOException(c.getEnvironment().getRegion().getRegionNameAsString(), t);
+        }
+        return s;
+    }
+    
+    private static void admit(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan) throws IOException {
+        AdmittedScan admittedScan = ADMITTED_SCAN.get();
+        if (admittedScan != null) {
+            if (admittedScan.scan == scan) {
+                // Already admitted by another of the observers of the region
+                return;
+            }
+            // Left behind by a scanner that failed to open after being admitted
+            ADMITTED_SCAN.remove();
+            admittedScan.lease.close();
+        }
+        TenantGovernor.Lease lease = TenantGovernor.getInstance().admit(c.getEnvironment().getConfiguration(), ScanUtil.getTenantId(scan), 
+                c.getEnvironment().getRegion().getRegionNameAsString());
+        if (lease != null) {
+            ADMITTED_SCAN.set(new AdmittedScan(scan, lease));
+        }
+    }
+    
+    private static TenantGovernor.Lease takeLease(Scan scan) {
+        AdmittedScan admittedScan = ADMITTED_SCAN.get();
+        if (admittedScan == null || admittedScan.scan != scan) {
+            return null;
+        }
+        ADMITTED_SCAN.remove();
+        return admittedScan.lease;
+    }
+    
     abstract protected RegionScanner doPostScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws Throwable;
     
     /**
      * Wrapper for {@link #postScannerOpen(ObserverContext, Scan, RegionScanner)} that ensures no non IOException is thrown,
-     * to prevent the coprocessor from becoming blacklisted.
+     * to prevent the coprocessor from becoming blacklisted. The scanner of a tenant admitted by the
+     * {@link TenantGovernor} is wrapped such that its lease is released when the scanner is closed.
+     * The rows returned by the observer handling the scan are packed together when the client
+     * asked for it through {@link CompactRowsRegionScanner#serializeIntoScan(Scan, int)}.
      * 
      */
     @Override
     public final RegionScanner postScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws IOException {
         try {
-            return doPostScannerOpen(c, scan, s);
+            long startTime = System.currentTimeMillis();
+            TenantGovernor.Lease lease = takeLease(scan);
+            RegionScanner scanner;
+            if (lease == null) {
+                scanner = doPostScannerOpen(c, scan, s);
+                if (scanner != s) {
+                    scanner = CompactRowsRegionScanner.deserializeFromScan(scan, scanner);
+                }
+            } else {
+                boolean success = false;
+                try {
+                    RegionScanner governedScanner = new GovernedRegionScanner(s, lease, true);
+                    scanner = doPostScannerOpen(c, scan, governedScanner);
+                    // Release the lease when the scanner returned is closed too, in case it doesn't close the one it wraps
+                    if (scanner != governedScanner) {
+                        scanner = CompactRowsRegionScanner.deserializeFromScan(scan, scanner);
+                        scanner = new GovernedRegionScanner(scanner, lease, false);
+                    }
+                    success = true;
+                } finally {
+                    if (!success) {
+                        lease.close();
+                    }
+                }
+            }
+            ServerMetrics.getInstance(c.getEnvironment().getConfiguration()).update(ServerMetricType.SCANNER_OPEN_TIME_MS, System.currentTimeMillis() - startTime);
+            return scanner;
         } catch (Throwable t) {
             ServerUtil.throwIOException(c.getEnvironment().getRegion().getRegionNameAsString(), t);
             return null; // impossible
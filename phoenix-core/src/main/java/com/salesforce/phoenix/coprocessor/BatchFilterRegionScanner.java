@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.coprocessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.ExpressionType;
+import com.salesforce.phoenix.expression.batch.BatchExpression;
+import com.salesforce.phoenix.expression.batch.BatchExpressionCompiler;
+import com.salesforce.phoenix.expression.batch.ValueVector;
+import com.salesforce.phoenix.filter.EssentialFamilyFilterList;
+import com.salesforce.phoenix.filter.MultiKeyValueComparisonFilter;
+import com.salesforce.phoenix.filter.SkipScanFilter;
+import com.salesforce.phoenix.schema.IllegalDataException;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+
+/**
+ * 
+ * Region scanner that evaluates the WHERE clause over a batch of rows at a time
+ * using the kernels built by {@link BatchExpressionCompiler} instead of one row at
+ * a time through a {@link MultiKeyValueComparisonFilter}. The filter is taken off
+ * of the scan by {@link #serializeIntoScan(Scan, int, Collection)} before the region scanner is
+ * opened when every node of its expression may be evaluated in batch. Rows whose
+ * result cannot be determined in batch are evaluated through the original expression.
+ * A {@link com.salesforce.phoenix.filter.SingleKeyValueComparisonFilter} is left on the
+ * scan, since it already skips to the next row as soon as its only column fails. So is a filter
+ * leaving some column families non essential when they are loaded on demand.
+ *
+ * @since 3.0.0
+ */
+public class BatchFilterRegionScanner implements RegionScanner {
+    private static final String BATCH_FILTER = "BatchFilter";
+    
+    private final RegionScanner scanner;
+    private final Expression expression;
+    private final BatchExpression batchExpression;
+    private final List<KeyValue>[] rows;
+    private final MultiKeyValueTuple[] tuples;
+    private final int[] passing;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    private int size;
+    private int passingCount;
+    private int passingIndex;
+    private boolean hasMore = true;
+    
+    @SuppressWarnings("unchecked")
+    private BatchFilterRegionScanner(RegionScanner scanner, Expression expression, BatchExpression batchExpression) {
+        this.scanner = scanner;
+        this.expression = expression;
+        this.batchExpression = batchExpression;
+        int capacity = batchExpression.getCapacity();
+        this.rows = new List[capacity];
+        this.tuples = new MultiKeyValueTuple[capacity];
+        for (int i = 0; i < capacity; i++) {
+            rows[i] = new ArrayList<KeyValue>();
+            tuples[i] = new MultiKeyValueTuple();
+        }
+        this.passing = new int[capacity];
+    }
+    
+    private static MultiKeyValueComparisonFilter getBatchableFilter(Filter filter) {
+        if (filter instanceof MultiKeyValueComparisonFilter) {
+            return (MultiKeyValueComparisonFilter)filter;
+        }
+        if (filter instanceof FilterList && ((FilterList)filter).getOperator() == FilterList.Operator.MUST_PASS_ALL) {
+            MultiKeyValueComparisonFilter expressionFilter = null;
+            for (Filter child : ((FilterList)filter).getFilters()) {
+                if (child instanceof MultiKeyValueComparisonFilter && expressionFilter == null) {
+                    expressionFilter = (MultiKeyValueComparisonFilter)child;
+                } else if (!(child instanceof SkipScanFilter)) {
+                    // Filters like a PageFilter must see only the rows passing the WHERE clause
+                    return null;
+                }
+            }
+            return expressionFilter;
+        }
+        return null;
+    }
+    
+    private static boolean hasNonEssentialFamily(Scan scan, Filter filter, Collection<byte[]> families) {
+        Collection<byte[]> scannedFamilies = scan.hasFamilies() ? scan.getFamilyMap().keySet() : families;
+        for (byte[] family : scannedFamilies) {
+            if (!FilterBase.isFamilyEssential(filter, family)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Replace the filter evaluating the WHERE clause of the scan with batch evaluation
+     * if the shape of the filter and the expression allow it.
+     * @param scan the scan about to be opened
+     * @param batchSize the maximum number of rows evaluated at a time
+     * @param families the column families of the table, scanned when the scan has none of its own
+     * @return true if the filter was replaced and false otherwise.
+     */
+    public static boolean serializeIntoScan(Scan scan, int batchSize, Collection<byte[]> families) {
+        if (batchSize <= 0 || scan.getBatch() > 0) {
+            return false;
+        }
+        Filter filter = scan.getFilter();
+        MultiKeyValueComparisonFilter expressionFilter = getBatchableFilter(filter);
+        if (expressionFilter == null) {
+            return false;
+        }
+        // Without the filter every column family would be loaded for every row
+        if (scan.doLoadColumnFamiliesOnDemand() && hasNonEssentialFamily(scan, expressionFilter, families)) {
+            return false;
+        }
+        Expression expression = expressionFilter.getExpression();
+        if (BatchExpressionCompiler.compile(expression, 1) == null) {
+            return false;
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            WritableUtils.writeVInt(output, batchSize);
+            WritableUtils.writeVInt(output, ExpressionType.valueOf(expression).ordinal());
+            expression.write(output);
+            scan.setAttribute(BATCH_FILTER, stream.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        if (filter == expressionFilter) {
+            scan.setFilter(null);
+        } else {
+            List<Filter> filters = ((FilterList)filter).getFilters();
+            List<Filter> remainingFilters = new ArrayList<Filter>(filters.size() - 1);
+            for (Filter child : filters) {
+                if (child != expressionFilter) {
+                    remainingFilters.add(child);
+                }
+            }
+            scan.setFilter(remainingFilters.size() == 1 ? remainingFilters.get(0) : new EssentialFamilyFilterList(remainingFilters));
+        }
+        return true;
+    }
+    
+    /**
+     * Wrap the scanner to evaluate the WHERE clause in batch if
+     * {@link #serializeIntoScan(Scan, int, Collection)} took it off of the scan.
+     * @param scan the scan that was opened
+     * @param s the region scanner
+     * @return the wrapped scanner or s if no batch evaluation is necessary.
+     */
+    public static RegionScanner deserializeFromScan(Scan scan, RegionScanner s) {
+        byte[] batchFilter = scan.getAttribute(BATCH_FILTER);
+        if (batchFilter == null) {
+            return s;
+        }
+        ByteArrayInputStream stream = new ByteArrayInputStream(batchFilter);
+        try {
+            DataInputStream input = new DataInputStream(stream);
+            int batchSize = WritableUtils.readVInt(input);
+            Expression expression = ExpressionType.values()[WritableUtils.readVInt(input)].newInstance();
+            expression.readFields(input);
+            BatchExpression batchExpression = BatchExpressionCompiler.compile(expression, batchSize);
+            return new BatchFilterRegionScanner(s, expression, batchExpression);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+    
+    private boolean evaluate(Tuple tuple) {
+        expression.reset();
+        try {
+            if (!expression.evaluate(tuple, ptr)) {
+                return false;
+            }
+        } catch (IllegalDataException e) {
+            return false;
+        }
+        return Boolean.TRUE.equals(PDataType.BOOLEAN.toObject(ptr));
+    }
+    
+    private void filterBatch() {
+        ValueVector result = batchExpression.evaluate(tuples, size);
+        passingCount = 0;
+        passingIndex = 0;
+        for (int i = 0; i < size; i++) {
+            if (result.getState(i) == ValueVector.UNKNOWN ? evaluate(tuples[i]) : result.isTrue(i)) {
+                passing[passingCount++] = i;
+            }
+        }
+        size = 0;
+    }
+    
+    private boolean shouldAdvance() {
+        return passingIndex == passingCount && hasMore;
+    }
+    
+    private List<KeyValue> nextRow() {
+        List<KeyValue> row = rows[size];
+        row.clear();
+        return row;
+    }
+    
+    private void processRow() {
+        List<KeyValue> row = rows[size];
+        if (!row.isEmpty()) {
+            tuples[size].setKeyValues(row);
+            size++;
+        }
+        if (size == rows.length || (!hasMore && size > 0)) {
+            filterBatch();
+        }
+    }
+    
+    private boolean nextInQueue(List<KeyValue> results) {
+        if (passingIndex == passingCount) {
+            return false;
+        }
+        results.addAll(rows[passing[passingIndex++]]);
+        return passingIndex < passingCount || hasMore;
+    }
+
+    @Override
+    public HRegionInfo getRegionInfo() {
+        return scanner.getRegionInfo();
+    }
+
+    @Override
+    public boolean isFilterDone() {
+        return scanner.isFilterDone() && passingIndex == passingCount;
+    }
+
+    @Override
+    public boolean reseek(byte[] row) throws IOException {
+        return scanner.reseek(row);
+    }
+
+    @Override
+    public long getMvccReadPoint() {
+        return scanner.getMvccReadPoint();
+    }
+
+    @Override
+    public void close() throws IOException {
+        scanner.close();
+    }
+
+    @Override
+    public boolean nextRaw(List<KeyValue> result, String metric) throws IOException {
+        while (shouldAdvance()) {
+            hasMore = scanner.nextRaw(nextRow(), metric);
+            processRow();
+        }
+        return nextInQueue(result);
+    }
+
+    @Override
+    public boolean nextRaw(List<KeyValue> result, int limit, String metric) throws IOException {
+        while (shouldAdvance()) {
+            hasMore = scanner.nextRaw(nextRow(), limit, metric);
+            processRow();
+        }
+        return nextInQueue(result);
+    }
+
+    @Override
+    public boolean next(List<KeyValue> result) throws IOException {
+        while (shouldAdvance()) {
+            hasMore = scanner.next(nextRow());
+            processRow();
+        }
+        return nextInQueue(result);
+    }
+
+    @Override
+    public boolean next(List<KeyValue> result, String metric) throws IOException {
+        while (shouldAdvance()) {
+            hasMore = scanner.next(nextRow(), metric);
+            processRow();
+        }
+        return nextInQueue(result);
+    }
+
+    @Override
+    public boolean next(List<KeyValue> result, int limit) throws IOException {
+        while (shouldAdvance()) {
+            hasMore = scanner.next(nextRow(), limit);
+            processRow();
+        }
+        return nextInQueue(result);
+    }
+
+    @Override
+    public boolean next(List<KeyValue> result, int limit, String metric) throws IOException {
+        while (shouldAdvance()) {
+            hasMore = scanner.next(nextRow(), limit, metric);
+            processRow();
+        }
+        return nextInQueue(result);
+    }
+}
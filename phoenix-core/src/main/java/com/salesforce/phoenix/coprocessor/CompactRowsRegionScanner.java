@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.coprocessor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.KeyValueColumnExpression;
+import com.salesforce.phoenix.schema.KeyValueSchema;
+import com.salesforce.phoenix.schema.KeyValueSchema.KeyValueSchemaBuilder;
+import com.salesforce.phoenix.schema.PColumn;
+import com.salesforce.phoenix.schema.PColumnImpl;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.PNameFactory;
+import com.salesforce.phoenix.schema.ValueBitSet;
+import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.ResultTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
+import com.salesforce.phoenix.util.KeyValueUtil;
+
+
+/**
+ * 
+ * Region scanner that packs many rows returned by a Phoenix coprocessor into a single
+ * cell, instead of sending each of them as a Result of full KeyValues that repeat the
+ * row key, column family, column qualifier and timestamp. The columns of the rows in a
+ * cell are listed once up front, after which each row is written as its key, its timestamp
+ * and a single value holding the column values encoded through a {@link KeyValueSchema},
+ * with a {@link ValueBitSet} marking the columns present in the row. A row that cannot be
+ * represented this way, for example because its KeyValues have different timestamps, is
+ * returned as is. The client expands the cells through {@link #expand(Result, List)}.
+ * 
+ * The cell has the key of the last row packed into it, since a client scanner that is
+ * restarted, for example after a region moved, resumes after the row of the last
+ * Result it received.
+ *
+ * @since 3.0.0
+ */
+public class CompactRowsRegionScanner extends BaseRegionScanner {
+    public static final byte[] COMPACT_ROWS_FAMILY = Bytes.toBytes("_c");
+    public static final byte[] COMPACT_ROWS_QUALIFIER = ByteUtil.EMPTY_BYTE_ARRAY;
+    
+    private static final String COMPACT_ROWS = "CompactRows";
+    
+    private static final Comparator<KeyValue> COLUMN_COMPARATOR = new Comparator<KeyValue>() {
+        @Override
+        public int compare(KeyValue o1, KeyValue o2) {
+            int c = Bytes.compareTo(o1.getBuffer(), o1.getFamilyOffset(), o1.getFamilyLength(), 
+                    o2.getBuffer(), o2.getFamilyOffset(), o2.getFamilyLength());
+            if (c != 0) {
+                return c;
+            }
+            return Bytes.compareTo(o1.getBuffer(), o1.getQualifierOffset(), o1.getQualifierLength(), 
+                    o2.getBuffer(), o2.getQualifierOffset(), o2.getQualifierLength());
+        }
+    };
+    
+    private final RegionScanner scanner;
+    private final int maxRows;
+    private final List<List<KeyValue>> rows;
+    private List<KeyValue> unpackableRow;
+    private boolean hasMore = true;
+    
+    private CompactRowsRegionScanner(RegionScanner scanner, int maxRows) {
+        this.scanner = scanner;
+        this.maxRows = maxRows;
+        this.rows = new ArrayList<List<KeyValue>>(maxRows);
+    }
+    
+    /**
+     * Request that the rows returned by the scan be packed. The scanner caching
+     * of the scan is reduced accordingly so that each RPC still returns about
+     * the same number of rows.
+     * @param scan the scan about to be opened
+     * @param maxRows the maximum number of rows per cell
+     * @return true if the rows of the scan may be packed and false otherwise.
+     */
+    public static boolean serializeIntoScan(Scan scan, int maxRows) {
+        if (scan.getAttribute(COMPACT_ROWS) != null) {
+            return true;
+        }
+        if (maxRows <= 1 || scan.getBatch() > 0) {
+            return false;
+        }
+        byte[] value = new byte[WritableUtils.getVIntSize(maxRows)];
+        ByteUtil.vintToBytes(value, 0, maxRows);
+        scan.setAttribute(COMPACT_ROWS, value);
+        if (scan.getCaching() > 0) {
+            scan.setCaching(Math.max(1, scan.getCaching() / maxRows));
+        }
+        return true;
+    }
+    
+    /**
+     * Wrap the scanner to pack its rows if {@link #serializeIntoScan(Scan, int)} was called
+     * for the scan.
+     * @param scan the scan that was opened
+     * @param s the region scanner returning the rows to send to the client
+     * @return the wrapped scanner or s if the rows should not be packed.
+     */
+    public static RegionScanner deserializeFromScan(Scan scan, RegionScanner s) {
+        byte[] compactRows = scan.getAttribute(COMPACT_ROWS);
+        if (compactRows == null) {
+            return s;
+        }
+        int maxRows = (int)ByteUtil.vlongFromBytes(new ImmutableBytesWritable(compactRows));
+        return new CompactRowsRegionScanner(s, maxRows);
+    }
+    
+    /**
+     * @return true if all KeyValues of the row are Puts with the same timestamp
+     * and no column appears more than once.
+     */
+    private static boolean isPackable(List<KeyValue> row) {
+        KeyValue first = row.get(0);
+        long timestamp = first.getTimestamp();
+        KeyValue previous = null;
+        for (KeyValue kv : row) {
+            if (kv.getTimestamp() != timestamp || kv.getType() != KeyValue.Type.Put.getCode()) {
+                return false;
+            }
+            if (previous != null && COLUMN_COMPARATOR.compare(previous, kv) == 0) {
+                return false;
+            }
+            previous = kv;
+        }
+        return true;
+    }
+    
+    private static KeyValueSchema newSchema(List<PColumn> columns) {
+        KeyValueSchemaBuilder builder = new KeyValueSchemaBuilder(0);
+        for (PColumn column : columns) {
+            builder.addField(column);
+        }
+        return builder.build();
+    }
+    
+    private static PColumn newColumn(byte[] family, byte[] qualifier, int position) {
+        return new PColumnImpl(PNameFactory.newName(qualifier), PNameFactory.newName(family), PDataType.VARBINARY, null, null, true, position, null);
+    }
+    
+    // Visible for testing
+    static KeyValue compact(List<List<KeyValue>> rows) throws IOException {
+        // Collect the distinct columns of the rows in sorted order, so that the KeyValues expanded for a row are sorted too
+        SortedSet<KeyValue> columnSet = new TreeSet<KeyValue>(COLUMN_COMPARATOR);
+        for (List<KeyValue> row : rows) {
+            for (KeyValue kv : row) {
+                columnSet.add(kv);
+            }
+        }
+        List<PColumn> columns = new ArrayList<PColumn>(columnSet.size());
+        Expression[] expressions = new Expression[columnSet.size()];
+        for (KeyValue kv : columnSet) {
+            PColumn column = newColumn(kv.getFamily(), kv.getQualifier(), columns.size());
+            expressions[columns.size()] = new KeyValueColumnExpression(column);
+            columns.add(column);
+        }
+        KeyValueSchema schema = newSchema(columns);
+        ValueBitSet valueSet = ValueBitSet.newInstance(schema);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        MultiKeyValueTuple tuple = new MultiKeyValueTuple();
+        KeyValue first = rows.get(0).get(0);
+        KeyValue last = rows.get(rows.size() - 1).get(0);
+        long timestamp = first.getTimestamp();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            WritableUtils.writeVInt(output, columns.size());
+            for (PColumn column : columns) {
+                Bytes.writeByteArray(output, column.getFamilyName().getBytes());
+                Bytes.writeByteArray(output, column.getName().getBytes());
+            }
+            WritableUtils.writeVInt(output, rows.size());
+            for (List<KeyValue> row : rows) {
+                KeyValue kv = row.get(0);
+                WritableUtils.writeVInt(output, kv.getRowLength());
+                output.write(kv.getBuffer(), kv.getRowOffset(), kv.getRowLength());
+                // Timestamps of rows from the same scan are usually the same, so store the delta
+                WritableUtils.writeVLong(output, timestamp - kv.getTimestamp());
+                tuple.setKeyValues(row);
+                Bytes.writeByteArray(output, schema.toBytes(tuple, expressions, valueSet, ptr));
+            }
+            output.flush();
+            byte[] value = stream.toByteArray();
+            return KeyValueUtil.newKeyValue(last.getBuffer(), last.getRowOffset(), last.getRowLength(), 
+                    COMPACT_ROWS_FAMILY, COMPACT_ROWS_QUALIFIER, timestamp, value, 0, value.length);
+        } finally {
+            stream.close();
+        }
+    }
+    
+    /**
+     * @return true if the result is a cell of packed rows.
+     */
+    public static boolean isCompact(Result result) {
+        if (result.size() != 1) {
+            return false;
+        }
+        KeyValue kv = result.raw()[0];
+        return kv.matchingColumn(COMPACT_ROWS_FAMILY, COMPACT_ROWS_QUALIFIER);
+    }
+    
+    /**
+     * Expand the rows of a cell built by a {@link CompactRowsRegionScanner}.
+     * @param result the result holding the cell of packed rows
+     * @param tuples the list to which a tuple is added for each row
+     * @return the number of rows expanded
+     */
+    public static int expand(Result result, List<Tuple> tuples) {
+        KeyValue cell = result.raw()[0];
+        byte[] buf = cell.getBuffer();
+        long timestamp = cell.getTimestamp();
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(buf, cell.getValueOffset(), 0);
+        int nColumns = ByteUtil.vintFromBytes(ptr);
+        byte[][] families = new byte[nColumns][];
+        byte[][] qualifiers = new byte[nColumns][];
+        List<PColumn> columns = new ArrayList<PColumn>(nColumns);
+        for (int i = 0; i < nColumns; i++) {
+            families[i] = readBytes(ptr);
+            qualifiers[i] = readBytes(ptr);
+            columns.add(newColumn(families[i], qualifiers[i], i));
+        }
+        KeyValueSchema schema = newSchema(columns);
+        ValueBitSet valueSet = ValueBitSet.newInstance(schema);
+        ImmutableBytesWritable valuePtr = new ImmutableBytesWritable();
+        int nRows = ByteUtil.vintFromBytes(ptr);
+        for (int i = 0; i < nRows; i++) {
+            int keyLength = ByteUtil.vintFromBytes(ptr);
+            int keyOffset = ptr.getOffset();
+            ptr.set(buf, keyOffset + keyLength, 0);
+            long rowTimestamp = timestamp - ByteUtil.vlongFromBytes(ptr);
+            int valueLength = ByteUtil.vintFromBytes(ptr);
+            int valueOffset = ptr.getOffset();
+            ptr.set(buf, valueOffset + valueLength, 0);
+            
+            valuePtr.set(buf, valueOffset, valueLength);
+            valueSet.clear();
+            valueSet.or(valuePtr);
+            int maxOffset = valueOffset + valueLength - valueSet.getEstimatedLength();
+            valuePtr.set(buf, valueOffset, 0);
+            List<KeyValue> kvs = new ArrayList<KeyValue>(nColumns);
+            for (int j = 0; j < nColumns; j++) {
+                Boolean hasValue = schema.next(valuePtr, j, maxOffset, valueSet);
+                if (hasValue == null) {
+                    break;
+                }
+                if (!valueSet.get(j)) {
+                    continue;
+                }
+                kvs.add(KeyValueUtil.newKeyValue(buf, keyOffset, keyLength, families[j], qualifiers[j], rowTimestamp, 
+                        buf, valuePtr.getOffset(), valuePtr.getLength()));
+            }
+            tuples.add(new ResultTuple(new Result(kvs)));
+        }
+        return nRows;
+    }
+    
+    private static byte[] readBytes(ImmutableBytesWritable ptr) {
+        int length = ByteUtil.vintFromBytes(ptr);
+        byte[] b = Arrays.copyOfRange(ptr.get(), ptr.getOffset(), ptr.getOffset() + length);
+        ptr.set(ptr.get(), ptr.getOffset() + length, 0);
+        return b;
+    }
+
+    @Override
+    public HRegionInfo getRegionInfo() {
+        return scanner.getRegionInfo();
+    }
+
+    @Override
+    public boolean isFilterDone() {
+        return scanner.isFilterDone() && unpackableRow == null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        scanner.close();
+    }
+
+    @Override
+    public boolean next(List<KeyValue> results) throws IOException {
+        if (unpackableRow != null) {
+            results.addAll(unpackableRow);
+            unpackableRow = null;
+            return hasMore;
+        }
+        rows.clear();
+        while (hasMore && rows.size() < maxRows) {
+            List<KeyValue> row = new ArrayList<KeyValue>();
+            hasMore = scanner.next(row);
+            if (row.isEmpty()) {
+                continue;
+            }
+            if (!isPackable(row)) {
+                unpackableRow = row;
+                break;
+            }
+            rows.add(row);
+        }
+        if (rows.size() == 1) { // Nothing to gain from packing a single row
+            results.addAll(rows.get(0));
+        } else if (!rows.isEmpty()) {
+            results.add(compact(rows));
+        } else if (unpackableRow != null) {
+            results.addAll(unpackableRow);
+            unpackableRow = null;
+        }
+        return hasMore || unpackableRow != null;
+    }
+}
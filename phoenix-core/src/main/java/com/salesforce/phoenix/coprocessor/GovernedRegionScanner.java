@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.coprocessor;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+
+/**
+ * 
+ * Region scanner admitted by the {@link TenantGovernor}, which releases its lease when closed.
+ * When wrapping the scanner over the region, the rows read are also counted against the rates
+ * of the tenant, which covers the rows aggregated while the scanner of an aggregate query is
+ * opened as well.
+ *
+ * @since 3.0.0
+ */
+public class GovernedRegionScanner implements RegionScanner {
+    // Number of rows counted locally before being recorded with the governor
+    private static final int RECORD_BATCH_SIZE = 128;
+    
+    private final RegionScanner scanner;
+    private final TenantGovernor.Lease lease;
+    private final boolean countRows;
+    private int rowCount;
+    private long byteCount;
+
+    /**
+     * @param scanner the scanner to wrap
+     * @param lease the lease of the admitted scan
+     * @param countRows whether the rows read through this scanner count against the rates of the tenant
+     */
+    public GovernedRegionScanner(RegionScanner scanner, TenantGovernor.Lease lease, boolean countRows) {
+        this.scanner = scanner;
+        this.lease = lease;
+        this.countRows = countRows;
+    }
+    
+    private boolean count(List<KeyValue> results, int startSize, boolean hasMore) {
+        if (countRows && results.size() > startSize) {
+            for (int i = startSize; i < results.size(); i++) {
+                byteCount += results.get(i).getLength();
+            }
+            if (++rowCount == RECORD_BATCH_SIZE) {
+                record();
+            }
+        }
+        return hasMore;
+    }
+    
+    private void record() {
+        if (rowCount > 0) {
+            lease.recordRows(rowCount, byteCount);
+            rowCount = 0;
+            byteCount = 0;
+        }
+    }
+
+    @Override
+    public HRegionInfo getRegionInfo() {
+        return scanner.getRegionInfo();
+    }
+
+    @Override
+    public boolean isFilterDone() {
+        return scanner.isFilterDone();
+    }
+
+    @Override
+    public boolean reseek(byte[] row) throws IOException {
+        return scanner.reseek(row);
+    }
+
+    @Override
+    public long getMvccReadPoint() {
+        return scanner.getMvccReadPoint();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            record();
+            scanner.close();
+        } finally {
+            lease.close();
+        }
+    }
+
+    @Override
+    public boolean nextRaw(List<KeyValue> result, String metric) throws IOException {
+        int startSize = result.size();
+        return count(result, startSize, scanner.nextRaw(result, metric));
+    }
+
+    @Override
+    public boolean nextRaw(List<KeyValue> result, int limit, String metric) throws IOException {
+        int startSize = result.size();
+        return count(result, startSize, scanner.nextRaw(result, limit, metric));
+    }
+
+    @Override
+    public boolean next(List<KeyValue> result) throws IOException {
+        int startSize = result.size();
+        return count(result, startSize, scanner.next(result));
+    }
+
+    @Override
+    public boolean next(List<KeyValue> result, String metric) throws IOException {
+        int startSize = result.size();
+        return count(result, startSize, scanner.next(result, metric));
+    }
+
+    @Override
+    public boolean next(List<KeyValue> result, int limit) throws IOException {
+        int startSize = result.size();
+        return count(result, startSize, scanner.next(result, limit));
+    }
+
+    @Override
+    public boolean next(List<KeyValue> result, int limit, String metric) throws IOException {
+        int startSize = result.size();
+        return count(result, startSize, scanner.next(result, limit, metric));
+    }
+}
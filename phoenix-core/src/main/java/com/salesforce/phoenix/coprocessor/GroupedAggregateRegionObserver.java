@@ -64,6 +64,8 @@ import com.salesforce.phoenix.expression.aggregator.ServerAggregators;
 import com.salesforce.phoenix.join.HashJoinInfo;
 import com.salesforce.phoenix.join.ScanProjector;
 import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+import com.salesforce.phoenix.monitoring.ServerMetricType;
+import com.salesforce.phoenix.monitoring.ServerMetrics;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
 import com.salesforce.phoenix.util.KeyValueUtil;
@@ -357,6 +359,7 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
                         env, ScanUtil.getTenantId(scan), 
                         aggregators, estDistVals);
 
+        long startTime = System.currentTimeMillis();
         boolean success = false;
         try {
             boolean hasMore;
@@ -397,6 +400,7 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
             // The reason is that if the scan ever extends beyond a region
             // (which can happen if we're basing our parallelization split
             // points on old metadata), we'll get incorrect query results.
+            ServerMetrics.getInstance(conf).update(ServerMetricType.GROUPED_AGGREGATE_TIME_MS, System.currentTimeMillis() - startTime);
             success = true;
             return regionScanner;
         } finally {
@@ -27,22 +27,260 @@
  ******************************************************************************/
 package com.salesforce.phoenix.coprocessor;
 
+import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.DATA_TABLE_NAME_BYTES;
+import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.INDEX_DISABLE_TIMESTAMP_BYTES;
+import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.INDEX_STATE_BYTES;
+import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Threads;
 
+import com.google.common.collect.Lists;
 import com.salesforce.phoenix.cache.GlobalCache;
+import com.salesforce.phoenix.cache.ServerCacheClient;
+import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MetaDataMutationResult;
+import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MutationCode;
+import com.salesforce.phoenix.index.IndexMaintainer;
+import com.salesforce.phoenix.index.PhoenixIndexCodec;
+import com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.PIndexState;
+import com.salesforce.phoenix.schema.PTable;
+import com.salesforce.phoenix.util.ByteUtil;
+import com.salesforce.phoenix.util.SchemaUtil;
 
 
 /**
  * Coprocessor for metadata related operations. This coprocessor would only be registered
- * to SYSTEM.TABLE.
+ * to SYSTEM.TABLE. It periodically looks for indexes that were disabled because of a
+ * failure to write to them and rebuilds them from the point in time at which they were
+ * disabled by replaying the data table rows written since then.
  */
 public class MetaDataRegionObserver extends BaseRegionObserver {
+    private static final Log LOG = LogFactory.getLog(MetaDataRegionObserver.class);
+    private ScheduledThreadPoolExecutor executor;
 
     @Override
     public void preClose(final ObserverContext<RegionCoprocessorEnvironment> c,
             boolean abortRequested) {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
         GlobalCache.getInstance(c.getEnvironment()).getMetaDataCache().clear();
     }
+
+    @Override
+    public void postOpen(ObserverContext<RegionCoprocessorEnvironment> c) {
+        RegionCoprocessorEnvironment env = c.getEnvironment();
+        Configuration config = env.getConfiguration();
+        if (!config.getBoolean(QueryServices.INDEX_FAILURE_HANDLING_REBUILD_ATTRIB, QueryServicesOptions.DEFAULT_INDEX_FAILURE_HANDLING_REBUILD)) {
+            return;
+        }
+        long interval = config.getLong(QueryServices.INDEX_FAILURE_HANDLING_REBUILD_INTERVAL_ATTRIB, QueryServicesOptions.DEFAULT_INDEX_FAILURE_HANDLING_REBUILD_INTERVAL);
+        executor = new ScheduledThreadPoolExecutor(1, Threads.newDaemonThreadFactory("phoenix-index-rebuild-"));
+        executor.scheduleWithFixedDelay(new BuildIndexScheduleTask(env), interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Task that rebuilds each disabled index that has a disable timestamp. The index is
+     * first put in the BUILDING state so that writers maintain it again, the data table
+     * rows written since the index was disabled are then replayed through the Indexer
+     * with only this index attached to them, after which the index is made ACTIVE again.
+     * If a write to the index fails in the meantime, the index is disabled again, keeping
+     * the earliest disable timestamp, and will be rebuilt on a subsequent run.
+     */
+    private static class BuildIndexScheduleTask implements Runnable {
+        private final RegionCoprocessorEnvironment env;
+        
+        public BuildIndexScheduleTask(RegionCoprocessorEnvironment env) {
+            this.env = env;
+        }
+        
+        @Override
+        public void run() {
+            RegionScanner scanner = null;
+            try {
+                Scan scan = new Scan();
+                scan.addColumn(TABLE_FAMILY_BYTES, DATA_TABLE_NAME_BYTES);
+                scan.addColumn(TABLE_FAMILY_BYTES, INDEX_STATE_BYTES);
+                scan.addColumn(TABLE_FAMILY_BYTES, INDEX_DISABLE_TIMESTAMP_BYTES);
+                scanner = env.getRegion().getScanner(scan);
+                List<KeyValue> results = new ArrayList<KeyValue>();
+                boolean hasMore;
+                do {
+                    results.clear();
+                    hasMore = scanner.next(results);
+                    if (results.isEmpty()) {
+                        continue;
+                    }
+                    Result r = new Result(results);
+                    KeyValue dataTableKV = r.getColumnLatest(TABLE_FAMILY_BYTES, DATA_TABLE_NAME_BYTES);
+                    KeyValue stateKV = r.getColumnLatest(TABLE_FAMILY_BYTES, INDEX_STATE_BYTES);
+                    KeyValue disableTimeStampKV = r.getColumnLatest(TABLE_FAMILY_BYTES, INDEX_DISABLE_TIMESTAMP_BYTES);
+                    if (dataTableKV == null || stateKV == null || disableTimeStampKV == null) {
+                        continue;
+                    }
+                    PIndexState state = PIndexState.fromSerializedValue(stateKV.getBuffer()[stateKV.getValueOffset()]);
+                    long disableTimeStamp = PDataType.LONG.getCodec().decodeLong(disableTimeStampKV.getBuffer(), disableTimeStampKV.getValueOffset(), null);
+                    if (disableTimeStamp <= 0 || (state != PIndexState.DISABLE && state != PIndexState.BUILDING)) {
+                        continue;
+                    }
+                    byte[][] rowKeyMetaData = new byte[3][];
+                    SchemaUtil.getVarChars(r.getRow(), 3, rowKeyMetaData);
+                    byte[] dataTableName = dataTableKV.getValue();
+                    try {
+                        rebuildIndex(rowKeyMetaData[PhoenixDatabaseMetaData.TENANT_ID_INDEX], rowKeyMetaData[PhoenixDatabaseMetaData.SCHEMA_NAME_INDEX], 
+                                rowKeyMetaData[PhoenixDatabaseMetaData.TABLE_NAME_INDEX], dataTableName, state, disableTimeStamp);
+                    } catch (Throwable t) {
+                        LOG.warn("Unable to rebuild index " + SchemaUtil.getTableName(rowKeyMetaData[PhoenixDatabaseMetaData.SCHEMA_NAME_INDEX], rowKeyMetaData[PhoenixDatabaseMetaData.TABLE_NAME_INDEX]), t);
+                    }
+                } while (hasMore);
+            } catch (Throwable t) {
+                LOG.warn("Unable to look for disabled indexes to rebuild", t);
+            } finally {
+                if (scanner != null) {
+                    try {
+                        scanner.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+        }
+        
+        private void rebuildIndex(byte[] tenantId, byte[] schemaName, byte[] indexName, byte[] dataTableName, PIndexState state, long disableTimeStamp) throws Throwable {
+            byte[] indexKey = SchemaUtil.getTableKey(tenantId, schemaName, indexName);
+            HTableInterface metaTable = env.getTable(PhoenixDatabaseMetaData.TYPE_TABLE_NAME_BYTES);
+            try {
+                MetaDataProtocol mdProxy = metaTable.coprocessorProxy(MetaDataProtocol.class, indexKey);
+                if (state == PIndexState.DISABLE && !updateIndexState(mdProxy, indexKey, PIndexState.BUILDING, null)) {
+                    return;
+                }
+                MetaDataMutationResult result = mdProxy.getTable(tenantId, schemaName, dataTableName, HConstants.LATEST_TIMESTAMP, HConstants.LATEST_TIMESTAMP);
+                PTable dataTable = result.getTable();
+                PTable index = null;
+                if (dataTable != null) {
+                    for (PTable table : dataTable.getIndexes()) {
+                        if (Bytes.equals(indexName, table.getTableName().getBytes())) {
+                            index = table;
+                            break;
+                        }
+                    }
+                }
+                if (index == null) { // Index or data table was dropped in the meantime
+                    return;
+                }
+                LOG.info("Rebuilding index " + index.getName().getString() + " from timestamp " + disableTimeStamp);
+                replayDataTable(dataTable, index, disableTimeStamp);
+                if (updateIndexState(mdProxy, indexKey, PIndexState.ACTIVE, 0L)) {
+                    LOG.info("Successfully rebuilt index " + index.getName().getString());
+                }
+            } finally {
+                metaTable.close();
+            }
+        }
+        
+        /**
+         * Replays all cells, including delete markers, written to the data table since
+         * the given timestamp with their original timestamps, having the Indexer generate
+         * the updates of the given index only. As the data cells are rewritten as they
+         * are, doing this more than once is harmless.
+         */
+        private void replayDataTable(PTable dataTable, PTable index, long disableTimeStamp) throws IOException, InterruptedException {
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+            IndexMaintainer.serialize(dataTable, ptr, Collections.singletonList(index));
+            byte[] indexMetaData = ByteUtil.copyKeyBytesIfNecessary(ptr);
+            byte[] uuidValue = ServerCacheClient.generateId();
+            int batchSize = env.getConfiguration().getInt(QueryServices.MUTATE_BATCH_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MUTATE_BATCH_SIZE);
+            
+            Scan scan = new Scan();
+            scan.setRaw(true);
+            scan.setMaxVersions();
+            scan.setTimeRange(disableTimeStamp, HConstants.LATEST_TIMESTAMP);
+            scan.setCaching(batchSize);
+            HTableInterface dataHTable = env.getTable(dataTable.getPhysicalName().getBytes());
+            try {
+                ResultScanner scanner = dataHTable.getScanner(scan);
+                try {
+                    List<Mutation> mutations = Lists.newArrayListWithExpectedSize(batchSize);
+                    for (Result r = scanner.next(); r != null; r = scanner.next()) {
+                        Put put = null;
+                        Delete delete = null;
+                        for (KeyValue kv : r.raw()) {
+                            if (kv.getType() == KeyValue.Type.Put.getCode()) {
+                                if (put == null) {
+                                    put = new Put(kv.getRow());
+                                    mutations.add(put);
+                                }
+                                put.add(kv);
+                            } else {
+                                if (delete == null) {
+                                    delete = new Delete(kv.getRow());
+                                    mutations.add(delete);
+                                }
+                                delete.addDeleteMarker(kv);
+                            }
+                        }
+                        if (mutations.size() >= batchSize) {
+                            commitBatch(dataHTable, mutations, uuidValue, indexMetaData);
+                        }
+                    }
+                    commitBatch(dataHTable, mutations, uuidValue, indexMetaData);
+                } finally {
+                    scanner.close();
+                }
+            } finally {
+                dataHTable.close();
+            }
+        }
+        
+        private static void commitBatch(HTableInterface dataHTable, List<Mutation> mutations, byte[] uuidValue, byte[] indexMetaData) throws IOException, InterruptedException {
+            if (mutations.isEmpty()) {
+                return;
+            }
+            for (Mutation mutation : mutations) {
+                mutation.setAttribute(PhoenixIndexCodec.INDEX_UUID, uuidValue);
+                mutation.setAttribute(PhoenixIndexCodec.INDEX_MD, indexMetaData);
+            }
+            dataHTable.batch(mutations);
+            mutations.clear();
+        }
+        
+        private static boolean updateIndexState(MetaDataProtocol mdProxy, byte[] indexKey, PIndexState newState, Long disableTimeStamp) throws IOException {
+            // Mimic the Put that gets generated by the client on an update of the index state
+            Put put = new Put(indexKey);
+            put.add(TABLE_FAMILY_BYTES, INDEX_STATE_BYTES, newState.getSerializedBytes());
+            if (disableTimeStamp != null) {
+                put.add(TABLE_FAMILY_BYTES, INDEX_DISABLE_TIMESTAMP_BYTES, PDataType.LONG.toBytes(disableTimeStamp));
+            }
+            MetaDataMutationResult result = mdProxy.updateIndexState(Collections.<Mutation>singletonList(put));
+            return result.getMutationCode() == MutationCode.TABLE_ALREADY_EXISTS;
+        }
+    }
 }
@@ -129,6 +129,12 @@ public class ScanRegionObserver extends BaseScannerRegionObserver {
         }
     }
 
+    @Override
+    protected boolean isBatchFilterScan(Scan scan) {
+        byte[] isScanQuery = scan.getAttribute(NON_AGGREGATE_QUERY);
+        return isScanQuery != null && Bytes.compareTo(PDataType.FALSE_BYTES, isScanQuery) != 0;
+    }
+
     @Override
     protected RegionScanner doPostScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws Throwable {
         byte[] isScanQuery = scan.getAttribute(NON_AGGREGATE_QUERY);
@@ -141,9 +147,9 @@ public class ScanRegionObserver extends BaseScannerRegionObserver {
         final HashJoinInfo j = HashJoinInfo.deserializeHashJoinFromScan(scan);
         final ImmutableBytesWritable tenantId = ScanUtil.getTenantId(scan);
         
-        RegionScanner innerScanner = s;
+        RegionScanner innerScanner = BatchFilterRegionScanner.deserializeFromScan(scan, s);
         if (p != null || j != null) {
-            innerScanner = new HashJoinRegionScanner(s, p, j, tenantId, c.getEnvironment());
+            innerScanner = new HashJoinRegionScanner(innerScanner, p, j, tenantId, c.getEnvironment());
         }
         
         final OrderedResultIterator iterator = deserializeFromScan(scan,innerScanner);
@@ -27,15 +27,31 @@
  ******************************************************************************/
 package com.salesforce.phoenix.coprocessor;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.CoprocessorEnvironment;
+import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.coprocessor.BaseEndpointCoprocessor;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.HRegion;
 
+import com.google.common.collect.Lists;
+import com.salesforce.hbase.index.parallel.ThreadPoolBuilder;
+import com.salesforce.hbase.index.parallel.ThreadPoolManager;
 import com.salesforce.hbase.index.util.ImmutableBytesPtr;
 import com.salesforce.phoenix.cache.GlobalCache;
+import com.salesforce.phoenix.cache.ServerCacheClient;
 import com.salesforce.phoenix.cache.TenantCache;
+import com.salesforce.phoenix.monitoring.ServerMetricType;
+import com.salesforce.phoenix.monitoring.ServerMetrics;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
 
 
 
@@ -48,14 +64,117 @@ import com.salesforce.phoenix.cache.TenantCache;
  * @since 0.1
  */
 public class ServerCachingEndpointImpl extends BaseEndpointCoprocessor implements ServerCachingProtocol {
-
+    private static final String RELAY_POOL_NAME = "ServerCacheRelay";
+    
+    private static final Log LOG = LogFactory.getLog(ServerCachingEndpointImpl.class);
+    
+    private ExecutorService relayPool;
+    
+    @Override
+    public void start(CoprocessorEnvironment env) {
+        super.start(env);
+        this.relayPool = ThreadPoolManager.getExecutor(
+                new ThreadPoolBuilder(RELAY_POOL_NAME, env.getConfiguration()).
+                    setMaxThread(QueryServices.SERVER_CACHE_RELAY_THREADS_ATTRIB, QueryServicesOptions.DEFAULT_SERVER_CACHE_RELAY_THREADS),
+                (RegionCoprocessorEnvironment)env);
+    }
+    
+    @Override
+    public void stop(CoprocessorEnvironment env) {
+        super.stop(env);
+        relayPool.shutdown();
+    }
+    
     @Override
     public boolean addServerCache(byte[] tenantId, byte[] cacheId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory) throws SQLException {
         TenantCache tenantCache = GlobalCache.getTenantCache((RegionCoprocessorEnvironment)this.getEnvironment(), tenantId == null ? null : new ImmutableBytesPtr(tenantId));
         tenantCache.addServerCache(new ImmutableBytesPtr(cacheId), cachePtr, cacheFactory);
+        ServerMetrics.getInstance(getEnvironment().getConfiguration()).update(ServerMetricType.SERVER_CACHE_BYTES, cachePtr.getLength());
+        return true;
+    }
+
+    @Override
+    public boolean addReusableServerCache(byte[] tenantId, byte[] cacheId, byte[] pinId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory) throws SQLException {
+        TenantCache tenantCache = GlobalCache.getTenantCache((RegionCoprocessorEnvironment)this.getEnvironment(), tenantId == null ? null : new ImmutableBytesPtr(tenantId));
+        tenantCache.addReusableServerCache(new ImmutableBytesPtr(cacheId), new ImmutableBytesPtr(pinId), cachePtr, cacheFactory);
+        ServerMetrics.getInstance(getEnvironment().getConfiguration()).update(ServerMetricType.SERVER_CACHE_BYTES, cachePtr.getLength());
+        return true;
+    }
+
+    @Override
+    public boolean pinReusableServerCache(byte[] tenantId, byte[] cacheId, byte[] pinId) throws SQLException {
+        TenantCache tenantCache = GlobalCache.getTenantCache((RegionCoprocessorEnvironment)this.getEnvironment(), tenantId == null ? null : new ImmutableBytesPtr(tenantId));
+        return tenantCache.pinReusableServerCache(new ImmutableBytesPtr(cacheId), new ImmutableBytesPtr(pinId));
+    }
+
+    @Override
+    public boolean hasServerCache(byte[] tenantId, byte[] cacheId) throws SQLException {
+        TenantCache tenantCache = GlobalCache.getTenantCache((RegionCoprocessorEnvironment)this.getEnvironment(), tenantId == null ? null : new ImmutableBytesPtr(tenantId));
+        return tenantCache.getServerCache(new ImmutableBytesPtr(cacheId)) != null;
+    }
+
+    @Override
+    public boolean relayServerCache(final byte[] tenantId, final byte[] cacheId, final byte[] pinId, final ImmutableBytesWritable cachePtr, final ServerCacheFactory cacheFactory,
+            final byte[] tableName, byte[][] relayKeys, int fanout) throws SQLException {
+        if (pinId != null) {
+            addReusableServerCache(tenantId, cacheId, pinId, cachePtr, cacheFactory);
+        } else {
+            addServerCache(tenantId, cacheId, cachePtr, cacheFactory);
+        }
+        /*
+         * Relay the cache in the background rather than waiting for the other region servers here,
+         * as that would tie up this RPC handler on RPCs to other region servers which may in turn be
+         * waiting on handlers of this one. The client confirms that the cache arrived through
+         * hasServerCache and sends it directly to any region server it did not reach.
+         */
+        List<byte[]> remoteKeys = getRemoteKeys(tableName, relayKeys);
+        for (final List<byte[]> group : ServerCacheClient.partitionForRelay(remoteKeys, fanout)) {
+            final int groupFanout = fanout;
+            relayPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        HTableInterface htable = getEnvironment().getTable(tableName);
+                        try {
+                            ServerCacheClient.sendServerCache(htable, tenantId, cacheId, pinId, cachePtr, cacheFactory, group, groupFanout);
+                        } finally {
+                            htable.close();
+                        }
+                    } catch (Throwable t) {
+                        LOG.warn("Unable to relay server cache " + ServerCacheClient.idToString(cacheId) + " to " + group.size() + " region server(s)", t);
+                    }
+                }
+            });
+        }
         return true;
     }
 
+    /**
+     * Filter out the keys of regions hosted by this region server, which already holds the cache.
+     */
+    private List<byte[]> getRemoteKeys(byte[] tableName, byte[][] relayKeys) throws SQLException {
+        List<HRegion> regions;
+        try {
+            regions = ((RegionCoprocessorEnvironment)getEnvironment()).getRegionServerServices().getOnlineRegions(tableName);
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+        List<byte[]> remoteKeys = Lists.newArrayListWithExpectedSize(relayKeys.length);
+        for (byte[] key : relayKeys) {
+            boolean isLocal = false;
+            for (HRegion region : regions) {
+                if (HRegion.rowIsInRange(region.getRegionInfo(), key)) {
+                    isLocal = true;
+                    break;
+                }
+            }
+            if (!isLocal) {
+                remoteKeys.add(key);
+            }
+        }
+        return remoteKeys;
+    }
+
     @Override
     public boolean removeServerCache(byte[] tenantId, byte[] cacheId) throws SQLException {
         TenantCache tenantCache = GlobalCache.getTenantCache((RegionCoprocessorEnvironment)this.getEnvironment(), tenantId == null ? null : new ImmutableBytesPtr(tenantId));
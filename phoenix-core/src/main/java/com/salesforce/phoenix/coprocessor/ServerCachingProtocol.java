@@ -59,11 +59,69 @@ public interface ServerCachingProtocol extends CoprocessorProtocol {
      * @throws SQLException 
      */
     public boolean addServerCache(byte[] tenantId, byte[] cacheId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory) throws SQLException;
+    /**
+     * Add the cache to the region server cache such that it is kept after the operation that added
+     * it completes, so that it may be reused by other operations until it expires. Replaces any
+     * existing cache with the same identifier. The cache is pinned for the operation adding it, so
+     * that it is not closed while in use even if it is evicted. A cache larger than the maximum
+     * size of the reusable caches is only kept while pinned.
+     * @param tenantId the tenantId or null if not applicable
+     * @param cacheId identifier of the cache, derived from the content of the cache
+     * @param pinId unique identifier of the pin, passed to {@link #removeServerCache(byte[], byte[])}
+     * to release it once the operation completes
+     * @param cachePtr pointer to the byte array of the cache
+     * @param cacheFactory factory that converts from byte array to object representation on the server side
+     * @return true on success and otherwise throws
+     * @throws SQLException 
+     */
+    public boolean addReusableServerCache(byte[] tenantId, byte[] cacheId, byte[] pinId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory) throws SQLException;
+    /**
+     * Pin a reusable cache held by the region server, so that it is not closed while in use by
+     * the operation pinning it even if it is evicted or expires.
+     * @param tenantId the tenantId or null if not applicable
+     * @param cacheId identifier of the cache
+     * @param pinId unique identifier of the pin, passed to {@link #removeServerCache(byte[], byte[])}
+     * to release it once the operation completes
+     * @return true if the cache was pinned and false if the region server does not hold it
+     * @throws SQLException 
+     */
+    public boolean pinReusableServerCache(byte[] tenantId, byte[] cacheId, byte[] pinId) throws SQLException;
+    /**
+     * Determine whether the region server holds the cache, either because it was added
+     * directly or because it was relayed to it by another region server.
+     * @param tenantId the tenantId or null if not applicable
+     * @param cacheId unique identifier of the cache
+     * @return true if the cache is present and false otherwise
+     * @throws SQLException 
+     */
+    public boolean hasServerCache(byte[] tenantId, byte[] cacheId) throws SQLException;
+    /**
+     * Add the cache to the region server cache and relay it on to other region servers, so
+     * that a cache used across the cluster only needs to be sent once by the client.
+     * The relay keys are split into groups and the cache is sent, along with the rest of
+     * its group, to the region server hosting the first row key of each group, so that the
+     * cache spreads through the cluster as a tree. The relay happens in the background after
+     * the cache has been added locally, so callers use {@link #hasServerCache(byte[], byte[])}
+     * to find out when it has reached the other region servers.
+     * @param tenantId the tenantId or null if not applicable
+     * @param cacheId unique identifier of the cache
+     * @param pinId for a cache added as a reusable cache, the identifier under which it is pinned,
+     * and otherwise null
+     * @param cachePtr pointer to the byte array of the cache
+     * @param cacheFactory factory that converts from byte array to object representation on the server side
+     * @param tableName physical name of the table whose regions are used to locate the region servers
+     * @param relayKeys the start key of a region on each region server to which the cache
+     * still needs to be sent
+     * @param fanout the maximum number of groups into which the relay keys are split
+     * @return true on success and otherwise throws
+     * @throws SQLException 
+     */
+    public boolean relayServerCache(byte[] tenantId, byte[] cacheId, byte[] pinId, ImmutableBytesWritable cachePtr, ServerCacheFactory cacheFactory, byte[] tableName, byte[][] relayKeys, int fanout) throws SQLException;
     /**
      * Remove the cache from the region server cache.  Called upon completion of
      * the operation when cache is no longer needed.
      * @param tenantId the tenantId or null if not applicable
-     * @param cacheId unique identifier of the cache
+     * @param cacheId unique identifier of the cache, or of the pin of a reusable cache
      * @return true on success and otherwise throws
      * @throws SQLException 
      */
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.coprocessor;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.RegionTooBusyException;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.salesforce.hbase.index.util.ImmutableBytesPtr;
+import com.salesforce.phoenix.exception.SQLExceptionCode;
+import com.salesforce.phoenix.exception.SQLExceptionInfo;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
+import com.salesforce.phoenix.util.ServerUtil;
+
+/**
+ * 
+ * Admission control of the scans of each tenant on a region server. Tracks per tenant the number
+ * of scanners open and the rows and bytes scanned per second, and holds back a new scan of a tenant
+ * over one of its quotas for up to {@link QueryServices#TENANT_ADMISSION_WAIT_MS_ATTRIB} before
+ * rejecting it with a {@link RegionTooBusyException}, which the client retries after backing off.
+ * The quotas are read from the region server configuration and are all disabled by default, in
+ * which case scans are not tracked at all.
+ *
+ * @since 3.0.0
+ */
+public class TenantGovernor {
+    private static final TenantGovernor INSTANCE = new TenantGovernor();
+    // Length of the window over which the rows and bytes scanned are counted
+    private static final long RATE_WINDOW_MS = 1000;
+    // Interval at which a held back scan checks whether the rates went down
+    private static final long RATE_RECHECK_MS = 50;
+    
+    private final ConcurrentMap<ImmutableBytesPtr,TenantUsage> usageMap = new ConcurrentHashMap<ImmutableBytesPtr,TenantUsage>();
+    
+    public static TenantGovernor getInstance() {
+        return INSTANCE;
+    }
+    
+    private TenantGovernor() {
+    }
+    
+    /**
+     * Admit a new scan of a tenant, waiting for the tenant to come under its quotas if necessary.
+     * @param conf the region server configuration holding the quotas
+     * @param tenantId the tenant id of the scan or null if not applicable
+     * @param regionName the name of the region being scanned, used in the error message
+     * @return the lease through which the rows scanned are recorded and which must be closed when
+     * the scan is done, or null if the scan is not governed
+     * @throws RegionTooBusyException if the tenant is still over one of its quotas after waiting
+     */
+    public Lease admit(Configuration conf, ImmutableBytesWritable tenantId, String regionName) throws IOException {
+        if (tenantId == null) {
+            return null;
+        }
+        int maxScanners = conf.getInt(QueryServices.MAX_TENANT_SCANNERS_ATTRIB, QueryServicesOptions.DEFAULT_MAX_TENANT_SCANNERS);
+        long maxRowsPerSec = conf.getLong(QueryServices.MAX_TENANT_ROWS_PER_SEC_ATTRIB, QueryServicesOptions.DEFAULT_MAX_TENANT_ROWS_PER_SEC);
+        long maxBytesPerSec = conf.getLong(QueryServices.MAX_TENANT_BYTES_PER_SEC_ATTRIB, QueryServicesOptions.DEFAULT_MAX_TENANT_BYTES_PER_SEC);
+        if (maxScanners <= 0 && maxRowsPerSec <= 0 && maxBytesPerSec <= 0) {
+            return null;
+        }
+        TenantUsage usage = getUsage(tenantId);
+        long endAt = System.currentTimeMillis() + conf.getInt(QueryServices.TENANT_ADMISSION_WAIT_MS_ATTRIB, QueryServicesOptions.DEFAULT_TENANT_ADMISSION_WAIT_MS);
+        synchronized (usage) {
+            while (true) {
+                long now = System.currentTimeMillis();
+                String exceeded = usage.getExceededQuota(maxScanners, maxRowsPerSec, maxBytesPerSec, now);
+                if (exceeded == null) {
+                    usage.scannerCount++;
+                    return new Lease(usage);
+                }
+                long waitTime = endAt - now;
+                if (waitTime <= 0) {
+                    SQLException e = new SQLExceptionInfo.Builder(SQLExceptionCode.TENANT_QUOTA_EXCEEDED)
+                        .setMessage("Tenant " + Bytes.toStringBinary(tenantId.get(), tenantId.getOffset(), tenantId.getLength()) + " is over its quota of " + exceeded)
+                        .build().buildException();
+                    throw new RegionTooBusyException(ServerUtil.constructSQLErrorMessage(e, regionName));
+                }
+                try {
+                    // Closing a lease notifies, but a decrease of the rates does not
+                    usage.wait(Math.min(waitTime, RATE_RECHECK_MS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return the number of scanners of the tenant currently open on this region server
+     */
+    public int getScannerCount(ImmutableBytesWritable tenantId) {
+        TenantUsage usage = usageMap.get(new ImmutableBytesPtr(tenantId));
+        if (usage == null) {
+            return 0;
+        }
+        synchronized (usage) {
+            return usage.scannerCount;
+        }
+    }
+    
+    private TenantUsage getUsage(ImmutableBytesWritable tenantId) {
+        ImmutableBytesPtr key = new ImmutableBytesPtr(tenantId);
+        TenantUsage usage = usageMap.get(key);
+        if (usage == null) {
+            // Copy, as the tenant id may point into the serialized scan
+            key = new ImmutableBytesPtr(tenantId.copyBytes());
+            TenantUsage newUsage = new TenantUsage();
+            usage = usageMap.putIfAbsent(key, newUsage);
+            if (usage == null) {
+                usage = newUsage;
+            }
+        }
+        return usage;
+    }
+    
+    /**
+     * Handle on an admitted scan, through which the rows it scans are counted against the rates
+     * of its tenant. Closing it more than once has no effect.
+     */
+    public static class Lease {
+        private final TenantUsage usage;
+        private boolean closed;
+        
+        private Lease(TenantUsage usage) {
+            this.usage = usage;
+        }
+        
+        public void recordRows(long rowCount, long byteCount) {
+            synchronized (usage) {
+                usage.add(rowCount, byteCount, System.currentTimeMillis());
+            }
+        }
+        
+        public void close() {
+            synchronized (usage) {
+                if (!closed) {
+                    closed = true;
+                    usage.scannerCount--;
+                    usage.notifyAll();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Usage of a tenant, guarded by its own monitor
+     */
+    private static class TenantUsage {
+        private int scannerCount;
+        private long windowStartMs;
+        private long windowRowCount;
+        private long windowByteCount;
+        private long lastWindowRowCount;
+        private long lastWindowByteCount;
+        
+        private void roll(long now) {
+            long elapsed = now - windowStartMs;
+            if (elapsed >= RATE_WINDOW_MS) {
+                boolean isConsecutive = elapsed < 2 * RATE_WINDOW_MS;
+                lastWindowRowCount = isConsecutive ? windowRowCount : 0;
+                lastWindowByteCount = isConsecutive ? windowByteCount : 0;
+                windowRowCount = 0;
+                windowByteCount = 0;
+                windowStartMs = now;
+            }
+        }
+        
+        private void add(long rowCount, long byteCount, long now) {
+            roll(now);
+            windowRowCount += rowCount;
+            windowByteCount += byteCount;
+        }
+        
+        /**
+         * @return a description of the quota exceeded or null if none is. The rates are those of
+         * the current or of the last window, whichever is higher.
+         */
+        private String getExceededQuota(int maxScanners, long maxRowsPerSec, long maxBytesPerSec, long now) {
+            if (maxScanners > 0 && scannerCount >= maxScanners) {
+                return maxScanners + " concurrent scanners";
+            }
+            roll(now);
+            if (maxRowsPerSec > 0 && Math.max(windowRowCount, lastWindowRowCount) >= maxRowsPerSec) {
+                return maxRowsPerSec + " rows per second";
+            }
+            if (maxBytesPerSec > 0 && Math.max(windowByteCount, lastWindowByteCount) >= maxBytesPerSec) {
+                return maxBytesPerSec + " bytes per second";
+            }
+            return null;
+        }
+    }
+}
@@ -75,6 +75,8 @@ import com.salesforce.phoenix.expression.aggregator.ServerAggregators;
 import com.salesforce.phoenix.index.PhoenixIndexCodec;
 import com.salesforce.phoenix.join.HashJoinInfo;
 import com.salesforce.phoenix.join.ScanProjector;
+import com.salesforce.phoenix.monitoring.ServerMetricType;
+import com.salesforce.phoenix.monitoring.ServerMetrics;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.ColumnModifier;
@@ -131,6 +133,11 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         scan.setAttribute(UNGROUPED_AGG, QueryConstants.TRUE);
     }
 
+    @Override
+    protected boolean isBatchFilterScan(Scan scan) {
+        return scan.getAttribute(UNGROUPED_AGG) != null;
+    }
+
     @Override
     protected RegionScanner doPostScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws IOException {
         byte[] isUngroupedAgg = scan.getAttribute(UNGROUPED_AGG);
@@ -140,9 +147,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         
         final ScanProjector p = ScanProjector.deserializeProjectorFromScan(scan);
         final HashJoinInfo j = HashJoinInfo.deserializeHashJoinFromScan(scan);
-        RegionScanner theScanner = s;
+        RegionScanner theScanner = BatchFilterRegionScanner.deserializeFromScan(scan, s);
         if (p != null || j != null)  {
-            theScanner = new HashJoinRegionScanner(s, p, j, ScanUtil.getTenantId(scan), c.getEnvironment());
+            theScanner = new HashJoinRegionScanner(theScanner, p, j, ScanUtil.getTenantId(scan), c.getEnvironment());
         }
         final RegionScanner innerScanner = theScanner;
         
@@ -192,6 +199,7 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         	logger.info("Starting ungrouped coprocessor scan " + scan);
         }
         long rowCount = 0;
+        long startTime = System.currentTimeMillis();
         MultiVersionConsistencyControl.setThreadReadPoint(innerScanner.getMvccReadPoint());
         region.startRegionOperation();
         try {
@@ -302,6 +310,7 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             innerScanner.close();
             region.closeRegionOperation();
         }
+        ServerMetrics.getInstance(c.getEnvironment().getConfiguration()).update(ServerMetricType.UNGROUPED_AGGREGATE_TIME_MS, System.currentTimeMillis() - startTime);
         
         if (logger.isInfoEnabled()) {
         	logger.info("Finished scanning " + rowCount + " rows for ungrouped coprocessor scan " + scan);
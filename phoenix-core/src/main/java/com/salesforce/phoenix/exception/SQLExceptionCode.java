@@ -218,6 +218,9 @@ public enum SQLExceptionCode {
     INSUFFICIENT_MULTI_TENANT_COLUMNS(1040, "42Y96", "A MULTI_TENANT table must have 2 or more PK columns with the first column being VARCHAR or CHAR."),
     VIEW_WHERE_IS_CONSTANT(1045, "43A02", "WHERE clause in VIEW should not evaluate to a constant."),
     CANNOT_UPDATE_VIEW_COLUMN(1046, "43A03", "Column used in WHERE clause of VIEW may not be updated."),
+    INVALID_PACKED_ROWS(1047, "43A04", "PACKED_ROWS may only be set when creating a table with IMMUTABLE_ROWS."),
+    CANNOT_MUTATE_PACKED_ROWS_COLUMNS(1048, "43A05", "Key value columns of a table with PACKED_ROWS may not be dropped or added through a VIEW."),
+    INVALID_QUERY_PRIORITY(1049, "43A06", "Query priority must be one of INTERACTIVE, NORMAL or BATCH."),
         
     /** Sequence related */
     SEQUENCE_ALREADY_EXIST(1200, "42Z00", "Sequence already exists.", new Factory() {
@@ -254,6 +257,7 @@ public enum SQLExceptionCode {
     EXECUTE_QUERY_NOT_APPLICABLE(1103, "XCL03", "executeQuery may not be used."),
     EXECUTE_UPDATE_NOT_APPLICABLE(1104, "XCL03", "executeUpdate may not be used."),
     SPLIT_POINT_NOT_CONSTANT(1105, "XCL04", "Split points must be constants."),
+    TENANT_QUOTA_EXCEEDED(1106, "XCL05", "Tenant is over its quota of region server resources."),
     
     /**
      * Implementation defined class. Phoenix internal error. (errorcode 20, sqlstate INT).
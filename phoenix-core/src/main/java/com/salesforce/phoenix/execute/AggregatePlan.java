@@ -32,20 +32,24 @@ import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.hadoop.hbase.util.Bytes;
+
 import com.salesforce.phoenix.compile.GroupByCompiler.GroupBy;
 import com.salesforce.phoenix.compile.OrderByCompiler.OrderBy;
 import com.salesforce.phoenix.compile.RowProjector;
 import com.salesforce.phoenix.compile.StatementContext;
+import com.salesforce.phoenix.coprocessor.GroupedAggregateRegionObserver;
 import com.salesforce.phoenix.coprocessor.UngroupedAggregateRegionObserver;
 import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.OrderByExpression;
 import com.salesforce.phoenix.expression.RowKeyExpression;
-import com.salesforce.phoenix.expression.aggregator.Aggregators;
+import com.salesforce.phoenix.expression.aggregator.ClientAggregators;
 import com.salesforce.phoenix.iterate.AggregatingResultIterator;
 import com.salesforce.phoenix.iterate.ConcatResultIterator;
 import com.salesforce.phoenix.iterate.DistinctAggregatingResultIterator;
 import com.salesforce.phoenix.iterate.FilterAggregatingResultIterator;
 import com.salesforce.phoenix.iterate.GroupedAggregatingResultIterator;
+import com.salesforce.phoenix.iterate.HashAggregatingResultIterator;
 import com.salesforce.phoenix.iterate.LimitingResultIterator;
 import com.salesforce.phoenix.iterate.MergeSortRowKeyResultIterator;
 import com.salesforce.phoenix.iterate.OrderedAggregatingResultIterator;
@@ -58,10 +62,12 @@ import com.salesforce.phoenix.iterate.SequenceResultIterator;
 import com.salesforce.phoenix.iterate.SpoolingResultIterator;
 import com.salesforce.phoenix.iterate.UngroupedAggregatingResultIterator;
 import com.salesforce.phoenix.parse.FilterableStatement;
+import com.salesforce.phoenix.parse.HintNode.Hint;
 import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.TableRef;
+import com.salesforce.phoenix.util.ReadOnlyProps;
 
 
 
@@ -73,7 +79,7 @@ import com.salesforce.phoenix.schema.TableRef;
  * @since 0.1
  */
 public class AggregatePlan extends BasicQueryPlan {
-    private final Aggregators aggregators;
+    private final ClientAggregators aggregators;
     private final Expression having;
     private List<KeyRange> splits;
 
@@ -121,11 +127,11 @@ public class AggregatePlan extends BasicQueryPlan {
         }
     }
 
-    private ParallelIteratorFactory wrapParallelIteratorFactory () {
+    private ParallelIteratorFactory wrapParallelIteratorFactory (boolean isHashAggregate) {
         ParallelIteratorFactory innerFactory;
         QueryServices services = context.getConnection().getQueryServices();
-        if (groupBy.isEmpty() || groupBy.isOrderPreserving()) {
-            innerFactory = new SpoolingResultIterator.SpoolingResultIteratorFactory(services);
+        if (groupBy.isEmpty() || groupBy.isOrderPreserving() || isHashAggregate) {
+            innerFactory = new SpoolingResultIterator.SpoolingResultIteratorFactory(context);
         } else {
             innerFactory = new OrderingResultIteratorFactory(services);
         }
@@ -136,18 +142,54 @@ public class AggregatePlan extends BasicQueryPlan {
         return new WrappingResultIteratorFactory(innerFactory, parallelIteratorFactory);
     }
     
+    /**
+     * Estimate the number of distinct groups returned across all regions, based on the
+     * number of distinct groups each region is expected to return.
+     */
+    private long getEstimatedGroupCount(List<KeyRange> splits) {
+        byte[] estDistValsBytes = context.getScan().getAttribute(GroupedAggregateRegionObserver.ESTIMATED_DISTINCT_VALUES);
+        int estDistVals = estDistValsBytes == null ? GroupedAggregateRegionObserver.DEFAULT_ESTIMATED_DISTINCT_VALUES : Bytes.toInt(estDistValsBytes);
+        return (long)splits.size() * estDistVals;
+    }
+    
+    /**
+     * Determines whether the partial aggregates returned by the regions should be combined
+     * through a hash table on the client instead of being sorted and merged. This is only
+     * possible for an unordered GROUP BY whose rows are not required to be in group key
+     * order. Since we don't collect statistics on the number of distinct groups yet, hash
+     * aggregation is only used when the {@link Hint#HASH_AGGREGATE} hint is given.
+     */
+    private boolean isHashAggregate() {
+        if (groupBy.isEmpty() || groupBy.isOrderPreserving() || !aggregators.isMergeable()
+                || orderBy == OrderBy.FWD_ROW_KEY_ORDER_BY || orderBy == OrderBy.REV_ROW_KEY_ORDER_BY) {
+            return false;
+        }
+        return statement.getHint().hasHint(Hint.HASH_AGGREGATE);
+    }
+    
     @Override
     protected ResultIterator newIterator() throws SQLException {
         if (groupBy.isEmpty()) {
             UngroupedAggregateRegionObserver.serializeIntoScan(context.getScan());
         }
-        ParallelIterators parallelIterators = new ParallelIterators(context, tableRef, statement, projection, groupBy, null, wrapParallelIteratorFactory());
-        splits = parallelIterators.getSplits();
+        List<KeyRange> splits = ParallelIterators.getSplits(context, tableRef, statement.getHint());
+        boolean isHashAggregate = isHashAggregate();
+        ParallelIterators parallelIterators = new ParallelIterators(context, tableRef, statement, projection, groupBy, null, wrapParallelIteratorFactory(isHashAggregate), splits);
+        this.splits = splits;
 
         AggregatingResultIterator aggResultIterator;
         // No need to merge sort for ungrouped aggregation
         if (groupBy.isEmpty()) {
             aggResultIterator = new UngroupedAggregatingResultIterator(new ConcatResultIterator(parallelIterators), aggregators);
+        } else if (isHashAggregate) {
+            // No need to merge sort when the groups are combined through a hash table
+            QueryServices services = context.getConnection().getQueryServices();
+            ReadOnlyProps props = services.getProps();
+            long maxCacheSize = props.getLong(QueryServices.GROUPBY_MAX_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_GROUPBY_MAX_CACHE_MAX);
+            int numSpillFiles = props.getInt(QueryServices.GROUPBY_SPILL_FILES_ATTRIB, QueryServicesOptions.DEFAULT_GROUPBY_SPILL_FILES);
+            int estDistVals = (int)Math.min(Integer.MAX_VALUE, getEstimatedGroupCount(splits));
+            aggResultIterator = new HashAggregatingResultIterator(new ConcatResultIterator(parallelIterators), aggregators, 
+                    services.getMemoryManager(), maxCacheSize, numSpillFiles, estDistVals);
         } else {
             aggResultIterator = new GroupedAggregatingResultIterator(new MergeSortRowKeyResultIterator(parallelIterators), aggregators);
         }
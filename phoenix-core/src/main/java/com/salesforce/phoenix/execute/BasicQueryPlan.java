@@ -32,6 +32,7 @@ import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
@@ -47,6 +48,8 @@ import com.salesforce.phoenix.iterate.DelegateResultIterator;
 import com.salesforce.phoenix.iterate.ParallelIterators.ParallelIteratorFactory;
 import com.salesforce.phoenix.iterate.ResultIterator;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.optimize.Cost;
+import com.salesforce.phoenix.optimize.CostEstimator;
 import com.salesforce.phoenix.parse.FilterableStatement;
 import com.salesforce.phoenix.query.ConnectionQueryServices;
 import com.salesforce.phoenix.schema.TableRef;
@@ -153,7 +156,12 @@ public abstract class BasicQueryPlan implements QueryPlan {
         // TODO: include time range in explain plan?
         PhoenixConnection connection = context.getConnection();
         Long scn = connection.getSCN();
-        ScanUtil.setTimeRange(scan, scn == null ? context.getCurrentTime() : scn);
+        if (scn == null && context.getCurrentTable().getTimeStamp() == HConstants.LATEST_TIMESTAMP) {
+            // No server time stamp when the meta data was trusted without a server round trip
+            ScanUtil.setTimeRange(scan, HConstants.LATEST_TIMESTAMP);
+        } else {
+            ScanUtil.setTimeRange(scan, scn == null ? context.getCurrentTime() : scn);
+        }
         ScanUtil.setTenantId(scan, connection.getTenantId() == null ? null : connection.getTenantId().getBytes());
         ResultIterator iterator = newIterator();
         return dependencies.isEmpty() ? 
@@ -200,6 +208,11 @@ public abstract class BasicQueryPlan implements QueryPlan {
         ResultIterator iterator = iterator();
         List<String> planSteps = Lists.newArrayListWithExpectedSize(5);
         iterator.explain(planSteps);
+        // Show the estimated cost of the scan after the step describing it, when statistics are available
+        Cost cost = CostEstimator.estimate(this);
+        if (cost != null && !planSteps.isEmpty()) {
+            planSteps.add(1, "    " + cost);
+        }
         return new ExplainPlan(planSteps);
     }
 }
@@ -51,9 +51,12 @@ import com.salesforce.phoenix.iterate.ResultIterator;
 import com.salesforce.phoenix.job.JobManager.JobCallable;
 import com.salesforce.phoenix.join.HashCacheClient;
 import com.salesforce.phoenix.join.HashJoinInfo;
+import com.salesforce.phoenix.monitoring.MetricType;
 import com.salesforce.phoenix.parse.FilterableStatement;
 import com.salesforce.phoenix.query.ConnectionQueryServices;
 import com.salesforce.phoenix.query.KeyRange;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.TableRef;
 import com.salesforce.phoenix.util.SQLCloseable;
 
@@ -99,6 +102,7 @@ public class HashJoinPlan implements QueryPlan {
         int count = joinIds.length;
         ConnectionQueryServices services = getContext().getConnection().getQueryServices();
         ExecutorService executor = services.getExecutor();
+        final boolean reuseHashCache = services.getProps().getBoolean(QueryServices.REUSE_HASH_CACHE_ATTRIB, QueryServicesOptions.DEFAULT_REUSE_HASH_CACHE);
         List<Future<ServerCache>> futures = new ArrayList<Future<ServerCache>>(count);
         List<SQLCloseable> dependencies = new ArrayList<SQLCloseable>(count);
         for (int i = 0; i < count; i++) {
@@ -108,6 +112,12 @@ public class HashJoinPlan implements QueryPlan {
                 @Override
                 public ServerCache call() throws Exception {
                     QueryPlan hashPlan = hashPlans[index];
+                    // The caches a nested join depends on are only known once it executes,
+                    // so its results cannot be identified up front
+                    if (reuseHashCache && !(hashPlan instanceof HashJoinPlan)) {
+                        byte[] cacheId = hashClient.getCacheId(hashPlan, hashExpressions[index]);
+                        return hashClient.addHashCache(ranges, cacheId, hashPlan, hashExpressions[index], plan.getTableRef());
+                    }
                     return hashClient.addHashCache(ranges, hashPlan.iterator(), 
                             hashPlan.getEstimatedSize(), hashExpressions[index], plan.getTableRef());
                 }
@@ -123,6 +133,8 @@ public class HashJoinPlan implements QueryPlan {
                 ServerCache cache = futures.get(i).get();
                 joinIds[i].set(cache.getId());
                 dependencies.add(cache);
+                // A reused cache has a size of zero, as nothing was sent for it
+                getContext().getMetrics().update(MetricType.HASH_CACHE_BYTES, (long)cache.getSize() * cache.getServerCount());
             } catch (InterruptedException e) {
                 throw new SQLException("Hash join execution interrupted.", e);
             } catch (ExecutionException e) {
@@ -55,6 +55,8 @@ import com.salesforce.phoenix.index.IndexMaintainer;
 import com.salesforce.phoenix.index.IndexMetaDataCacheClient;
 import com.salesforce.phoenix.index.PhoenixIndexCodec;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.monitoring.MetricType;
+import com.salesforce.phoenix.monitoring.StatementMetrics;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.schema.IllegalDataException;
 import com.salesforce.phoenix.schema.MetaDataClient;
@@ -309,7 +311,9 @@ public class MutationState implements SQLCloseable {
                     }
                 }
             }
-            timeStamps[i++] = scn == null ? serverTimeStamp : scn;
+            // Table meta data trusted without a server round trip has no server time,
+            // so let the region server assign the time stamp in that case.
+            timeStamps[i++] = scn == null ? serverTimeStamp == QueryConstants.UNSET_TIMESTAMP ? HConstants.LATEST_TIMESTAMP : serverTimeStamp : scn;
         }
         return timeStamps;
     }
@@ -333,6 +337,15 @@ public class MutationState implements SQLCloseable {
     }
     
     public void commit() throws SQLException {
+        // Not attributed to any statement, so only the global metrics are updated
+        commit(new StatementMetrics());
+    }
+    
+    /**
+     * Commit the uncommitted state, adding the size and duration of each batch of
+     * mutations sent to the given statement metrics.
+     */
+    public void commit(StatementMetrics metrics) throws SQLException {
         int i = 0;
         byte[] tenantId = connection.getTenantId() == null ? null : connection.getTenantId().getBytes();
         long[] serverTimeStamps = validate();
@@ -392,7 +405,11 @@ public class MutationState implements SQLCloseable {
                         long startTime = System.currentTimeMillis();
                         hTable.batch(mutations);
                         shouldRetry = false;
-                        if (logger.isDebugEnabled()) logger.debug("Total time for batch call of  " + mutations.size() + " mutations into " + table.getName().getString() + ": " + (System.currentTimeMillis() - startTime) + " ms");
+                        long batchTime = System.currentTimeMillis() - startTime;
+                        metrics.update(MetricType.MUTATION_BATCH_COUNT, 1);
+                        metrics.update(MetricType.MUTATION_ROW_COUNT, mutations.size());
+                        metrics.update(MetricType.MUTATION_COMMIT_TIME_MS, batchTime);
+                        if (logger.isDebugEnabled()) logger.debug("Total time for batch call of  " + mutations.size() + " mutations into " + table.getName().getString() + ": " + batchTime + " ms");
                         committedList.add(entry);
                     } catch (Exception e) {
                         SQLException inferredE = ServerUtil.parseServerExceptionOrNull(e);
@@ -27,7 +27,6 @@
  ******************************************************************************/
 package com.salesforce.phoenix.expression;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -36,7 +35,7 @@ import com.salesforce.phoenix.exception.ValueTypeIncompatibleException;
 import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.tuple.Tuple;
-import com.salesforce.phoenix.util.NumberUtil;
+import com.salesforce.phoenix.util.LongDecimal;
 
 
 public class DecimalAddExpression extends AddExpression {
@@ -62,7 +61,9 @@ public class DecimalAddExpression extends AddExpression {
 
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
-        BigDecimal result = null;
+        // Use long arithmetic until the result no longer fits
+        LongDecimal result = new LongDecimal();
+        LongDecimal value = new LongDecimal();
         for (int i=0; i<children.size(); i++) {
             Expression childExpr = children.get(i);
             if (!childExpr.evaluate(tuple, ptr)) {
@@ -74,21 +75,17 @@ public class DecimalAddExpression extends AddExpression {
             
             PDataType childType = childExpr.getDataType();
             ColumnModifier childColumnModifier = childExpr.getColumnModifier();
-            BigDecimal bd = (BigDecimal)PDataType.DECIMAL.toObject(ptr, childType, childColumnModifier);
-            
-            if (result == null) {
-                result = bd;
+            if (i == 0) {
+                result.set(ptr, childType, childColumnModifier);
             } else {
-                result = result.add(bd);
+                value.set(ptr, childType, childColumnModifier);
+                result.add(value);
             }
         }
-        if (maxLength != null && scale != null) {
-            result = NumberUtil.setDecimalWidthAndScale(result, maxLength, scale);
-        }
-        if (result == null) {
+        if (maxLength != null && scale != null && !result.setWidthAndScale(maxLength, scale)) {
             throw new ValueTypeIncompatibleException(PDataType.DECIMAL, maxLength, scale);
         }
-        ptr.set(PDataType.DECIMAL.toBytes(result));
+        ptr.set(result.toBytes());
         return true;
     }
 
@@ -27,7 +27,6 @@
  ******************************************************************************/
 package com.salesforce.phoenix.expression;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -36,7 +35,7 @@ import com.salesforce.phoenix.exception.ValueTypeIncompatibleException;
 import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.tuple.Tuple;
-import com.salesforce.phoenix.util.NumberUtil;
+import com.salesforce.phoenix.util.LongDecimal;
 
 
 public class DecimalMultiplyExpression extends MultiplyExpression {
@@ -50,7 +49,9 @@ public class DecimalMultiplyExpression extends MultiplyExpression {
 
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
-        BigDecimal result = null;
+        // Use long arithmetic until the result no longer fits
+        LongDecimal result = new LongDecimal();
+        LongDecimal value = new LongDecimal();
         for (int i=0; i<children.size(); i++) {
             Expression childExpr = children.get(i);
             if (!childExpr.evaluate(tuple, ptr)) {
@@ -62,21 +63,17 @@ public class DecimalMultiplyExpression extends MultiplyExpression {
             
             PDataType childType = children.get(i).getDataType();
             ColumnModifier childColumnModifier = children.get(i).getColumnModifier();
-            BigDecimal bd = (BigDecimal)PDataType.DECIMAL.toObject(ptr, childType, childColumnModifier);
-            
-            if (result == null) {
-                result = bd;
+            if (i == 0) {
+                result.set(ptr, childType, childColumnModifier);
             } else {
-                result = result.multiply(bd);
+                value.set(ptr, childType, childColumnModifier);
+                result.multiply(value);
             }
         }
-        if (getMaxLength() != null && getScale() != null) {
-            result = NumberUtil.setDecimalWidthAndScale(result, getMaxLength(), getScale());
-        }
-        if (result == null) {
+        if (getMaxLength() != null && getScale() != null && !result.setWidthAndScale(getMaxLength(), getScale())) {
             throw new ValueTypeIncompatibleException(PDataType.DECIMAL, getMaxLength(), getScale());
         }
-        ptr.set(PDataType.DECIMAL.toBytes(result));
+        ptr.set(result.toBytes());
         return true;
     }
 
@@ -27,7 +27,6 @@
  ******************************************************************************/
 package com.salesforce.phoenix.expression;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -36,7 +35,7 @@ import com.salesforce.phoenix.exception.ValueTypeIncompatibleException;
 import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.tuple.Tuple;
-import com.salesforce.phoenix.util.NumberUtil;
+import com.salesforce.phoenix.util.LongDecimal;
 
 
 /**
@@ -69,7 +68,9 @@ public class DecimalSubtractExpression extends SubtractExpression {
 
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
-        BigDecimal result = null;
+        // Use long arithmetic until the result no longer fits
+        LongDecimal result = new LongDecimal();
+        LongDecimal value = new LongDecimal();
         for (int i=0; i<children.size(); i++) {
             Expression childExpr = children.get(i);
             if (!childExpr.evaluate(tuple, ptr)) { 
@@ -82,30 +83,29 @@ public class DecimalSubtractExpression extends SubtractExpression {
             PDataType childType = childExpr.getDataType();
             boolean isDate = childType.isCoercibleTo(PDataType.DATE);
             ColumnModifier childColumnModifier = childExpr.getColumnModifier();
-            BigDecimal bd = isDate ?
-                    BigDecimal.valueOf(childType.getCodec().decodeLong(ptr, childColumnModifier)) :
-                    (BigDecimal)PDataType.DECIMAL.toObject(ptr, childType, childColumnModifier);
+            if (isDate) {
+                value.set(childType.getCodec().decodeLong(ptr, childColumnModifier), 0);
+            } else {
+                value.set(ptr, childType, childColumnModifier);
+            }
             
-            if (result == null) {
-                result = bd;
+            if (i == 0) {
+                result.set(value);
             } else {
-                result = result.subtract(bd);
+                result.subtract(value);
                 /*
                  * Special case for date subtraction - note that only first two expression may be dates.
                  * We need to convert the date to a unit of "days" because that's what sql expects.
                  */
                 if (isDate) {
-                    result = result.divide(BD_MILLIS_IN_DAY, PDataType.DEFAULT_MATH_CONTEXT);
+                    result.set(result.toBigDecimal().divide(BD_MILLIS_IN_DAY, PDataType.DEFAULT_MATH_CONTEXT));
                 }
             }
         }
-        if (maxLength != null && scale != null) {
-            result = NumberUtil.setDecimalWidthAndScale(result, maxLength, scale);
-        }
-        if (result == null) {
+        if (maxLength != null && scale != null && !result.setWidthAndScale(maxLength, scale)) {
             throw new ValueTypeIncompatibleException(PDataType.DECIMAL, maxLength, scale);
         }
-        ptr.set(PDataType.DECIMAL.toBytes(result));
+        ptr.set(result.toBytes());
         return true;
     }
 
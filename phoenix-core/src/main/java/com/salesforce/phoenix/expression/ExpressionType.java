@@ -30,6 +30,8 @@ package com.salesforce.phoenix.expression;
 import java.util.Map;
 
 import com.google.common.collect.Maps;
+import com.salesforce.phoenix.expression.function.ArrayAllComparisonFunction;
+import com.salesforce.phoenix.expression.function.ArrayAnyComparisonFunction;
 import com.salesforce.phoenix.expression.function.ArrayIndexFunction;
 import com.salesforce.phoenix.expression.function.ArrayLengthFunction;
 import com.salesforce.phoenix.expression.function.CeilDateExpression;
@@ -161,7 +163,10 @@ public enum ExpressionType {
     ArrayIndexFunction(ArrayIndexFunction.class),
     ArrayLengthFunction(ArrayLengthFunction.class),
     ArrayConstructorExpression(ArrayConstructorExpression.class),
-    SQLViewTypeFunction(SQLViewTypeFunction.class);
+    SQLViewTypeFunction(SQLViewTypeFunction.class),
+    PackedColumnExpression(PackedColumnExpression.class),
+    ArrayAnyComparisonFunction(ArrayAnyComparisonFunction.class),
+    ArrayAllComparisonFunction(ArrayAllComparisonFunction.class);
     ExpressionType(Class<? extends Expression> clazz) {
         this.clazz = clazz;
     }
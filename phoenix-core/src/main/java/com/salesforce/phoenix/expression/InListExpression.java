@@ -273,6 +273,18 @@ public class InListExpression extends BaseSingleExpression {
         return maxValue;
     }
 
+    /**
+     * @return the set of non null values to match against, already coerced to
+     * the type and column modifier of the first child expression.
+     */
+    public Set<ImmutableBytesPtr> getValues() {
+        return values;
+    }
+
+    public boolean containsNull() {
+        return containsNull;
+    }
+
     @Override
     public String toString() {
         int maxToStringLen = 200;
@@ -56,9 +56,13 @@ public class KeyValueColumnExpression extends ColumnExpression {
     }
 
     public KeyValueColumnExpression(PColumn column) {
+        this(column, column.getName().getBytes());
+    }
+
+    protected KeyValueColumnExpression(PColumn column, byte[] cq) {
         super(column);
         this.cf = column.getFamilyName().getBytes();
-        this.cq = column.getName().getBytes();
+        this.cq = cq;
     }
 
     public byte[] getColumnFamily() {
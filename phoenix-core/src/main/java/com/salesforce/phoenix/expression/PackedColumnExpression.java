@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.schema.PColumn;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.PackedRowUtil;
+import com.salesforce.phoenix.util.SchemaUtil;
+
+
+/**
+ * 
+ * Class to access a column value of a table with PACKED_ROWS. The value is decoded
+ * by slot from the single cell that holds all column values of the column family,
+ * so to filters and projections this looks like a reference to that cell.
+ *
+ * @since 3.0.0
+ */
+public class PackedColumnExpression extends KeyValueColumnExpression {
+    private int slot;
+    private byte[] name;
+
+    public PackedColumnExpression() {
+    }
+
+    public PackedColumnExpression(PColumn column, int slot) {
+        super(column, QueryConstants.PACKED_COLUMN_BYTES);
+        this.slot = slot;
+        this.name = column.getName().getBytes();
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + slot;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj)) return false;
+        PackedColumnExpression other = (PackedColumnExpression)obj;
+        return slot == other.slot;
+    }
+
+    @Override
+    public String toString() {
+        return SchemaUtil.getColumnDisplayName(getColumnFamily(), name);
+    }
+
+    @Override
+    public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        if (!super.evaluate(tuple, ptr)) {
+            return false;
+        }
+        PackedRowUtil.unpack(ptr, slot);
+        return true;
+    }
+
+    @Override
+    public void readFields(DataInput input) throws IOException {
+        super.readFields(input);
+        slot = WritableUtils.readVInt(input);
+        name = Bytes.readByteArray(input);
+    }
+
+    @Override
+    public void write(DataOutput output) throws IOException {
+        super.write(output);
+        WritableUtils.writeVInt(output, slot);
+        Bytes.writeByteArray(output, name);
+    }
+}
@@ -27,6 +27,7 @@
  ******************************************************************************/
 package com.salesforce.phoenix.expression.aggregator;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
 import com.salesforce.phoenix.expression.function.SingleAggregateFunction;
@@ -129,6 +130,16 @@ abstract public class Aggregators {
     
     abstract public Aggregator[] newAggregators();
     
+    /**
+     * Instantiate a new aggregator for the given function, initializing it from
+     * a value previously serialized by {@link #toBytes(Aggregator[])}
+     * @param function the aggregate function
+     * @param conf HBase configuration or null if not available
+     * @param ptr the serialized value or null if the aggregator had no value
+     * @return newly instantiated aggregator
+     */
+    abstract public Aggregator newAggregator(SingleAggregateFunction function, Configuration conf, ImmutableBytesWritable ptr);
+    
     public void reset(Aggregator[] aggregators) {
         for (int i = 0; i < aggregators.length; i++) {
             aggregators[i].reset();
@@ -29,6 +29,9 @@ package com.salesforce.phoenix.expression.aggregator;
 
 import java.util.List;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+
 import com.salesforce.phoenix.expression.function.SingleAggregateFunction;
 import com.salesforce.phoenix.schema.ValueBitSet;
 import com.salesforce.phoenix.schema.tuple.Tuple;
@@ -59,6 +62,20 @@ public class ClientAggregators extends Aggregators {
         this.tempValueSet = ValueBitSet.newInstance(schema);
     }
     
+    /**
+     * @return true if the value serialized through {@link #toBytes(Aggregator[])} may
+     * be aggregated back into new client aggregators without loss of state, and false
+     * otherwise.
+     */
+    public boolean isMergeable() {
+        for (SingleAggregateFunction function : functions) {
+            if (!function.isClientAggregatorMergeable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     @Override
     public void aggregate(Aggregator[] aggregators, Tuple result) {
         TupleUtil.getAggregateValue(result, ptr);
@@ -85,4 +102,12 @@ public class ClientAggregators extends Aggregators {
         return aggregators;
     }
     
+    @Override
+    public Aggregator newAggregator(SingleAggregateFunction function, Configuration conf, ImmutableBytesWritable ptr) {
+        Aggregator aggregator = function.newClientAggregator();
+        if (ptr != null) {
+            aggregator.aggregate(null, ptr);
+        }
+        return aggregator;
+    }
 }
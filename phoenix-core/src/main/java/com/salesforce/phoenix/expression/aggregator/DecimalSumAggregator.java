@@ -27,13 +27,12 @@
  ******************************************************************************/
 package com.salesforce.phoenix.expression.aggregator;
 
-import java.math.BigDecimal;
-
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
 import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.LongDecimal;
 import com.salesforce.phoenix.util.SizedUtil;
 
 
@@ -45,14 +44,16 @@ import com.salesforce.phoenix.util.SizedUtil;
  * @since 0.1
  */
 public class DecimalSumAggregator extends BaseAggregator {
-    private BigDecimal sum = BigDecimal.ZERO;
+    // Accumulate using long arithmetic until the sum no longer fits
+    private final LongDecimal sum = new LongDecimal();
+    private final LongDecimal value = new LongDecimal();
     private byte[] sumBuffer;
     
     public DecimalSumAggregator(ColumnModifier columnModifier, ImmutableBytesWritable ptr) {
         super(columnModifier);
         if (ptr != null) {
             initBuffer();
-            sum = (BigDecimal)PDataType.DECIMAL.toObject(ptr);
+            sum.set(ptr, PDataType.DECIMAL, null);
         }
     }
     
@@ -70,8 +71,8 @@ public class DecimalSumAggregator extends BaseAggregator {
     
     @Override
     public void aggregate(Tuple tuple, ImmutableBytesWritable ptr) {
-        BigDecimal value = (BigDecimal)getDataType().toObject(ptr, getInputDataType(), columnModifier);
-        sum = sum.add(value);
+        value.set(ptr, getInputDataType(), columnModifier);
+        sum.add(value);
         if (sumBuffer == null) {
             sumBuffer = new byte[getDataType().getByteSize()];
         }
@@ -82,7 +83,7 @@ public class DecimalSumAggregator extends BaseAggregator {
         if (sumBuffer == null) {
             return false;
         }
-        int len = getDataType().toBytes(sum, sumBuffer, 0);
+        int len = sum.toBytes(sumBuffer, 0);
         ptr.set(sumBuffer, 0, len);
         return true;
     }
@@ -94,7 +95,7 @@ public class DecimalSumAggregator extends BaseAggregator {
     
     @Override
     public void reset() {
-        sum = BigDecimal.ZERO;
+        sum.set(0, 0);
         sumBuffer = null;
         super.reset();
     }
@@ -106,6 +107,6 @@ public class DecimalSumAggregator extends BaseAggregator {
 
     @Override
     public int getSize() {
-        return super.getSize() + SizedUtil.BIG_DECIMAL_SIZE + SizedUtil.ARRAY_SIZE + getDataType().getByteSize();
+        return super.getSize() + 2 * SizedUtil.LONG_DECIMAL_SIZE + SizedUtil.ARRAY_SIZE + getDataType().getByteSize();
     }
 }
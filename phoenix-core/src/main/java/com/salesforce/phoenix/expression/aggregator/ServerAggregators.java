@@ -36,6 +36,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.io.WritableUtils;
 
 import com.salesforce.phoenix.expression.Expression;
@@ -114,6 +115,11 @@ public class ServerAggregators extends Aggregators {
         return aggregators;
     }
 
+    @Override
+    public Aggregator newAggregator(SingleAggregateFunction function, Configuration conf, ImmutableBytesWritable ptr) {
+        return ptr == null ? function.newServerAggregator(conf) : function.newServerAggregator(conf, ptr);
+    }
+
     /**
      * Deserialize aggregators from the serialized byte array representation
      * @param b byte array representation of a list of Aggregators
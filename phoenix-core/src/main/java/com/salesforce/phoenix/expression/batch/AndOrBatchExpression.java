@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+import java.util.List;
+
+import com.salesforce.phoenix.expression.AndOrExpression;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+/**
+ * 
+ * Batch kernel for {@link AndOrExpression}. A row evaluates to the stop value as soon as
+ * any child does, otherwise to null if any child is null. Since the row at a time
+ * evaluation depends on the order of the children when one of them cannot be
+ * evaluated, a row with any unknown child is unknown.
+ *
+ * @since 3.0.0
+ */
+class AndOrBatchExpression extends BatchExpression {
+    private final BatchExpression[] children;
+    private final long stopValue;
+    
+    AndOrBatchExpression(List<BatchExpression> children, boolean stopValue) {
+        super(new ValueVector(children.get(0).getCapacity(), true, false));
+        this.children = children.toArray(new BatchExpression[children.size()]);
+        this.stopValue = stopValue ? 1 : 0;
+    }
+    
+    @Override
+    public ValueVector evaluate(Tuple[] tuples, int size) {
+        byte[] states = result.states;
+        long[] longs = result.longs;
+        for (int i = 0; i < size; i++) {
+            states[i] = ValueVector.VALUE;
+            longs[i] = 1 - stopValue;
+        }
+        for (BatchExpression child : children) {
+            ValueVector v = child.evaluate(tuples, size);
+            for (int i = 0; i < size; i++) {
+                byte state = v.states[i];
+                if (state == ValueVector.UNKNOWN) {
+                    states[i] = ValueVector.UNKNOWN;
+                } else if (state == ValueVector.VALUE && v.longs[i] == stopValue) {
+                    longs[i] = stopValue;
+                } else if (state == ValueVector.NULL && states[i] == ValueVector.VALUE) {
+                    states[i] = ValueVector.NULL;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (states[i] == ValueVector.NULL && longs[i] == stopValue) {
+                states[i] = ValueVector.VALUE;
+            }
+        }
+        return result;
+    }
+}
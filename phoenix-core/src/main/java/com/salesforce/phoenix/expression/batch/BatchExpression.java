@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+/**
+ * 
+ * Kernel that evaluates an {@link Expression} over a batch of rows at a time, writing the
+ * result for every row into a {@link ValueVector} that is reused across batches. Use
+ * {@link BatchExpressionCompiler#compile(Expression, int)} to build the kernel tree for
+ * an expression.
+ *
+ * @since 3.0.0
+ */
+public abstract class BatchExpression {
+    protected final ValueVector result;
+    
+    protected BatchExpression(ValueVector result) {
+        this.result = result;
+    }
+    
+    /**
+     * Evaluate the expression for the first size tuples
+     * @param tuples the rows of the batch
+     * @param size the number of rows in the batch, no more than the capacity of the kernel
+     * @return the vector holding the result of each row, valid until the next call
+     */
+    public abstract ValueVector evaluate(Tuple[] tuples, int size);
+    
+    public int getCapacity() {
+        return result.getCapacity();
+    }
+}
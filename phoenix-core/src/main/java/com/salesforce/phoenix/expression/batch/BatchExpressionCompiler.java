@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+import java.util.List;
+
+import com.salesforce.phoenix.expression.AddExpression;
+import com.salesforce.phoenix.expression.AndExpression;
+import com.salesforce.phoenix.expression.ComparisonExpression;
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.InListExpression;
+import com.salesforce.phoenix.expression.KeyValueColumnExpression;
+import com.salesforce.phoenix.expression.LiteralExpression;
+import com.salesforce.phoenix.expression.LongAddExpression;
+import com.salesforce.phoenix.expression.LongMultiplyExpression;
+import com.salesforce.phoenix.expression.LongSubtractExpression;
+import com.salesforce.phoenix.expression.MultiplyExpression;
+import com.salesforce.phoenix.expression.OrExpression;
+import com.salesforce.phoenix.expression.RowKeyColumnExpression;
+import com.salesforce.phoenix.expression.SubtractExpression;
+import com.salesforce.phoenix.expression.batch.LongArithmeticBatchExpression.Operator;
+import com.salesforce.phoenix.expression.visitor.TraverseAllExpressionVisitor;
+import com.salesforce.phoenix.schema.PDataType;
+
+/**
+ * 
+ * Builds the tree of {@link BatchExpression} kernels for a boolean expression. Only
+ * comparisons, AND, OR, IN and integral add, subtract and multiply over columns and
+ * literals are supported, so that an expression containing anything else is not
+ * evaluated in batch at all.
+ *
+ * @since 3.0.0
+ */
+public class BatchExpressionCompiler {
+    
+    private BatchExpressionCompiler() {
+    }
+    
+    /**
+     * Compile the kernel tree for a boolean expression
+     * @param expression the boolean expression
+     * @param capacity the maximum number of rows evaluated in a batch
+     * @return the root kernel, or null if any node of the expression
+     * cannot be evaluated in batch.
+     */
+    public static BatchExpression compile(Expression expression, int capacity) {
+        if (expression.getDataType() != PDataType.BOOLEAN) {
+            return null;
+        }
+        BatchExpression batchExpression = expression.accept(new CompilerVisitor(capacity));
+        // A boolean column or literal by itself gains nothing from batching
+        if (batchExpression == null || batchExpression instanceof ColumnBatchExpression) {
+            return null;
+        }
+        return batchExpression;
+    }
+    
+    private static boolean hasAllChildren(Expression node, List<BatchExpression> l) {
+        return l.size() == node.getChildren().size();
+    }
+    
+    private static boolean hasLongs(List<BatchExpression> l) {
+        for (BatchExpression child : l) {
+            if (!child.result.hasLongs()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static class CompilerVisitor extends TraverseAllExpressionVisitor<BatchExpression> {
+        private final int capacity;
+        
+        private CompilerVisitor(int capacity) {
+            this.capacity = capacity;
+        }
+        
+        @Override
+        public BatchExpression visit(LiteralExpression node) {
+            return new ColumnBatchExpression(node, capacity);
+        }
+
+        @Override
+        public BatchExpression visit(RowKeyColumnExpression node) {
+            return new ColumnBatchExpression(node, capacity);
+        }
+
+        @Override
+        public BatchExpression visit(KeyValueColumnExpression node) {
+            return new ColumnBatchExpression(node, capacity);
+        }
+
+        private BatchExpression visitAndOr(Expression node, List<BatchExpression> l, boolean stopValue) {
+            if (!hasAllChildren(node, l) || !hasLongs(l)) {
+                return null;
+            }
+            for (Expression child : node.getChildren()) {
+                if (child.getDataType() != PDataType.BOOLEAN) {
+                    return null;
+                }
+            }
+            return new AndOrBatchExpression(l, stopValue);
+        }
+        
+        @Override
+        public BatchExpression visitLeave(AndExpression node, List<BatchExpression> l) {
+            return visitAndOr(node, l, false);
+        }
+
+        @Override
+        public BatchExpression visitLeave(OrExpression node, List<BatchExpression> l) {
+            return visitAndOr(node, l, true);
+        }
+
+        @Override
+        public BatchExpression visitLeave(ComparisonExpression node, List<BatchExpression> l) {
+            if (!hasAllChildren(node, l)) {
+                return null;
+            }
+            BatchExpression lhs = l.get(0);
+            BatchExpression rhs = l.get(1);
+            if (lhs.result.hasLongs() && rhs.result.hasLongs()) {
+                return new ComparisonBatchExpression(node, lhs, rhs, true);
+            }
+            if (lhs.result.hasBytes() && rhs.result.hasBytes()) {
+                return new ComparisonBatchExpression(node, lhs, rhs, false);
+            }
+            return null;
+        }
+
+        @Override
+        public BatchExpression visitLeave(InListExpression node, List<BatchExpression> l) {
+            if (!hasAllChildren(node, l) || !l.get(0).result.hasBytes()) {
+                return null;
+            }
+            return new InListBatchExpression(node, l.get(0));
+        }
+
+        private BatchExpression visitArithmetic(Expression node, List<BatchExpression> l, Operator operator) {
+            if (node.getDataType() != PDataType.LONG || !hasAllChildren(node, l) || !hasLongs(l)) {
+                return null;
+            }
+            return new LongArithmeticBatchExpression(operator, l);
+        }
+        
+        @Override
+        public BatchExpression visitLeave(AddExpression node, List<BatchExpression> l) {
+            return node instanceof LongAddExpression ? visitArithmetic(node, l, Operator.ADD) : null;
+        }
+
+        @Override
+        public BatchExpression visitLeave(SubtractExpression node, List<BatchExpression> l) {
+            return node instanceof LongSubtractExpression ? visitArithmetic(node, l, Operator.SUBTRACT) : null;
+        }
+
+        @Override
+        public BatchExpression visitLeave(MultiplyExpression node, List<BatchExpression> l) {
+            return node instanceof LongMultiplyExpression ? visitArithmetic(node, l, Operator.MULTIPLY) : null;
+        }
+    }
+}
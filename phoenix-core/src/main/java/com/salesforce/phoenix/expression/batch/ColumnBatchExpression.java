@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.LiteralExpression;
+import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+/**
+ * 
+ * Batch kernel for a leaf expression: a row key column, a key value column or a literal.
+ * The value of each row is exposed as a reference into the row's bytes and, for fixed
+ * width integral types, also decoded into a long. A literal is evaluated only once, when
+ * the kernel is created.
+ *
+ * @since 3.0.0
+ */
+class ColumnBatchExpression extends BatchExpression {
+    private final Expression expression;
+    private final PDataType.PDataCodec codec;
+    private final ColumnModifier columnModifier;
+    private final int byteSize;
+    private final boolean isConstant;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    
+    ColumnBatchExpression(Expression expression, int capacity) {
+        super(new ValueVector(capacity, isLongType(expression.getDataType()), true));
+        this.expression = expression;
+        PDataType type = expression.getDataType();
+        this.codec = result.hasLongs() ? type.getCodec() : null;
+        this.byteSize = result.hasLongs() ? type.getByteSize() : 0;
+        this.columnModifier = expression.getColumnModifier();
+        this.isConstant = expression instanceof LiteralExpression;
+        if (isConstant) {
+            for (int i = 0; i < capacity; i++) {
+                evaluateRow(null, i);
+            }
+        }
+    }
+    
+    static boolean isLongType(PDataType type) {
+        return type != null && type.isCoercibleTo(PDataType.LONG) && type.isFixedWidth() && type.getByteSize() != null;
+    }
+    
+    private void evaluateRow(Tuple tuple, int i) {
+        if (!expression.evaluate(tuple, ptr)) {
+            result.states[i] = ValueVector.NULL;
+            return;
+        }
+        int length = ptr.getLength();
+        // An empty value has type specific semantics (for example a trailing
+        // null row key column), so leave it to the original expression.
+        if (length == 0 || (codec != null && length != byteSize)) {
+            result.states[i] = ValueVector.UNKNOWN;
+            return;
+        }
+        byte[] buffer = ptr.get();
+        int offset = ptr.getOffset();
+        result.states[i] = ValueVector.VALUE;
+        result.buffers[i] = buffer;
+        result.offsets[i] = offset;
+        result.lengths[i] = length;
+        if (codec != null) {
+            result.longs[i] = codec.decodeLong(buffer, offset, columnModifier);
+        }
+    }
+    
+    @Override
+    public ValueVector evaluate(Tuple[] tuples, int size) {
+        if (!isConstant) {
+            for (int i = 0; i < size; i++) {
+                evaluateRow(tuples[i], i);
+            }
+        }
+        return result;
+    }
+}
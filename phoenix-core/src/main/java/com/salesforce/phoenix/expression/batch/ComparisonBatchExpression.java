@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+
+import com.salesforce.phoenix.expression.ComparisonExpression;
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.IllegalDataException;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
+import com.salesforce.phoenix.util.StringUtil;
+
+/**
+ * 
+ * Batch kernel for {@link ComparisonExpression}. When both sides are integral types
+ * the comparison is done on the decoded longs with a loop specialized for the operator,
+ * otherwise it falls back to {@link PDataType#compareTo(byte[], int, int, ColumnModifier, byte[], int, int, ColumnModifier, PDataType)}
+ * on the serialized values.
+ *
+ * @since 3.0.0
+ */
+class ComparisonBatchExpression extends BatchExpression {
+    private final CompareOp op;
+    private final BatchExpression lhs;
+    private final BatchExpression rhs;
+    private final boolean compareLongs;
+    private final PDataType lhsDataType;
+    private final PDataType rhsDataType;
+    private final ColumnModifier lhsColumnModifier;
+    private final ColumnModifier rhsColumnModifier;
+    
+    ComparisonBatchExpression(ComparisonExpression expression, BatchExpression lhs, BatchExpression rhs, boolean compareLongs) {
+        super(new ValueVector(lhs.getCapacity(), true, false));
+        this.op = expression.getFilterOp();
+        this.lhs = lhs;
+        this.rhs = rhs;
+        this.compareLongs = compareLongs;
+        Expression lhsExpression = expression.getChildren().get(0);
+        Expression rhsExpression = expression.getChildren().get(1);
+        this.lhsDataType = lhsExpression.getDataType();
+        this.rhsDataType = rhsExpression.getDataType();
+        this.lhsColumnModifier = lhsExpression.getColumnModifier();
+        this.rhsColumnModifier = rhsExpression.getColumnModifier();
+    }
+    
+    @Override
+    public ValueVector evaluate(Tuple[] tuples, int size) {
+        ValueVector l = lhs.evaluate(tuples, size);
+        ValueVector r = rhs.evaluate(tuples, size);
+        byte[] states = result.states;
+        for (int i = 0; i < size; i++) {
+            states[i] = l.states[i] > r.states[i] ? l.states[i] : r.states[i];
+        }
+        if (compareLongs) {
+            compareLongs(l.longs, r.longs, size);
+        } else {
+            compareBytes(l, r, size);
+        }
+        return result;
+    }
+
+    private void compareLongs(long[] l, long[] r, int size) {
+        long[] longs = result.longs;
+        // Rows whose state is not VALUE are ignored by the parent, so
+        // compute every row without branching on the state.
+        switch (op) {
+        case LESS:
+            for (int i = 0; i < size; i++) {
+                longs[i] = l[i] < r[i] ? 1 : 0;
+            }
+            break;
+        case LESS_OR_EQUAL:
+            for (int i = 0; i < size; i++) {
+                longs[i] = l[i] <= r[i] ? 1 : 0;
+            }
+            break;
+        case EQUAL:
+            for (int i = 0; i < size; i++) {
+                longs[i] = l[i] == r[i] ? 1 : 0;
+            }
+            break;
+        case NOT_EQUAL:
+            for (int i = 0; i < size; i++) {
+                longs[i] = l[i] != r[i] ? 1 : 0;
+            }
+            break;
+        case GREATER_OR_EQUAL:
+            for (int i = 0; i < size; i++) {
+                longs[i] = l[i] >= r[i] ? 1 : 0;
+            }
+            break;
+        case GREATER:
+            for (int i = 0; i < size; i++) {
+                longs[i] = l[i] > r[i] ? 1 : 0;
+            }
+            break;
+        default:
+            for (int i = 0; i < size; i++) {
+                longs[i] = ByteUtil.compare(op, l[i] < r[i] ? -1 : l[i] == r[i] ? 0 : 1) ? 1 : 0;
+            }
+        }
+    }
+    
+    private void compareBytes(ValueVector l, ValueVector r, int size) {
+        byte[] states = result.states;
+        long[] longs = result.longs;
+        for (int i = 0; i < size; i++) {
+            if (states[i] != ValueVector.VALUE) {
+                continue;
+            }
+            int lhsLength = l.lengths[i];
+            int rhsLength = r.lengths[i];
+            if (rhsDataType == PDataType.CHAR) {
+                rhsLength = StringUtil.getUnpaddedCharLength(r.buffers[i], r.offsets[i], rhsLength, rhsColumnModifier);
+            }
+            if (lhsDataType == PDataType.CHAR) {
+                lhsLength = StringUtil.getUnpaddedCharLength(l.buffers[i], l.offsets[i], lhsLength, lhsColumnModifier);
+            }
+            try {
+                int comparisonResult = lhsDataType.compareTo(l.buffers[i], l.offsets[i], lhsLength, lhsColumnModifier, 
+                        r.buffers[i], r.offsets[i], rhsLength, rhsColumnModifier, rhsDataType);
+                longs[i] = ByteUtil.compare(op, comparisonResult) ? 1 : 0;
+            } catch (IllegalDataException e) {
+                states[i] = ValueVector.UNKNOWN;
+            }
+        }
+    }
+}
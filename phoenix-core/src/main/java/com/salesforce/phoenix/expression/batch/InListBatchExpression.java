@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+import java.util.Set;
+
+import com.salesforce.hbase.index.util.ImmutableBytesPtr;
+import com.salesforce.phoenix.expression.InListExpression;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+/**
+ * 
+ * Batch kernel for {@link InListExpression}, probing the set of serialized values of
+ * the IN list with the serialized value of each row.
+ *
+ * @since 3.0.0
+ */
+class InListBatchExpression extends BatchExpression {
+    private final BatchExpression child;
+    private final Set<ImmutableBytesPtr> values;
+    private final boolean containsNull;
+    private final ImmutableBytesPtr value = new ImmutableBytesPtr();
+    
+    InListBatchExpression(InListExpression expression, BatchExpression child) {
+        super(new ValueVector(child.getCapacity(), true, false));
+        this.child = child;
+        this.values = expression.getValues();
+        this.containsNull = expression.containsNull();
+    }
+    
+    @Override
+    public ValueVector evaluate(Tuple[] tuples, int size) {
+        ValueVector v = child.evaluate(tuples, size);
+        byte[] states = result.states;
+        long[] longs = result.longs;
+        for (int i = 0; i < size; i++) {
+            states[i] = v.states[i];
+            if (states[i] != ValueVector.VALUE) {
+                continue;
+            }
+            value.set(v.buffers[i], v.offsets[i], v.lengths[i]);
+            if (values.contains(value)) {
+                longs[i] = 1;
+            } else if (containsNull) {
+                // Row at a time evaluation yields an empty value in this case
+                // which AND and OR do not treat as null, so don't guess.
+                states[i] = ValueVector.UNKNOWN;
+            } else {
+                longs[i] = 0;
+            }
+        }
+        return result;
+    }
+}
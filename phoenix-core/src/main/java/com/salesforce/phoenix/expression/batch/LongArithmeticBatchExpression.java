@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+import java.util.List;
+
+import com.salesforce.phoenix.expression.LongAddExpression;
+import com.salesforce.phoenix.expression.LongMultiplyExpression;
+import com.salesforce.phoenix.expression.LongSubtractExpression;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+/**
+ * 
+ * Batch kernel for {@link LongAddExpression}, {@link LongSubtractExpression} and
+ * {@link LongMultiplyExpression} over integral children. Like the row at a time
+ * implementations, overflow is not detected.
+ *
+ * @since 3.0.0
+ */
+class LongArithmeticBatchExpression extends BatchExpression {
+    enum Operator {ADD, SUBTRACT, MULTIPLY};
+    
+    private final Operator operator;
+    private final BatchExpression[] children;
+    
+    LongArithmeticBatchExpression(Operator operator, List<BatchExpression> children) {
+        super(new ValueVector(children.get(0).getCapacity(), true, false));
+        this.operator = operator;
+        this.children = children.toArray(new BatchExpression[children.size()]);
+    }
+    
+    @Override
+    public ValueVector evaluate(Tuple[] tuples, int size) {
+        byte[] states = result.states;
+        long[] longs = result.longs;
+        ValueVector first = children[0].evaluate(tuples, size);
+        System.arraycopy(first.states, 0, states, 0, size);
+        System.arraycopy(first.longs, 0, longs, 0, size);
+        for (int c = 1; c < children.length; c++) {
+            ValueVector v = children[c].evaluate(tuples, size);
+            for (int i = 0; i < size; i++) {
+                if (v.states[i] > states[i]) {
+                    states[i] = v.states[i];
+                }
+            }
+            long[] values = v.longs;
+            switch (operator) {
+            case ADD:
+                for (int i = 0; i < size; i++) {
+                    longs[i] += values[i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < size; i++) {
+                    longs[i] -= values[i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < size; i++) {
+                    longs[i] *= values[i];
+                }
+                break;
+            }
+        }
+        return result;
+    }
+}
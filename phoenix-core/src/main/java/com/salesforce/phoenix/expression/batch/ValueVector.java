@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+/**
+ * 
+ * Result of evaluating a {@link BatchExpression} over a batch of rows. Each row has a
+ * state of {@link #VALUE}, {@link #NULL} or {@link #UNKNOWN}. A value is available either
+ * as a decoded long (integral types and booleans, where 1 is true and 0 is false) or as a
+ * reference into the byte array it was read from, depending on the expression that
+ * produced the vector.
+ *
+ * @since 3.0.0
+ */
+public class ValueVector {
+    /**
+     * The row has a value
+     */
+    public static final byte VALUE = 0;
+    /**
+     * The row evaluated to null
+     */
+    public static final byte NULL = 1;
+    /**
+     * The row could not be evaluated in batch and must be evaluated one row at a time
+     * through the original expression.
+     */
+    public static final byte UNKNOWN = 2;
+    
+    final byte[] states;
+    final long[] longs;
+    final byte[][] buffers;
+    final int[] offsets;
+    final int[] lengths;
+    
+    ValueVector(int capacity, boolean hasLongs, boolean hasBytes) {
+        this.states = new byte[capacity];
+        this.longs = hasLongs ? new long[capacity] : null;
+        this.buffers = hasBytes ? new byte[capacity][] : null;
+        this.offsets = hasBytes ? new int[capacity] : null;
+        this.lengths = hasBytes ? new int[capacity] : null;
+    }
+    
+    public int getCapacity() {
+        return states.length;
+    }
+    
+    public byte getState(int row) {
+        return states[row];
+    }
+    
+    public long getLong(int row) {
+        return longs[row];
+    }
+    
+    /**
+     * @return true if the row has a value and the value is boolean true
+     */
+    public boolean isTrue(int row) {
+        return states[row] == VALUE && longs[row] != 0;
+    }
+    
+    boolean hasLongs() {
+        return longs != null;
+    }
+    
+    boolean hasBytes() {
+        return buffers != null;
+    }
+}
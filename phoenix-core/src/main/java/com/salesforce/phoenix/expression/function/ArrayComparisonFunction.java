@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.function;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.LiteralExpression;
+import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.PArrayDataType;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.TypeMismatchException;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
+import com.salesforce.phoenix.util.StringUtil;
+
+
+/**
+ * 
+ * Base class for the quantified comparisons of a value against the elements
+ * of an array, as in <code>value = ANY(array)</code> and <code>value &gt; ALL(array)</code>.
+ * The elements are compared in place in the serialized array, so no
+ * {@link com.salesforce.phoenix.schema.PhoenixArray} is materialized.
+ * The children are the value, the array and the name of the {@link CompareOp}.
+ *
+ * @since 3.0.0
+ */
+public abstract class ArrayComparisonFunction extends ScalarFunction {
+    private CompareOp op;
+
+    public ArrayComparisonFunction() {
+    }
+
+    public ArrayComparisonFunction(List<Expression> children) throws SQLException {
+        super(coerceValue(children));
+        init();
+    }
+
+    /*
+     * Coerce a constant value to the type of the array elements up front, so that
+     * the comparison against each element is a straight byte comparison.
+     */
+    private static List<Expression> coerceValue(List<Expression> children) throws SQLException {
+        Expression valueExpr = children.get(0);
+        PDataType valueType = valueExpr.getDataType();
+        PDataType elementType = getElementType(children);
+        if (valueType == null || valueType == elementType) {
+            return children;
+        }
+        if (!valueType.isComparableTo(elementType)) {
+            throw TypeMismatchException.newException(valueType, elementType);
+        }
+        if (valueExpr instanceof LiteralExpression) {
+            Object value = ((LiteralExpression)valueExpr).getValue();
+            if (value != null && valueType.isCoercibleTo(elementType, value)) {
+                children = Lists.newArrayList(children);
+                children.set(0, LiteralExpression.newConstant(elementType.toObject(value, valueType), elementType, valueExpr.isDeterministic()));
+            }
+        }
+        return children;
+    }
+
+    private static PDataType getElementType(List<Expression> children) {
+        return PDataType.fromTypeId(children.get(1).getDataType().getSqlType() - Types.ARRAY);
+    }
+
+    private void init() {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        children.get(2).evaluate(null, ptr);
+        op = CompareOp.valueOf(Bytes.toString(ptr.get(), ptr.getOffset(), ptr.getLength()).toUpperCase());
+    }
+
+    /**
+     * @return the result of the whole comparison once an element comparison
+     * evaluates to it: true for ANY and false for ALL.
+     */
+    protected abstract boolean getShortCircuitResult();
+
+    @Override
+    public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        Expression valueExpr = children.get(0);
+        if (!valueExpr.evaluate(tuple, ptr)) {
+            return false;
+        } else if (ptr.getLength() == 0) {
+            return true;
+        }
+        byte[] valueBytes = ptr.get();
+        int valueOffset = ptr.getOffset();
+        int valueLength = ptr.getLength();
+        PDataType valueType = valueExpr.getDataType();
+        ColumnModifier valueColumnModifier = valueExpr.getColumnModifier();
+        if (valueType == PDataType.CHAR) {
+            valueLength = StringUtil.getUnpaddedCharLength(valueBytes, valueOffset, valueLength, valueColumnModifier);
+        }
+        Expression arrayExpr = children.get(1);
+        if (!arrayExpr.evaluate(tuple, ptr)) {
+            return false;
+        } else if (ptr.getLength() == 0) {
+            return true;
+        }
+        byte[] arrayBytes = ptr.get();
+        int arrayOffset = ptr.getOffset();
+        int arrayLength = ptr.getLength();
+        PDataType elementType = getElementType(children);
+        boolean shortCircuitResult = getShortCircuitResult();
+        boolean containsNull = false;
+        int noOfElements = PArrayDataType.getArrayLength(ptr, elementType);
+        for (int i = 0; i < noOfElements; i++) {
+            ptr.set(arrayBytes, arrayOffset, arrayLength);
+            PArrayDataType.positionAtArrayElement(ptr, i, elementType);
+            int elementLength = ptr.getLength();
+            if (elementLength == 0) {
+                containsNull = true;
+                continue;
+            }
+            if (elementType == PDataType.CHAR) {
+                elementLength = StringUtil.getUnpaddedCharLength(ptr.get(), ptr.getOffset(), elementLength, null);
+            }
+            int comparisonResult = valueType.compareTo(valueBytes, valueOffset, valueLength, valueColumnModifier,
+                    ptr.get(), ptr.getOffset(), elementLength, null, elementType);
+            if (ByteUtil.compare(op, comparisonResult) == shortCircuitResult) {
+                ptr.set(shortCircuitResult ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+                return true;
+            }
+        }
+        if (containsNull) { // Unknown if a null element could have decided the result
+            ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+        } else {
+            ptr.set(shortCircuitResult ? PDataType.FALSE_BYTES : PDataType.TRUE_BYTES);
+        }
+        return true;
+    }
+
+    @Override
+    public void readFields(DataInput input) throws IOException {
+        super.readFields(input);
+        init();
+    }
+
+    @Override
+    public PDataType getDataType() {
+        return PDataType.BOOLEAN;
+    }
+
+    @Override
+    public boolean isNullable() {
+        return true;
+    }
+
+    public CompareOp getFilterOp() {
+        return op;
+    }
+}
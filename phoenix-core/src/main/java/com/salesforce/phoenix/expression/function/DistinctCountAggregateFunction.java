@@ -129,4 +129,10 @@ public class DistinctCountAggregateFunction extends DelegateConstantToCountAggre
         clientAgg.aggregate(null, ptr);
         return new DistinctValueWithCountServerAggregator(config, clientAgg);
     }
+    
+    @Override
+    public boolean isClientAggregatorMergeable() {
+        // The client-side aggregator evaluates to the final result, not the distinct value map
+        return false;
+    }
 }
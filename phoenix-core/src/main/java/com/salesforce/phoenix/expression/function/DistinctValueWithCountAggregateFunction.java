@@ -55,4 +55,10 @@ public abstract class DistinctValueWithCountAggregateFunction extends SingleAggr
         clientAgg.aggregate(null, ptr);
         return new DistinctValueWithCountServerAggregator(config, clientAgg);
     }
+    
+    @Override
+    public boolean isClientAggregatorMergeable() {
+        // The client-side aggregator evaluates to the final result, not the distinct value map
+        return false;
+    }
 }
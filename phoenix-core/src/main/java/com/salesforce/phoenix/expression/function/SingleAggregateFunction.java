@@ -153,6 +153,17 @@ abstract public class SingleAggregateFunction extends AggregateFunction {
         return agg;
     }
     
+    /**
+     * Determines whether the value of the client-side aggregator may be
+     * aggregated into another client-side aggregator. This holds when the
+     * client-side aggregator evaluates to a partial result in the same
+     * form as the one produced by the server-side aggregator.
+     * @return true if client-side aggregators may be merged and false otherwise.
+     */
+    public boolean isClientAggregatorMergeable() {
+        return true;
+    }
+    
     public void readFields(DataInput input, Configuration conf) throws IOException {
         super.readFields(input);
         aggregator = newServerAggregator(conf);
@@ -61,6 +61,10 @@ abstract public class BooleanExpressionFilter extends FilterBase {
         this.expression = expression;
     }
 
+    public Expression getExpression() {
+        return expression;
+    }
+
     protected void setEvaluateOnCompletion(boolean evaluateOnCompletion) {
         this.evaluateOnCompletion = evaluateOnCompletion;
     }
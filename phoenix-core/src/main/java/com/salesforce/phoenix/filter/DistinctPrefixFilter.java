@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.salesforce.phoenix.schema.RowKeySchema;
+import com.salesforce.phoenix.util.ByteUtil;
+
+
+/**
+ * 
+ * Filter that includes only the first key value for each distinct prefix formed by the
+ * leading columns of the row key, seeking past all other rows with the same prefix.
+ * Used to cheaply count the number of distinct values of the leading primary key columns.
+ *
+ * @since 3.0.0
+ */
+public class DistinctPrefixFilter extends FilterBase {
+    private RowKeySchema schema;
+    private int prefixFieldCount;
+    private byte[] lastPrefix;
+    private byte[] nextPrefix;
+    private boolean isDone;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+    public DistinctPrefixFilter() {
+    }
+
+    public DistinctPrefixFilter(RowKeySchema schema, int prefixFieldCount) {
+        this.schema = schema;
+        this.prefixFieldCount = prefixFieldCount;
+    }
+
+    @Override
+    public boolean filterAllRemaining() {
+        return isDone;
+    }
+
+    @Override
+    public ReturnCode filterKeyValue(KeyValue kv) {
+        byte[] buf = kv.getBuffer();
+        int offset = kv.getRowOffset();
+        int maxOffset = schema.iterator(buf, offset, kv.getRowLength(), ptr);
+        for (int i = 0; i < prefixFieldCount; i++) {
+            if (schema.next(ptr, i, maxOffset) == null) {
+                break;
+            }
+        }
+        int endOffset = ptr.getOffset() + ptr.getLength();
+        // Include the separator byte of a variable length column so that we seek past it
+        if (endOffset < maxOffset && !schema.getField(prefixFieldCount-1).getDataType().isFixedWidth()) {
+            endOffset++;
+        }
+        int length = endOffset - offset;
+        if (lastPrefix != null && Bytes.equals(lastPrefix, 0, lastPrefix.length, buf, offset, length)) {
+            if (nextPrefix == null) {
+                isDone = true;
+                return ReturnCode.NEXT_ROW;
+            }
+            return ReturnCode.SEEK_NEXT_USING_HINT;
+        }
+        lastPrefix = new byte[length];
+        System.arraycopy(buf, offset, lastPrefix, 0, length);
+        nextPrefix = ByteUtil.nextKey(lastPrefix);
+        return ReturnCode.INCLUDE;
+    }
+
+    @Override
+    public KeyValue getNextKeyHint(KeyValue kv) {
+        return KeyValue.createFirstOnRow(nextPrefix);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        schema = new RowKeySchema();
+        schema.readFields(in);
+        prefixFieldCount = WritableUtils.readVInt(in);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        schema.write(out);
+        WritableUtils.writeVInt(out, prefixFieldCount);
+    }
+
+    @Override
+    public String toString() {
+        return "DistinctPrefixFilter " + prefixFieldCount;
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.filter;
+
+import java.util.List;
+
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PageFilter;
+
+
+/**
+ * 
+ * Filter list that ANDs its filters together like a {@link FilterList} with
+ * {@link FilterList.Operator#MUST_PASS_ALL}, but only lets the filters that look
+ * at key values decide which column families are essential. A {@link FilterList}
+ * treats a family as essential if any of its filters does, so a filter that only
+ * looks at the row key, such as the {@link SkipScanFilter} or a {@link PageFilter},
+ * would otherwise make every family essential and defeat on demand column family
+ * loading.
+ *
+ * @since 3.0.0
+ */
+public class EssentialFamilyFilterList extends FilterList {
+
+    public EssentialFamilyFilterList() {
+    }
+
+    public EssentialFamilyFilterList(List<Filter> filters) {
+        super(FilterList.Operator.MUST_PASS_ALL, filters);
+    }
+
+    private static boolean isRowKeyOnly(Filter filter) {
+        return filter instanceof SkipScanFilter || filter instanceof PageFilter;
+    }
+
+    @Override
+    public boolean isFamilyEssential(byte[] name) {
+        boolean hasKeyValueFilter = false;
+        for (Filter filter : getFilters()) {
+            if (!isRowKeyOnly(filter)) {
+                if (FilterBase.isFamilyEssential(filter, name)) {
+                    return true;
+                }
+                hasKeyValueFilter = true;
+            }
+        }
+        // With only row key filters, every family is essential
+        return !hasKeyValueFilter;
+    }
+}
@@ -27,8 +27,6 @@
  ******************************************************************************/
 package com.salesforce.phoenix.filter;
 
-import java.util.TreeSet;
-
 import org.apache.hadoop.hbase.util.Bytes;
 
 import com.salesforce.phoenix.expression.Expression;
@@ -44,7 +42,6 @@ import com.salesforce.phoenix.expression.Expression;
  */
 public class MultiCFCQKeyValueComparisonFilter extends MultiKeyValueComparisonFilter {
     private final ImmutablePairBytesPtr ptr = new ImmutablePairBytesPtr();
-    private TreeSet<byte[]> cfSet;
 
     public MultiCFCQKeyValueComparisonFilter() {
     }
@@ -53,12 +50,6 @@ public class MultiCFCQKeyValueComparisonFilter extends MultiKeyValueComparisonFi
         super(expression);
     }
 
-    @Override
-    protected void init() {
-        cfSet = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
-        super.init();
-    }
-
     @Override
     protected Object setColumnKey(byte[] cf, int cfOffset, int cfLength,
             byte[] cq, int cqOffset, int cqLength) {
@@ -69,17 +60,6 @@ public class MultiCFCQKeyValueComparisonFilter extends MultiKeyValueComparisonFi
     @Override
     protected Object newColumnKey(byte[] cf, int cfOffset, int cfLength,
             byte[] cq, int cqOffset, int cqLength) {
-
-        byte[] cfKey;
-        if (cfOffset == 0 && cf.length == cfLength) {
-            cfKey = cf;
-        } else {
-            // Copy bytes here, but figure cf names are typically a few bytes at most,
-            // so this will be better than creating an ImmutableBytesPtr
-            cfKey = new byte[cfLength];
-            System.arraycopy(cf, cfOffset, cfKey, 0, cfLength);
-        }
-        cfSet.add(cfKey);
         return new ImmutablePairBytesPtr(cf, cfOffset, cfLength, cq, cqOffset, cqLength);
     }
 
@@ -131,12 +111,4 @@ public class MultiCFCQKeyValueComparisonFilter extends MultiKeyValueComparisonFi
             return true;
         }
     }
-
-
-    @SuppressWarnings("all") // suppressing missing @Override since this doesn't exist for HBase 0.94.4
-    public boolean isFamilyEssential(byte[] name) {
-        // Only the column families involved in the expression are essential.
-        // The others are for columns projected in the select expression.
-        return cfSet.contains(name);
-    }
 }
@@ -27,8 +27,6 @@
  ******************************************************************************/
 package com.salesforce.phoenix.filter;
 
-import org.apache.hadoop.hbase.util.Bytes;
-
 import com.salesforce.hbase.index.util.ImmutableBytesPtr;
 import com.salesforce.phoenix.expression.Expression;
 
@@ -42,7 +40,6 @@ import com.salesforce.phoenix.expression.Expression;
  */
 public class MultiCQKeyValueComparisonFilter extends MultiKeyValueComparisonFilter {
     private ImmutableBytesPtr ptr = new ImmutableBytesPtr();
-    private byte[] cf;
 
     public MultiCQKeyValueComparisonFilter() {
     }
@@ -61,18 +58,6 @@ public class MultiCQKeyValueComparisonFilter extends MultiKeyValueComparisonFilt
     @Override
     protected Object newColumnKey(byte[] cf, int cfOffset, int cfLength, byte[] cq, int cqOffset,
             int cqLength) {
-        if (cfOffset == 0 && cf.length == cfLength) {
-            this.cf = cf;
-        } else {
-            this.cf = new byte[cfLength];
-            System.arraycopy(cf, cfOffset, this.cf, 0, cfLength);
-        }
         return new ImmutableBytesPtr(cq, cqOffset, cqLength);
     }
-
-
-    @SuppressWarnings("all") // suppressing missing @Override since this doesn't exist for HBase 0.94.4
-    public boolean isFamilyEssential(byte[] name) {
-        return Bytes.compareTo(cf, name) == 0;
-    }
 }
@@ -31,6 +31,7 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeSet;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -54,6 +55,7 @@ public abstract class MultiKeyValueComparisonFilter extends BooleanExpressionFil
     private static final byte[] UNITIALIZED_KEY_BUFFER = new byte[0];
 
     private Boolean matchedColumn;
+    private TreeSet<byte[]> essentialCFs;
     protected final IncrementalResultTuple inputTuple = new IncrementalResultTuple();
 
     public MultiKeyValueComparisonFilter() {
@@ -188,9 +190,11 @@ public abstract class MultiKeyValueComparisonFilter extends BooleanExpressionFil
     }
     
     protected void init() {
+        essentialCFs = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
         EvaluateOnCompletionVisitor visitor = new EvaluateOnCompletionVisitor() {
             @Override
             public Void visit(KeyValueColumnExpression expression) {
+                essentialCFs.add(expression.getColumnFamily());
                 inputTuple.addColumn(expression.getColumnFamily(), expression.getColumnName());
                 return null;
             }
@@ -247,6 +251,15 @@ public abstract class MultiKeyValueComparisonFilter extends BooleanExpressionFil
         super.reset();
     }
 
+    @SuppressWarnings("all") // suppressing missing @Override since this doesn't exist for HBase 0.94.4
+    public boolean isFamilyEssential(byte[] name) {
+        // Only the column families involved in the expression are essential.
+        // The others are for columns projected in the select expression. If
+        // the expression must be evaluated when none of its columns are found,
+        // as with IS NULL, every row must be seen so all families are essential.
+        return evaluateOnCompletion() || essentialCFs.contains(name);
+    }
+
     @Override
     public void readFields(DataInput input) throws IOException {
         super.readFields(input);
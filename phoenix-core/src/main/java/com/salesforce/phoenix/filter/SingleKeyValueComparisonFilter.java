@@ -149,7 +149,9 @@ public abstract class SingleKeyValueComparisonFilter extends BooleanExpressionFi
     @SuppressWarnings("all") // suppressing missing @Override since this doesn't exist for HBase 0.94.4
     public boolean isFamilyEssential(byte[] name) {
         // Only the column families involved in the expression are essential.
-        // The others are for columns projected in the select expression
-        return Bytes.compareTo(cf, name) == 0;
+        // The others are for columns projected in the select expression. If
+        // the expression must be evaluated when its column is not found, as
+        // with IS NULL, every row must be seen so all families are essential.
+        return evaluateOnCompletion() || Bytes.compareTo(cf, name) == 0;
     }
 }
@@ -187,12 +187,17 @@ public class SkipScanFilter extends FilterBase {
                 endPos = slots.get(0).size()-1;
             }
         }
+        // Smallest key at or after the lower range that may be in range
+        byte[] lowerKey;
         if (!lowerUnbound) {
             position[0] = startPos;
-            navigate(lowerInclusiveKey, 0, lowerInclusiveKey.length, Terminate.AFTER);
+            ReturnCode lowerCode = navigate(lowerInclusiveKey, 0, lowerInclusiveKey.length, Terminate.AFTER);
             if (filterAllRemaining()) {
                 return false;
             }
+            lowerKey = lowerCode == ReturnCode.SEEK_NEXT_USING_HINT ? Arrays.copyOf(startKey, startKeyLength) : lowerInclusiveKey;
+        } else {
+            lowerKey = ScanUtil.getMinKey(schema, slots);
         }
         if (upperUnbound) {
             if (newSlots != null) {
@@ -215,8 +220,11 @@ public class SkipScanFilter extends FilterBase {
             }
         } else if (endCode == ReturnCode.SEEK_NEXT_USING_HINT) {
             // The upperExclusive key is smaller than the slots stored in the position. Check if it's the same position
-            // as the slots for lowerInclusive. If so, there is no intersection.
-            if (Arrays.equals(lowerPosition, position)) {
+            // as the slots for lowerInclusive. If so, there is no intersection unless a slot before the last one is
+            // a range (for example when leading slots are unconstrained) in which case keys between the lower key
+            // and upperExclusiveKey may still be in range.
+            if (Arrays.equals(lowerPosition, position) && 
+                    lowerKey != null && Bytes.compareTo(lowerKey, upperExclusiveKey) >= 0) {
                 return false;
             }
         }
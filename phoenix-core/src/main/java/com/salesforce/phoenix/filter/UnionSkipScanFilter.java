@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.query.KeyRange;
+
+
+/**
+ * 
+ * Filter that navigates through the union of several {@link SkipScanFilter}s, used
+ * for an OR whose children constrain different primary key columns. A key value is
+ * included if any of the child filters includes it. Every child filter that is not
+ * yet done sees every key value, so that none of them falls behind. Unless a key value
+ * is included, we seek to the smallest next key hint across those child filters. Since
+ * all children see the same, ever increasing keys, a row matched by more than one child
+ * is only included once. Every method of {@link SkipScanFilter} is overridden, as the
+ * union has no slots or schema of its own.
+ *
+ * @since 3.0.0
+ */
+public class UnionSkipScanFilter extends SkipScanFilter {
+    private List<SkipScanFilter> filters;
+    private KeyValue nextKeyHint;
+
+    public UnionSkipScanFilter() {
+    }
+
+    public UnionSkipScanFilter(List<SkipScanFilter> filters) {
+        this.filters = filters;
+    }
+
+    public List<SkipScanFilter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * The union has no slots of its own, only those of each of its child filters.
+     */
+    @Override
+    List<List<KeyRange>> getSlots() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void reset() {
+        for (SkipScanFilter filter : filters) {
+            filter.reset();
+        }
+    }
+
+    @Override
+    public boolean filterAllRemaining() {
+        for (SkipScanFilter filter : filters) {
+            if (!filter.filterAllRemaining()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ReturnCode filterKeyValue(KeyValue kv) {
+        nextKeyHint = null;
+        boolean include = false;
+        // Every child must see the key value, even once it is included, to keep its position current
+        for (SkipScanFilter filter : filters) {
+            if (filter.filterAllRemaining()) {
+                continue;
+            }
+            ReturnCode code = filter.filterKeyValue(kv);
+            if (code == ReturnCode.INCLUDE) {
+                include = true;
+            } else if (code == ReturnCode.SEEK_NEXT_USING_HINT) {
+                KeyValue hint = filter.getNextKeyHint(kv);
+                if (hint != null && (nextKeyHint == null || Bytes.compareTo(
+                        hint.getBuffer(), hint.getRowOffset(), hint.getRowLength(),
+                        nextKeyHint.getBuffer(), nextKeyHint.getRowOffset(), nextKeyHint.getRowLength()) < 0)) {
+                    nextKeyHint = hint;
+                }
+            }
+        }
+        if (include) {
+            nextKeyHint = null;
+            return ReturnCode.INCLUDE;
+        }
+        return nextKeyHint == null ? ReturnCode.NEXT_ROW : ReturnCode.SEEK_NEXT_USING_HINT;
+    }
+
+    @Override
+    public KeyValue getNextKeyHint(KeyValue kv) {
+        return nextKeyHint;
+    }
+
+    @Override
+    public boolean hasIntersect(byte[] lowerInclusiveKey, byte[] upperExclusiveKey) {
+        for (SkipScanFilter filter : filters) {
+            if (filter.hasIntersect(lowerInclusiveKey, upperExclusiveKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Intersect each child filter with the given key range, dropping the children
+     * that have no intersection.
+     * @return the union of the intersected child filters, the intersected child filter if
+     * only one remains, or null if none intersect.
+     */
+    @Override
+    public SkipScanFilter intersect(byte[] lowerInclusiveKey, byte[] upperExclusiveKey) {
+        List<SkipScanFilter> newFilters = Lists.newArrayListWithExpectedSize(filters.size());
+        for (SkipScanFilter filter : filters) {
+            SkipScanFilter newFilter = filter.intersect(lowerInclusiveKey, upperExclusiveKey);
+            if (newFilter != null) {
+                newFilters.add(newFilter);
+            }
+        }
+        if (newFilters.isEmpty()) {
+            return null;
+        }
+        if (newFilters.size() == 1) {
+            return newFilters.get(0);
+        }
+        return new UnionSkipScanFilter(newFilters);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        int size = WritableUtils.readVInt(in);
+        filters = Lists.newArrayListWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            SkipScanFilter filter = new SkipScanFilter();
+            filter.readFields(in);
+            filters.add(filter);
+        }
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, filters.size());
+        for (SkipScanFilter filter : filters) {
+            filter.write(out);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return filters.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof UnionSkipScanFilter)) return false;
+        UnionSkipScanFilter other = (UnionSkipScanFilter)obj;
+        return filters.equals(other.filters);
+    }
+
+    @Override
+    public String toString() {
+        return "UnionSkipScanFilter "+ filters.toString();
+    }
+}
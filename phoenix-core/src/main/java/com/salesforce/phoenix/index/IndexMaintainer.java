@@ -140,28 +140,38 @@ public class IndexMaintainer implements Writable, Iterable<ColumnReference> {
      * @param ptr bytes pointer to hold returned serialized value
      */
     public static void serialize(PTable dataTable, ImmutableBytesWritable ptr) {
-        Iterator<PTable> indexes = nonDisabledIndexIterator(dataTable.getIndexes().iterator());
-        if (dataTable.isImmutableRows() || !indexes.hasNext()) {
+        if (dataTable.isImmutableRows()) {
+            ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            return;
+        }
+        serialize(dataTable, ptr, Lists.newArrayList(nonDisabledIndexIterator(dataTable.getIndexes().iterator())));
+    }
+    
+    /**
+     * Serialize the IndexMaintainers of the given indexes of a table, regardless of
+     * their state. Used server-side to rebuild a single index.
+     * @param dataTable data table
+     * @param ptr bytes pointer to hold returned serialized value
+     * @param indexes indexes of dataTable to serialize
+     */
+    public static void serialize(PTable dataTable, ImmutableBytesWritable ptr, List<PTable> indexes) {
+        if (indexes.isEmpty()) {
             ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
             return;
         }
-        int nIndexes = 0;
         int estimatedSize = dataTable.getRowKeySchema().getEstimatedByteSize() + 2;
-        while (indexes.hasNext()) {
-            nIndexes++;
-            PTable index = indexes.next();
+        for (PTable index : indexes) {
             estimatedSize += index.getIndexMaintainer(dataTable).getEstimatedByteSize();
         }
         TrustedByteArrayOutputStream stream = new TrustedByteArrayOutputStream(estimatedSize + 1);
         DataOutput output = new DataOutputStream(stream);
         try {
             // Encode data table salting in sign of number of indexes
-            WritableUtils.writeVInt(output, nIndexes * (dataTable.getBucketNum() == null ? 1 : -1));
+            WritableUtils.writeVInt(output, indexes.size() * (dataTable.getBucketNum() == null ? 1 : -1));
             // Write out data row key schema once, since it's the same for all index maintainers
             dataTable.getRowKeySchema().write(output);
-            indexes = nonDisabledIndexIterator(dataTable.getIndexes().iterator());
-            while (indexes.hasNext()) {
-                    indexes.next().getIndexMaintainer(dataTable).write(output);
+            for (PTable index : indexes) {
+                index.getIndexMaintainer(dataTable).write(output);
             }
         } catch (IOException e) {
             throw new RuntimeException(e); // Impossible
@@ -19,10 +19,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.regionserver.MiniBatchOperationInProgress;
 import org.apache.hadoop.hbase.regionserver.MultiVersionConsistencyControl;
@@ -30,7 +33,10 @@ import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.util.Pair;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.salesforce.hbase.index.covered.CoveredColumnsIndexBuilder;
+import com.salesforce.hbase.index.covered.data.CachedLocalTable;
+import com.salesforce.hbase.index.util.ImmutableBytesPtr;
 import com.salesforce.hbase.index.util.IndexManagementUtil;
 import com.salesforce.phoenix.compile.ScanRanges;
 import com.salesforce.phoenix.query.KeyRange;
@@ -41,21 +47,41 @@ import com.salesforce.phoenix.util.SchemaUtil;
  * Index builder for covered-columns index that ties into phoenix for faster use.
  */
 public class PhoenixIndexBuilder extends CoveredColumnsIndexBuilder {
+    // Current state of the rows of the batches being indexed. Since the rows of a batch are
+    // locked until the batch completes, an entry cannot change while it is in this map.
+    private final Map<ImmutableBytesPtr, List<KeyValue>> rowStateCache = new ConcurrentHashMap<ImmutableBytesPtr, List<KeyValue>>();
+
+    @Override
+    public void setup(RegionCoprocessorEnvironment env) throws IOException {
+        super.setup(env);
+        this.localTable = new CachedLocalTable(rowStateCache, this.localTable);
+    }
 
     @Override
     public void batchStarted(MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp) throws IOException {
-        // The entire purpose of this method impl is to get the existing rows for the
-        // table rows being indexed into the block cache, as the index maintenance code
-        // does a point scan per row
+        // Get the current state of all the table rows being indexed with a single skip scan,
+        // as otherwise the index maintenance code would do a point scan per row
         List<KeyRange> keys = Lists.newArrayListWithExpectedSize(miniBatchOp.size());
         List<IndexMaintainer> maintainers = new ArrayList<IndexMaintainer>();
+        Map<ImmutableBytesPtr, List<KeyValue>> rowStates = Maps.newHashMapWithExpectedSize(miniBatchOp.size());
         for (int i = 0; i < miniBatchOp.size(); i++) {
             Mutation m = miniBatchOp.getOperation(i).getFirst();
+            List<IndexMaintainer> indexMaintainers = getCodec().getIndexMaintainers(m.getAttributesMap());
+            if (indexMaintainers.isEmpty()) {
+                continue;
+            }
             keys.add(PDataType.VARBINARY.getKeyRange(m.getRow()));
-            maintainers.addAll(getCodec().getIndexMaintainers(m.getAttributesMap()));
+            maintainers.addAll(indexMaintainers);
+            // Rows that don't exist yet won't be returned by the scan
+            rowStates.put(new ImmutableBytesPtr(m.getRow()), Collections.<KeyValue>emptyList());
+        }
+        if (keys.isEmpty()) {
+            return;
         }
         Scan scan = IndexManagementUtil.newLocalStateScan(maintainers);
-        ScanRanges scanRanges = ScanRanges.create(Collections.singletonList(keys), SchemaUtil.VAR_BINARY_SCHEMA);
+        // The skip scan requires the keys to be sorted and distinct. As rows not found are taken
+        // as not existing, we must not miss any.
+        ScanRanges scanRanges = ScanRanges.create(Collections.singletonList(KeyRange.coalesce(keys)), SchemaUtil.VAR_BINARY_SCHEMA);
         scanRanges.setScanStartStopRow(scan);
         scan.setFilter(scanRanges.getSkipScanFilter());
         HRegion region = this.env.getRegion();
@@ -71,6 +97,10 @@ public class PhoenixIndexBuilder extends CoveredColumnsIndexBuilder {
                 // since this is an indication of whether or not there are more values after the
                 // ones returned
                 hasMore = scanner.nextRaw(results, null);
+                if (!results.isEmpty()) {
+                    KeyValue kv = results.get(0);
+                    rowStates.put(new ImmutableBytesPtr(kv.getBuffer(), kv.getRowOffset(), kv.getRowLength()), results);
+                }
             } while (hasMore);
         } finally {
             try {
@@ -79,6 +109,15 @@ public class PhoenixIndexBuilder extends CoveredColumnsIndexBuilder {
                 region.closeRegionOperation();
             }
         }
+        rowStateCache.putAll(rowStates);
+    }
+
+    @Override
+    public void batchUpdatesBuilt(MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp) {
+        for (int i = 0; i < miniBatchOp.size(); i++) {
+            Mutation m = miniBatchOp.getOperation(i).getFirst();
+            rowStateCache.remove(new ImmutableBytesPtr(m.getRow()));
+        }
     }
 
     private PhoenixIndexCodec getCodec() {
@@ -89,4 +128,4 @@ public class PhoenixIndexBuilder extends CoveredColumnsIndexBuilder {
     public byte[] getBatchId(Mutation m){
         return this.codec.getBatchId(m);
     }
-}
\ No newline at end of file
+}
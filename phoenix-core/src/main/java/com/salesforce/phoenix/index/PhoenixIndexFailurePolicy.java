@@ -16,6 +16,7 @@
 package com.salesforce.phoenix.index;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -23,11 +24,14 @@ import java.util.Set;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.Stoppable;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 
 import com.google.common.collect.Multimap;
 import com.salesforce.hbase.index.table.HTableInterfaceReference;
@@ -36,6 +40,7 @@ import com.salesforce.phoenix.coprocessor.MetaDataProtocol;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MetaDataMutationResult;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MutationCode;
 import com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData;
+import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.PIndexState;
 import com.salesforce.phoenix.util.SchemaUtil;
 
@@ -77,6 +82,8 @@ public class PhoenixIndexFailurePolicy extends  KillServerOnFailurePolicy {
                 // Mimic the Put that gets generated by the client on an update of the index state
                 Put put = new Put(indexTableKey);
                 put.add(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES, PhoenixDatabaseMetaData.INDEX_STATE_BYTES, PIndexState.DISABLE.getSerializedBytes());
+                // Record from when on the index is missing updates, so that it may be rebuilt incrementally
+                put.add(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES, PhoenixDatabaseMetaData.INDEX_DISABLE_TIMESTAMP_BYTES, PDataType.LONG.toBytes(getMinTimestamp(attempted.get(ref))));
                 List<Mutation> tableMetadata = Collections.<Mutation>singletonList(put);
                 MetaDataMutationResult result = mdProxy.updateIndexState(tableMetadata);
                 if (result.getMutationCode() != MutationCode.TABLE_ALREADY_EXISTS) {
@@ -95,4 +102,17 @@ public class PhoenixIndexFailurePolicy extends  KillServerOnFailurePolicy {
         throw new DoNotRetryIOException(buf.toString(), cause);
     }
 
+    private static long getMinTimestamp(Collection<Mutation> mutations) {
+        long minTimestamp = HConstants.LATEST_TIMESTAMP;
+        for (Mutation m : mutations) {
+            for (List<KeyValue> kvs : m.getFamilyMap().values()) {
+                for (KeyValue kv : kvs) {
+                    minTimestamp = Math.min(minTimestamp, kv.getTimestamp());
+                }
+            }
+        }
+        // Should not happen, as the mutations of an index update always have a timestamp
+        return minTimestamp == HConstants.LATEST_TIMESTAMP ? EnvironmentEdgeManager.currentTimeMillis() : minTimestamp;
+    }
+
 }
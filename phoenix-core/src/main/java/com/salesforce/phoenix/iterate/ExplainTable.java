@@ -72,7 +72,12 @@ public abstract class ExplainTable {
 
     private boolean explainSkipScan(StringBuilder buf) {
         ScanRanges scanRanges = context.getScanRanges();
-        if (scanRanges.useSkipScanFilter()) {
+        if (scanRanges.isUnion()) {
+            buf.append("SKIP SCAN UNION OF ");
+            buf.append(scanRanges.getBranches().size());
+            buf.append(" BRANCHES ");
+            return true;
+        } else if (scanRanges.useSkipScanFilter()) {
             buf.append("SKIP SCAN ");
             int count = 1;
             boolean hasRanges = false;
@@ -158,7 +163,7 @@ public abstract class ExplainTable {
         groupBy.explain(planSteps);
     }
 
-    private void appendPKColumnValue(StringBuilder buf, byte[] range, Boolean isNull, int slotIndex) {
+    private void appendPKColumnValue(StringBuilder buf, ScanRanges scanRanges, byte[] range, Boolean isNull, int slotIndex) {
         if (Boolean.TRUE.equals(isNull)) {
             buf.append("null");
             return;
@@ -171,7 +176,6 @@ public abstract class ExplainTable {
             buf.append('*');
             return;
         }
-        ScanRanges scanRanges = context.getScanRanges();
         PDataType type = scanRanges.getSchema().getField(slotIndex).getDataType();
         ColumnModifier modifier = tableRef.getTable().getPKColumns().get(slotIndex).getColumnModifier();
         if (modifier != null) {
@@ -225,9 +229,7 @@ public abstract class ExplainTable {
         
     }
     
-    private void appendScanRow(StringBuilder buf, Bound bound) {
-        ScanRanges scanRanges = context.getScanRanges();
-        KeyRange minMaxRange = context.getMinMaxRange();
+    private void appendScanRow(StringBuilder buf, ScanRanges scanRanges, KeyRange minMaxRange, Bound bound) {
         Iterator<byte[]> minMaxIterator = Iterators.emptyIterator();
         if (minMaxRange != null) {
             RowKeySchema schema = tableRef.getTable().getRowKeySchema();
@@ -252,7 +254,7 @@ public abstract class ExplainTable {
                     minMaxIterator = Iterators.emptyIterator();
                 }
             }
-            appendPKColumnValue(buf, b, isNull, i);
+            appendPKColumnValue(buf, scanRanges, b, isNull, i);
             buf.append(',');
         }
     }
@@ -263,13 +265,25 @@ public abstract class ExplainTable {
         if (minMaxRange == null && (scanRanges == ScanRanges.EVERYTHING || scanRanges == ScanRanges.NOTHING)) {
             return;
         }
+        if (scanRanges.isUnion()) {
+            for (ScanRanges branch : scanRanges.getBranches()) {
+                appendKeyRanges(buf, branch, null);
+                buf.append(" OR");
+            }
+            buf.setLength(buf.length() - " OR".length());
+            return;
+        }
+        appendKeyRanges(buf, scanRanges, minMaxRange);
+    }
+
+    private void appendKeyRanges(StringBuilder buf, ScanRanges scanRanges, KeyRange minMaxRange) {
         buf.append(" [");
         StringBuilder buf1 = new StringBuilder();
-        appendScanRow(buf1, Bound.LOWER);
+        appendScanRow(buf1, scanRanges, minMaxRange, Bound.LOWER);
         buf.append(buf1);
         buf.setCharAt(buf.length()-1, ']');
         StringBuilder buf2 = new StringBuilder();
-        appendScanRow(buf2, Bound.UPPER);
+        appendScanRow(buf2, scanRanges, minMaxRange, Bound.UPPER);
         if (!StringUtil.equals(buf1, buf2)) {
             buf.append( " - [");
             buf.append(buf2);
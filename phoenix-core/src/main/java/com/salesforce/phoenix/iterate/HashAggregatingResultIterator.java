@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import static com.salesforce.phoenix.query.QueryConstants.AGG_TIMESTAMP;
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+
+import com.google.common.io.Closeables;
+import com.salesforce.hbase.index.util.ImmutableBytesPtr;
+import com.salesforce.phoenix.cache.aggcache.SpillManager;
+import com.salesforce.phoenix.cache.aggcache.SpillableGroupByCache;
+import com.salesforce.phoenix.coprocessor.GroupedAggregateRegionObserver;
+import com.salesforce.phoenix.expression.aggregator.Aggregator;
+import com.salesforce.phoenix.expression.aggregator.ClientAggregators;
+import com.salesforce.phoenix.memory.InsufficientMemoryException;
+import com.salesforce.phoenix.memory.MemoryManager;
+import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+import com.salesforce.phoenix.schema.tuple.SingleKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
+import com.salesforce.phoenix.util.KeyValueUtil;
+import com.salesforce.phoenix.util.ServerUtil;
+
+
+/**
+ * 
+ * Result iterator that aggregates rows with duplicate keys through a hash table, so unlike
+ * {@link GroupedAggregatingResultIterator} the rows from the backing result iterator do not
+ * need to be in key sorted order. Used on the client to combine the partial aggregates
+ * returned by each region for an unordered GROUP BY, in which case sorting the rows of
+ * each region just to merge them is wasted work.
+ * 
+ * The hash table is an LRU cache that grows through the {@link MemoryManager}. Once the
+ * memory to grow it can no longer be allocated, the least recently used groups are spilled
+ * to disk through a {@link SpillManager} in the same way as in {@link SpillableGroupByCache}.
+ * Since spilled groups are serialized, the client aggregators must be mergeable (see
+ * {@link ClientAggregators#isMergeable()}). The groups are returned in non-deterministic order.
+ *
+ * @since 3.0.0
+ */
+public class HashAggregatingResultIterator implements AggregatingResultIterator {
+    // Min size of the in memory cache in bytes
+    private static final int MIN_CACHE_SIZE = 4096; // 4K
+    
+    private final ImmutableBytesWritable tempPtr = new ImmutableBytesWritable();
+    private final PeekingResultIterator resultIterator;
+    private final ClientAggregators aggregators;
+    private final MemoryManager memoryManager;
+    private final long maxCacheSize;
+    private final int numSpillFiles;
+    private final int estDistVals;
+    
+    private LinkedHashMap<ImmutableBytesPtr, Aggregator[]> cache;
+    private MemoryChunk chunk;
+    private SpillManager spillManager;
+    private Iterator<Map.Entry<ImmutableBytesPtr, Aggregator[]>> entryIterator;
+
+    /**
+     * @param resultIterator the partial aggregates in any order
+     * @param aggregators the client aggregators which must be mergeable
+     * @param memoryManager memory manager through which the hash table is sized
+     * @param maxCacheSize the maximum number of bytes the in memory hash table may grow to
+     * @param numSpillFiles the number of spill files (partitions) to use once spilling begins
+     * @param estDistVals the estimated number of distinct groups
+     */
+    public HashAggregatingResultIterator(PeekingResultIterator resultIterator, ClientAggregators aggregators,
+            MemoryManager memoryManager, long maxCacheSize, int numSpillFiles, int estDistVals) {
+        if (resultIterator == null) throw new NullPointerException();
+        if (aggregators == null) throw new NullPointerException();
+        if (!aggregators.isMergeable()) {
+            throw new IllegalArgumentException("Aggregators may not be merged: " + aggregators);
+        }
+        this.resultIterator = resultIterator;
+        this.aggregators = aggregators;
+        this.memoryManager = memoryManager;
+        this.maxCacheSize = maxCacheSize;
+        this.numSpillFiles = numSpillFiles;
+        this.estDistVals = estDistVals;
+    }
+    
+    private void initCache() {
+        final int estValueSize = aggregators.getEstimatedByteSize();
+        final int maxSizeNum = (int)Math.min(Integer.MAX_VALUE, maxCacheSize / estValueSize);
+        final int minSizeNum = MIN_CACHE_SIZE / estValueSize;
+        final int reqSizeNum = Math.max(minSizeNum, Math.min(maxSizeNum, estDistVals));
+        int reqSize = GroupedAggregateRegionObserver.sizeOfUnorderedGroupByMap(reqSizeNum, estValueSize);
+        // Dial the initial allocation down if the estimated size is not available
+        chunk = memoryManager.allocate(GroupedAggregateRegionObserver.sizeOfUnorderedGroupByMap(minSizeNum, estValueSize), reqSize);
+        final int initialCacheSize = chunk.getSize() < reqSize ? minSizeNum : reqSizeNum;
+        // LRU cache implemented as LinkedHashMap with access order
+        cache = new LinkedHashMap<ImmutableBytesPtr, Aggregator[]>(initialCacheSize, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            private boolean spill = false;
+            private int cacheSize = initialCacheSize;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ImmutableBytesPtr, Aggregator[]> eldest) {
+                if (!spill && size() > cacheSize) { // increase allocation
+                    int newCacheSize = (int)(cacheSize * 1.5f);
+                    int estSize = GroupedAggregateRegionObserver.sizeOfUnorderedGroupByMap(newCacheSize, estValueSize);
+                    if (newCacheSize > maxSizeNum) {
+                        spill = true;
+                    } else {
+                        try {
+                            chunk.resize(estSize);
+                            cacheSize = newCacheSize;
+                        } catch (InsufficientMemoryException e) {
+                            // Cannot extend the cache anymore, start spilling
+                            spill = true;
+                        }
+                    }
+                }
+                if (spill) {
+                    try {
+                        if (spillManager == null) {
+                            // Lazily create the spill files only once the cache is too small.
+                            // The configuration is not needed to instantiate client aggregators.
+                            spillManager = new SpillManager(numSpillFiles, aggregators, null,
+                                    new SpillableGroupByCache.QueryCache() {
+                                        @Override
+                                        public boolean isKeyContained(ImmutableBytesPtr key) {
+                                            return cache.containsKey(key);
+                                        }
+                                    });
+                        }
+                        spillManager.spill(eldest.getKey(), eldest.getValue());
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    private Aggregator[] getAggregators(ImmutableBytesWritable key) throws IOException {
+        Aggregator[] rowAggregators = cache.get(new ImmutableBytesPtr(key));
+        if (rowAggregators == null) {
+            ImmutableBytesPtr cacheKey = new ImmutableBytesPtr(ByteUtil.copyKeyBytesIfNecessary(key));
+            if (spillManager != null) {
+                // Check whether the group has been spilled before
+                rowAggregators = spillManager.loadEntry(cacheKey);
+            }
+            if (rowAggregators == null) {
+                rowAggregators = aggregators.newAggregators();
+            }
+            cache.put(cacheKey, rowAggregators);
+        }
+        return rowAggregators;
+    }
+    
+    private void aggregateAll() throws SQLException {
+        initCache();
+        try {
+            Tuple result;
+            while ((result = resultIterator.next()) != null) {
+                result.getKey(tempPtr);
+                aggregators.aggregate(getAggregators(tempPtr), result);
+            }
+        } catch (IOException e) {
+            throw ServerUtil.parseServerException(e);
+        }
+        entryIterator = new EntryIterator();
+    }
+    
+    @Override
+    public Tuple next() throws SQLException {
+        if (entryIterator == null) {
+            aggregateAll();
+        }
+        if (!entryIterator.hasNext()) {
+            return null;
+        }
+        Map.Entry<ImmutableBytesPtr, Aggregator[]> entry = entryIterator.next();
+        byte[] value = aggregators.toBytes(entry.getValue());
+        ImmutableBytesWritable key = entry.getKey();
+        return new SingleKeyValueTuple(KeyValueUtil.newKeyValue(key, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, AGG_TIMESTAMP, value, 0, value.length));
+    }
+    
+    @Override
+    public void close() throws SQLException {
+        try {
+            resultIterator.close();
+        } finally {
+            Closeables.closeQuietly(spillManager);
+            if (chunk != null) {
+                chunk.close();
+            }
+            cache = null;
+        }
+    }
+    
+    @Override
+    public void aggregate(Tuple result) {
+        Aggregator[] rowAggregators = aggregators.getAggregators();
+        aggregators.reset(rowAggregators);
+        aggregators.aggregate(rowAggregators, result);
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        resultIterator.explain(planSteps);
+        planSteps.add("CLIENT HASH AGGREGATE");
+    }
+    
+    /**
+     * Iterator over the spilled groups followed by the groups in the in memory cache.
+     * Spilled groups that were loaded back into the cache are skipped, since the cache
+     * holds the more up to date aggregators for them.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<ImmutableBytesPtr, Aggregator[]>> {
+        private final Iterator<Map.Entry<ImmutableBytesPtr, Aggregator[]>> cacheIter;
+        private final Iterator<byte[]> spilledIter;
+        private Map.Entry<ImmutableBytesPtr, Aggregator[]> nextSpilled;
+        
+        private EntryIterator() {
+            cacheIter = cache.entrySet().iterator();
+            spilledIter = spillManager == null ? null : spillManager.newDataIterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextSpilled == null && spilledIter != null && spilledIter.hasNext()) {
+                try {
+                    Map.Entry<ImmutableBytesPtr, Aggregator[]> spilledEntry = spillManager.<ImmutableBytesPtr>toCacheEntry(spilledIter.next());
+                    if (!cache.containsKey(spilledEntry.getKey())) {
+                        nextSpilled = spilledEntry;
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return nextSpilled != null || cacheIter.hasNext();
+        }
+
+        @Override
+        public Map.Entry<ImmutableBytesPtr, Aggregator[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nextSpilled != null) {
+                Map.Entry<ImmutableBytesPtr, Aggregator[]> entry = nextSpilled;
+                nextSpilled = null;
+                return entry;
+            }
+            return cacheIter.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
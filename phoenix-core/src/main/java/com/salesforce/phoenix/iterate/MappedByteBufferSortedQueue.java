@@ -35,6 +35,7 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.AbstractQueue;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -175,7 +176,7 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
         private int index;
 
         public IndexedResultEntry(int index, ResultEntry resultEntry) {
-            super(resultEntry.sortKeys, resultEntry.result);
+            super(resultEntry.sortKey, resultEntry.result);
             this.index = index;
         }
 
@@ -202,6 +203,10 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
         private boolean isClosed = false;
         MinMaxPriorityQueue<ResultEntry> results = null;
         private boolean flushBuffer = false;
+        // Without a limit, results are sorted all at once when first read or flushed
+        private final Comparator<ResultEntry> comparator;
+        private List<ResultEntry> unsortedResults = null;
+        private int sortedIndex = -1;
         private int index;
         private int flushedCount;
 
@@ -210,15 +215,52 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
             this.index = index;
             this.limit = limit;
             this.thresholdBytes = thresholdBytes;
-            results = limit < 0 ? 
-                    MinMaxPriorityQueue.<ResultEntry> orderedBy(comparator).create()
-                  : MinMaxPriorityQueue.<ResultEntry> orderedBy(comparator).maximumSize(limit).create();
+            this.comparator = comparator;
+            if (limit < 0) {
+                unsortedResults = new ArrayList<ResultEntry>();
+            } else {
+                results = MinMaxPriorityQueue.<ResultEntry> orderedBy(comparator).maximumSize(limit).create();
+            }
         }
         
         public int size() {
             if (flushBuffer)
                 return flushedCount;
-            return results.size();
+            return resultCount();
+        }
+        
+        private int resultCount() {
+            return results == null ? unsortedResults.size() - Math.max(0, sortedIndex) : results.size();
+        }
+        
+        private boolean addResult(ResultEntry entry) {
+            if (results == null) {
+                return unsortedResults.add(entry);
+            }
+            return results.add(entry);
+        }
+        
+        private ResultEntry pollResult() {
+            if (results != null) {
+                return results.pollFirst();
+            }
+            if (sortedIndex < 0) {
+                Collections.sort(unsortedResults, comparator);
+                sortedIndex = 0;
+            }
+            if (sortedIndex >= unsortedResults.size()) {
+                return null;
+            }
+            // Let go of the entry as we go
+            return unsortedResults.set(sortedIndex++, null);
+        }
+        
+        private void clearResults() {
+            if (results == null) {
+                unsortedResults = null;
+            } else {
+                results.clear();
+            }
         }
         
         public long getInMemByteSize() {
@@ -248,29 +290,20 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
             return size;
         }
 
-        private int sizeof(ImmutableBytesWritable[] sortKeys) {
-            int size = Bytes.SIZEOF_INT;
-            if (sortKeys != null) {
-                for (ImmutableBytesWritable sortKey : sortKeys) {
-                    if (sortKey != null) {
-                        size += sortKey.getLength();
-                    }
-                    size += Bytes.SIZEOF_INT;
-                }
-            }
-            return size;
+        private int sizeof(byte[] sortKey) {
+            return Bytes.SIZEOF_INT + sortKey.length;
         }
 
         public boolean writeResult(ResultEntry entry) throws IOException {
             if (flushBuffer)
                 throw new IOException("Results already flushed");
             
-            int sortKeySize = sizeof(entry.sortKeys);
+            int sortKeySize = sizeof(entry.sortKey);
             int resultSize = sizeof(toKeyValues(entry)) + sortKeySize;
-            boolean added = results.add(entry);
+            boolean added = addResult(entry);
             if (added) {
                 maxResultSize = Math.max(maxResultSize, resultSize);
-                totalResultSize = limit < 0 ? (totalResultSize + resultSize) : maxResultSize * results.size();
+                totalResultSize = limit < 0 ? (totalResultSize + resultSize) : maxResultSize * resultCount();
                 if (totalResultSize >= thresholdBytes) {
                     this.file = File.createTempFile(UUID.randomUUID().toString(), null);
                     this.af = new RandomAccessFile(file, "rw");
@@ -278,10 +311,10 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
                     mappingSize = Math.min(Math.max(maxResultSize, DEFAULT_MAPPING_SIZE), totalResultSize);
                     writeBuffer = fc.map(MapMode.READ_WRITE, writeIndex, mappingSize);
                 
-                    int resSize = results.size();
+                    int resSize = resultCount();
                     for (int i = 0; i < resSize; i++) {                
                         int totalLen = 0;
-                        ResultEntry re = results.pollFirst();
+                        ResultEntry re = pollResult();
                         List<KeyValue> keyValues = toKeyValues(re);
                         for (KeyValue kv : keyValues) {
                             totalLen += (kv.getLength() + Bytes.SIZEOF_INT);
@@ -292,17 +325,8 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
                             writeBuffer.put(kv.getBuffer(), kv.getOffset(), kv
                                     .getLength());
                         }
-                        ImmutableBytesWritable[] sortKeys = re.sortKeys;
-                        writeBuffer.putInt(sortKeys.length);
-                        for (ImmutableBytesWritable sortKey : sortKeys) {
-                            if (sortKey != null) {
-                                writeBuffer.putInt(sortKey.getLength());
-                                writeBuffer.put(sortKey.get(), sortKey.getOffset(),
-                                        sortKey.getLength());
-                            } else {
-                                writeBuffer.putInt(0);
-                            }
-                        }
+                        writeBuffer.putInt(re.sortKey.length);
+                        writeBuffer.put(re.sortKey);
                         // buffer close to exhausted, re-map.
                         if (mappingSize - writeBuffer.position() < maxResultSize) {
                             writeIndex += writeBuffer.position();
@@ -310,8 +334,8 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
                         }
                     }
                     writeBuffer.putInt(-1); // end
-                    flushedCount = results.size();
-                    results.clear();
+                    flushedCount = resSize;
+                    clearResults();
                     flushBuffer = true;
                 }
             }
@@ -323,7 +347,7 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
                 return null;
             
             if (!flushBuffer) {
-                ResultEntry re = results.poll();
+                ResultEntry re = pollResult();
                 if (re == null) {
                     reachedEnd();
                     return null;
@@ -345,25 +369,15 @@ public class MappedByteBufferSortedQueue extends AbstractQueue<ResultEntry> {
             readBuffer.get(rb);
             Result result = new Result(new ImmutableBytesWritable(rb));
             ResultTuple rt = new ResultTuple(result);
-            int sortKeySize = readBuffer.getInt();
-            ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[sortKeySize];
-            for (int i = 0; i < sortKeySize; i++) {
-                int contentLength = readBuffer.getInt();
-                if (contentLength > 0) {
-                    byte[] sortKeyContent = new byte[contentLength];
-                    readBuffer.get(sortKeyContent);
-                    sortKeys[i] = new ImmutableBytesWritable(sortKeyContent);
-                } else {
-                    sortKeys[i] = null;
-                }
-            }
+            byte[] sortKey = new byte[readBuffer.getInt()];
+            readBuffer.get(sortKey);
             // buffer close to exhausted, re-map.
             if (mappingSize - readBuffer.position() < maxResultSize) {
                 readIndex += readBuffer.position();
                 readBuffer = fc.map(MapMode.READ_ONLY, readIndex, mappingSize);
             }
             
-            return new IndexedResultEntry(index, new ResultEntry(sortKeys, rt));
+            return new IndexedResultEntry(index, new ResultEntry(sortKey, rt));
         }
 
         private void reachedEnd() {
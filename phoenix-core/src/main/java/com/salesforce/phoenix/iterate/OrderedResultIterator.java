@@ -28,21 +28,17 @@
 package com.salesforce.phoenix.iterate;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkPositionIndex;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Ordering;
-import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.OrderByExpression;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.SizedUtil;
@@ -50,26 +46,41 @@ import com.salesforce.phoenix.util.SizedUtil;
 /**
  * Result scanner that sorts aggregated rows by columns specified in the ORDER BY clause.
  * <p>
- * Note that currently the sort is entirely done in memory. 
+ * The ORDER BY keys of each row are encoded into a single normalized key that sorts
+ * as unsigned bytes in the order of the ORDER BY clause, taking ASC/DESC and NULLS
+ * FIRST/LAST into account, so that rows are compared with a single byte comparison
+ * that usually only looks at the leading eight bytes of each key.
  *  
  * @author syyang, jtaylor
  * @since 0.1
  */
 public class OrderedResultIterator implements PeekingResultIterator {
+    private static final byte NULL_FIRST_BYTE = 0x00;
+    private static final byte NOT_NULL_BYTE = 0x01;
+    private static final byte NULL_LAST_BYTE = 0x02;
+    private static final byte ESCAPE_BYTE = 0x00;
+    private static final byte ESCAPED_ZERO_BYTE = (byte)0xFF;
+    private static final byte TERMINATOR_BYTE = 0x00;
 
-    /** A container that holds pointers to a {@link Result} and its sort keys. */
+    /** A container that holds pointers to a {@link Result} and its normalized sort key. */
     protected static class ResultEntry {
-        protected final ImmutableBytesWritable[] sortKeys;
+        protected final byte[] sortKey;
         protected final Tuple result;
+        // Leading bytes of the sort key as an unsigned long, compared before the whole key
+        private final long sortKeyPrefix;
 
-        ResultEntry(ImmutableBytesWritable[] sortKeys, Tuple result) {
-            this.sortKeys = sortKeys;
+        ResultEntry(byte[] sortKey, Tuple result) {
+            this.sortKey = sortKey;
             this.result = result;
+            long prefix = 0;
+            for (int i = 0; i < Bytes.SIZEOF_LONG; i++) {
+                prefix = (prefix << 8) | (i < sortKey.length ? sortKey[i] & 0xFF : 0);
+            }
+            this.sortKeyPrefix = prefix;
         }
         
-        ImmutableBytesWritable getSortKey(int index) {
-            checkPositionIndex(index, sortKeys.length);
-            return sortKeys[index];
+        byte[] getSortKey() {
+            return sortKey;
         }
         
         Tuple getResult() {
@@ -77,24 +88,15 @@ public class OrderedResultIterator implements PeekingResultIterator {
         }
     }
     
-    /** A function that returns Nth key for a given {@link ResultEntry}. */
-    private static class NthKey implements Function<ResultEntry, ImmutableBytesWritable> {
-        private final int index;
-
-        NthKey(int index) {
-            this.index = index;
-        }
+    /** Orders {@link ResultEntry} by their normalized sort key. */
+    static final Comparator<ResultEntry> SORT_KEY_COMPARATOR = new Comparator<ResultEntry>() {
         @Override
-        public ImmutableBytesWritable apply(ResultEntry entry) {
-            return entry.getSortKey(index);
-        }
-    }
-
-    /** Returns the expression of a given {@link OrderByExpression}. */
-    private static final Function<OrderByExpression, Expression> TO_EXPRESSION = new Function<OrderByExpression, Expression>() {
-        @Override
-        public Expression apply(OrderByExpression column) {
-            return column.getExpression();
+        public int compare(ResultEntry o1, ResultEntry o2) {
+            if (o1.sortKeyPrefix != o2.sortKeyPrefix) {
+                // Compare as unsigned
+                return (o1.sortKeyPrefix ^ Long.MIN_VALUE) < (o2.sortKeyPrefix ^ Long.MIN_VALUE) ? -1 : 1;
+            }
+            return Bytes.compareTo(o1.sortKey, o2.sortKey);
         }
     };
 
@@ -131,8 +133,8 @@ public class OrderedResultIterator implements PeekingResultIterator {
         this.limit = limit;
         long estimatedEntrySize =
             // ResultEntry
-            SizedUtil.OBJECT_SIZE + 
-            // ImmutableBytesWritable[]
+            SizedUtil.OBJECT_SIZE + SizedUtil.LONG_SIZE +
+            // byte[] holding the normalized sort key
             SizedUtil.ARRAY_SIZE + orderByExpressions.size() * SizedUtil.IMMUTABLE_BYTES_WRITABLE_SIZE +
             // Tuple
             SizedUtil.OBJECT_SIZE + estimatedRowSize;
@@ -154,24 +156,64 @@ public class OrderedResultIterator implements PeekingResultIterator {
     public long getByteSize() {
         return byteSize;
     }
+    
     /**
-     * Builds a comparator from the list of columns in ORDER BY clause.
-     * @param orderByExpressions the columns in ORDER BY clause.
-     * @return the comparator built from the list of columns in ORDER BY clause.
+     * Encodes the values of the ORDER BY expressions for a row into a single key that
+     * compares as unsigned bytes in the same order as the row. Each value is preceded by
+     * a byte placing nulls first or last. Non null values have their zero bytes escaped
+     * and are terminated by two zero bytes, so that a value sorts before any longer value
+     * it is a prefix of. The bytes of a value sorted in descending order are inverted.
      */
-    // ImmutableBytesWritable.Comparator doesn't implement generics
-    @SuppressWarnings("unchecked")
-    private static Comparator<ResultEntry> buildComparator(List<OrderByExpression> orderByExpressions) {
-        Ordering<ResultEntry> ordering = null;
-        int pos = 0;
-        for (OrderByExpression col : orderByExpressions) {
-            Ordering<ImmutableBytesWritable> o = Ordering.from(new ImmutableBytesWritable.Comparator());
-            if(!col.isAscending()) o = o.reverse();
-            o = col.isNullsLast() ? o.nullsLast() : o.nullsFirst();
-            Ordering<ResultEntry> entryOrdering = o.onResultOf(new NthKey(pos++));
-            ordering = ordering == null ? entryOrdering : ordering.compound(entryOrdering);
+    static class SortKeyBuilder {
+        private final List<OrderByExpression> orderByExpressions;
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        private byte[] buffer = new byte[64];
+        
+        SortKeyBuilder(List<OrderByExpression> orderByExpressions) {
+            this.orderByExpressions = orderByExpressions;
+        }
+        
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, capacity));
+            }
+        }
+        
+        /**
+         * @param result the row
+         * @return the normalized sort key of the row
+         */
+        byte[] build(Tuple result) {
+            int offset = 0;
+            for (OrderByExpression orderByExpression : orderByExpressions) {
+                ensureCapacity(offset + 1);
+                if (!orderByExpression.getExpression().evaluate(result, ptr) || ptr.getLength() == 0) {
+                    buffer[offset++] = orderByExpression.isNullsLast() ? NULL_LAST_BYTE : NULL_FIRST_BYTE;
+                    continue;
+                }
+                buffer[offset++] = NOT_NULL_BYTE;
+                // Worst case, every byte is escaped
+                ensureCapacity(offset + ptr.getLength() * 2 + 2);
+                int valueOffset = offset;
+                byte[] buf = ptr.get();
+                for (int i = ptr.getOffset(), end = i + ptr.getLength(); i < end; i++) {
+                    if (buf[i] == 0) {
+                        buffer[offset++] = ESCAPE_BYTE;
+                        buffer[offset++] = ESCAPED_ZERO_BYTE;
+                    } else {
+                        buffer[offset++] = buf[i];
+                    }
+                }
+                buffer[offset++] = TERMINATOR_BYTE;
+                buffer[offset++] = TERMINATOR_BYTE;
+                if (!orderByExpression.isAscending()) {
+                    for (int i = valueOffset; i < offset; i++) {
+                        buffer[i] = (byte)~buffer[i];
+                    }
+                }
+            }
+            return Arrays.copyOf(buffer, offset);
         }
-        return ordering;
     }
 
     @Override
@@ -184,11 +226,8 @@ public class OrderedResultIterator implements PeekingResultIterator {
             return resultIterator;
         }
         
-        final int numSortKeys = orderByExpressions.size();
-        List<Expression> expressions = Lists.newArrayList(Collections2.transform(orderByExpressions, TO_EXPRESSION));
-        final Comparator<ResultEntry> comparator = buildComparator(orderByExpressions);
         try{
-            final MappedByteBufferSortedQueue queueEntries = new MappedByteBufferSortedQueue(comparator, limit, thresholdBytes);
+            final MappedByteBufferSortedQueue queueEntries = new MappedByteBufferSortedQueue(SORT_KEY_COMPARATOR, limit, thresholdBytes);
             resultIterator = new PeekingResultIterator() {
                 int count = 0;
                 @Override
@@ -222,16 +261,9 @@ public class OrderedResultIterator implements PeekingResultIterator {
                     queueEntries.close();
                 }
             };
+            SortKeyBuilder sortKeyBuilder = new SortKeyBuilder(orderByExpressions);
             for (Tuple result = delegate.next(); result != null; result = delegate.next()) {
-                int pos = 0;
-                ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[numSortKeys];
-                for (Expression expression : expressions) {
-                    final ImmutableBytesWritable sortKey = new ImmutableBytesWritable();
-                    boolean evaluated = expression.evaluate(result, sortKey);
-                    // set the sort key that failed to get evaluated with null
-                    sortKeys[pos++] = evaluated && sortKey.getLength() > 0 ? sortKey : null;
-                }
-                queueEntries.add(new ResultEntry(sortKeys, result));
+                queueEntries.add(new ResultEntry(sortKeyBuilder.build(result), result));
             }
             this.byteSize = queueEntries.getByteSize();
         } catch (IOException e) {
@@ -52,13 +52,21 @@ import com.google.common.base.Function;
 import com.salesforce.phoenix.compile.GroupByCompiler.GroupBy;
 import com.salesforce.phoenix.compile.RowProjector;
 import com.salesforce.phoenix.compile.StatementContext;
-import com.salesforce.phoenix.job.JobManager.JobCallable;
+import com.salesforce.phoenix.coprocessor.GroupedAggregateRegionObserver;
+import com.salesforce.phoenix.exception.SQLExceptionCode;
+import com.salesforce.phoenix.exception.SQLExceptionInfo;
+import com.salesforce.phoenix.job.JobManager.ScheduledJobCallable;
+import com.salesforce.phoenix.job.JobPriority;
+import com.salesforce.phoenix.job.JobSchedule;
 import com.salesforce.phoenix.parse.FilterableStatement;
 import com.salesforce.phoenix.parse.HintNode;
 import com.salesforce.phoenix.query.ConnectionQueryServices;
 import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
+import com.salesforce.phoenix.query.StatsManager;
+import com.salesforce.phoenix.schema.PName;
 import com.salesforce.phoenix.schema.PTable;
 import com.salesforce.phoenix.schema.SaltingUtil;
 import com.salesforce.phoenix.schema.TableRef;
@@ -81,6 +89,7 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
 	private static final Logger logger = LoggerFactory.getLogger(ParallelIterators.class);
     private final List<KeyRange> splits;
     private final ParallelIteratorFactory iteratorFactory;
+    private final int estimatedRowSize;
     
     public static interface ParallelIteratorFactory {
         PeekingResultIterator newIterator(ResultIterator scanner) throws SQLException;
@@ -96,8 +105,12 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
     };
 
     public ParallelIterators(StatementContext context, TableRef tableRef, FilterableStatement statement, RowProjector projector, GroupBy groupBy, Integer limit, ParallelIteratorFactory iteratorFactory) throws SQLException {
+        this(context, tableRef, statement, projector, groupBy, limit, iteratorFactory, getSplits(context, tableRef, statement.getHint()));
+    }
+
+    public ParallelIterators(StatementContext context, TableRef tableRef, FilterableStatement statement, RowProjector projector, GroupBy groupBy, Integer limit, ParallelIteratorFactory iteratorFactory, List<KeyRange> splits) throws SQLException {
         super(context, tableRef, groupBy);
-        this.splits = getSplits(context, tableRef, statement.getHint());
+        this.splits = splits;
         this.iteratorFactory = iteratorFactory;
         Scan scan = context.getScan();
         PTable table = tableRef.getTable();
@@ -123,6 +136,42 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
         if (limit != null) {
             ScanUtil.andFilterAtEnd(scan, new PageFilter(limit));
         }
+        // The rows returned by aggregate scans don't have the size estimated for the projected
+        // columns, so they're not used to correct the estimate.
+        boolean isAggregate = scan.getAttribute(GroupedAggregateRegionObserver.AGGREGATORS) != null;
+        this.estimatedRowSize = isAggregate ? 0 : projector.getEstimatedRowByteSize();
+        StatsManager statsManager = context.getConnection().getQueryServices().getStatsManager();
+        double rowSizeRatio = isAggregate ? 1 : statsManager.getRowSizeRatio(tableRef, scan);
+        scan.setCaching(getScanCacheSize(context.getStatement().getExplicitFetchSize(), projector.getEstimatedRowByteSize(), 
+                rowSizeRatio, limit, context.getConnection().getQueryServices().getProps()));
+    }
+
+    /**
+     * Determines the number of rows fetched by each scanner RPC. An explicit JDBC fetch size is used as is.
+     * Otherwise, the number of rows is sized so that each RPC returns roughly
+     * {@link com.salesforce.phoenix.query.QueryServices#SCAN_CACHE_MAX_BYTES_ATTRIB} bytes based on the
+     * estimated row size, corrected by the row sizes observed for previous scans over the same table,
+     * and capped by {@link com.salesforce.phoenix.query.QueryServices#MAX_SCAN_CACHE_SIZE_ATTRIB}. That
+     * cap is the explicitly set {@link com.salesforce.phoenix.query.QueryServices#SCAN_CACHE_SIZE_ATTRIB}
+     * unless it is set itself. In both cases, no more rows than the limit are fetched.
+     */
+    // exposed for tests
+    static int getScanCacheSize(int fetchSize, int estimatedRowSize, double rowSizeRatio, Integer limit, ReadOnlyProps props) {
+        int cacheSize;
+        long maxBytes = props.getLong(QueryServices.SCAN_CACHE_MAX_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_SCAN_CACHE_MAX_BYTES);
+        if (fetchSize > 0) {
+            cacheSize = fetchSize;
+        } else if (maxBytes <= 0 || estimatedRowSize <= 0) {
+            cacheSize = props.getInt(QueryServices.SCAN_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_SCAN_CACHE_SIZE);
+        } else {
+            int maxCacheSize = props.getInt(QueryServices.MAX_SCAN_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SCAN_CACHE_SIZE);
+            double rowSize = Math.max(1, estimatedRowSize * rowSizeRatio);
+            cacheSize = (int)Math.min(maxCacheSize, maxBytes / rowSize);
+        }
+        if (limit != null && limit < cacheSize) {
+            cacheSize = limit;
+        }
+        return Math.max(1, cacheSize);
     }
 
     /**
@@ -140,6 +189,38 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
         return splits;
     }
 
+    /**
+     * Determines how the scans of the splits are scheduled against those of other queries. Unless a
+     * priority is set for the connection, a query over only a few splits, such as a point lookup,
+     * is interactive so that it gets ahead of the splits of large scans waiting for a thread.
+     */
+    private JobSchedule getJobSchedule(ReadOnlyProps props, int numSplits) throws SQLException {
+        JobPriority priority = getJobPriority(props, numSplits);
+        PName tenantId = context.getConnection().getTenantId();
+        String tenantIdString = tenantId == null ? null : tenantId.getString();
+        int tenantWeight = tenantIdString == null ? QueryServicesOptions.DEFAULT_TENANT_WEIGHT
+                : props.getInt(QueryServices.TENANT_WEIGHT_ATTRIB_PREFIX + tenantIdString, QueryServicesOptions.DEFAULT_TENANT_WEIGHT);
+        int maxConcurrency = props.getInt(QueryServices.MAX_CONCURRENT_SPLITS_ATTRIB, QueryServicesOptions.DEFAULT_MAX_CONCURRENT_SPLITS);
+        return new JobSchedule(priority, tenantIdString, tenantWeight, maxConcurrency);
+    }
+
+    // exposed for tests
+    static JobPriority getJobPriority(ReadOnlyProps props, int numSplits) throws SQLException {
+        String priorityName = props.get(QueryServices.QUERY_PRIORITY_ATTRIB);
+        if (priorityName != null) {
+            try {
+                return JobPriority.valueOf(priorityName.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new SQLExceptionInfo.Builder(SQLExceptionCode.INVALID_QUERY_PRIORITY)
+                    .setMessage(QueryServices.QUERY_PRIORITY_ATTRIB + "=" + priorityName).build().buildException();
+            }
+        }
+        if (numSplits <= props.getInt(QueryServices.INTERACTIVE_MAX_SPLITS_ATTRIB, QueryServicesOptions.DEFAULT_INTERACTIVE_MAX_SPLITS)) {
+            return JobPriority.INTERACTIVE;
+        }
+        return JobPriority.NORMAL;
+    }
+
     /**
      * Executes the scan in parallel across all regions, blocking until all scans are complete.
      * @return the result iterators for the scan of each region
@@ -155,6 +236,7 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
         final UUID scanId = UUID.randomUUID();
         try {
             ExecutorService executor = services.getExecutor();
+            final JobSchedule jobSchedule = getJobSchedule(props, numSplits);
             for (KeyRange split : splits) {
                 final Scan splitScan = new Scan(this.context.getScan());
                 // Intersect with existing start/stop key if the table is salted
@@ -173,13 +255,13 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
                     // Delay the swapping of start/stop row until row so we don't muck with the intersect logic
                     ScanUtil.swapStartStopRowIfReversed(splitScan);
                     Future<PeekingResultIterator> future =
-                        executor.submit(new JobCallable<PeekingResultIterator>() {
+                        executor.submit(new ScheduledJobCallable<PeekingResultIterator>() {
 
                         @Override
                         public PeekingResultIterator call() throws Exception {
                             // TODO: different HTableInterfaces for each thread or the same is better?
                         	long startTime = System.currentTimeMillis();
-                            ResultIterator scanner = new TableResultIterator(context, tableRef, splitScan);
+                            ResultIterator scanner = new TableResultIterator(context, tableRef, splitScan, estimatedRowSize);
                             if (logger.isDebugEnabled()) {
                             	logger.debug("Id: " + scanId + ", Time: " + (System.currentTimeMillis() - startTime) + "ms, Scan: " + splitScan);
                             }
@@ -187,7 +269,7 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
                         }
 
                         /**
-                         * Defines the grouping for round robin behavior.  All threads spawned to process
+                         * Defines the grouping for weighted fair behavior.  All threads spawned to process
                          * this scan will be grouped together and time sliced with other simultaneously
                          * executing parallel scans.
                          */
@@ -195,6 +277,11 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
                         public Object getJobId() {
                             return ParallelIterators.this;
                         }
+
+                        @Override
+                        public JobSchedule getJobSchedule() {
+                            return jobSchedule;
+                        }
                     });
                     futures.add(new Pair<byte[],Future<PeekingResultIterator>>(split.getLowerRange(),future));
                 }
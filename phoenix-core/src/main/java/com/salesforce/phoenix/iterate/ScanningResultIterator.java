@@ -31,9 +31,12 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.coprocessor.CompactRowsRegionScanner;
 import com.salesforce.phoenix.schema.tuple.ResultTuple;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.ServerUtil;
@@ -41,9 +44,24 @@ import com.salesforce.phoenix.util.ServerUtil;
 
 public class ScanningResultIterator implements ResultIterator {
     private final ResultScanner scanner;
+    private final boolean isCompact;
+    private final List<Tuple> expandedTuples = Lists.newArrayList();
+    private int expandedIndex;
+    private long rowCount;
+    private long resultCount;
+    private long byteCount;
     
     public ScanningResultIterator(ResultScanner scanner) {
+        this(scanner, false);
+    }
+    
+    /**
+     * @param isCompact true if the region servers were asked to pack the rows of the
+     * scan through a {@link CompactRowsRegionScanner}.
+     */
+    public ScanningResultIterator(ResultScanner scanner, boolean isCompact) {
         this.scanner = scanner;
+        this.isCompact = isCompact;
     }
     
     @Override
@@ -54,10 +72,27 @@ public class ScanningResultIterator implements ResultIterator {
     @Override
     public Tuple next() throws SQLException {
         try {
+            if (expandedIndex < expandedTuples.size()) {
+                return expandedTuples.get(expandedIndex++);
+            }
             Result result = scanner.next();
+            if (result == null) {
+                return null;
+            }
+            resultCount++;
+            for (KeyValue kv : result.raw()) {
+                byteCount += kv.getLength();
+            }
+            if (isCompact && CompactRowsRegionScanner.isCompact(result)) {
+                expandedTuples.clear();
+                rowCount += CompactRowsRegionScanner.expand(result, expandedTuples);
+                expandedIndex = 1;
+                return expandedTuples.get(0);
+            }
+            rowCount++;
             // TODO: use ResultTuple.setResult(result)
             // Need to create a new one if holding on to it (i.e. OrderedResultIterator)
-            return result == null ? null : new ResultTuple(result);
+            return new ResultTuple(result);
         } catch (IOException e) {
             throw ServerUtil.parseServerException(e);
         }
@@ -66,4 +101,26 @@ public class ScanningResultIterator implements ResultIterator {
     @Override
     public void explain(List<String> planSteps) {
     }
+    
+    /**
+     * @return the number of rows returned so far by the scanner
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * @return the number of results returned so far by the scanner, which is
+     * less than the number of rows when rows are packed
+     */
+    public long getResultCount() {
+        return resultCount;
+    }
+    
+    /**
+     * @return the number of KeyValue bytes returned so far by the scanner
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
 }
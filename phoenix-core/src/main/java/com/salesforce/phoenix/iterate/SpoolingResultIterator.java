@@ -28,17 +28,36 @@
 package com.salesforce.phoenix.iterate;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.commons.io.output.ThresholdingOutputStream;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.WritableUtils;
+import org.xerial.snappy.Snappy;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.phoenix.compile.StatementContext;
 import com.salesforce.phoenix.iterate.ParallelIterators.ParallelIteratorFactory;
 import com.salesforce.phoenix.memory.MemoryManager;
 import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+import com.salesforce.phoenix.monitoring.MetricType;
+import com.salesforce.phoenix.monitoring.StatementMetrics;
 import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.tuple.ResultTuple;
@@ -51,30 +70,55 @@ import com.salesforce.phoenix.util.*;
  * 
  * Result iterator that spools the results of a scan to disk once an in-memory threshold has been reached.
  * If the in-memory threshold is not reached, the results are held in memory with no disk writing perfomed.
+ * Results spooled to disk are written in compressed blocks by a shared pool of threads and memory mapped
+ * when read back.
  *
  * @author jtaylor
  * @since 0.1
  */
 public class SpoolingResultIterator implements PeekingResultIterator {
+    // Uncompressed size at which a block of the spill file is written
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int BLOCK_HEADER_SIZE = 1 + Bytes.SIZEOF_INT * 2;
+    // Number of blocks that may be waiting to be written before the scan thread blocks
+    private static final int MAX_PENDING_BLOCKS = 16;
+    private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+    // Threads shared by all spools to write their blocks, which only hold a thread while blocks are pending
+    private static final int SPILL_WRITER_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int SPILL_WRITER_KEEP_ALIVE_MS = 60000;
+    private static final ExecutorService SPILL_WRITER_POOL = createSpillWriterPool();
+    
     private final PeekingResultIterator spoolFrom;
     
+    private static ExecutorService createSpillWriterPool() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("phoenix-spool-writer-%s").setDaemon(true).build();
+        ThreadPoolExecutor exec = new ThreadPoolExecutor(SPILL_WRITER_THREADS, SPILL_WRITER_THREADS, SPILL_WRITER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+        exec.allowCoreThreadTimeOut(true);
+        return exec;
+    }
+    
     public static class SpoolingResultIteratorFactory implements ParallelIteratorFactory {
-        private final QueryServices services;
+        private final StatementContext context;
         
-        public SpoolingResultIteratorFactory(QueryServices services) {
-            this.services = services;
+        public SpoolingResultIteratorFactory(StatementContext context) {
+            this.context = context;
         }
         @Override
         public PeekingResultIterator newIterator(ResultIterator scanner) throws SQLException {
-            return new SpoolingResultIterator(scanner, services);
+            return new SpoolingResultIterator(scanner, context.getConnection().getQueryServices(), context.getMetrics());
         }
         
     }
 
-    public SpoolingResultIterator(ResultIterator scanner, QueryServices services) throws SQLException {
+    public SpoolingResultIterator(ResultIterator scanner, QueryServices services, StatementMetrics metrics) throws SQLException {
         this (scanner, services.getMemoryManager(), 
         		services.getProps().getInt(QueryServices.SPOOL_THRESHOLD_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_SPOOL_THRESHOLD_BYTES),
-        		services.getProps().getLong(QueryServices.MAX_SPOOL_TO_DISK_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES));
+        		services.getProps().getLong(QueryServices.MAX_SPOOL_TO_DISK_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES),
+        		services.getProps().getBoolean(QueryServices.SPOOL_COMPRESSION_ATTRIB, QueryServicesOptions.DEFAULT_SPOOL_COMPRESSION), metrics);
+    }
+    
+    SpoolingResultIterator(ResultIterator scanner, MemoryManager mm, final int thresholdBytes, final long maxSpoolToDisk) throws SQLException {
+        this(scanner, mm, thresholdBytes, maxSpoolToDisk, QueryServicesOptions.DEFAULT_SPOOL_COMPRESSION, new StatementMetrics());
     }
     
     /**
@@ -84,36 +128,32 @@ public class SpoolingResultIterator implements PeekingResultIterator {
     * @param mm memory manager tracking memory usage across threads.
     * @param thresholdBytes the requested threshold.  Will be dialed down if memory usage (as determined by
     *  the memory manager) is exceeded.
+    * @param compress whether blocks of results spooled to disk are compressed
+    * @param metrics the metrics of the statement to which the spooled bytes and memory wait time are added
     * @throws SQLException
     */
-    SpoolingResultIterator(ResultIterator scanner, MemoryManager mm, final int thresholdBytes, final long maxSpoolToDisk) throws SQLException {
+    SpoolingResultIterator(ResultIterator scanner, MemoryManager mm, final int thresholdBytes, final long maxSpoolToDisk, boolean compress, StatementMetrics metrics) throws SQLException {
         boolean success = false;
         boolean usedOnDiskIterator = false;
+        long startTime = System.currentTimeMillis();
         final MemoryChunk chunk = mm.allocate(0, thresholdBytes);
-        File tempFile = null;
+        metrics.update(MetricType.MEMORY_WAIT_TIME_MS, System.currentTimeMillis() - startTime);
+        SpoolOutputStream spoolTo = null;
         try {
             // Can't be bigger than int, since it's the max of the above allocation
             int size = (int)chunk.getSize();
-            tempFile = File.createTempFile("ResultSpooler",".bin");
-            DeferredFileOutputStream spoolTo = new DeferredFileOutputStream(size, tempFile) {
-                @Override
-                protected void thresholdReached() throws IOException {
-                    super.thresholdReached();
-                    chunk.close();
-                }
-            };
+            spoolTo = new SpoolOutputStream(size, chunk, compress);
             DataOutputStream out = new DataOutputStream(spoolTo);
             final long maxBytesAllowed = maxSpoolToDisk == -1 ? 
             		Long.MAX_VALUE : thresholdBytes + maxSpoolToDisk;
             long bytesWritten = 0L;
-            int maxSize = 0;
             for (Tuple result = scanner.next(); result != null; result = scanner.next()) {
                 int length = TupleUtil.write(result, out);
+                spoolTo.endRecord();
                 bytesWritten += length;
                 if(bytesWritten > maxBytesAllowed){
                 		throw new SpoolTooBigToDiskException("result too big, max allowed(bytes): " + maxBytesAllowed);
                 }
-                maxSize = Math.max(length, maxSize);
             }
             spoolTo.close();
             if (spoolTo.isInMemory()) {
@@ -121,8 +161,9 @@ public class SpoolingResultIterator implements PeekingResultIterator {
                 chunk.resize(data.length);
                 spoolFrom = new InMemoryResultIterator(data, chunk);
             } else {
-                spoolFrom = new OnDiskResultIterator(maxSize, spoolTo.getFile());
+                spoolFrom = new OnDiskResultIterator(spoolTo.getFile());
                 usedOnDiskIterator = true;
+                metrics.update(MetricType.SPOOL_BYTES, bytesWritten);
             }
             success = true;
         } catch (IOException e) {
@@ -132,8 +173,8 @@ public class SpoolingResultIterator implements PeekingResultIterator {
                 scanner.close();
             } finally {
                 try {
-                    if (!usedOnDiskIterator) {
-                        tempFile.delete();
+                    if (!usedOnDiskIterator && spoolTo != null) {
+                        spoolTo.discard();
                     }
                 } finally {
                     if (!success) {
@@ -214,31 +255,305 @@ public class SpoolingResultIterator implements PeekingResultIterator {
     
     /**
      * 
-     * Backing result iterator if results were spooled to disk
+     * Output stream that holds results in memory until the threshold is reached and
+     * then hands them off to a {@link SpillFileWriter}, along with the memory chunk.
+     *
+     * @since 3.0.0
+     */
+    private static class SpoolOutputStream extends ThresholdingOutputStream {
+        private final MemoryChunk chunk;
+        private final boolean compress;
+        private ByteArrayOutputStream memoryOutputStream = new ByteArrayOutputStream();
+        private SpillFileWriter spillFileWriter;
+        private OutputStream currentOutputStream = memoryOutputStream;
+        
+        private SpoolOutputStream(int threshold, MemoryChunk chunk, boolean compress) {
+            super(threshold);
+            this.chunk = chunk;
+            this.compress = compress;
+        }
+
+        @Override
+        protected OutputStream getStream() throws IOException {
+            return currentOutputStream;
+        }
+
+        @Override
+        protected void thresholdReached() throws IOException {
+            spillFileWriter = new SpillFileWriter(File.createTempFile("ResultSpooler",".bin"), compress, chunk);
+            memoryOutputStream.writeTo(spillFileWriter);
+            memoryOutputStream = null;
+            currentOutputStream = spillFileWriter;
+        }
+        
+        /**
+         * Called after each result is written, since a block of the spill
+         * file may only end on a result boundary.
+         */
+        public void endRecord() throws IOException {
+            if (spillFileWriter != null) {
+                spillFileWriter.endRecord();
+            }
+        }
+        
+        public boolean isInMemory() {
+            return !isThresholdExceeded();
+        }
+        
+        public byte[] getData() {
+            return memoryOutputStream.toByteArray();
+        }
+        
+        public File getFile() {
+            return spillFileWriter.getFile();
+        }
+        
+        /**
+         * Stop writing and delete the spill file, if any
+         */
+        public void discard() {
+            if (spillFileWriter != null) {
+                spillFileWriter.discard();
+            }
+        }
+    }
+    
+    /**
+     * 
+     * Writes results to a spill file in blocks of roughly {@link #BLOCK_SIZE} bytes, each
+     * of which is optionally compressed with Snappy. Blocks are compressed and written
+     * behind by a thread of a shared pool so that the thread producing the results is not
+     * stalled on the disk. The blocks waiting to be written are counted against the memory
+     * chunk of the spool. Each block is made up of a compressed flag byte, the int
+     * uncompressed length, the int stored length, and the stored bytes.
+     *
+     * @since 3.0.0
+     */
+    private static class SpillFileWriter extends OutputStream implements Runnable {
+        private static final byte[] END_OF_FILE = new byte[0];
+        
+        private final File file;
+        private final boolean compress;
+        private final MemoryChunk chunk;
+        private final BlockingQueue<ImmutableBytesWritable> pendingBlocks = new ArrayBlockingQueue<ImmutableBytesWritable>(MAX_PENDING_BLOCKS);
+        private final AtomicLong pendingBytes = new AtomicLong();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile boolean discarded;
+        private volatile IOException writeException;
+        private byte[] block = new byte[BLOCK_SIZE];
+        private int blockLength;
+        // Only accessed by the pool thread writing the blocks, while holding the lock on this
+        private OutputStream out;
+        private byte[] compressed;
+        
+        private SpillFileWriter(File file, boolean compress, MemoryChunk chunk) {
+            this.file = file;
+            this.compress = compress;
+            this.chunk = chunk;
+        }
+        
+        public File getFile() {
+            return file;
+        }
+        
+        private void ensureCapacity(int length) {
+            if (blockLength + length > block.length) {
+                block = Arrays.copyOf(block, Math.max(block.length * 2, blockLength + length));
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(1);
+            block[blockLength++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureCapacity(len);
+            System.arraycopy(b, off, block, blockLength, len);
+            blockLength += len;
+        }
+        
+        public void endRecord() throws IOException {
+            if (blockLength >= BLOCK_SIZE) {
+                enqueue(new ImmutableBytesWritable(block, 0, blockLength));
+                block = new byte[BLOCK_SIZE];
+                blockLength = 0;
+            }
+        }
+        
+        private void checkWriteException() throws IOException {
+            if (writeException != null) {
+                throw writeException;
+            }
+        }
+        
+        private void enqueue(ImmutableBytesWritable block) throws IOException {
+            // Only resized by the scan thread, so the chunk shrinks as blocks get written
+            chunk.resize(pendingBytes.addAndGet(block.getLength()));
+            try {
+                // Don't wait forever on a full queue if the writer has failed
+                while (!pendingBlocks.offer(block, 100, TimeUnit.MILLISECONDS)) {
+                    checkWriteException();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            }
+            schedule();
+            checkWriteException();
+        }
+        
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                SPILL_WRITER_POOL.execute(this);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (blockLength > 0) {
+                    enqueue(new ImmutableBytesWritable(block, 0, blockLength));
+                    blockLength = 0;
+                }
+                enqueue(new ImmutableBytesWritable(END_OF_FILE));
+                try {
+                    finished.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(e.getMessage());
+                }
+                checkWriteException();
+            } finally {
+                chunk.close();
+            }
+        }
+        
+        public void discard() {
+            discarded = true;
+            pendingBlocks.clear();
+            try {
+                // Wait for a block being written, if any
+                synchronized (this) {
+                    closeFile();
+                }
+            } finally {
+                file.delete();
+                chunk.close();
+            }
+        }
+        
+        /**
+         * Write the blocks that are pending. Rather than tying up a pool thread until the
+         * spill is complete, this returns once no more blocks are pending and is scheduled
+         * again by the next block.
+         */
+        @Override
+        public void run() {
+            try {
+                synchronized (this) {
+                    for (ImmutableBytesWritable block = pendingBlocks.poll(); block != null && !discarded && finished.getCount() > 0; block = pendingBlocks.poll()) {
+                        if (block.get() == END_OF_FILE) {
+                            closeFile();
+                            finished.countDown();
+                        } else {
+                            writeBlock(block);
+                            pendingBytes.addAndGet(-block.getLength());
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                // Surface any failure, so that the scan thread doesn't wait on a dead writer
+                writeException = t instanceof IOException ? (IOException)t : new IOException(t);
+                synchronized (this) {
+                    closeFile();
+                }
+                finished.countDown();
+            } finally {
+                scheduled.set(false);
+                // A block may have been queued after our last poll, but before we were unscheduled
+                if (!pendingBlocks.isEmpty() && !discarded && finished.getCount() > 0) {
+                    schedule();
+                }
+            }
+        }
+        
+        private void writeBlock(ImmutableBytesWritable block) throws IOException {
+            if (out == null) {
+                out = new BufferedOutputStream(new FileOutputStream(file));
+            }
+            byte[] stored = block.get();
+            int storedOffset = block.getOffset();
+            int storedLength = block.getLength();
+            if (compress) {
+                int maxCompressedLength = Snappy.maxCompressedLength(block.getLength());
+                if (compressed == null || compressed.length < maxCompressedLength) {
+                    compressed = new byte[maxCompressedLength];
+                }
+                stored = compressed;
+                storedOffset = 0;
+                storedLength = Snappy.compress(block.get(), block.getOffset(), block.getLength(), compressed, 0);
+            }
+            byte[] header = new byte[BLOCK_HEADER_SIZE];
+            header[0] = compress ? (byte)1 : (byte)0;
+            Bytes.putInt(header, 1, block.getLength());
+            Bytes.putInt(header, 1 + Bytes.SIZEOF_INT, storedLength);
+            out.write(header);
+            out.write(stored, storedOffset, storedLength);
+        }
+        
+        /**
+         * Close the spill file, if open. Must hold the lock on this.
+         */
+        private void closeFile() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    if (writeException == null) {
+                        writeException = e;
+                    }
+                } finally {
+                    out = null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 
+     * Backing result iterator if results were spooled to disk. The spill file is memory
+     * mapped a window at a time and read back a block at a time.
      *
      * @author jtaylor
      * @since 0.1
      */
     private static class OnDiskResultIterator implements PeekingResultIterator {
         private final File file;
-        private DataInputStream spoolFrom;
+        private RandomAccessFile spoolFrom;
+        private FileChannel channel;
+        private long fileSize;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long blockPosition;
+        private byte[] stored;
+        private byte[] block;
+        private int blockOffset;
         private Tuple next;
-        private int maxSize;
-        private int bufferIndex;
-        private byte[][] buffers = new byte[2][];
         private boolean isClosed;
         
-        private OnDiskResultIterator (int maxSize, File file) {
+        private OnDiskResultIterator (File file) {
             this.file = file;
-            this.maxSize = maxSize;
         }
         
         private synchronized void init() throws IOException {
             if (spoolFrom == null) {
-                spoolFrom = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
-                // We need two so that we can have a current and a next without them stomping on each other
-                buffers[0] = new byte[maxSize];
-                buffers[1] = new byte[maxSize];
+                spoolFrom = new RandomAccessFile(file, "r");
+                channel = spoolFrom.getChannel();
+                fileSize = channel.size();
                 advance();
             }
         }
@@ -246,6 +561,7 @@ public class SpoolingResultIterator implements PeekingResultIterator {
         private synchronized void reachedEnd() throws IOException {
             next = null;
             isClosed = true;
+            window = null;
             try {
                 if (spoolFrom != null) {
                     spoolFrom.close();
@@ -255,35 +571,55 @@ public class SpoolingResultIterator implements PeekingResultIterator {
             }
         }
         
+        private void map(long position, int length) throws IOException {
+            if (window == null || position < windowStart || position + length > windowStart + window.limit()) {
+                long size = Math.min(Math.max(MAP_WINDOW_SIZE, length), fileSize - position);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                windowStart = position;
+            }
+            window.position((int)(position - windowStart));
+        }
+        
+        private boolean readBlock() throws IOException {
+            if (blockPosition + BLOCK_HEADER_SIZE > fileSize) {
+                return false;
+            }
+            map(blockPosition, BLOCK_HEADER_SIZE);
+            boolean compressed = window.get() != 0;
+            int length = window.getInt();
+            int storedLength = window.getInt();
+            map(blockPosition + BLOCK_HEADER_SIZE, storedLength);
+            // Allocate a new block each time, as the current tuple still refers to the previous one
+            block = new byte[length];
+            if (compressed) {
+                if (stored == null || stored.length < storedLength) {
+                    stored = new byte[storedLength];
+                }
+                window.get(stored, 0, storedLength);
+                Snappy.uncompress(stored, 0, storedLength, block, 0);
+            } else {
+                window.get(block, 0, length);
+            }
+            blockOffset = 0;
+            blockPosition += BLOCK_HEADER_SIZE + storedLength;
+            return true;
+        }
+        
         private synchronized Tuple advance() throws IOException {
             if (isClosed) {
                 return next;
             }
-            int length;
-            try {
-                length = WritableUtils.readVInt(spoolFrom);
-            } catch (EOFException e) {
+            if ((block == null || blockOffset >= block.length) && !readBlock()) {
                 reachedEnd();
                 return next;
             }
-            int totalBytesRead = 0;
-            int offset = 0;
-            // Alternate between buffers so that the current one is not affected by advancing
-            bufferIndex = (bufferIndex + 1) % 2;
-            byte[] buffer = buffers [bufferIndex];
-            while(totalBytesRead < length) {
-                int bytesRead = spoolFrom.read(buffer, offset, length);
-                if (bytesRead == -1) {
-                    reachedEnd();
-                    return next;
-                }
-                offset += bytesRead;
-                totalBytesRead += bytesRead;
-            }
-            next = new ResultTuple(new Result(new ImmutableBytesWritable(buffer,0,length)));
+            int length = ByteUtil.vintFromBytes(block, blockOffset);
+            blockOffset += WritableUtils.getVIntSize(length);
+            next = new ResultTuple(new Result(new ImmutableBytesWritable(block, blockOffset, length)));
+            blockOffset += length;
             return next;
         }
-        
+
         @Override
         public synchronized Tuple peek() throws SQLException {
             try {
@@ -33,9 +33,13 @@ import java.util.List;
 
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import com.google.common.io.Closeables;
 import com.salesforce.phoenix.compile.StatementContext;
+import com.salesforce.phoenix.coprocessor.CompactRowsRegionScanner;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.TableRef;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.ServerUtil;
@@ -51,17 +55,33 @@ import com.salesforce.phoenix.util.ServerUtil;
  */
 public class TableResultIterator extends ExplainTable implements ResultIterator {
     private final HTableInterface htable;
-    private final ResultIterator delegate;
+    private final ScanningResultIterator delegate;
+    private final int estimatedRowSize;
+    private final Scan scan;
 
     public TableResultIterator(StatementContext context, TableRef tableRef) throws SQLException {
         this(context, tableRef, context.getScan());
     }
 
     public TableResultIterator(StatementContext context, TableRef tableRef, Scan scan) throws SQLException {
+        this(context, tableRef, scan, 0);
+    }
+
+    /**
+     * @param estimatedRowSize the estimated byte size of the rows returned by the scan. When
+     * positive, the observed row size is reported to the {@link com.salesforce.phoenix.query.StatsManager}
+     * upon close so that the scanner caching of future scans may be adjusted.
+     */
+    public TableResultIterator(StatementContext context, TableRef tableRef, Scan scan, int estimatedRowSize) throws SQLException {
         super(context, tableRef);
+        this.estimatedRowSize = estimatedRowSize;
+        this.scan = scan;
         htable = context.getConnection().getQueryServices().getTable(tableRef.getTable().getPhysicalName().getBytes());
         try {
-            delegate = new ScanningResultIterator(htable.getScanner(scan));
+            int compactRowsPerResult = context.getConnection().getQueryServices().getProps().getInt(
+                    QueryServices.COMPACT_ROWS_PER_RESULT_ATTRIB, QueryServicesOptions.DEFAULT_COMPACT_ROWS_PER_RESULT);
+            boolean isCompact = CompactRowsRegionScanner.serializeIntoScan(scan, compactRowsPerResult);
+            delegate = new ScanningResultIterator(htable.getScanner(scan), isCompact);
         } catch (IOException e) {
             Closeables.closeQuietly(htable);
             throw ServerUtil.parseServerException(e);
@@ -71,7 +91,11 @@ public class TableResultIterator extends ExplainTable implements ResultIterator
     @Override
     public void close() throws SQLException {
         try {
+            if (estimatedRowSize > 0) {
+                context.getConnection().getQueryServices().getStatsManager().updateRowSizeRatio(tableRef, scan, estimatedRowSize, delegate.getRowCount(), delegate.getByteCount());
+            }
             delegate.close();
+            context.getMetrics().updateScan(Bytes.toStringBinary(scan.getStartRow()), delegate.getRowCount(), delegate.getByteCount(), getRpcCount());
         } finally {
             try {
                 htable.close();
@@ -81,6 +105,17 @@ public class TableResultIterator extends ExplainTable implements ResultIterator
         }
     }
 
+    /**
+     * Derives the number of RPCs made by the scanner from its caching, as the HBase scanner
+     * doesn't reliably report its own metrics: one to open the scanner, one for each batch
+     * of results fetched, and one to close it.
+     */
+    private long getRpcCount() {
+        int caching = Math.max(1, scan.getCaching());
+        long batchCount = Math.max(1, (delegate.getResultCount() + caching - 1) / caching);
+        return batchCount + 2;
+    }
+
     @Override
     public Tuple next() throws SQLException {
         return delegate.next();
@@ -56,6 +56,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Executor;
 
 import javax.annotation.Nullable;
@@ -138,18 +139,21 @@ public class PhoenixConnection implements Connection, com.salesforce.phoenix.jdb
         this.isAutoCommit = connection.isAutoCommit;
     }
     
-    @SuppressWarnings("unchecked")
     public PhoenixConnection(ConnectionQueryServices services, String url, Properties info, PMetaData metaData) throws SQLException {
         this.url = url;
         // Copy so client cannot change
         this.info = info == null ? new Properties() : new Properties(info);
-        if (this.info.isEmpty()) {
+        // The copy holds the properties as defaults, so they don't show up as its entries
+        Set<String> propNames = this.info.stringPropertyNames();
+        if (propNames.isEmpty()) {
             this.services = services;
         } else {
             Map<String, String> existingProps = services.getProps().asMap();
-            Map<String, String> tmpAugmentedProps = Maps.newHashMapWithExpectedSize(existingProps.size() + info.size());
+            Map<String, String> tmpAugmentedProps = Maps.newHashMapWithExpectedSize(existingProps.size() + propNames.size());
             tmpAugmentedProps.putAll(existingProps);
-            tmpAugmentedProps.putAll((Map)this.info);
+            for (String propName : propNames) {
+                tmpAugmentedProps.put(propName, this.info.getProperty(propName));
+            }
             final ReadOnlyProps augmentedProps = new ReadOnlyProps(tmpAugmentedProps);
             this.services = new DelegateConnectionQueryServices(services) {
     
@@ -59,6 +59,7 @@ import com.salesforce.phoenix.compile.RowProjector;
 import com.salesforce.phoenix.exception.SQLExceptionCode;
 import com.salesforce.phoenix.exception.SQLExceptionInfo;
 import com.salesforce.phoenix.iterate.ResultIterator;
+import com.salesforce.phoenix.monitoring.StatementMetrics;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.tuple.ResultTuple;
 import com.salesforce.phoenix.schema.tuple.Tuple;
@@ -107,11 +108,21 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable, com.salesforce
     private Tuple currentRow = BEFORE_FIRST;
     private boolean isClosed = false;
     private boolean wasNull = false;
+    private final StatementMetrics metrics;
     
     public PhoenixResultSet(ResultIterator resultIterator, RowProjector rowProjector, PhoenixStatement statement) throws SQLException {
         this.rowProjector = rowProjector;
         this.scanner = resultIterator;
         this.statement = statement;
+        this.metrics = statement.getMetrics();
+    }
+    
+    /**
+     * @return the metrics of the query that produced this result set, which
+     * continue to be updated as scans complete while the rows are iterated.
+     */
+    public StatementMetrics getMetrics() {
+        return metrics;
     }
     
     @Override
@@ -297,13 +308,9 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable, com.salesforce
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-//        throw new SQLFeatureNotSupportedException();
         checkCursorState();
-        Byte value = (Byte)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow, PDataType.TINYINT, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        byte value = rowProjector.getColumnProjector(columnIndex-1).getByte(currentRow, ptr);
+        wasNull = (ptr.getLength() == 0);
         return value;
     }
 
@@ -374,11 +381,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable, com.salesforce
     @Override
     public double getDouble(int columnIndex) throws SQLException {
         checkCursorState();
-        Double value = (Double)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow, PDataType.DOUBLE, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        double value = rowProjector.getColumnProjector(columnIndex-1).getDouble(currentRow, ptr);
+        wasNull = (ptr.getLength() == 0);
         return value;
     }
 
@@ -400,11 +404,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable, com.salesforce
     @Override
     public float getFloat(int columnIndex) throws SQLException {
         checkCursorState();
-        Float value = (Float)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow, PDataType.FLOAT, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        float value = rowProjector.getColumnProjector(columnIndex-1).getFloat(currentRow, ptr);
+        wasNull = (ptr.getLength() == 0);
         return value;
     }
 
@@ -421,11 +422,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable, com.salesforce
     @Override
     public int getInt(int columnIndex) throws SQLException {
         checkCursorState();
-        Integer value = (Integer)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow, PDataType.INTEGER, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        int value = rowProjector.getColumnProjector(columnIndex-1).getInt(currentRow, ptr);
+        wasNull = (ptr.getLength() == 0);
         return value;
     }
 
@@ -437,11 +435,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable, com.salesforce
     @Override
     public long getLong(int columnIndex) throws SQLException {
         checkCursorState();
-        Long value = (Long)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow, PDataType.LONG, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        long value = rowProjector.getColumnProjector(columnIndex-1).getLong(currentRow, ptr);
+        wasNull = (ptr.getLength() == 0);
         return value;
     }
 
@@ -548,11 +543,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable, com.salesforce
     @Override
     public short getShort(int columnIndex) throws SQLException {
         checkCursorState();
-        Short value = (Short)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow, PDataType.SMALLINT, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        short value = rowProjector.getColumnProjector(columnIndex-1).getShort(currentRow, ptr);
+        wasNull = (ptr.getLength() == 0);
         return value;
     }
 
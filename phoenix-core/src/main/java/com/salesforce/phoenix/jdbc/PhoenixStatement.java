@@ -43,6 +43,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.hadoop.hbase.regionserver.NoSuchColumnFamilyException;
 import org.apache.hadoop.hbase.util.Pair;
 
 import com.google.common.collect.ListMultimap;
@@ -68,15 +69,19 @@ import com.salesforce.phoenix.execute.MutationState;
 import com.salesforce.phoenix.expression.RowKeyColumnExpression;
 import com.salesforce.phoenix.iterate.MaterializedResultIterator;
 import com.salesforce.phoenix.iterate.ResultIterator;
+import com.salesforce.phoenix.monitoring.GlobalMetrics;
+import com.salesforce.phoenix.monitoring.StatementMetrics;
 import com.salesforce.phoenix.parse.AddColumnStatement;
 import com.salesforce.phoenix.parse.AliasedNode;
 import com.salesforce.phoenix.parse.AlterIndexStatement;
+import com.salesforce.phoenix.parse.BindTableNode;
 import com.salesforce.phoenix.parse.BindableStatement;
 import com.salesforce.phoenix.parse.ColumnDef;
 import com.salesforce.phoenix.parse.ColumnName;
 import com.salesforce.phoenix.parse.CreateIndexStatement;
 import com.salesforce.phoenix.parse.CreateSequenceStatement;
 import com.salesforce.phoenix.parse.CreateTableStatement;
+import com.salesforce.phoenix.parse.DerivedTableNode;
 import com.salesforce.phoenix.parse.DeleteStatement;
 import com.salesforce.phoenix.parse.DropColumnStatement;
 import com.salesforce.phoenix.parse.DropIndexStatement;
@@ -84,6 +89,7 @@ import com.salesforce.phoenix.parse.DropSequenceStatement;
 import com.salesforce.phoenix.parse.DropTableStatement;
 import com.salesforce.phoenix.parse.ExplainStatement;
 import com.salesforce.phoenix.parse.HintNode;
+import com.salesforce.phoenix.parse.JoinTableNode;
 import com.salesforce.phoenix.parse.LimitNode;
 import com.salesforce.phoenix.parse.NamedNode;
 import com.salesforce.phoenix.parse.NamedTableNode;
@@ -95,7 +101,9 @@ import com.salesforce.phoenix.parse.SQLParser;
 import com.salesforce.phoenix.parse.SelectStatement;
 import com.salesforce.phoenix.parse.TableName;
 import com.salesforce.phoenix.parse.TableNode;
+import com.salesforce.phoenix.parse.TableNodeVisitor;
 import com.salesforce.phoenix.parse.UpsertStatement;
+import com.salesforce.phoenix.query.ConnectionQueryServices;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.query.QueryServicesOptions;
@@ -114,6 +122,7 @@ import com.salesforce.phoenix.util.ByteUtil;
 import com.salesforce.phoenix.util.KeyValueUtil;
 import com.salesforce.phoenix.util.SQLCloseable;
 import com.salesforce.phoenix.util.SQLCloseables;
+import com.salesforce.phoenix.util.SchemaUtil;
 import com.salesforce.phoenix.util.ServerUtil;
 
 
@@ -161,12 +170,25 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
     private boolean isClosed = false;
     private ResultSetMetaData resultSetMetaData;
     private int maxRows;
+    private int fetchSize = -1;
+    private StatementMetrics metrics = new StatementMetrics();
     
     
     public PhoenixStatement(PhoenixConnection connection) {
         this.connection = connection;
     }
     
+    /**
+     * @return the metrics collected while executing the last query or DML statement
+     */
+    public StatementMetrics getMetrics() {
+        return metrics;
+    }
+    
+    private void resetMetrics() {
+        metrics = GlobalMetrics.newStatementMetrics();
+    }
+    
     protected List<PhoenixResultSet> getResultSets() {
         return resultSets;
     }
@@ -197,8 +219,14 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
 
         @Override
         public PhoenixResultSet executeQuery() throws SQLException {
-            QueryPlan plan = optimizePlan();
-            PhoenixResultSet rs = newResultSet(plan.iterator(), plan.getProjector());
+            resetMetrics();
+            PhoenixResultSet rs = executeWithMetaDataRetry(new TableNameCollector().collect(getFrom()), new MetaDataDependentOperation<PhoenixResultSet>() {
+                @Override
+                public PhoenixResultSet execute() throws SQLException {
+                    QueryPlan plan = optimizePlan();
+                    return newResultSet(plan.iterator(), plan.getProjector());
+                }
+            });
             resultSets.add(rs);
             lastResultSet = rs;
             lastUpdateCount = NO_UPDATE;
@@ -238,14 +266,115 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
         }
     }
     
-    private int executeMutation(MutationPlan plan) throws SQLException {
-        // Note that the upsert select statements will need to commit any open transaction here,
-        // since they'd update data directly from coprocessors, and should thus operate on
-        // the latest state
-        MutationState state = plan.execute();
+    /**
+     * Step of executing a statement that depends on table meta data, which may have been
+     * trusted without a server round trip.
+     */
+    private static interface MetaDataDependentOperation<T> {
+        T execute() throws SQLException;
+    }
+    
+    /**
+     * Executes the operation and, if it fails in a way that may be caused by stale meta data
+     * of the given tables having been trusted without a server round trip, checks those tables
+     * against the server and executes the operation once more.
+     * @param tableNames the tables of the statement whose meta data may have been trusted
+     * @param operation the operation to execute
+     */
+    private <T> T executeWithMetaDataRetry(List<TableName> tableNames, MetaDataDependentOperation<T> operation) throws SQLException {
+        try {
+            return operation.execute();
+        } catch (SQLException e) {
+            if (!invalidateTrustedMetaData(e, tableNames)) {
+                throw e;
+            }
+            return operation.execute();
+        }
+    }
+    
+    /**
+     * Forces the meta data of the given tables, if it is being trusted without a server round
+     * trip, to be checked against the server the next time it is resolved.
+     * @param e the exception with which the statement failed
+     * @param tableNames the tables of the statement whose meta data may have been trusted
+     * @return true if the exception may be caused by stale trusted meta data, in
+     * which case the statement may succeed when executed again, and false otherwise.
+     */
+    private boolean invalidateTrustedMetaData(SQLException e, List<TableName> tableNames) {
+        if (connection.getSCN() != null || !isStaleMetaDataException(e)) {
+            return false;
+        }
+        ConnectionQueryServices services = connection.getQueryServices();
+        long updateFrequencyMs = services.getProps().getLong(QueryServices.METADATA_UPDATE_FREQ_MS_ATTRIB, QueryServicesOptions.DEFAULT_METADATA_UPDATE_FREQ_MS);
+        String tenantId = connection.getTenantId() == null ? null : connection.getTenantId().getString();
+        long now = System.currentTimeMillis();
+        boolean invalidated = false;
+        for (TableName tableName : tableNames) {
+            String fullTableName = SchemaUtil.getTableName(tableName.getSchemaName(), tableName.getTableName());
+            // Only a table confirmed within the update frequency may have been trusted
+            if (now - services.getTableResolvedTime(tenantId, fullTableName) < updateFrequencyMs) {
+                services.clearTableResolvedTime(tenantId, fullTableName);
+                invalidated = true;
+            }
+        }
+        return invalidated;
+    }
+    
+    /**
+     * A table that isn't cached is always looked up on the server, so only a missing column
+     * or column family may be caused by stale meta data, whether it is found missing while
+     * compiling the statement or by the server while executing it.
+     */
+    private static boolean isStaleMetaDataException(SQLException e) {
+        if (e.getErrorCode() == SQLExceptionCode.COLUMN_NOT_FOUND.getErrorCode() || e.getErrorCode() == SQLExceptionCode.COLUMN_FAMILY_NOT_FOUND.getErrorCode()) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof NoSuchColumnFamilyException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Collects the names of the tables in a FROM clause, including those of joins and derived tables.
+     */
+    private static class TableNameCollector implements TableNodeVisitor {
+        private final List<TableName> tableNames = Lists.newArrayList();
+        
+        private List<TableName> collect(List<? extends TableNode> from) throws SQLException {
+            for (TableNode node : from) {
+                node.accept(this);
+            }
+            return tableNames;
+        }
+
+        @Override
+        public void visit(BindTableNode boundTableNode) throws SQLException {
+            tableNames.add(boundTableNode.getName());
+        }
+
+        @Override
+        public void visit(JoinTableNode joinNode) throws SQLException {
+            joinNode.getTable().accept(this);
+        }
+
+        @Override
+        public void visit(NamedTableNode namedTableNode) throws SQLException {
+            tableNames.add(namedTableNode.getName());
+        }
+
+        @Override
+        public void visit(DerivedTableNode subselectNode) throws SQLException {
+            collect(subselectNode.getSelect().getFrom());
+        }
+    }
+    
+    private int executeMutation(MutationState state) throws SQLException {
         connection.getMutationState().join(state);
         if (connection.getAutoCommit()) {
-            connection.commit();
+            connection.getMutationState().commit(metrics);
         }
         lastResultSet = null;
         lastQueryPlan = null;
@@ -275,7 +404,20 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
         @Override
         public int executeUpdate() throws SQLException {
             lastUpdateOperation = UpdateOperation.UPSERTED;
-            return executeMutation(optimizePlan());
+            resetMetrics();
+            // The meta data of the table upserted into is always checked against the server,
+            // so only that of the tables selected from may have been trusted
+            List<TableName> tableNames = getSelect() == null ? Collections.<TableName>emptyList() : new TableNameCollector().collect(getSelect().getFrom());
+            MutationState state = executeWithMetaDataRetry(tableNames, new MetaDataDependentOperation<MutationState>() {
+                @Override
+                public MutationState execute() throws SQLException {
+                    // Note that the upsert select statements will need to commit any open transaction here,
+                    // since they'd update data directly from coprocessors, and should thus operate on
+                    // the latest state
+                    return optimizePlan().execute();
+                }
+            });
+            return executeMutation(state);
         }
 
         @Override
@@ -314,7 +456,9 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
         @Override
         public int executeUpdate() throws SQLException {
             lastUpdateOperation = UpdateOperation.DELETED;
-            return executeMutation(optimizePlan());
+            resetMetrics();
+            // The meta data of the table deleted from is always checked against the server
+            return executeMutation(optimizePlan().execute());
         }
 
         @Override
@@ -1102,8 +1246,19 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
 
     @Override
     public int getFetchSize() throws SQLException {
+        if (fetchSize > 0) {
+            return fetchSize;
+        }
         return connection.getQueryServices().getProps().getInt(QueryServices.SCAN_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_SCAN_CACHE_SIZE);
     }
+    
+    /**
+     * @return the fetch size explicitly set through {@link #setFetchSize(int)}
+     * or 0 if the scanner caching should be determined automatically.
+     */
+    public int getExplicitFetchSize() {
+        return Math.max(0, fetchSize);
+    }
 
     @Override
     public ResultSet getGeneratedKeys() throws SQLException {
@@ -1211,8 +1366,12 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
 
     @Override
     public void setFetchSize(int rows) throws SQLException {
-        // TODO: map to Scan.setBatch() ?
-        throw new SQLFeatureNotSupportedException();
+        if (rows < 0) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.VALUE_OUTSIDE_RANGE)
+                .setMessage("Fetch size may not be negative: " + rows).build().buildException();
+        }
+        // Used as the scanner caching of subsequent queries. Zero means to size it automatically.
+        this.fetchSize = rows;
     }
 
     @Override
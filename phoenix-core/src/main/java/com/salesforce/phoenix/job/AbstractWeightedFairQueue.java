@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.job;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * A bounded blocking queue implementation that keeps a virtual queue of elements on a per-producer
+ * basis and hands out elements in weighted fair order, using start-time fair queuing. Each producer
+ * is weighted by the {@link JobSchedule} of its elements: the weight of its {@link JobPriority} times
+ * the weight of its tenant divided among the producers of that tenant present in the queue. Every
+ * element taken from a producer advances its virtual time by the inverse of its weight, and the
+ * backlogged producer with the lowest virtual time is served next. A new producer starts at the
+ * current virtual time, so that it goes ahead of the backlog of existing producers.
+ *
+ * @since 3.0.0
+ */
+public abstract class AbstractWeightedFairQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>{
+
+    /**
+     * Construct an AbstractWeightedFairQueue that limits the size of the queued elements
+     * to at most maxSize. Attempts to offer new elements after that point will fail.
+     * @param maxSize
+     */
+    public AbstractWeightedFairQueue(int maxSize) {
+        this.producerMap = new LinkedHashMap<Object,ProducerList<E>>();
+        this.tenantProducerCounts = new HashMap<Object,Integer>();
+        this.lock = new Object();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Implementations must extracts the producer object which is used as the key to identify a unique producer.
+     */
+    protected abstract Object extractProducer(E o);
+
+    /**
+     * Implementations must extract how the elements of the producer of the given element are scheduled.
+     * Only called for the first element of a producer.
+     */
+    protected abstract JobSchedule extractSchedule(E o);
+    
+    @Override
+    public Iterator<E> iterator() {
+        synchronized(lock) {
+            List<E> allElements = new ArrayList<E>(this.size);
+            for (ProducerList<E> tList : this.producerMap.values()) {
+                allElements.addAll(tList.list);
+            }
+            return allElements.iterator();
+        }
+    }
+
+    @Override
+    public boolean offer(E o, long timeout, TimeUnit unit) throws InterruptedException {
+        boolean taken = false;
+        long endAt = System.currentTimeMillis() + unit.toMillis(timeout);
+        synchronized(lock) {
+            long waitTime = endAt - System.currentTimeMillis();
+            while (!(taken = offer(o)) && waitTime > 0) {
+                this.lock.wait(waitTime);
+                waitTime = endAt - System.currentTimeMillis();
+            }
+        }
+        return taken;
+    }
+
+    @Override
+    public boolean offer(E o) {
+        if (o == null)
+            throw new NullPointerException();
+
+        final Object producerKey = extractProducer(o);
+
+        synchronized(lock) {
+            if (this.size == this.maxSize) {
+                return false;
+            }
+            ProducerList<E> producerList = this.producerMap.get(producerKey);
+            if (producerList == null) {
+                producerList = new ProducerList<E>(producerKey, extractSchedule(o));
+                this.producerMap.put(producerKey, producerList);
+                Object tenantId = producerList.schedule.getTenantId();
+                Integer count = this.tenantProducerCounts.get(tenantId);
+                this.tenantProducerCounts.put(tenantId, count == null ? 1 : count + 1);
+            }
+            if (producerList.list.isEmpty()) {
+                // Newly backlogged producers start at the current virtual time
+                producerList.startTag = Math.max(this.virtualTime, producerList.finishTag);
+            }
+            producerList.list.add(o);
+            this.size++;
+            lock.notifyAll();
+        }
+        return true;
+    }
+    
+    @Override
+    public void put(E o) throws InterruptedException {
+        synchronized(lock) {
+            while (!offer(o)) {
+                this.lock.wait();
+            }
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        synchronized(lock) {
+            E element;
+            while ((element = poll()) == null) {
+                this.lock.wait();
+            }
+            return element;
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long endAt = System.currentTimeMillis() + unit.toMillis(timeout);
+        synchronized(lock) {
+            E element;
+            long waitTime = endAt - System.currentTimeMillis();
+            while ((element = poll()) == null && waitTime > 0) {
+                this.lock.wait(waitTime);
+                waitTime = endAt - System.currentTimeMillis();
+            }
+            return element;
+        }
+    }
+
+    @Override
+    public E poll() {
+        synchronized(lock) {
+            ProducerList<E> tList = nextProducer();
+            if (tList == null) {
+                return null;
+            }
+            E element = removeFirst(tList);
+            removeIfEmpty(tList);
+            lock.notifyAll();
+            return element;
+        }
+    }
+
+    @Override
+    public E peek() {
+        synchronized(lock) {
+            ProducerList<E> tList = nextProducer();
+            return tList == null ? null : tList.list.getFirst();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        synchronized(this.lock) {
+            int originalSize = this.size;
+            int drained = drainTo(c, this.size);
+            assert drained == originalSize;
+            assert this.size == 0;
+            return drained;
+        }
+    }
+
+    /**
+     * Removes elements in weighted fair order.
+     */
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+
+        synchronized(this.lock) {
+            int i = 0;
+            ProducerList<E> tList;
+            while (i < maxElements && (tList = nextProducer()) != null) {
+                c.add(removeFirst(tList));
+                removeIfEmpty(tList);
+                i++;
+            }
+            lock.notifyAll();
+            return i;
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        synchronized(this.lock) {
+            return this.maxSize - this.size;
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized(this.lock) {
+            return this.size;
+        }
+    }
+    
+    /**
+     * Finds the backlogged producer with the lowest start tag. Ties go to the producer that arrived first.
+     */
+    private ProducerList<E> nextProducer() {
+        ProducerList<E> next = null;
+        for (ProducerList<E> tList : this.producerMap.values()) {
+            if (!tList.list.isEmpty() && (next == null || tList.startTag < next.startTag)) {
+                next = tList;
+            }
+        }
+        return next;
+    }
+    
+    private E removeFirst(ProducerList<E> tList) {
+        E element = tList.list.removeFirst();
+        assert element != null;
+        this.size--;
+        // This is the weighted fair part: the virtual time advances to the start of the element
+        // being served, and the producer's next element starts once this one would have finished
+        this.virtualTime = tList.startTag;
+        tList.finishTag = tList.startTag + 1.0 / getWeight(tList);
+        tList.startTag = tList.finishTag;
+        return element;
+    }
+    
+    private double getWeight(ProducerList<E> tList) {
+        JobSchedule schedule = tList.schedule;
+        int tenantProducerCount = this.tenantProducerCounts.get(schedule.getTenantId());
+        return (double)schedule.getPriority().getWeight() * schedule.getTenantWeight() / tenantProducerCount;
+    }
+    
+    private void removeIfEmpty(ProducerList<E> tList) {
+        if (tList.list.isEmpty()) {
+            this.producerMap.remove(tList.producer);
+            Object tenantId = tList.schedule.getTenantId();
+            int count = this.tenantProducerCounts.get(tenantId);
+            if (count == 1) {
+                this.tenantProducerCounts.remove(tenantId);
+            } else {
+                this.tenantProducerCounts.put(tenantId, count - 1);
+            }
+        }
+    }
+
+    private static class ProducerList<E> {
+        public ProducerList(Object producer, JobSchedule schedule) {
+            this.producer = producer;
+            this.schedule = schedule;
+            this.list = new LinkedList<E>();
+        }
+        
+        private final Object producer;
+        private final JobSchedule schedule;
+        private final LinkedList<E> list;
+        private double startTag;
+        private double finishTag;
+    }
+
+    private final Map<Object,ProducerList<E>> producerMap;
+    private final Map<Object,Integer> tenantProducerCounts;
+    private final Object lock;
+    private final int maxSize;
+    private double virtualTime;
+    private int size;
+}
@@ -27,6 +27,10 @@
  ******************************************************************************/
 package com.salesforce.phoenix.job;
 
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,18 +38,21 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * 
- * Thread pool executor that executes scans in parallel
+ * Thread pool executor that executes scans in parallel. Tasks are queued in weighted
+ * fair order based on the {@link JobSchedule} of their job, see {@link AbstractWeightedFairQueue}.
+ * Tasks of a job that has as many tasks executing as the maximum concurrency of its schedule
+ * are held back by the executor until one of them finishes.
  *
  * @author jtaylor
  * @since 0.1
  */
 @SuppressWarnings("rawtypes")
-public class JobManager<T> extends AbstractRoundRobinQueue<T> {
+public class JobManager<T> extends AbstractWeightedFairQueue<T> {
 	
     private static final AtomicLong PHOENIX_POOL_INDEX = new AtomicLong(1);
 	
     public JobManager(int maxSize) {
-        super(maxSize, true); // true -> new producers move to front of queue; this reduces latency.
+        super(maxSize);
     }
 
 	@Override
@@ -53,6 +60,11 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         return ((JobFutureTask)o).getJobId();
     }        
 
+    @Override
+    protected JobSchedule extractSchedule(T o) {
+        return ((JobFutureTask)o).getJobSchedule();
+    }
+
     public static interface JobRunnable<T> extends Runnable {
         public Object getJobId();
     }
@@ -68,33 +80,139 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
 				"phoenix-" + PHOENIX_POOL_INDEX.getAndIncrement()
 						+ "-thread-%s").build();
         // For thread pool, set core threads = max threads -- we don't ever want to exceed core threads, but want to go up to core threads *before* using the queue.
-        ThreadPoolExecutor exec = new ThreadPoolExecutor(size, size, keepAliveMs, TimeUnit.MILLISECONDS, queue, threadFactory) {
-            @Override
-            protected <T> RunnableFuture<T> newTaskFor(Callable<T> call) {
-                // Override this so we can create a JobFutureTask so we can extract out the parentJobId (otherwise, in the default FutureTask, it is private). 
-                return new JobFutureTask<T>(call);
-            }
-    
-            @Override
-            protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
-                return new JobFutureTask<T>((JobRunnable)runnable, value);
-            }
-            
-        };
+        ThreadPoolExecutor exec = new JobThreadPoolExecutor(size, keepAliveMs, queue, threadFactory);
         
         exec.allowCoreThreadTimeOut(true); // ... and allow core threads to time out.  This just keeps things clean when idle, and is nice for ftests modes, etc., where we'd especially like these not to linger.
         return exec;
     }
 
     /**
-     * Subclasses FutureTask for the sole purpose of providing {@link #getCallable()}, which is used to extract the producer in the {@link JobBasedRoundRobinQueue}
+     * Executor that limits the number of tasks of each job executing at once to the maximum concurrency
+     * of its {@link JobSchedule}. The limit is enforced here rather than by the queue, as a task is handed
+     * straight to a new thread without going through the queue while the pool is below its core size.
+     * Tasks over the limit are held back and executed one at a time as the tasks of their job finish.
+     */
+    private static class JobThreadPoolExecutor extends ThreadPoolExecutor {
+        private final Map<Object,JobState> jobStates = new HashMap<Object,JobState>();
+        
+        private static class JobState {
+            private final LinkedList<Runnable> heldTasks = new LinkedList<Runnable>();
+            private int executing;
+        }
+        
+        private JobThreadPoolExecutor(int size, int keepAliveMs, BlockingQueue<Runnable> queue, ThreadFactory threadFactory) {
+            super(size, size, keepAliveMs, TimeUnit.MILLISECONDS, queue, threadFactory);
+        }
+        
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> call) {
+            // Override this so we can create a JobFutureTask so we can extract out the parentJobId (otherwise, in the default FutureTask, it is private). 
+            return new JobFutureTask<T>(call);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return new JobFutureTask<T>((JobRunnable)runnable, value);
+        }
+        
+        private static JobFutureTask<?> getLimitedTask(Runnable command) {
+            if (command instanceof JobFutureTask) {
+                JobFutureTask<?> task = (JobFutureTask<?>)command;
+                if (task.getJobSchedule().getMaxConcurrency() > 0) {
+                    return task;
+                }
+            }
+            return null;
+        }
+        
+        @Override
+        public void execute(Runnable command) {
+            JobFutureTask<?> task = getLimitedTask(command);
+            if (task != null) {
+                synchronized (jobStates) {
+                    JobState state = jobStates.get(task.getJobId());
+                    if (state == null) {
+                        state = new JobState();
+                        jobStates.put(task.getJobId(), state);
+                    }
+                    if (state.executing >= task.getJobSchedule().getMaxConcurrency()) {
+                        state.heldTasks.add(task);
+                        return;
+                    }
+                    state.executing++;
+                }
+            }
+            boolean success = false;
+            try {
+                super.execute(command);
+                success = true;
+            } finally {
+                if (!success && task != null) {
+                    taskFinished(task.getJobId());
+                }
+            }
+        }
+        
+        @Override
+        protected void afterExecute(Runnable r, Throwable t) {
+            super.afterExecute(r, t);
+            JobFutureTask<?> task = getLimitedTask(r);
+            if (task != null) {
+                taskFinished(task.getJobId());
+            }
+        }
+        
+        /**
+         * Releases the slot of a finished task of the job, executing a held back task of the job in its place.
+         */
+        private void taskFinished(Object jobId) {
+            Runnable heldTask;
+            synchronized (jobStates) {
+                JobState state = jobStates.get(jobId);
+                if (state == null) {
+                    return;
+                }
+                heldTask = state.heldTasks.poll();
+                if (heldTask == null && --state.executing == 0) {
+                    jobStates.remove(jobId);
+                }
+            }
+            if (heldTask != null) {
+                try {
+                    super.execute(heldTask);
+                } catch (RejectedExecutionException e) {
+                    // Fail the task rather than leave its future waiting forever
+                    ((FutureTask<?>)heldTask).cancel(false);
+                    taskFinished(jobId);
+                }
+            }
+        }
+        
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> tasks = super.shutdownNow();
+            synchronized (jobStates) {
+                for (JobState state : jobStates.values()) {
+                    tasks.addAll(state.heldTasks);
+                }
+                jobStates.clear();
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Subclasses FutureTask for the sole purpose of providing {@link #getJobId()} and {@link #getJobSchedule()},
+     * which are used to schedule the task in the {@link AbstractWeightedFairQueue}
      */
     static class JobFutureTask<T> extends FutureTask<T> {
         private final Object jobId;
+        private final JobSchedule jobSchedule;
         
         public JobFutureTask(JobRunnable r, T t) {
             super(r, t);
             this.jobId = r.getJobId();
+            this.jobSchedule = JobSchedule.DEFAULT;
         }
         
         public JobFutureTask(Callable<T> c) {
@@ -105,11 +223,20 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
             } else {
                 this.jobId = this;
             }
+            if (c instanceof ScheduledJobCallable) {
+                this.jobSchedule = ((ScheduledJobCallable<T>) c).getJobSchedule();
+            } else {
+                this.jobSchedule = JobSchedule.DEFAULT;
+            }
         }
         
         public Object getJobId() {
             return jobId;
         }
+        
+        public JobSchedule getJobSchedule() {
+            return jobSchedule;
+        }
     }
 
 
@@ -119,5 +246,12 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
     public static interface JobCallable<T> extends Callable<T> {
         public Object getJobId();
     }
-}
 
+    /**
+     * Callable whose tasks are scheduled according to the {@link JobSchedule} of its job instead of
+     * {@link JobSchedule#DEFAULT}. All callables of the same job must return the same schedule.
+     */
+    public static interface ScheduledJobCallable<T> extends JobCallable<T> {
+        public JobSchedule getJobSchedule();
+    }
+}
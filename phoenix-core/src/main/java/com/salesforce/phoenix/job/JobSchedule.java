@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.job;
+
+/**
+ * 
+ * Describes how the tasks of a job are scheduled by the {@link JobManager} relative to the
+ * tasks of other jobs: the priority class of the job, the tenant on behalf of which it runs
+ * and the weight of that tenant, and the maximum number of its tasks that may run at once.
+ * The weight of a tenant is shared by all of its jobs competing for threads, so that a tenant
+ * cannot get a larger share of the executor by issuing more queries.
+ *
+ * @since 3.0.0
+ */
+public class JobSchedule {
+    public static final int NO_CONCURRENCY_LIMIT = 0;
+    public static final JobSchedule DEFAULT = new JobSchedule(JobPriority.NORMAL, null, 1, NO_CONCURRENCY_LIMIT);
+    
+    private final JobPriority priority;
+    private final Object tenantId;
+    private final int tenantWeight;
+    private final int maxConcurrency;
+    
+    /**
+     * @param priority the priority class of the job
+     * @param tenantId the tenant on behalf of which the job is run or null if not applicable
+     * @param tenantWeight the relative weight of the tenant, which must be positive
+     * @param maxConcurrency the maximum number of tasks of the job executing at once. A non
+     * positive value such as {@link #NO_CONCURRENCY_LIMIT} means no limit.
+     */
+    public JobSchedule(JobPriority priority, Object tenantId, int tenantWeight, int maxConcurrency) {
+        if (tenantWeight <= 0) {
+            throw new IllegalArgumentException("Tenant weight must be positive, but was " + tenantWeight);
+        }
+        this.priority = priority;
+        this.tenantId = tenantId;
+        this.tenantWeight = tenantWeight;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public JobPriority getPriority() {
+        return priority;
+    }
+
+    public Object getTenantId() {
+        return tenantId;
+    }
+
+    public int getTenantWeight() {
+        return tenantWeight;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+    
+    @Override
+    public String toString() {
+        return "JobSchedule[priority=" + priority + ",tenantId=" + tenantId + ",tenantWeight=" + tenantWeight + ",maxConcurrency=" + maxConcurrency + "]";
+    }
+}
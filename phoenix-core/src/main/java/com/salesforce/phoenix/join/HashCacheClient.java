@@ -29,9 +29,14 @@ package com.salesforce.phoenix.join;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.WritableUtils;
@@ -39,6 +44,7 @@ import org.xerial.snappy.Snappy;
 
 import com.salesforce.phoenix.cache.ServerCacheClient;
 import com.salesforce.phoenix.cache.ServerCacheClient.ServerCache;
+import com.salesforce.phoenix.compile.QueryPlan;
 import com.salesforce.phoenix.compile.ScanRanges;
 import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.ExpressionType;
@@ -48,6 +54,7 @@ import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.TableRef;
 import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
 import com.salesforce.phoenix.util.ServerUtil;
 import com.salesforce.phoenix.util.TrustedByteArrayOutputStream;
 import com.salesforce.phoenix.util.TupleUtil;
@@ -89,6 +96,70 @@ public class HashCacheClient  {
         return serverCache.addServerCache(keyRanges, ptr, new HashCacheFactory(), cacheUsingTableRef);
     }
     
+    /**
+     * Send the results of the hash plan to the region servers as a cache that is kept for
+     * use by later queries, unless each of the region servers already holds the cache.
+     * @param cacheId identifier derived from the hash plan by {@link #getCacheId(QueryPlan, List)}
+     * @param hashPlan plan for the table or intermediate results being cached, which is
+     * only executed if the cache needs to be sent
+     * @return client-side {@link ServerCache} representing the added or existing hash cache
+     * @throws SQLException 
+     * @throws MaxServerCacheSizeExceededException if size of hash cache exceeds max allowed
+     * size
+     */
+    public ServerCache addHashCache(ScanRanges keyRanges, byte[] cacheId, QueryPlan hashPlan, List<Expression> onExpressions, TableRef cacheUsingTableRef) throws SQLException {
+        ServerCache cache = serverCache.getReusableServerCache(keyRanges, cacheId, cacheUsingTableRef);
+        if (cache != null) {
+            return cache;
+        }
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        serialize(ptr, hashPlan.iterator(), hashPlan.getEstimatedSize(), onExpressions);
+        return serverCache.addReusableServerCache(keyRanges, cacheId, ptr, new HashCacheFactory(), cacheUsingTableRef);
+    }
+    
+    /**
+     * Derive the identifier of a reusable hash cache from what determines its content: the scan
+     * and explain plan of the hash plan, the time stamp of the tables it reads, the join
+     * expressions and, if set, the SCN of the connection. Without an SCN, the time range of the
+     * scan is left out so that queries compiled at different times share the cache.
+     * @param hashPlan plan for the table or intermediate results being cached
+     * @param onExpressions the expressions evaluated against each row to build the hash key
+     * @return the identifier of the cache
+     */
+    public byte[] getCacheId(QueryPlan hashPlan, List<Expression> onExpressions) throws SQLException {
+        PhoenixConnection connection = serverCache.getConnection();
+        try {
+            TrustedByteArrayOutputStream baOut = new TrustedByteArrayOutputStream(1024);
+            DataOutputStream out = new DataOutputStream(baOut);
+            Bytes.writeByteArray(out, connection.getTenantId() == null ? ByteUtil.EMPTY_BYTE_ARRAY : connection.getTenantId().getBytes());
+            out.writeLong(connection.getSCN() == null ? HConstants.LATEST_TIMESTAMP : connection.getSCN());
+            for (TableRef tableRef : hashPlan.getContext().getResolver().getTables()) {
+                Bytes.writeByteArray(out, tableRef.getTable().getPhysicalName().getBytes());
+                out.writeLong(tableRef.getTable().getTimeStamp());
+                out.writeLong(tableRef.getTable().getSequenceNumber());
+            }
+            Scan scan = new Scan(hashPlan.getContext().getScan());
+            scan.setTimeRange(0, HConstants.LATEST_TIMESTAMP);
+            scan.write(out);
+            for (String step : hashPlan.getExplainPlan().getPlanSteps()) {
+                out.writeUTF(step);
+            }
+            out.writeInt(onExpressions.size());
+            for (Expression expression : onExpressions) {
+                WritableUtils.writeVInt(out, ExpressionType.valueOf(expression).ordinal());
+                expression.write(out);                
+            }
+            out.close();
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(baOut.getBuffer(), 0, baOut.size());
+            return Arrays.copyOf(digest.digest(), ServerCacheClient.UUID_LENGTH);
+        } catch (IOException e) {
+            throw ServerUtil.parseServerException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new SQLException(e);
+        }
+    }
+    
     private void serialize(ImmutableBytesWritable ptr, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions) throws SQLException {
         long maxSize = serverCache.getConnection().getQueryServices().getProps().getLong(QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_SIZE);
         estimatedSize = Math.min(estimatedSize, maxSize);
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 
+ * Metrics aggregated across all statements executed in this JVM, registered
+ * with the platform MBean server under {@link #OBJECT_NAME}.
+ *
+ * @since 3.0.0
+ */
+public class GlobalMetrics implements GlobalMetricsMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(GlobalMetrics.class);
+    public static final String OBJECT_NAME = "com.salesforce.phoenix:type=GlobalMetrics";
+    
+    private static final GlobalMetrics INSTANCE = new GlobalMetrics();
+    
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Loaded by more than one class loader, in which case the first one wins
+            logger.info("Phoenix metrics already registered under " + OBJECT_NAME);
+        } catch (JMException e) {
+            logger.warn("Unable to register Phoenix metrics under " + OBJECT_NAME, e);
+        }
+    }
+    
+    private final AtomicLong statementCount = new AtomicLong();
+    private final AtomicLongArray values = new AtomicLongArray(MetricType.values().length);
+    
+    private GlobalMetrics() {
+    }
+    
+    public static GlobalMetrics getInstance() {
+        return INSTANCE;
+    }
+    
+    static void update(MetricType type, long delta) {
+        INSTANCE.values.addAndGet(type.ordinal(), delta);
+    }
+    
+    /**
+     * Create the metrics for the execution of a new statement
+     */
+    public static StatementMetrics newStatementMetrics() {
+        INSTANCE.statementCount.incrementAndGet();
+        return new StatementMetrics();
+    }
+    
+    public long get(MetricType type) {
+        return values.get(type.ordinal());
+    }
+
+    @Override
+    public long getStatementCount() {
+        return statementCount.get();
+    }
+
+    @Override
+    public long getScanCount() {
+        return get(MetricType.SCAN_COUNT);
+    }
+
+    @Override
+    public long getScanRpcCount() {
+        return get(MetricType.SCAN_RPC_COUNT);
+    }
+
+    @Override
+    public long getScanRowCount() {
+        return get(MetricType.SCAN_ROW_COUNT);
+    }
+
+    @Override
+    public long getScanBytes() {
+        return get(MetricType.SCAN_BYTES);
+    }
+
+    @Override
+    public long getSpoolBytes() {
+        return get(MetricType.SPOOL_BYTES);
+    }
+
+    @Override
+    public long getMemoryWaitTimeMs() {
+        return get(MetricType.MEMORY_WAIT_TIME_MS);
+    }
+
+    @Override
+    public long getHashCacheBytes() {
+        return get(MetricType.HASH_CACHE_BYTES);
+    }
+
+    @Override
+    public long getMutationBatchCount() {
+        return get(MetricType.MUTATION_BATCH_COUNT);
+    }
+
+    @Override
+    public long getMutationRowCount() {
+        return get(MetricType.MUTATION_ROW_COUNT);
+    }
+
+    @Override
+    public long getMutationCommitTimeMs() {
+        return get(MetricType.MUTATION_COMMIT_TIME_MS);
+    }
+
+    @Override
+    public void reset() {
+        statementCount.set(0);
+        for (int i = 0; i < values.length(); i++) {
+            values.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.monitoring;
+
+/**
+ * 
+ * Counters collected for each executed statement by {@link StatementMetrics}
+ * and aggregated across all statements by {@link GlobalMetrics}.
+ *
+ * @since 3.0.0
+ */
+public enum MetricType {
+    SCAN_COUNT("Number of parallel scans executed, one per region or region chunk"),
+    SCAN_RPC_COUNT("Number of scanner RPCs made to region servers, as derived from the scanner caching"),
+    SCAN_ROW_COUNT("Number of rows returned by region servers"),
+    SCAN_BYTES("Number of KeyValue bytes returned by region servers"),
+    SPOOL_BYTES("Number of bytes of scan results spooled to disk on the client"),
+    MEMORY_WAIT_TIME_MS("Time in milliseconds spent allocating memory from the client memory manager"),
+    HASH_CACHE_BYTES("Number of bytes of hash join caches sent to region servers"),
+    MUTATION_BATCH_COUNT("Number of batches of mutations committed"),
+    MUTATION_ROW_COUNT("Number of rows committed"),
+    MUTATION_COMMIT_TIME_MS("Time in milliseconds spent committing batches of mutations");
+    
+    private final String description;
+    
+    private MetricType(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
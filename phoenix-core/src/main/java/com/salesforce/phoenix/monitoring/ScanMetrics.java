@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.monitoring;
+
+/**
+ * 
+ * Counters for a single completed parallel scan of a statement.
+ *
+ * @since 3.0.0
+ */
+public class ScanMetrics {
+    private final long rowCount;
+    private final long byteCount;
+    private final long rpcCount;
+    
+    public ScanMetrics(long rowCount, long byteCount, long rpcCount) {
+        this.rowCount = rowCount;
+        this.byteCount = byteCount;
+        this.rpcCount = rpcCount;
+    }
+
+    /**
+     * @return the number of rows returned by the scan
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of KeyValue bytes returned by the scan
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return the number of RPCs made by the scan
+     */
+    public long getRpcCount() {
+        return rpcCount;
+    }
+
+    @Override
+    public String toString() {
+        return "rows=" + rowCount + ", bytes=" + byteCount + ", rpcs=" + rpcCount;
+    }
+}
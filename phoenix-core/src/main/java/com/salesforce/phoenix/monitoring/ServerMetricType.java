@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.monitoring;
+
+/**
+ * 
+ * Metrics collected on the region servers by the Phoenix coprocessors through {@link ServerMetrics}.
+ * A histogram metric records the distribution of the values it is updated with, while a counter
+ * metric sums them.
+ *
+ * @since 3.0.0
+ */
+public enum ServerMetricType {
+    SCANNER_OPEN_TIME_MS("scannerOpenTimeMs", "Time spent opening a scanner in a Phoenix region observer, which includes aggregating the region for an unordered GROUP BY", true),
+    GROUPED_AGGREGATE_TIME_MS("groupedAggregateTimeMs", "Time spent aggregating a region for an unordered GROUP BY", true),
+    UNGROUPED_AGGREGATE_TIME_MS("ungroupedAggregateTimeMs", "Time spent aggregating a region for an aggregate query without GROUP BY", true),
+    GROUP_BY_SPILL_COUNT("groupBySpillCount", "Number of GROUP BY entries spilled to disk", false),
+    SERVER_CACHE_BYTES("serverCacheBytes", "Size in bytes of each hash join or index metadata cache added", true),
+    INDEX_WRITE_TIME_MS("indexWriteTimeMs", "Time spent writing the index updates of a batch of mutations", true),
+    INDEX_UPDATE_COUNT("indexUpdateCount", "Number of index updates written", false);
+    
+    private final String metricName;
+    private final String description;
+    private final boolean isHistogram;
+    
+    private ServerMetricType(String metricName, String description, boolean isHistogram) {
+        this.metricName = metricName;
+        this.description = description;
+        this.isHistogram = isHistogram;
+    }
+    
+    /**
+     * @return the name under which the metric is published to the HBase metrics system
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public boolean isHistogram() {
+        return isHistogram;
+    }
+}
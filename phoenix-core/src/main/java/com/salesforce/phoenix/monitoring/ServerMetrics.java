@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.monitoring;
+
+import javax.management.ObjectName;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.metrics.MetricsMBeanBase;
+import org.apache.hadoop.hbase.metrics.histogram.MetricsHistogram;
+import org.apache.hadoop.metrics.MetricsContext;
+import org.apache.hadoop.metrics.MetricsRecord;
+import org.apache.hadoop.metrics.MetricsUtil;
+import org.apache.hadoop.metrics.Updater;
+import org.apache.hadoop.metrics.util.MBeanUtil;
+import org.apache.hadoop.metrics.util.MetricsBase;
+import org.apache.hadoop.metrics.util.MetricsLongValue;
+import org.apache.hadoop.metrics.util.MetricsRegistry;
+import org.apache.hadoop.metrics.util.MetricsTimeVaryingLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.salesforce.phoenix.memory.MemoryManager;
+import com.salesforce.phoenix.query.QueryServices;
+
+/**
+ * 
+ * Metrics of the Phoenix coprocessors on a region server, published through the HBase
+ * metrics system under the "hbase" context with a record named "phoenix" and through
+ * JMX as the "hadoop:service=Phoenix,name=ServerMetrics" bean. Also passed on to the {@link ServerMetricsSink}
+ * configured through {@link QueryServices#SERVER_METRICS_SINK_CLASS_ATTRIB}, if any.
+ *
+ * @since 3.0.0
+ */
+public class ServerMetrics implements Updater {
+    private static final Logger logger = LoggerFactory.getLogger(ServerMetrics.class);
+    private static volatile ServerMetrics INSTANCE;
+    
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final MetricsBase[] metrics = new MetricsBase[ServerMetricType.values().length];
+    private final MetricsLongValue globalMemoryUsedBytes = new MetricsLongValue("globalMemoryUsedBytes", registry, "Memory in bytes used by server caches and aggregations");
+    private final MetricsRecord metricsRecord;
+    private final ObjectName mbeanName;
+    private volatile MemoryManager globalMemoryManager;
+    private volatile Configuration config;
+    private volatile String sinkClassName;
+    private volatile ServerMetricsSink sink;
+    
+    private static class ServerMetricsMBean extends MetricsMBeanBase {
+        private ServerMetricsMBean(MetricsRegistry registry) {
+            super(registry, "Phoenix coprocessor metrics");
+        }
+    }
+    
+    /**
+     * Get the metrics of this region server. The {@link ServerMetricsSink} is looked up again
+     * whenever a different configuration is passed in, since a mini cluster may be restarted
+     * with different settings within the same JVM.
+     */
+    public static ServerMetrics getInstance(Configuration config) {
+        ServerMetrics instance = INSTANCE;
+        if (instance == null) {
+            synchronized (ServerMetrics.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ServerMetrics();
+                }
+                instance = INSTANCE;
+            }
+        }
+        if (instance.config != config) {
+            instance.setConfig(config);
+        }
+        return instance;
+    }
+    
+    private ServerMetrics() {
+        for (ServerMetricType type : ServerMetricType.values()) {
+            metrics[type.ordinal()] = type.isHistogram() 
+                    ? new MetricsHistogram(type.getMetricName(), registry, type.getDescription())
+                    : new MetricsTimeVaryingLong(type.getMetricName(), registry, type.getDescription());
+        }
+        MetricsContext context = MetricsUtil.getContext("hbase");
+        metricsRecord = MetricsUtil.createRecord(context, "phoenix");
+        context.registerUpdater(this);
+        mbeanName = MBeanUtil.registerMBean("Phoenix", "ServerMetrics", new ServerMetricsMBean(registry));
+    }
+    
+    private synchronized void setConfig(Configuration config) {
+        String className = config.get(QueryServices.SERVER_METRICS_SINK_CLASS_ATTRIB);
+        if (className == null ? sinkClassName != null : !className.equals(sinkClassName)) {
+            ServerMetricsSink sink = null;
+            Class<? extends ServerMetricsSink> sinkClass = config.getClass(QueryServices.SERVER_METRICS_SINK_CLASS_ATTRIB, null, ServerMetricsSink.class);
+            if (sinkClass != null) {
+                try {
+                    sink = sinkClass.newInstance();
+                } catch (Exception e) {
+                    logger.warn("Unable to instantiate metrics sink " + className, e);
+                }
+            }
+            this.sink = sink;
+            this.sinkClassName = className;
+        }
+        this.config = config;
+    }
+    
+    /**
+     * Record a value for the given metric, which is either added to its histogram or to its count.
+     */
+    public void update(ServerMetricType type, long value) {
+        MetricsBase metric = metrics[type.ordinal()];
+        if (type.isHistogram()) {
+            ((MetricsHistogram)metric).update(value);
+        } else {
+            ((MetricsTimeVaryingLong)metric).inc(value);
+        }
+        ServerMetricsSink sink = this.sink;
+        if (sink != null) {
+            sink.update(type, value);
+        }
+    }
+    
+    /**
+     * Set the memory manager of the {@link com.salesforce.phoenix.cache.GlobalCache} whose
+     * used memory is published upon each update of the metrics.
+     */
+    public void setGlobalMemoryManager(MemoryManager memoryManager) {
+        this.globalMemoryManager = memoryManager;
+    }
+    
+    /**
+     * @return the histogram of the given metric
+     */
+    public MetricsHistogram getHistogram(ServerMetricType type) {
+        return (MetricsHistogram)metrics[type.ordinal()];
+    }
+    
+    @Override
+    public void doUpdates(MetricsContext context) {
+        synchronized (registry) {
+            MemoryManager memoryManager = globalMemoryManager;
+            if (memoryManager != null) {
+                globalMemoryUsedBytes.set(memoryManager.getMaxMemory() - memoryManager.getAvailableMemory());
+            }
+            for (MetricsBase metric : registry.getMetricsList()) {
+                metric.pushMetric(metricsRecord);
+            }
+        }
+        metricsRecord.update();
+    }
+    
+    /**
+     * @return the name under which the metrics are registered with JMX
+     */
+    public ObjectName getMBeanName() {
+        return mbeanName;
+    }
+}
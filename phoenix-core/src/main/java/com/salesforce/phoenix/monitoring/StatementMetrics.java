@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.monitoring;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 
+ * Metrics collected while executing a single statement, accessible through
+ * {@link com.salesforce.phoenix.util.PhoenixRuntime#getStatementMetrics(java.sql.Statement)}.
+ * Every update is also applied to the {@link GlobalMetrics}. Counters are updated at
+ * the granularity of a scan, spool, cache or commit rather than per row, so that
+ * collection may be left on in production.
+ *
+ * @since 3.0.0
+ */
+public class StatementMetrics {
+    private static final MetricType[] METRIC_TYPES = MetricType.values();
+    
+    private final AtomicLongArray values = new AtomicLongArray(METRIC_TYPES.length);
+    private final ConcurrentMap<String, ScanMetrics> scanMetrics = new ConcurrentSkipListMap<String, ScanMetrics>();
+    
+    public void update(MetricType type, long delta) {
+        values.addAndGet(type.ordinal(), delta);
+        GlobalMetrics.update(type, delta);
+    }
+    
+    /**
+     * Record the counters of a completed parallel scan.
+     * @param scanName name identifying the scan, derived from its start row
+     */
+    public void updateScan(String scanName, long rowCount, long byteCount, long rpcCount) {
+        update(MetricType.SCAN_COUNT, 1);
+        update(MetricType.SCAN_ROW_COUNT, rowCount);
+        update(MetricType.SCAN_BYTES, byteCount);
+        update(MetricType.SCAN_RPC_COUNT, rpcCount);
+        scanMetrics.put(scanName, new ScanMetrics(rowCount, byteCount, rpcCount));
+    }
+    
+    public long get(MetricType type) {
+        return values.get(type.ordinal());
+    }
+    
+    /**
+     * @return a snapshot of all counters
+     */
+    public Map<MetricType, Long> getMetrics() {
+        Map<MetricType, Long> metrics = new EnumMap<MetricType, Long>(MetricType.class);
+        for (MetricType type : METRIC_TYPES) {
+            metrics.put(type, values.get(type.ordinal()));
+        }
+        return metrics;
+    }
+    
+    /**
+     * @return the counters of each completed parallel scan, keyed by the
+     * start row of the scan
+     */
+    public Map<String, ScanMetrics> getScanMetrics() {
+        return Collections.unmodifiableMap(scanMetrics);
+    }
+
+    @Override
+    public String toString() {
+        return getMetrics().toString();
+    }
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.optimize;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.salesforce.phoenix.compile.QueryPlan;
+import com.salesforce.phoenix.compile.ScanRanges;
+import com.salesforce.phoenix.compile.StatementContext;
+import com.salesforce.phoenix.query.ConnectionQueryServices;
+import com.salesforce.phoenix.query.KeyRange;
+import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.query.StatsManager;
+import com.salesforce.phoenix.schema.PColumn;
+import com.salesforce.phoenix.schema.PColumnFamily;
+import com.salesforce.phoenix.schema.PTable;
+import com.salesforce.phoenix.schema.TableRef;
+import com.salesforce.phoenix.schema.ValueSchema;
+import com.salesforce.phoenix.util.SchemaUtil;
+
+
+/**
+ * 
+ * Estimates the {@link Cost} of a query plan from the size of the regions of its table,
+ * as collected by the {@link StatsManager}. The bytes of each region that intersects the
+ * scan are counted in proportion to the part of the region's key space the scan covers,
+ * assuming keys are evenly distributed between the region boundaries. The row count is
+ * derived from the estimated size of a row, except for point lookups where it's the number
+ * of keys looked up.
+ *
+ * @since 3.0.0
+ */
+public class CostEstimator {
+    // Number of bytes following the common prefix of the boundaries used to interpolate a key
+    private static final int INTERPOLATION_BYTES = 8;
+    
+    private CostEstimator() {
+    }
+    
+    /**
+     * Estimate the cost of a plan.
+     * @param plan the plan
+     * @return the estimated cost or null if statistics are not available for the table of the plan
+     * @throws SQLException
+     */
+    public static Cost estimate(QueryPlan plan) throws SQLException {
+        StatementContext context = plan.getContext();
+        ScanRanges scanRanges = context.getScanRanges();
+        if (scanRanges.isDegenerate()) {
+            return Cost.ZERO;
+        }
+        TableRef tableRef = plan.getTableRef();
+        PTable table = tableRef.getTable();
+        ConnectionQueryServices services = context.getConnection().getQueryServices();
+        StatsManager statsManager = services.getStatsManager();
+        Map<String,Long> regionSizes = statsManager.getRegionSizes(tableRef);
+        if (regionSizes == null) {
+            return null;
+        }
+        byte[] minKey = statsManager.getMinKey(tableRef);
+        byte[] maxKey = statsManager.getMaxKey(tableRef);
+        Scan scan = context.getScan();
+        KeyRange scanRange = KeyRange.getKeyRange(scan.getStartRow(), scan.getStopRow());
+        List<HRegionLocation> regions = services.getAllTableRegions(table.getPhysicalName().getBytes());
+        double byteCount = 0;
+        for (HRegionLocation region : regions) {
+            HRegionInfo regionInfo = region.getRegionInfo();
+            Long regionSize = regionSizes.get(regionInfo.getRegionNameAsString());
+            if (regionSize == null) { // Regions have changed since the statistics were collected
+                return null;
+            }
+            KeyRange regionRange = KeyRange.getKeyRange(regionInfo.getStartKey(), regionInfo.getEndKey());
+            KeyRange range = regionRange.intersect(scanRange);
+            if (range == KeyRange.EMPTY_RANGE || !scanRanges.intersect(regionInfo.getStartKey(), regionInfo.getEndKey())) {
+                continue;
+            }
+            byte[] lowerBound = regionInfo.getStartKey().length == 0 && minKey != null ? minKey : regionInfo.getStartKey();
+            byte[] upperBound = regionInfo.getEndKey().length == 0 && maxKey != null ? maxKey : regionInfo.getEndKey();
+            byteCount += regionSize * getCoveredFraction(lowerBound, upperBound, range.getLowerRange(), range.getUpperRange());
+        }
+        int rowSize = estimateRowSize(table);
+        long rowCount = (long)Math.ceil(byteCount / rowSize);
+        long pointKeyCount = getPointKeyCount(scanRanges);
+        if (pointKeyCount >= 0) {
+            // Interpolation is meaningless over the tiny key ranges of point lookups, so assume each key exists
+            rowCount = pointKeyCount;
+            byteCount = rowCount * rowSize;
+        }
+        return new Cost(rowCount, (long)byteCount);
+    }
+    
+    /**
+     * @return the number of row keys matched by the scan ranges if each of them is fully
+     * qualified and -1 otherwise.
+     */
+    private static long getPointKeyCount(ScanRanges scanRanges) {
+        if (scanRanges.isEverything() || scanRanges.isUnion() || scanRanges.getSchema() == null || scanRanges.getRanges().size() < scanRanges.getSchema().getMaxFields()) {
+            return -1;
+        }
+        long count = 1;
+        for (List<KeyRange> slot : scanRanges.getRanges()) {
+            for (KeyRange range : slot) {
+                if (!range.isSingleKey()) {
+                    return -1;
+                }
+            }
+            count *= slot.size();
+        }
+        return count;
+    }
+    
+    /**
+     * Estimate the fraction of the key space between the lower and upper bound of a region
+     * covered by a range, by interpolating the bytes of the keys that follow the common
+     * prefix of the bounds.
+     * @param lowerBound the lower inclusive bound of the region or an empty array if unbound
+     * @param upperBound the upper exclusive bound of the region or an empty array if unbound
+     * @param lowerRange the lower inclusive key of the range or an empty array if unbound
+     * @param upperRange the upper exclusive key of the range or an empty array if unbound
+     * @return the fraction between 0 and 1
+     */
+    // Visible for testing
+    static double getCoveredFraction(byte[] lowerBound, byte[] upperBound, byte[] lowerRange, byte[] upperRange) {
+        int prefixLength = 0;
+        if (upperBound.length > 0) {
+            int maxLength = Math.min(lowerBound.length, upperBound.length);
+            while (prefixLength < maxLength && lowerBound[prefixLength] == upperBound[prefixLength]) {
+                prefixLength++;
+            }
+        }
+        double lowerBoundPosition = getPosition(lowerBound, prefixLength, false);
+        double upperBoundPosition = getPosition(upperBound, prefixLength, true);
+        if (upperBoundPosition <= lowerBoundPosition) {
+            return 1;
+        }
+        // Keys outside of the bounds are possible when the bounds come from stale statistics
+        double lowerPosition = Bytes.compareTo(lowerRange, lowerBound) <= 0 ? lowerBoundPosition : getPosition(lowerRange, prefixLength, false);
+        double upperPosition = upperRange.length == 0 || (upperBound.length > 0 && Bytes.compareTo(upperRange, upperBound) >= 0) ? upperBoundPosition : getPosition(upperRange, prefixLength, true);
+        double fraction = (Math.min(upperPosition, upperBoundPosition) - Math.max(lowerPosition, lowerBoundPosition)) / (upperBoundPosition - lowerBoundPosition);
+        return Math.max(0, Math.min(1, fraction));
+    }
+    
+    /**
+     * @return the position of a key past the first offset bytes as a number between 0 and 1
+     */
+    private static double getPosition(byte[] key, int offset, boolean isUpper) {
+        if (isUpper && key.length == 0) {
+            return 1;
+        }
+        double position = 0;
+        double scale = 1;
+        for (int i = offset; i < offset + INTERPOLATION_BYTES && i < key.length; i++) {
+            scale /= 256;
+            position += (key[i] & 0xFF) * scale;
+        }
+        return position;
+    }
+    
+    /**
+     * Estimate the number of bytes a row of the table takes in storage, counting the
+     * KeyValue of each column along with the empty KeyValue.
+     */
+    // Visible for testing
+    static int estimateRowSize(PTable table) {
+        int keyLength = SchemaUtil.estimateKeyLength(table);
+        int kvOverhead = KeyValue.KEYVALUE_INFRASTRUCTURE_SIZE + KeyValue.KEY_INFRASTRUCTURE_SIZE + keyLength;
+        int rowSize = kvOverhead + SchemaUtil.getEmptyColumnFamily(table.getColumnFamilies()).length + QueryConstants.EMPTY_COLUMN_BYTES.length;
+        for (PColumnFamily family : table.getColumnFamilies()) {
+            int familyLength = family.getName().getBytes().length;
+            if (table.isPackedRows()) {
+                // Each family is a single KeyValue with an offset per column
+                rowSize += kvOverhead + familyLength + QueryConstants.PACKED_COLUMN_BYTES.length;
+            }
+            for (PColumn column : family.getColumns()) {
+                Integer byteSize = column.getByteSize();
+                int valueLength = byteSize == null ? ValueSchema.ESTIMATED_VARIABLE_LENGTH_SIZE : byteSize;
+                if (table.isPackedRows()) {
+                    rowSize += valueLength + Bytes.SIZEOF_INT;
+                } else {
+                    rowSize += kvOverhead + familyLength + column.getName().getBytes().length + valueLength;
+                }
+            }
+        }
+        return rowSize;
+    }
+}
@@ -4,8 +4,10 @@ import java.sql.SQLException;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.salesforce.phoenix.compile.ColumnProjector;
 import com.salesforce.phoenix.compile.IndexStatementRewriter;
 import com.salesforce.phoenix.compile.QueryCompiler;
@@ -169,17 +171,19 @@ public class QueryOptimizer {
     
     /**
      * Choose the best plan among all the possible ones.
-     * Since we don't keep stats yet, we use the following simple algorithm:
+     * We use the following algorithm:
      * 1) If the query has an ORDER BY and a LIMIT, choose the plan that has all the ORDER BY expression
      * in the same order as the row key columns.
      * 2) If there are more than one plan that meets (1), choose the plan with:
-     *    a) the most row key columns that may be used to form the start/stop scan key.
-     *    b) the plan that preserves ordering for a group by.
-     *    c) the data table plan
+     *    a) the fewest estimated bytes scanned, when the {@link CostEstimator} has statistics for all of them.
+     *    b) the most row key columns that may be used to form the start/stop scan key.
+     *    c) the plan that preserves ordering for a group by.
+     *    d) the data table plan
      * @param plans the list of candidate plans
      * @return
+     * @throws SQLException 
      */
-    private QueryPlan chooseBestPlan(SelectStatement select, List<QueryPlan> plans) {
+    private QueryPlan chooseBestPlan(SelectStatement select, List<QueryPlan> plans) throws SQLException {
         QueryPlan firstPlan = plans.get(0);
         if (plans.size() == 1) {
             return firstPlan;
@@ -199,12 +203,18 @@ public class QueryOptimizer {
                 candidates.addAll(plans);
             }
         }
+        final Map<QueryPlan,Cost> costs = estimateCosts(candidates);
         final int comparisonOfDataVersusIndexTable = select.getHint().hasHint(Hint.USE_DATA_OVER_INDEX_TABLE) ? -1 : 1;
         Collections.sort(candidates, new Comparator<QueryPlan>() {
 
             @Override
             public int compare(QueryPlan plan1, QueryPlan plan2) {
-                int c = plan2.getContext().getScanRanges().getRanges().size() - plan1.getContext().getScanRanges().getRanges().size();
+                int c;
+                if (costs != null) {
+                    c = costs.get(plan1).compareTo(costs.get(plan2));
+                    if (c != 0) return c;
+                }
+                c = plan2.getContext().getScanRanges().getLeadingBoundSlotCount() - plan1.getContext().getScanRanges().getLeadingBoundSlotCount();
                 if (c != 0) return c;
                 if (plan1.getGroupBy()!=null && plan2.getGroupBy()!=null) {
                     if (plan1.getGroupBy().isOrderPreserving() != plan2.getGroupBy().isOrderPreserving()) {
@@ -234,6 +244,22 @@ public class QueryOptimizer {
         return candidates.get(0);
         
     }
+    
+    /**
+     * @return the estimated cost of each plan or null if it's unknown for any of them,
+     * as costs are only comparable when estimated from the same kind of statistics.
+     */
+    private static Map<QueryPlan,Cost> estimateCosts(List<QueryPlan> plans) throws SQLException {
+        Map<QueryPlan,Cost> costs = Maps.newHashMapWithExpectedSize(plans.size());
+        for (QueryPlan plan : plans) {
+            Cost cost = CostEstimator.estimate(plan);
+            if (cost == null) {
+                return null;
+            }
+            costs.put(plan, cost);
+        }
+        return costs;
+    }
 
     
 }
@@ -83,6 +83,12 @@ public class HintNode {
         * the data table when optimizing.
         */
        USE_INDEX_OVER_DATA_TABLE,
+       /**
+        * Forces the partial aggregates of an unordered GROUP BY
+        * to be combined through a hash table on the client
+        * instead of being sorted and merged.
+        */
+       HASH_AGGREGATE,
     };
 
     private final Map<Hint,String> hints;
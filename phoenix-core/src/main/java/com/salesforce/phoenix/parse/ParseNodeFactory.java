@@ -43,6 +43,8 @@ import com.google.common.collect.Maps;
 import com.salesforce.phoenix.exception.UnknownFunctionException;
 import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.ExpressionType;
+import com.salesforce.phoenix.expression.function.ArrayAllComparisonFunction;
+import com.salesforce.phoenix.expression.function.ArrayAnyComparisonFunction;
 import com.salesforce.phoenix.expression.function.AvgAggregateFunction;
 import com.salesforce.phoenix.expression.function.CountAggregateFunction;
 import com.salesforce.phoenix.expression.function.CurrentDateFunction;
@@ -353,6 +355,14 @@ public class ParseNodeFactory {
     	return function(ARRAY_ELEM, args);
     }
 
+    public FunctionParseNode arrayAny(ParseNode lhs, ParseNode rhs, CompareOp op) {
+        return function(ArrayAnyComparisonFunction.NAME, Arrays.<ParseNode>asList(lhs, rhs, literal(op.name())));
+    }
+
+    public FunctionParseNode arrayAll(ParseNode lhs, ParseNode rhs, CompareOp op) {
+        return function(ArrayAllComparisonFunction.NAME, Arrays.<ParseNode>asList(lhs, rhs, literal(op.name())));
+    }
+
     public FunctionParseNode function(String name, List<ParseNode> args) {
         BuiltInFunctionInfo info = getInfo(name, args);
         Constructor<? extends FunctionParseNode> ctor = info.getNodeCtor();
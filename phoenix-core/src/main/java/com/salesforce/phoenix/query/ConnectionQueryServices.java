@@ -101,6 +101,18 @@ public interface ConnectionQueryServices extends QueryServices, MetaDataMutated
     void addConnection(PhoenixConnection connection) throws SQLException;
     void removeConnection(PhoenixConnection connection) throws SQLException;
 
+    /**
+     * @return the wall clock time at which the cached meta data of the given table was last
+     * confirmed against the server for the given tenant, or 0 if it never was.
+     */
+    long getTableResolvedTime(String tenantId, String fullTableName);
+    void setTableResolvedTime(String tenantId, String fullTableName, long resolvedTime);
+    /**
+     * Forget when the given table was last confirmed against the server for the given tenant,
+     * forcing its next resolution to go to the server.
+     */
+    void clearTableResolvedTime(String tenantId, String fullTableName);
+
     /**
      * @return the {@link KeyValueBuilder} that is valid for the locally installed version of HBase.
      */
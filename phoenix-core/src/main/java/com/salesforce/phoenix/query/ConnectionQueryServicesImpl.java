@@ -103,6 +103,7 @@ import com.salesforce.phoenix.schema.PTableType;
 import com.salesforce.phoenix.schema.ReadOnlyTableException;
 import com.salesforce.phoenix.schema.Sequence;
 import com.salesforce.phoenix.schema.SequenceKey;
+import com.salesforce.phoenix.schema.TableAlreadyExistsException;
 import com.salesforce.phoenix.schema.TableNotFoundException;
 import com.salesforce.phoenix.util.ByteUtil;
 import com.salesforce.phoenix.util.JDBCUtil;
@@ -132,6 +133,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     private int connectionCount = 0;
     
     private ConcurrentMap<SequenceKey,Sequence> sequenceMap = Maps.newConcurrentMap();
+    private final ConcurrentMap<Pair<String,String>,Long> tableResolvedTimes = Maps.newConcurrentMap();
     private KeyValueBuilder kvBuilder;
 
     /**
@@ -168,7 +170,8 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         this.childServices = new ConcurrentHashMap<ImmutableBytesWritable,ConnectionQueryServices>(INITIAL_CHILD_SERVICES_CAPACITY);
         int statsUpdateFrequencyMs = this.getProps().getInt(QueryServices.STATS_UPDATE_FREQ_MS_ATTRIB, QueryServicesOptions.DEFAULT_STATS_UPDATE_FREQ_MS);
         int maxStatsAgeMs = this.getProps().getInt(QueryServices.MAX_STATS_AGE_MS_ATTRIB, QueryServicesOptions.DEFAULT_MAX_STATS_AGE_MS);
-        this.statsManager = new StatsManagerImpl(this, statsUpdateFrequencyMs, maxStatsAgeMs);
+        int maxSkipScanSeekCount = this.getProps().getInt(QueryServices.MAX_SKIP_SCAN_SEEK_COUNT_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SKIP_SCAN_SEEK_COUNT);
+        this.statsManager = new StatsManagerImpl(this, statsUpdateFrequencyMs, maxStatsAgeMs, maxSkipScanSeekCount);
 
         // find the HBase version and use that to determine the KeyValueBuilder that should be used
         String hbaseVersion = VersionInfo.getVersion();
@@ -389,6 +392,22 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         }
     }
 
+    @Override
+    public long getTableResolvedTime(String tenantId, String fullTableName) {
+        Long resolvedTime = tableResolvedTimes.get(new Pair<String,String>(tenantId, fullTableName));
+        return resolvedTime == null ? 0 : resolvedTime;
+    }
+
+    @Override
+    public void setTableResolvedTime(String tenantId, String fullTableName, long resolvedTime) {
+        tableResolvedTimes.put(new Pair<String,String>(tenantId, fullTableName), resolvedTime);
+    }
+
+    @Override
+    public void clearTableResolvedTime(String tenantId, String fullTableName) {
+        tableResolvedTimes.remove(new Pair<String,String>(tenantId, fullTableName));
+    }
+
     @Override
     public PMetaData removeColumn(final String tableName, final String familyName, final String columnName, final long tableTimeStamp, final long tableSeqNum) throws SQLException {
         return metaDataMutated(tableName, tableSeqNum, new Mutator() {
@@ -1019,12 +1038,20 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
             } catch (NewerTableAlreadyExistsException ignore) {
                 // Ignore, as this will happen if the SYSTEM.TABLE already exists at this fixed timestamp.
                 // A TableAlreadyExistsException is not thrown, since the table only exists *after* this fixed timestamp.
+            } catch (TableAlreadyExistsException ignore) {
+                // This will occur if we have an older SYSTEM.TABLE and we need to update it to include
+                // any new columns we've added.
+                metaConnection = addColumnsIfNotExists(metaConnection, MetaDataProtocol.MIN_SYSTEM_TABLE_TIMESTAMP, 
+                        PhoenixDatabaseMetaData.INDEX_DISABLE_TIMESTAMP + " BIGINT, " + PhoenixDatabaseMetaData.PACKED_ROWS + " BOOLEAN");
             }
             try {
                 metaConnection.createStatement().executeUpdate(QueryConstants.CREATE_SEQUENCE_METADATA);
             } catch (NewerTableAlreadyExistsException ignore) {
                 // Ignore, as this will happen if the SYSTEM.SEQUENCE already exists at this fixed timestamp.
                 // A TableAlreadyExistsException is not thrown, since the table only exists *after* this fixed timestamp.
+            } catch (TableAlreadyExistsException ignore) {
+                // Ignore, as this will happen if the SYSTEM.SEQUENCE was created before the last
+                // time MetaDataProtocol.MIN_SYSTEM_TABLE_TIMESTAMP was increased.
             }
         } catch (SQLException e) {
             sqlE = e;
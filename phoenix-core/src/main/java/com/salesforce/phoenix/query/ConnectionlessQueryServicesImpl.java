@@ -43,6 +43,7 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
@@ -88,6 +89,7 @@ import com.salesforce.phoenix.util.SchemaUtil;
 public class ConnectionlessQueryServicesImpl extends DelegateQueryServices implements ConnectionQueryServices  {
     private PMetaData metaData;
     private final Map<SequenceKey, Long> sequenceMap = Maps.newHashMap();
+    private final Map<Pair<String,String>, Long> tableResolvedTimes = Maps.newConcurrentMap();
     private KeyValueBuilder kvBuilder;
     
     public ConnectionlessQueryServicesImpl(QueryServices queryServices) {
@@ -125,6 +127,25 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
             @Override
             public void updateStats(TableRef table) throws SQLException {
             }
+
+            @Override
+            public double getRowSizeRatio(TableRef table, Scan scan) {
+                return 1;
+            }
+
+            @Override
+            public void updateRowSizeRatio(TableRef table, Scan scan, int estimatedRowSize, long rowCount, long byteCount) {
+            }
+
+            @Override
+            public long getLeadingPKCardinality(TableRef table, int pkCount) {
+                return -1;
+            }
+
+            @Override
+            public Map<String,Long> getRegionSizes(TableRef table) {
+                return null;
+            }
         };
     }
 
@@ -150,6 +171,22 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
         return metaData = metaData.removeTable(tableName);
     }
 
+    @Override
+    public long getTableResolvedTime(String tenantId, String fullTableName) {
+        Long resolvedTime = tableResolvedTimes.get(new Pair<String,String>(tenantId, fullTableName));
+        return resolvedTime == null ? 0 : resolvedTime;
+    }
+
+    @Override
+    public void setTableResolvedTime(String tenantId, String fullTableName, long resolvedTime) {
+        tableResolvedTimes.put(new Pair<String,String>(tenantId, fullTableName), resolvedTime);
+    }
+
+    @Override
+    public void clearTableResolvedTime(String tenantId, String fullTableName) {
+        tableResolvedTimes.remove(new Pair<String,String>(tenantId, fullTableName));
+    }
+
     @Override
     public PMetaData removeColumn(String tableName, String familyName, String columnName, long tableTimeStamp,
             long tableSeqNum) throws SQLException {
@@ -100,6 +100,21 @@ public class DelegateConnectionQueryServices extends DelegateQueryServices imple
         return getDelegate().removeTable(tableName);
     }
 
+    @Override
+    public long getTableResolvedTime(String tenantId, String fullTableName) {
+        return getDelegate().getTableResolvedTime(tenantId, fullTableName);
+    }
+
+    @Override
+    public void setTableResolvedTime(String tenantId, String fullTableName, long resolvedTime) {
+        getDelegate().setTableResolvedTime(tenantId, fullTableName, resolvedTime);
+    }
+
+    @Override
+    public void clearTableResolvedTime(String tenantId, String fullTableName) {
+        getDelegate().clearTableResolvedTime(tenantId, fullTableName);
+    }
+
     @Override
     public PMetaData removeColumn(String tableName, String familyName, String columnName, long tableTimeStamp,
             long tableSeqNum) throws SQLException {
@@ -46,6 +46,7 @@ import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.DEFAULT_COLUMN
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.DISABLE_WAL;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.IMMUTABLE_ROWS;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.INCREMENT_BY;
+import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.INDEX_DISABLE_TIMESTAMP;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.INDEX_STATE;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.IS_AUTOINCREMENT;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.IS_NULLABLE;
@@ -53,6 +54,7 @@ import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.MULTI_TENANT;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.NULLABLE;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.NUM_PREC_RADIX;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.ORDINAL_POSITION;
+import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.PACKED_ROWS;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.PK_NAME;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.REF_GENERATION_NAME;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.REMARKS_NAME;
@@ -141,6 +143,11 @@ public interface QueryConstants {
     public static final byte[] EMPTY_COLUMN_BYTES = Bytes.toBytes(EMPTY_COLUMN_NAME);
     public static final ImmutableBytesPtr EMPTY_COLUMN_BYTES_PTR = new ImmutableBytesPtr(
             EMPTY_COLUMN_BYTES);
+    // Qualifier of the single cell holding all column values of a family for tables with PACKED_ROWS
+    public static final String PACKED_COLUMN_NAME = "_P";
+    public static final byte[] PACKED_COLUMN_BYTES = Bytes.toBytes(PACKED_COLUMN_NAME);
+    public static final ImmutableBytesPtr PACKED_COLUMN_BYTES_PTR = new ImmutableBytesPtr(
+            PACKED_COLUMN_BYTES);
     public static final String DEFAULT_COLUMN_FAMILY = EMPTY_COLUMN_NAME;
     public static final byte[] DEFAULT_COLUMN_FAMILY_BYTES = EMPTY_COLUMN_BYTES;
     public static final String ALL_FAMILY_PROPERTIES_KEY = "";
@@ -203,6 +210,8 @@ public interface QueryConstants {
             VIEW_TYPE + " UNSIGNED_TINYINT,\n" +
             BASE_SCHEMA_NAME + " VARCHAR,\n" +
             BASE_TABLE_NAME + " VARCHAR,\n" +
+            INDEX_DISABLE_TIMESTAMP + " BIGINT,\n" +
+            PACKED_ROWS + " BOOLEAN,\n" +
             "CONSTRAINT " + SYSTEM_TABLE_PK_NAME + " PRIMARY KEY (" + TENANT_ID + ","
             + TABLE_SCHEM_NAME + "," + TABLE_NAME_NAME + "," + COLUMN_NAME + "," + TABLE_CAT_NAME + "))\n" +
             HConstants.VERSIONS + "=" + MetaDataProtocol.DEFAULT_MAX_META_DATA_VERSIONS + ",\n" +
@@ -53,8 +53,25 @@ public interface QueryServices extends SQLCloseable {
     public static final String KEEP_ALIVE_MS_ATTRIB = "phoenix.query.keepAliveMs";
     public static final String THREAD_POOL_SIZE_ATTRIB = "phoenix.query.threadPoolSize";
     public static final String QUEUE_SIZE_ATTRIB = "phoenix.query.queueSize";
+    /**
+     * Priority class of the queries of a connection, one of the {@link com.salesforce.phoenix.job.JobPriority}
+     * names. When not set, queries over at most {@link #INTERACTIVE_MAX_SPLITS_ATTRIB} splits are
+     * interactive and other queries are normal.
+     */
+    public static final String QUERY_PRIORITY_ATTRIB = "phoenix.query.priority";
+    public static final String INTERACTIVE_MAX_SPLITS_ATTRIB = "phoenix.query.interactiveMaxSplits";
+    public static final String MAX_CONCURRENT_SPLITS_ATTRIB = "phoenix.query.maxConcurrentSplits";
+    /**
+     * Prefix of the weight of a tenant in the client thread pool, followed by the tenant id
+     */
+    public static final String TENANT_WEIGHT_ATTRIB_PREFIX = "phoenix.query.tenantWeight.";
     public static final String THREAD_TIMEOUT_MS_ATTRIB = "phoenix.query.timeoutMs";
     public static final String SPOOL_THRESHOLD_BYTES_ATTRIB = "phoenix.query.spoolThresholdBytes";
+    /**
+     * Maximum number of rows packed by a region server into each cell it returns for a scan.
+     * Rows are sent as is when not positive.
+     */
+    public static final String COMPACT_ROWS_PER_RESULT_ATTRIB = "phoenix.query.compactRowsPerResult";
     
     /**
 	 * max size to spool the the result into
@@ -66,6 +83,7 @@ public interface QueryServices extends SQLCloseable {
 	 * if the threshold is reached, a {@link SpoolTooBigToDiskException } will be thrown 
 	 */
 	public static final String MAX_SPOOL_TO_DISK_BYTES_ATTRIB = "phoenix.query.maxSpoolToDiskBytes";
+    public static final String SPOOL_COMPRESSION_ATTRIB = "phoenix.query.spoolCompression";
     
     public static final String MAX_MEMORY_PERC_ATTRIB = "phoenix.query.maxGlobalMemoryPercentage";
     public static final String MAX_MEMORY_WAIT_MS_ATTRIB = "phoenix.query.maxGlobalMemoryWaitMs";
@@ -77,11 +95,25 @@ public interface QueryServices extends SQLCloseable {
     public static final String NUMBER_FORMAT_ATTRIB = "phoenix.query.numberFormat";
     public static final String STATS_UPDATE_FREQ_MS_ATTRIB = "phoenix.query.statsUpdateFrequency";
     public static final String MAX_STATS_AGE_MS_ATTRIB = "phoenix.query.maxStatsAge";
+    public static final String MAX_SKIP_SCAN_SEEK_COUNT_ATTRIB = "phoenix.query.maxSkipScanSeekCount";
     public static final String CALL_QUEUE_ROUND_ROBIN_ATTRIB = "ipc.server.callqueue.roundrobin";
     public static final String SCAN_CACHE_SIZE_ATTRIB = "hbase.client.scanner.caching";
+    public static final String SCAN_CACHE_MAX_BYTES_ATTRIB = "phoenix.query.scanCacheMaxBytes";
+    public static final String MAX_SCAN_CACHE_SIZE_ATTRIB = "phoenix.query.maxScanCacheSize";
     public static final String MAX_MUTATION_SIZE_ATTRIB = "phoenix.mutate.maxSize";
     public static final String MUTATE_BATCH_SIZE_ATTRIB = "phoenix.mutate.batchSize";
+    public static final String FILTER_BATCH_SIZE_ATTRIB = "phoenix.coprocessor.filterBatchSize";
     public static final String MAX_SERVER_CACHE_TIME_TO_LIVE_MS = "phoenix.coprocessor.maxServerCacheTimeToLiveMs";
+    public static final String SERVER_CACHE_RELAY_FANOUT_ATTRIB = "phoenix.query.serverCacheRelayFanout";
+    public static final String SERVER_CACHE_RELAY_WAIT_MS_ATTRIB = "phoenix.query.serverCacheRelayWaitMs";
+    public static final String SERVER_CACHE_RELAY_THREADS_ATTRIB = "phoenix.coprocessor.serverCacheRelayThreads";
+    public static final String MAX_TENANT_SCANNERS_ATTRIB = "phoenix.coprocessor.maxTenantScanners";
+    public static final String MAX_TENANT_ROWS_PER_SEC_ATTRIB = "phoenix.coprocessor.maxTenantRowsPerSec";
+    public static final String MAX_TENANT_BYTES_PER_SEC_ATTRIB = "phoenix.coprocessor.maxTenantBytesPerSec";
+    public static final String TENANT_ADMISSION_WAIT_MS_ATTRIB = "phoenix.coprocessor.tenantAdmissionWaitMs";
+    public static final String REUSE_HASH_CACHE_ATTRIB = "phoenix.query.reuseHashCache";
+    public static final String MAX_REUSABLE_SERVER_CACHE_TIME_TO_LIVE_MS = "phoenix.coprocessor.maxReusableServerCacheTimeToLiveMs";
+    public static final String MAX_REUSABLE_SERVER_CACHE_SIZE_ATTRIB = "phoenix.coprocessor.maxReusableServerCacheBytes";
     public static final String MAX_INTRA_REGION_PARALLELIZATION_ATTRIB  = "phoenix.query.maxIntraRegionParallelization";
     public static final String ROW_KEY_ORDER_SALTED_TABLE_ATTRIB  = "phoenix.query.rowKeyOrderSaltedTable";
     public static final String USE_INDEXES_ATTRIB  = "phoenix.query.useIndexes";
@@ -103,6 +135,10 @@ public interface QueryServices extends SQLCloseable {
     public static final String ZOOKEEPER_ROOT_NODE_ATTRIB = "zookeeper.znode.parent";
     public static final String DISTINCT_VALUE_COMPRESS_THRESHOLD_ATTRIB = "phoenix.distinct.value.compress.threshold";
     public static final String SEQUENCE_CACHE_SIZE_ATTRIB = "phoenix.sequence.cacheSize";
+    public static final String METADATA_UPDATE_FREQ_MS_ATTRIB = "phoenix.schema.updateFrequencyMs";
+    public static final String INDEX_FAILURE_HANDLING_REBUILD_ATTRIB = "phoenix.index.failureHandling.rebuild";
+    public static final String INDEX_FAILURE_HANDLING_REBUILD_INTERVAL_ATTRIB = "phoenix.index.failureHandling.rebuildInterval";
+    public static final String SERVER_METRICS_SINK_CLASS_ATTRIB = "phoenix.coprocessor.metricsSinkClass";
 
     
     /**
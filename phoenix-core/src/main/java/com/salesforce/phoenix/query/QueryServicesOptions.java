@@ -29,32 +29,44 @@ package com.salesforce.phoenix.query;
 
 import static com.salesforce.phoenix.query.QueryServices.CALL_QUEUE_PRODUCER_ATTRIB_NAME;
 import static com.salesforce.phoenix.query.QueryServices.CALL_QUEUE_ROUND_ROBIN_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.COMPACT_ROWS_PER_RESULT_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.DATE_FORMAT_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.DROP_METADATA_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.FILTER_BATCH_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.GROUPBY_MAX_CACHE_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.GROUPBY_SPILL_FILES_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.GROUPBY_SPILLABLE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.IMMUTABLE_ROWS_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.INDEX_MUTATE_BATCH_SIZE_THRESHOLD_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.INTERACTIVE_MAX_SPLITS_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.KEEP_ALIVE_MS_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MASTER_INFO_PORT_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.MAX_CONCURRENT_SPLITS_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_INTRA_REGION_PARALLELIZATION_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_MEMORY_PERC_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_MEMORY_WAIT_MS_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_MUTATION_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_QUERY_CONCURRENCY_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.MAX_SCAN_CACHE_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_SERVER_CACHE_TIME_TO_LIVE_MS;
+import static com.salesforce.phoenix.query.QueryServices.MAX_SKIP_SCAN_SEEK_COUNT_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_SPOOL_TO_DISK_BYTES_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MAX_TENANT_MEMORY_PERC_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.METADATA_UPDATE_FREQ_MS_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.QUEUE_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.REGIONSERVER_INFO_PORT_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.REGIONSERVER_LEASE_PERIOD_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.REUSE_HASH_CACHE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.ROW_KEY_ORDER_SALTED_TABLE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.RPC_TIMEOUT_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.SCAN_CACHE_MAX_BYTES_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.SCAN_CACHE_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.SEQUENCE_CACHE_SIZE_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.SERVER_CACHE_RELAY_FANOUT_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.SERVER_CACHE_RELAY_WAIT_MS_ATTRIB;
+import static com.salesforce.phoenix.query.QueryServices.SPOOL_COMPRESSION_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.SPOOL_THRESHOLD_BYTES_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.STATS_UPDATE_FREQ_MS_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.TARGET_QUERY_CONCURRENCY_ATTRIB;
@@ -82,8 +94,17 @@ public class QueryServicesOptions {
 	public static final int DEFAULT_KEEP_ALIVE_MS = 60000;
 	public static final int DEFAULT_THREAD_POOL_SIZE = 128;
 	public static final int DEFAULT_QUEUE_SIZE = 500;
+    // Maximum number of splits of a query for it to be scheduled as interactive when
+    // no priority is set for its connection
+    public static final int DEFAULT_INTERACTIVE_MAX_SPLITS = 4;
+    // Maximum number of splits of a query executing at once, so that large scans leave
+    // threads available to other queries. A non positive value means no limit.
+    public static final int DEFAULT_MAX_CONCURRENT_SPLITS = DEFAULT_THREAD_POOL_SIZE / 2;
+    public static final int DEFAULT_TENANT_WEIGHT = 1;
 	public static final int DEFAULT_THREAD_TIMEOUT_MS = 600000; // 10min
 	public static final int DEFAULT_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
+    // Rows of scans are sent one per result by default
+    public static final int DEFAULT_COMPACT_ROWS_PER_RESULT = 0;
 	public static final int DEFAULT_MAX_MEMORY_PERC = 50; // 50% of heap
 	public static final int DEFAULT_MAX_MEMORY_WAIT_MS = 10000;
 	public static final int DEFAULT_MAX_TENANT_MEMORY_PERC = 100;
@@ -93,6 +114,13 @@ public class QueryServicesOptions {
     public static final String DEFAULT_DATE_FORMAT = DateUtil.DEFAULT_DATE_FORMAT;
     public static final int DEFAULT_STATS_UPDATE_FREQ_MS = 15 * 60000; // 15min
     public static final int DEFAULT_MAX_STATS_AGE_MS = 24 * 60 * 60000; // 1 day
+    // Max number of distinct values of the leading primary key columns over which we'll
+    // skip scan when a query doesn't constrain them. A non positive value disables it.
+    public static final int DEFAULT_MAX_SKIP_SCAN_SEEK_COUNT = 64;
+    // Time during which table meta data resolved from the server is trusted without checking
+    // again by queries against tables without indexes. Zero means always check, so schema
+    // changes are seen immediately.
+    public static final int DEFAULT_METADATA_UPDATE_FREQ_MS = 0;
     public static final boolean DEFAULT_CALL_QUEUE_ROUND_ROBIN = true; 
     public static final int DEFAULT_MAX_MUTATION_SIZE = 500000;
     public static final boolean DEFAULT_ROW_KEY_ORDER_SALTED_TABLE = true; // Merge sort on client to ensure salted tables are row key ordered
@@ -101,13 +129,53 @@ public class QueryServicesOptions {
     public static final boolean DEFAULT_DROP_METADATA = true; // Drop meta data also.
     
     public final static int DEFAULT_MUTATE_BATCH_SIZE = 1000; // Batch size for UPSERT SELECT and DELETE
+    // Number of rows over which the region server evaluates a WHERE clause at a time.
+    // A non positive value evaluates the WHERE clause one row at a time in a filter. Off by default,
+    // since the filter skips to the next row as soon as the columns it needs fail the WHERE clause.
+    public final static int DEFAULT_FILTER_BATCH_SIZE = 0;
 	// The only downside of it being out-of-sync is that the parallelization of the scan won't be as balanced as it could be.
     public static final int DEFAULT_MAX_SERVER_CACHE_TIME_TO_LIVE_MS = 30000; // 30 sec (with no activity)
+    // Number of region servers to which the client and then each region server sends a server
+    // cache, so that the cache is relayed through the cluster as a tree. A non positive value
+    // sends the cache from the client to every region server.
+    public static final int DEFAULT_SERVER_CACHE_RELAY_FANOUT = 3;
+    // Time the client waits for a relayed server cache to reach a region server before sending
+    // it to that region server directly.
+    public static final int DEFAULT_SERVER_CACHE_RELAY_WAIT_MS = 10000; // 10 sec
+    // Maximum number of threads per region server used to relay server caches
+    public static final int DEFAULT_SERVER_CACHE_RELAY_THREADS = 10;
+    // Quotas per tenant on each region server of the number of scanners open at once and of
+    // the rows and bytes scanned per second. A non positive value means no limit.
+    public static final int DEFAULT_MAX_TENANT_SCANNERS = 0;
+    public static final long DEFAULT_MAX_TENANT_ROWS_PER_SEC = 0;
+    public static final long DEFAULT_MAX_TENANT_BYTES_PER_SEC = 0;
+    // Time a new scan of a tenant over its quota waits before being rejected with an
+    // error the client retries
+    public static final int DEFAULT_TENANT_ADMISSION_WAIT_MS = 100;
+    // Whether the hash table built for a join is kept on the region servers and reused by later
+    // queries building the same hash table. Off by default, as the data read through a reused
+    // hash table may be as old as the maximum time to live of reusable server caches.
+    public static final boolean DEFAULT_REUSE_HASH_CACHE = false;
+    public static final int DEFAULT_MAX_REUSABLE_SERVER_CACHE_TIME_TO_LIVE_MS = 60000; // 60 sec (since creation)
+    public static final long DEFAULT_MAX_REUSABLE_SERVER_CACHE_SIZE = 1024L * 1024L * 100L; // 100 Mb per tenant
     public static final int DEFAULT_SCAN_CACHE_SIZE = 1000;
+    // Target number of bytes returned by each scanner RPC, used to size the scanner caching
+    // based on the estimated row width. A non positive value always uses the scan cache size.
+    // The number of rows is capped by the max scan cache size, which defaults to an explicitly
+    // set scan cache size.
+    public static final long DEFAULT_SCAN_CACHE_MAX_BYTES = 1024L * 1024L * 2L; // 2 Mb
+    public static final int DEFAULT_MAX_SCAN_CACHE_SIZE = 10000;
     public static final int DEFAULT_MAX_INTRA_REGION_PARALLELIZATION = DEFAULT_MAX_QUERY_CONCURRENCY;
     public static final int DEFAULT_DISTINCT_VALUE_COMPRESS_THRESHOLD = 1024 * 1024 * 1; // 1 Mb
     public static final int DEFAULT_INDEX_MUTATE_BATCH_SIZE_THRESHOLD = 5;
     public static final long DEFAULT_MAX_SPOOL_TO_DISK_BYTES = 1024000000;
+    // Whether blocks of results spooled to disk are compressed with Snappy
+    public static final boolean DEFAULT_SPOOL_COMPRESSION = true;
+    // Whether the region server hosting SYSTEM.TABLE incrementally rebuilds indexes that
+    // were disabled because of a write failure, and how often it checks for them. Off by
+    // default, as the rebuild raw scans and rewrites the data table cells written since.
+    public static final boolean DEFAULT_INDEX_FAILURE_HANDLING_REBUILD = false;
+    public static final long DEFAULT_INDEX_FAILURE_HANDLING_REBUILD_INTERVAL = 10000; // 10 secs
     
     // 
     // Spillable GroupBy - SPGBY prefix
@@ -148,12 +216,18 @@ public class QueryServicesOptions {
 
     public static QueryServicesOptions withDefaults() {
         Configuration config = HBaseFactoryProvider.getConfigurationFactory().getConfiguration();
+        // Read before the defaults are applied, since HBase itself defaults the scanner caching to 1
+        int configuredScanCaching = config.getInt(SCAN_CACHE_SIZE_ATTRIB, 1);
+        boolean isMaxScanCacheSizeSet = config.get(MAX_SCAN_CACHE_SIZE_ATTRIB) != null;
         QueryServicesOptions options = new QueryServicesOptions(config)
             .setIfUnset(KEEP_ALIVE_MS_ATTRIB, DEFAULT_KEEP_ALIVE_MS)
             .setIfUnset(THREAD_POOL_SIZE_ATTRIB, DEFAULT_THREAD_POOL_SIZE)
             .setIfUnset(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE)
+            .setIfUnset(INTERACTIVE_MAX_SPLITS_ATTRIB, DEFAULT_INTERACTIVE_MAX_SPLITS)
+            .setIfUnset(MAX_CONCURRENT_SPLITS_ATTRIB, DEFAULT_MAX_CONCURRENT_SPLITS)
             .setIfUnset(THREAD_TIMEOUT_MS_ATTRIB, DEFAULT_THREAD_TIMEOUT_MS)
             .setIfUnset(SPOOL_THRESHOLD_BYTES_ATTRIB, DEFAULT_SPOOL_THRESHOLD_BYTES)
+            .setIfUnset(COMPACT_ROWS_PER_RESULT_ATTRIB, DEFAULT_COMPACT_ROWS_PER_RESULT)
             .setIfUnset(MAX_MEMORY_PERC_ATTRIB, DEFAULT_MAX_MEMORY_PERC)
             .setIfUnset(MAX_MEMORY_WAIT_MS_ATTRIB, DEFAULT_MAX_MEMORY_WAIT_MS)
             .setIfUnset(MAX_TENANT_MEMORY_PERC_ATTRIB, DEFAULT_MAX_TENANT_MEMORY_PERC)
@@ -163,6 +237,8 @@ public class QueryServicesOptions {
             .setIfUnset(MAX_QUERY_CONCURRENCY_ATTRIB, DEFAULT_MAX_QUERY_CONCURRENCY)
             .setIfUnset(DATE_FORMAT_ATTRIB, DEFAULT_DATE_FORMAT)
             .setIfUnset(STATS_UPDATE_FREQ_MS_ATTRIB, DEFAULT_STATS_UPDATE_FREQ_MS)
+            .setIfUnset(MAX_SKIP_SCAN_SEEK_COUNT_ATTRIB, DEFAULT_MAX_SKIP_SCAN_SEEK_COUNT)
+            .setIfUnset(METADATA_UPDATE_FREQ_MS_ATTRIB, DEFAULT_METADATA_UPDATE_FREQ_MS)
             .setIfUnset(CALL_QUEUE_ROUND_ROBIN_ATTRIB, DEFAULT_CALL_QUEUE_ROUND_ROBIN)
             .setIfUnset(MAX_MUTATION_SIZE_ATTRIB, DEFAULT_MAX_MUTATION_SIZE)
             .setIfUnset(MAX_INTRA_REGION_PARALLELIZATION_ATTRIB, DEFAULT_MAX_INTRA_REGION_PARALLELIZATION)
@@ -171,11 +247,17 @@ public class QueryServicesOptions {
             .setIfUnset(IMMUTABLE_ROWS_ATTRIB, DEFAULT_IMMUTABLE_ROWS)
             .setIfUnset(INDEX_MUTATE_BATCH_SIZE_THRESHOLD_ATTRIB, DEFAULT_INDEX_MUTATE_BATCH_SIZE_THRESHOLD)
             .setIfUnset(MAX_SPOOL_TO_DISK_BYTES_ATTRIB, DEFAULT_MAX_SPOOL_TO_DISK_BYTES)
+            .setIfUnset(SPOOL_COMPRESSION_ATTRIB, DEFAULT_SPOOL_COMPRESSION)
             .setIfUnset(DROP_METADATA_ATTRIB, DEFAULT_DROP_METADATA)
             .setIfUnset(GROUPBY_SPILLABLE_ATTRIB, DEFAULT_GROUPBY_SPILLABLE)
             .setIfUnset(GROUPBY_MAX_CACHE_SIZE_ATTRIB, DEFAULT_GROUPBY_MAX_CACHE_MAX)
             .setIfUnset(GROUPBY_SPILL_FILES_ATTRIB, DEFAULT_GROUPBY_SPILL_FILES)
             .setIfUnset(SEQUENCE_CACHE_SIZE_ATTRIB, DEFAULT_SEQUENCE_CACHE_SIZE)
+            .setIfUnset(SCAN_CACHE_MAX_BYTES_ATTRIB, DEFAULT_SCAN_CACHE_MAX_BYTES)
+            .setIfUnset(MAX_SCAN_CACHE_SIZE_ATTRIB, DEFAULT_MAX_SCAN_CACHE_SIZE)
+            .setIfUnset(SERVER_CACHE_RELAY_FANOUT_ATTRIB, DEFAULT_SERVER_CACHE_RELAY_FANOUT)
+            .setIfUnset(SERVER_CACHE_RELAY_WAIT_MS_ATTRIB, DEFAULT_SERVER_CACHE_RELAY_WAIT_MS)
+            .setIfUnset(REUSE_HASH_CACHE_ATTRIB, DEFAULT_REUSE_HASH_CACHE)
             ;
         // HBase sets this to 1, so we reset it to something more appropriate.
         // Hopefully HBase will change this, because we can't know if a user set
@@ -186,6 +268,11 @@ public class QueryServicesOptions {
         } else if (scanCaching <= 0) { // Provides the user with a way of setting it to 1
             config.setInt(SCAN_CACHE_SIZE_ATTRIB, 1);
         }
+        // An explicitly set scanner caching is an upper bound on the number of rows sized
+        // from SCAN_CACHE_MAX_BYTES_ATTRIB, unless the max scan cache size is set as well.
+        if (configuredScanCaching != 1 && !isMaxScanCacheSizeSet) {
+            config.setInt(MAX_SCAN_CACHE_SIZE_ATTRIB, Math.max(1, configuredScanCaching));
+        }
         return options;
     }
     
@@ -254,6 +341,14 @@ public class QueryServicesOptions {
         return set(SCAN_CACHE_SIZE_ATTRIB, scanFetchSize);
     }
     
+    public QueryServicesOptions setScanCacheMaxBytes(long scanCacheMaxBytes) {
+        return set(SCAN_CACHE_MAX_BYTES_ATTRIB, scanCacheMaxBytes);
+    }
+    
+    public QueryServicesOptions setMaxScanCacheSize(int maxScanCacheSize) {
+        return set(MAX_SCAN_CACHE_SIZE_ATTRIB, maxScanCacheSize);
+    }
+    
     public QueryServicesOptions setMaxQueryConcurrency(int maxQueryConcurrency) {
         return set(MAX_QUERY_CONCURRENCY_ATTRIB, maxQueryConcurrency);
     }
@@ -270,6 +365,14 @@ public class QueryServicesOptions {
         return set(STATS_UPDATE_FREQ_MS_ATTRIB, frequencyMs);
     }
     
+    public QueryServicesOptions setMaxSkipScanSeekCount(int maxSkipScanSeekCount) {
+        return set(MAX_SKIP_SCAN_SEEK_COUNT_ATTRIB, maxSkipScanSeekCount);
+    }
+    
+    public QueryServicesOptions setMetaDataUpdateFrequencyMs(int frequencyMs) {
+        return set(METADATA_UPDATE_FREQ_MS_ATTRIB, frequencyMs);
+    }
+    
     public QueryServicesOptions setCallQueueRoundRobin(boolean isRoundRobin) {
         return set(CALL_QUEUE_PRODUCER_ATTRIB_NAME, isRoundRobin);
     }
@@ -282,6 +385,10 @@ public class QueryServicesOptions {
         return set(MUTATE_BATCH_SIZE_ATTRIB, mutateBatchSize);
     }
     
+    public QueryServicesOptions setFilterBatchSize(int filterBatchSize) {
+        return set(FILTER_BATCH_SIZE_ATTRIB, filterBatchSize);
+    }
+    
     public QueryServicesOptions setMaxIntraRegionParallelization(int maxIntraRegionParallelization) {
         return set(MAX_INTRA_REGION_PARALLELIZATION_ATTRIB, maxIntraRegionParallelization);
     }
@@ -355,6 +462,18 @@ public class QueryServicesOptions {
         return config.getInt(MUTATE_BATCH_SIZE_ATTRIB, DEFAULT_MUTATE_BATCH_SIZE);
     }
     
+    public int getMaxSkipScanSeekCount() {
+        return config.getInt(MAX_SKIP_SCAN_SEEK_COUNT_ATTRIB, DEFAULT_MAX_SKIP_SCAN_SEEK_COUNT);
+    }
+    
+    public int getMetaDataUpdateFrequencyMs() {
+        return config.getInt(METADATA_UPDATE_FREQ_MS_ATTRIB, DEFAULT_METADATA_UPDATE_FREQ_MS);
+    }
+    
+    public int getFilterBatchSize() {
+        return config.getInt(FILTER_BATCH_SIZE_ATTRIB, DEFAULT_FILTER_BATCH_SIZE);
+    }
+    
     public int getMaxIntraRegionParallelization() {
         return config.getInt(MAX_INTRA_REGION_PARALLELIZATION_ATTRIB, DEFAULT_MAX_INTRA_REGION_PARALLELIZATION);
     }
@@ -387,6 +506,18 @@ public class QueryServicesOptions {
         return set(MAX_SERVER_CACHE_TIME_TO_LIVE_MS, ttl);
     }
     
+    public QueryServicesOptions setServerCacheRelayFanout(int fanout) {
+        return set(SERVER_CACHE_RELAY_FANOUT_ATTRIB, fanout);
+    }
+    
+    public QueryServicesOptions setServerCacheRelayWaitMs(int waitMs) {
+        return set(SERVER_CACHE_RELAY_WAIT_MS_ATTRIB, waitMs);
+    }
+    
+    public QueryServicesOptions setReuseHashCache(boolean reuseHashCache) {
+        return set(REUSE_HASH_CACHE_ATTRIB, reuseHashCache);
+    }
+    
     public QueryServicesOptions setMasterInfoPort(int port) {
         return set(MASTER_INFO_PORT_ATTRIB, port);
     }
@@ -415,4 +546,16 @@ public class QueryServicesOptions {
         return set(WALEditCodec.WAL_EDIT_CODEC_CLASS_KEY, walEditCodec);
     }
 
+    public QueryServicesOptions setInteractiveMaxSplits(int maxSplits) {
+        return set(INTERACTIVE_MAX_SPLITS_ATTRIB, maxSplits);
+    }
+
+    public QueryServicesOptions setMaxConcurrentSplits(int maxSplits) {
+        return set(MAX_CONCURRENT_SPLITS_ATTRIB, maxSplits);
+    }
+
+    public QueryServicesOptions setCompactRowsPerResult(int compactRowsPerResult) {
+        return set(COMPACT_ROWS_PER_RESULT_ATTRIB, compactRowsPerResult);
+    }
+
 }
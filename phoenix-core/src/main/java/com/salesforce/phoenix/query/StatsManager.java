@@ -28,6 +28,9 @@
 package com.salesforce.phoenix.query;
 
 import java.sql.SQLException;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.client.Scan;
 
 import com.salesforce.phoenix.schema.TableRef;
 
@@ -64,4 +67,45 @@ public interface StatsManager {
      * @throws SQLException
      */
     void updateStats(TableRef table) throws SQLException;
+    
+    /**
+     * Get the ratio between the observed and the estimated byte size of the rows
+     * returned by scans over the given table that project the same columns.
+     * @param table the table
+     * @param scan the scan, of which the projected columns are used
+     * @return the ratio or 1 if no scans have been observed
+     */
+    double getRowSizeRatio(TableRef table, Scan scan);
+    
+    /**
+     * Record the number of rows and bytes returned by a completed scan over the given
+     * table, used to correct the row size estimates of future scans projecting the same
+     * columns. Aggregate scans must not be recorded, since the rows they return don't
+     * have the size estimated for the projected columns.
+     * @param table the table
+     * @param scan the completed scan
+     * @param estimatedRowSize the estimated byte size of each row
+     * @param rowCount the number of rows returned by the scan
+     * @param byteCount the number of bytes returned by the scan
+     */
+    void updateRowSizeRatio(TableRef table, Scan scan, int estimatedRowSize, long rowCount, long byteCount);
+    
+    /**
+     * Get the number of distinct values formed by the leading primary key columns
+     * of the given table, used to decide whether to skip scan over leading columns
+     * that are not constrained by a query.
+     * @param table the table
+     * @param pkCount the number of leading primary key columns
+     * @return the number of distinct values or -1 if unknown or above
+     * {@link com.salesforce.phoenix.query.QueryServices#MAX_SKIP_SCAN_SEEK_COUNT_ATTRIB}
+     */
+    long getLeadingPKCardinality(TableRef table, int pkCount);
+    
+    /**
+     * Get the number of bytes stored by each region of the given table, as last reported
+     * by the region servers, used to estimate the cost of scanning over the table.
+     * @param table the table
+     * @return map from region name to byte size or null if unknown or too small to be measured
+     */
+    Map<String,Long> getRegionSizes(TableRef table);
 }
@@ -30,17 +30,33 @@ package com.salesforce.phoenix.query;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.apache.hadoop.hbase.ClusterStatus;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HServerLoad.RegionLoad;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.filter.DistinctPrefixFilter;
+import com.salesforce.phoenix.schema.PTable;
 import com.salesforce.phoenix.schema.TableRef;
 import com.salesforce.phoenix.util.SchemaUtil;
 import com.salesforce.phoenix.util.ServerUtil;
@@ -64,20 +80,44 @@ import com.salesforce.phoenix.util.ServerUtil;
  * @since 0.1
  */
 public class StatsManagerImpl implements StatsManager {
+    private static final long MIN_ROW_SIZE_SAMPLE = 10;
+    private static final double MIN_ROW_SIZE_RATIO = 0.01;
+    private static final double MAX_ROW_SIZE_RATIO = 100;
+    private static final long BYTES_PER_MB = 1024 * 1024;
+    private static final long MAX_ROW_SIZE_RATIO_PROJECTIONS = 10000;
+    
     private final ConnectionQueryServices services;
     private final int statsUpdateFrequencyMs;
     private final int maxStatsAgeMs;
     private final TimeKeeper timeKeeper;
     private final ConcurrentMap<String,PTableStats> tableStatsMap = new ConcurrentHashMap<String,PTableStats>();
+    // Ratio of observed to estimated row size by table and projected columns
+    private final Cache<String,Double> rowSizeRatioCache = CacheBuilder.newBuilder().maximumSize(MAX_ROW_SIZE_RATIO_PROJECTIONS).build();
+    // Tables for which the cardinality of the leading primary key columns has been asked for
+    private final Set<String> cardinalityTables = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+    private final int maxLeadingPKCardinality;
+    // Size of the regions of all tables, collected at once since the region servers report them together
+    private final Object regionSizesLock = new Object();
+    private long regionSizesInitiatedTime = -1;
+    private volatile RegionSizes regionSizes = RegionSizes.NO_SIZES;
 
     public StatsManagerImpl(ConnectionQueryServices services, int statsUpdateFrequencyMs, int maxStatsAgeMs) {
-        this(services, statsUpdateFrequencyMs, maxStatsAgeMs, TimeKeeper.SYSTEM);
+        this(services, statsUpdateFrequencyMs, maxStatsAgeMs, QueryServicesOptions.DEFAULT_MAX_SKIP_SCAN_SEEK_COUNT);
+    }
+    
+    public StatsManagerImpl(ConnectionQueryServices services, int statsUpdateFrequencyMs, int maxStatsAgeMs, int maxLeadingPKCardinality) {
+        this(services, statsUpdateFrequencyMs, maxStatsAgeMs, maxLeadingPKCardinality, TimeKeeper.SYSTEM);
     }
     
     public StatsManagerImpl(ConnectionQueryServices services, int statsUpdateFrequencyMs, int maxStatsAgeMs, TimeKeeper timeKeeper) {
+        this(services, statsUpdateFrequencyMs, maxStatsAgeMs, QueryServicesOptions.DEFAULT_MAX_SKIP_SCAN_SEEK_COUNT, timeKeeper);
+    }
+    
+    public StatsManagerImpl(ConnectionQueryServices services, int statsUpdateFrequencyMs, int maxStatsAgeMs, int maxLeadingPKCardinality, TimeKeeper timeKeeper) {
         this.services = services;
         this.statsUpdateFrequencyMs = statsUpdateFrequencyMs;
         this.maxStatsAgeMs = maxStatsAgeMs;
+        this.maxLeadingPKCardinality = maxLeadingPKCardinality;
         this.timeKeeper = timeKeeper;
     }
     
@@ -123,7 +163,9 @@ public class StatsManagerImpl implements StatsManager {
             if (r != null) {
                 maxKey = r.getRow();
             }
-            tableStatsMap.put(tableRef.getTable().getName().getString(), new PTableStats(timeKeeper.currentTimeMillis(),minKey,maxKey));
+            String tableName = tableRef.getTable().getName().getString();
+            long[] leadingPKCardinalities = cardinalityTables.contains(tableName) ? getLeadingPKCardinalities(hTable, tableRef) : null;
+            tableStatsMap.put(tableName, new PTableStats(timeKeeper.currentTimeMillis(),minKey,maxKey,leadingPKCardinalities));
         } catch (IOException e) {
             sqlE = ServerUtil.parseServerException(e);
         } finally {
@@ -143,6 +185,77 @@ public class StatsManagerImpl implements StatsManager {
         }
     }
     
+    /**
+     * Count the distinct values of the leading primary key columns through a scan that seeks
+     * past all but the first row of each distinct value. We give up once the count goes over
+     * maxLeadingPKCardinality, since we'd never skip scan over that many values anyway.
+     * @return array indexed by the number of leading primary key columns containing the number
+     * of distinct values they form, or -1 if this number is too large
+     */
+    private long[] getLeadingPKCardinalities(HTableInterface hTable, TableRef tableRef) throws IOException {
+        PTable table = tableRef.getTable();
+        int nPKColumns = table.getPKColumns().size();
+        long[] cardinalities = new long[nPKColumns];
+        Arrays.fill(cardinalities, -1);
+        for (int pkCount = 1; pkCount < nPKColumns; pkCount++) {
+            Scan scan = new Scan();
+            scan.setFilter(new DistinctPrefixFilter(table.getRowKeySchema(), pkCount));
+            scan.setCaching(maxLeadingPKCardinality + 1);
+            long count = 0;
+            ResultScanner scanner = hTable.getScanner(scan);
+            try {
+                while (count <= maxLeadingPKCardinality && scanner.next() != null) {
+                    count++;
+                }
+            } finally {
+                scanner.close();
+            }
+            // Adding columns to the prefix can only increase the count
+            if (count > maxLeadingPKCardinality) {
+                break;
+            }
+            cardinalities[pkCount] = count;
+        }
+        return cardinalities;
+    }
+    
+    /**
+     * Collect the size of the regions of all tables from the load that each region server last
+     * reported to the master, rounded down to the megabyte. Tables for which every region is
+     * reported as empty are left out, as they're too small for their size to be known.
+     */
+    private void updateRegionSizes() throws SQLException, IOException {
+        Map<String,Map<String,Long>> regionSizesByTable = Maps.newHashMap();
+        Map<String,Long> totalSizeByTable = Maps.newHashMap();
+        HBaseAdmin admin = services.getAdmin();
+        try {
+            ClusterStatus status = admin.getClusterStatus();
+            for (ServerName serverName : status.getServers()) {
+                for (RegionLoad regionLoad : status.getLoad(serverName).getRegionsLoad().values()) {
+                    String tableName = Bytes.toString(HRegionInfo.getTableName(regionLoad.getName()));
+                    Map<String,Long> tableRegionSizes = regionSizesByTable.get(tableName);
+                    if (tableRegionSizes == null) {
+                        tableRegionSizes = Maps.newHashMap();
+                        regionSizesByTable.put(tableName, tableRegionSizes);
+                        totalSizeByTable.put(tableName, 0L);
+                    }
+                    long size = (long)(regionLoad.getStorefileSizeMB() + regionLoad.getMemStoreSizeMB()) * BYTES_PER_MB;
+                    tableRegionSizes.put(regionLoad.getNameAsString(), size);
+                    totalSizeByTable.put(tableName, totalSizeByTable.get(tableName) + size);
+                }
+            }
+        } finally {
+            admin.close();
+        }
+        ImmutableMap.Builder<String,Map<String,Long>> builder = ImmutableMap.builder();
+        for (Map.Entry<String,Map<String,Long>> entry : regionSizesByTable.entrySet()) {
+            if (totalSizeByTable.get(entry.getKey()) > 0) {
+                builder.put(entry.getKey(), ImmutableMap.copyOf(entry.getValue()));
+            }
+        }
+        regionSizes = new RegionSizes(timeKeeper.currentTimeMillis(), builder.build());
+    }
+    
     private PTableStats getStats(final TableRef table) {
         PTableStats stats = tableStatsMap.get(table);
         if (stats == null) {
@@ -190,22 +303,138 @@ public class StatsManagerImpl implements StatsManager {
         return stats.getMaxKey();
     }
 
+    /**
+     * Key under which the row size ratio of scans over the table projecting the same
+     * columns as the given scan is kept, since the estimation error depends on the columns.
+     */
+    private static String getRowSizeRatioKey(TableRef table, Scan scan) {
+        StringBuilder buf = new StringBuilder(table.getTable().getPhysicalName().getString());
+        for (Map.Entry<byte[],NavigableSet<byte[]>> entry : scan.getFamilyMap().entrySet()) {
+            buf.append(' ').append(Bytes.toStringBinary(entry.getKey())).append(':');
+            if (entry.getValue() == null) {
+                buf.append('*');
+            } else {
+                for (byte[] qualifier : entry.getValue()) {
+                    buf.append(Bytes.toStringBinary(qualifier)).append(',');
+                }
+            }
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public double getRowSizeRatio(TableRef table, Scan scan) {
+        Double ratio = rowSizeRatioCache.getIfPresent(getRowSizeRatioKey(table, scan));
+        return ratio == null ? 1 : ratio;
+    }
+
+    @Override
+    public void updateRowSizeRatio(TableRef table, Scan scan, int estimatedRowSize, long rowCount, long byteCount) {
+        // Ignore scans too small to be representative
+        if (estimatedRowSize <= 0 || rowCount < MIN_ROW_SIZE_SAMPLE) {
+            return;
+        }
+        double ratio = (double)byteCount / rowCount / estimatedRowSize;
+        ratio = Math.max(MIN_ROW_SIZE_RATIO, Math.min(MAX_ROW_SIZE_RATIO, ratio));
+        String key = getRowSizeRatioKey(table, scan);
+        Double oldRatio = rowSizeRatioCache.getIfPresent(key);
+        // Smooth the ratio across scans. Concurrent updates may overwrite each other,
+        // which is fine since this is only a hint.
+        rowSizeRatioCache.put(key, oldRatio == null ? ratio : (oldRatio + ratio) / 2);
+    }
+
+    @Override
+    public long getLeadingPKCardinality(final TableRef table, int pkCount) {
+        // Salted tables lead with the salt byte, so the leading columns are never contiguous
+        if (maxLeadingPKCardinality <= 0 || table.getTable().getBucketNum() != null) {
+            return -1;
+        }
+        if (cardinalityTables.add(table.getTable().getName().getString())) {
+            // Collect the cardinality now instead of waiting for the next stats update
+            services.getExecutor().submit(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    updateStats(table);
+                    return null;
+                }
+                
+            });
+            return -1;
+        }
+        PTableStats stats = getStats(table);
+        return stats.getLeadingPKCardinality(pkCount);
+    }
+
+    @Override
+    public Map<String,Long> getRegionSizes(TableRef table) {
+        long currentTime = timeKeeper.currentTimeMillis();
+        synchronized (regionSizesLock) {
+            // Update asynchronously, as for the other stats
+            if (currentTime - regionSizesInitiatedTime >= getStatsUpdateFrequency()) {
+                regionSizesInitiatedTime = currentTime;
+                services.getExecutor().submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        updateRegionSizes();
+                        return null;
+                    }
+                    
+                });
+            }
+        }
+        RegionSizes sizes = regionSizes;
+        if (currentTime - sizes.getCompletedTime() >= maxStatsAgeMs) {
+            return null;
+        }
+        return sizes.getRegionSizes(table.getTable().getPhysicalName().getString());
+    }
+
+    private static class RegionSizes {
+        private static final RegionSizes NO_SIZES = new RegionSizes(-1, Collections.<String,Map<String,Long>>emptyMap());
+        private final long completedTime;
+        private final Map<String,Map<String,Long>> regionSizesByTable;
+        
+        private RegionSizes(long completedTime, Map<String,Map<String,Long>> regionSizesByTable) {
+            this.completedTime = completedTime;
+            this.regionSizesByTable = regionSizesByTable;
+        }
+
+        private long getCompletedTime() {
+            return completedTime;
+        }
+
+        private Map<String,Long> getRegionSizes(String physicalTableName) {
+            return regionSizesByTable.get(physicalTableName);
+        }
+    }
+    
     private static class PTableStats {
         private static final PTableStats NO_STATS = new PTableStats();
         private long initiatedTime;
         private final long completedTime;
         private final byte[] minKey;
         private final byte[] maxKey;
+        private final long[] leadingPKCardinalities;
         
         public PTableStats() {
-            this(-1,null,null);
+            this(-1,null,null,null);
         }
-        public PTableStats(long completedTime, byte[] minKey, byte[] maxKey) {
+        public PTableStats(long completedTime, byte[] minKey, byte[] maxKey, long[] leadingPKCardinalities) {
             this.minKey = minKey;
             this.maxKey = maxKey;
+            this.leadingPKCardinalities = leadingPKCardinalities;
             this.completedTime = this.initiatedTime = completedTime;
         }
 
+        private long getLeadingPKCardinality(int pkCount) {
+            if (leadingPKCardinalities == null || pkCount >= leadingPKCardinalities.length) {
+                return -1;
+            }
+            return leadingPKCardinalities[pkCount];
+        }
+
         private byte[] getMinKey() {
             return minKey;
         }
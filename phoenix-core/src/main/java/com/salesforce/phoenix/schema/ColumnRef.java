@@ -32,9 +32,11 @@ import org.apache.http.annotation.Immutable;
 import com.salesforce.phoenix.expression.ColumnExpression;
 import com.salesforce.phoenix.expression.IndexKeyValueColumnExpression;
 import com.salesforce.phoenix.expression.KeyValueColumnExpression;
+import com.salesforce.phoenix.expression.PackedColumnExpression;
 import com.salesforce.phoenix.expression.ProjectedColumnExpression;
 import com.salesforce.phoenix.expression.RowKeyColumnExpression;
 import com.salesforce.phoenix.util.IndexUtil;
+import com.salesforce.phoenix.util.PackedRowUtil;
 import com.salesforce.phoenix.util.SchemaUtil;
 
 
@@ -117,6 +119,9 @@ public final class ColumnRef {
         
         if (tableRef.getTable().getType() == PTableType.JOIN)
         	return new ProjectedColumnExpression(getColumn(), tableRef.getTable());
+        
+        if (tableRef.getTable().isPackedRows())
+            return new PackedColumnExpression(getColumn(), PackedRowUtil.getSlot(tableRef.getTable(), getColumn()));
        
         return new KeyValueColumnExpression(getColumn());
     }
@@ -47,6 +47,7 @@ import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.INDEX_STATE;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.MULTI_TENANT;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.NULLABLE;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.ORDINAL_POSITION;
+import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.PACKED_ROWS;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.PK_NAME;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.SALT_BUCKETS;
 import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.TABLE_CAT_NAME;
@@ -124,6 +125,7 @@ import com.salesforce.phoenix.parse.NamedTableNode;
 import com.salesforce.phoenix.parse.ParseNodeFactory;
 import com.salesforce.phoenix.parse.PrimaryKeyConstraint;
 import com.salesforce.phoenix.parse.TableName;
+import com.salesforce.phoenix.query.ConnectionQueryServices;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.query.QueryServicesOptions;
@@ -157,8 +159,9 @@ public class MetaDataClient {
             MULTI_TENANT + "," +
             VIEW_TYPE + "," +
             BASE_SCHEMA_NAME + "," +
-            BASE_TABLE_NAME +
-            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            BASE_TABLE_NAME + "," +
+            PACKED_ROWS +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String CREATE_INDEX_LINK =
             "UPSERT INTO " + TYPE_SCHEMA + ".\"" + TYPE_TABLE + "\"( " +
             TENANT_ID + "," +
@@ -228,7 +231,7 @@ public class MetaDataClient {
     }
 
     public long getCurrentTime(String schemaName, String tableName) throws SQLException {
-        MetaDataMutationResult result = updateCache(schemaName, tableName, true);
+        MetaDataMutationResult result = updateCache(schemaName, tableName, true, false);
         return result.getMutationTime();
     }
     
@@ -240,12 +243,26 @@ public class MetaDataClient {
      * @throws SQLException
      */
     public MetaDataMutationResult updateCache(String schemaName, String tableName) throws SQLException {
-        return updateCache(schemaName, tableName, false);
+        return updateCache(schemaName, tableName, false, false);
+    }
+    
+    /**
+     * Update the cache with the latest as of the connection scn, unless the cached table was confirmed
+     * against the server within {@link QueryServices#METADATA_UPDATE_FREQ_MS_ATTRIB}. Only for resolving
+     * tables that are queried, and only for tables without indexes, since a stale index list or index
+     * state could leave an index unmaintained or have a query use a disabled index.
+     * @param schemaName
+     * @param tableName
+     * @return the timestamp from the server, negative if the table was added to the cache and positive otherwise
+     * @throws SQLException
+     */
+    public MetaDataMutationResult updateCacheForQuery(String schemaName, String tableName) throws SQLException {
+        return updateCache(schemaName, tableName, false, true);
     }
     
     private static final MetaDataMutationResult SYSTEM_TABLE_RESULT = new MetaDataMutationResult(MutationCode.TABLE_ALREADY_EXISTS,QueryConstants.UNSET_TIMESTAMP,null);
     
-    private MetaDataMutationResult updateCache(String schemaName, String tableName, boolean alwaysHitServer) throws SQLException { // TODO: pass byte[] here
+    private MetaDataMutationResult updateCache(String schemaName, String tableName, boolean alwaysHitServer, boolean trustRecentlyResolved) throws SQLException { // TODO: pass byte[] here
         Long scn = connection.getSCN();
         long clientTimeStamp = scn == null ? HConstants.LATEST_TIMESTAMP : scn;
         if (TYPE_SCHEMA.equals(schemaName) && !alwaysHitServer) {
@@ -266,6 +283,17 @@ public class MetaDataClient {
         if (table != null && tableTimestamp == clientTimeStamp - 1 && !alwaysHitServer) {
             return new MetaDataMutationResult(MutationCode.TABLE_ALREADY_EXISTS,QueryConstants.UNSET_TIMESTAMP,table);
         }
+        // Don't bother with server call: the cached table was confirmed recently enough
+        // to be trusted. Statements that fail because of it will force a refresh and retry.
+        ConnectionQueryServices services = connection.getQueryServices();
+        String tenantIdString = tenantIdName == null ? null : tenantIdName.getString();
+        long now = System.currentTimeMillis();
+        if (table != null && scn == null && !alwaysHitServer && trustRecentlyResolved && table.getIndexes().isEmpty()) {
+            long updateFrequencyMs = services.getProps().getLong(QueryServices.METADATA_UPDATE_FREQ_MS_ATTRIB, QueryServicesOptions.DEFAULT_METADATA_UPDATE_FREQ_MS);
+            if (now - services.getTableResolvedTime(tenantIdString, fullTableName) < updateFrequencyMs) {
+                return new MetaDataMutationResult(MutationCode.TABLE_ALREADY_EXISTS,QueryConstants.UNSET_TIMESTAMP,table);
+            }
+        }
         
         byte[] tenantId = null;
         int maxTryCount = 1;
@@ -292,6 +320,7 @@ public class MetaDataClient {
                 // as the connection or it's not multi-tenant.
                 if (tryCount == 0 || !resultTable.isMultiTenant()) {
                     connection.addTable(resultTable);
+                    services.setTableResolvedTime(tenantIdString, fullTableName, now);
                     return result;
                 }
             } else {
@@ -305,6 +334,7 @@ public class MetaDataClient {
                 if (table != null) {
                     result.setTable(table);
                     if (code == MutationCode.TABLE_ALREADY_EXISTS) {
+                        services.setTableResolvedTime(tenantIdString, fullTableName, now);
                         return result;
                     }
                     if (code == MutationCode.TABLE_NOT_FOUND && tryCount + 1 == maxTryCount) {
@@ -689,6 +719,7 @@ public class MetaDataClient {
             String defaultFamilyName = null;
             boolean isImmutableRows = false;
             boolean multiTenant = false;
+            boolean packedRows = false;
             // Although unusual, it's possible to set a mapped VIEW as having immutable rows.
             // This tells Phoenix that you've managing the index maintenance yourself.
             if (tableType != PTableType.VIEW || viewType == ViewType.MAPPED) {
@@ -723,6 +754,14 @@ public class MetaDataClient {
                 
                 Boolean multiTenantProp = (Boolean) tableProps.remove(PhoenixDatabaseMetaData.MULTI_TENANT);
                 multiTenant = Boolean.TRUE.equals(multiTenantProp);
+                
+                Boolean packedRowsProp = (Boolean) tableProps.remove(PhoenixDatabaseMetaData.PACKED_ROWS);
+                packedRows = Boolean.TRUE.equals(packedRowsProp);
+                // Packing is only safe when a row is written once, and index tables are always stored unpacked
+                if (packedRows && (!isImmutableRows || tableType != PTableType.TABLE)) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.INVALID_PACKED_ROWS)
+                        .setSchemaName(schemaName).setTableName(tableName).build().buildException();
+                }
             }
             
             boolean disableWAL = false;
@@ -766,6 +805,12 @@ public class MetaDataClient {
                 multiTenant = parent.isMultiTenant();
                 saltBucketNum = parent.getBucketNum();
                 isImmutableRows = parent.isImmutableRows();
+                packedRows = parent.isPackedRows();
+                // The packed cell layout is defined by the columns of the base table, so a view may not add to it
+                if (packedRows && !colDefs.isEmpty()) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.CANNOT_MUTATE_PACKED_ROWS_COLUMNS)
+                        .setSchemaName(schemaName).setTableName(tableName).build().buildException();
+                }
                 disableWAL = (disableWALProp == null ? parent.isWALDisabled() : disableWALProp);
                 defaultFamilyName = parent.getDefaultFamilyName() == null ? null : parent.getDefaultFamilyName().getString();
                 columns = newArrayListWithExpectedSize(parent.getColumns().size() + colDefs.size());
@@ -908,7 +953,7 @@ public class MetaDataClient {
             if (SchemaUtil.isMetaTable(schemaName,tableName)) {
                 PTable table = PTableImpl.makePTable(PNameFactory.newName(schemaName),PNameFactory.newName(tableName), tableType, null,
                         MetaDataProtocol.MIN_TABLE_TIMESTAMP, PTable.INITIAL_SEQ_NUM, PNameFactory.newName(QueryConstants.SYSTEM_TABLE_PK_NAME),
-                        null, columns, null, Collections.<PTable>emptyList(), isImmutableRows, 
+                        null, columns, null, Collections.<PTable>emptyList(), isImmutableRows, false,
                         null, null, defaultFamilyName == null ? null : PNameFactory.newName(defaultFamilyName),
                         null, Boolean.TRUE.equals(disableWAL), false, null);
                 connection.addTable(table);
@@ -972,6 +1017,7 @@ public class MetaDataClient {
             }
             tableUpsert.setString(17, baseSchemaName);
             tableUpsert.setString(18, baseTableName);
+            tableUpsert.setBoolean(19, packedRows);
             tableUpsert.execute();
             
             tableMetaData.addAll(connection.getMutationState().toMutations().next().getSecond());
@@ -1013,7 +1059,7 @@ public class MetaDataClient {
                 PTable table =  PTableImpl.makePTable(
                         PNameFactory.newName(schemaName), PNameFactory.newName(tableName), tableType, indexState, result.getMutationTime(), PTable.INITIAL_SEQ_NUM, 
                         pkName == null ? null : PNameFactory.newName(pkName), saltBucketNum, columns, dataTableName == null ? null : PNameFactory.newName(dataTableName), 
-                        Collections.<PTable>emptyList(), isImmutableRows, baseSchemaName == null ? null : PNameFactory.newName(baseSchemaName),
+                        Collections.<PTable>emptyList(), isImmutableRows, packedRows, baseSchemaName == null ? null : PNameFactory.newName(baseSchemaName),
                         baseTableName == null ? null : PNameFactory.newName(baseTableName), defaultFamilyName == null ? null : PNameFactory.newName(defaultFamilyName),
                         viewExpressionStr, Boolean.TRUE.equals(disableWAL), multiTenant, viewType);
                 connection.addTable(table);
@@ -1226,6 +1272,8 @@ public class MetaDataClient {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Resolved table to " + table.getName().getString() + " with seqNum " + table.getSequenceNumber() + " at timestamp " + table.getTimeStamp() + " with " + table.getColumns().size() + " columns: " + table.getColumns());
                 }
+                // SYSTEM.TABLE is altered through ALTER TABLE when new columns are added to it upon upgrade
+                PTableType tableType = table.getType() == PTableType.SYSTEM ? PTableType.SYSTEM : statement.getTableType();
                 
                 int position = table.getColumns().size();
                 
@@ -1247,6 +1295,15 @@ public class MetaDataClient {
                 if (isImmutableRowsProp != null) {
                     isImmutableRows = isImmutableRowsProp;
                 }
+                // The storage layout of existing rows can't be changed after the fact
+                if (statement.getProps().get(PhoenixDatabaseMetaData.PACKED_ROWS) != null) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.SET_UNSUPPORTED_PROP_ON_ALTER_TABLE)
+                    .setTableName(table.getName().getString()).build().buildException();
+                }
+                if (table.isPackedRows() && !isImmutableRows) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.INVALID_PACKED_ROWS)
+                    .setSchemaName(schemaName).setTableName(tableName).build().buildException();
+                }
                 boolean multiTenant = table.isMultiTenant();
                 Boolean multiTenantProp = (Boolean) statement.getProps().remove(PhoenixDatabaseMetaData.MULTI_TENANT);
                 if (multiTenantProp != null) {
@@ -1287,6 +1344,10 @@ public class MetaDataClient {
                         }                        
                         throwIfAlteringViewPK(colDef, table);
                         PColumn column = newColumn(position++, colDef, PrimaryKeyConstraint.EMPTY);
+                        if (column.getFamilyName() != null && table.isPackedRows() && table.getType() == PTableType.VIEW) {
+                            throw new SQLExceptionInfo.Builder(SQLExceptionCode.CANNOT_MUTATE_PACKED_ROWS_COLUMNS)
+                            .setSchemaName(schemaName).setTableName(tableName).build().buildException();
+                        }
                         columns.add(column);
                         addColumnMutation(schemaName, tableName, column, colUpsert, null);
 
@@ -1336,7 +1397,7 @@ public class MetaDataClient {
                     tableMetaData.addAll(connection.getMutationState().toMutations().next().getSecond());
                     connection.rollback();
                 }
-                long seqNum = incrementTableSeqNum(table, statement.getTableType(), isImmutableRows, disableWAL, multiTenant, 1);
+                long seqNum = incrementTableSeqNum(table, tableType, isImmutableRows, disableWAL, multiTenant, 1);
                 
                 tableMetaData.addAll(connection.getMutationState().toMutations().next().getSecond());
                 connection.rollback();
@@ -1361,7 +1422,7 @@ public class MetaDataClient {
                         }
                     }
                 }
-                MetaDataMutationResult result = connection.getQueryServices().addColumn(tableMetaData, statement.getTableType(), families);
+                MetaDataMutationResult result = connection.getQueryServices().addColumn(tableMetaData, tableType, families);
                 try {
                     MutationCode code = processMutationResult(schemaName, tableName, result);
                     if (code == MutationCode.COLUMN_ALREADY_EXISTS) {
@@ -1526,6 +1587,11 @@ public class MetaDataClient {
                         throw new SQLExceptionInfo.Builder(SQLExceptionCode.CANNOT_DROP_PK)
                             .setColumnName(columnToDrop.getName().getString()).build().buildException();
                     }
+                    // Dropping would shift the slots of the remaining columns in the packed cells already written
+                    if (table.isPackedRows()) {
+                        throw new SQLExceptionInfo.Builder(SQLExceptionCode.CANNOT_MUTATE_PACKED_ROWS_COLUMNS)
+                            .setSchemaName(schemaName).setTableName(tableName).setColumnName(columnToDrop.getName().getString()).build().buildException();
+                    }
                     columnsToDrop.add(new ColumnRef(tableRef, columnToDrop.getPosition()));
                 }
                 
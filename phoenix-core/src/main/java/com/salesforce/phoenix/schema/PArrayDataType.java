@@ -134,12 +134,24 @@ public class PArrayDataType {
 				baseType);
 	}
 	
+	/**
+	 * Positions ptr at the element at arrayIndex of the serialized array it currently points to, without
+	 * deserializing the array. Fixed width elements are found through their stride while variable
+	 * width elements are found through the offset table at the end of the array.
+	 * @param ptr pointer to the serialized array, set to the element upon return
+	 * @param arrayIndex zero-based index of the element
+	 * @param baseDataType type of the array elements
+	 */
 	public static void positionAtArrayElement(ImmutableBytesWritable ptr, int arrayIndex, PDataType baseDataType) {
 		byte[] bytes = ptr.get();
 		int initPos = ptr.getOffset();
-		int noOfElements = 0;
-		noOfElements = Bytes.toInt(bytes, ptr.getOffset() + Bytes.SIZEOF_BYTE, Bytes.SIZEOF_INT);
-		int noOFElementsSize = Bytes.SIZEOF_INT;
+		int noOfElements = Bytes.toInt(bytes, initPos + Bytes.SIZEOF_BYTE, Bytes.SIZEOF_INT);
+		boolean useShort = true;
+		if (noOfElements < 0) {
+			// A negative count indicates that INT offsets were used
+			noOfElements = -noOfElements;
+			useShort = false;
+		}
 		if(arrayIndex >= noOfElements) {
 			throw new IndexOutOfBoundsException(
 					"Invalid index "
@@ -147,68 +159,29 @@ public class PArrayDataType {
 							+ " specified, greater than the no of elements in the array: "
 							+ noOfElements);
 		}
-		boolean useShort = true;
-		int baseSize = Bytes.SIZEOF_SHORT;
-		if (noOfElements < 0) {
-			noOfElements = -noOfElements;
-			baseSize = Bytes.SIZEOF_INT;
-			useShort = false;
-		}
-
+		int valArrayPosition = initPos + Bytes.SIZEOF_BYTE + Bytes.SIZEOF_INT;
 		if (baseDataType.getByteSize() == null) {
-			int offset = ptr.getOffset() + noOFElementsSize + Bytes.SIZEOF_BYTE;
-			int indexOffset = Bytes.toInt(bytes, offset) + ptr.getOffset();
-			int valArrayPostion = offset + Bytes.SIZEOF_INT;
-			offset += Bytes.SIZEOF_INT;
-			int currOff = 0;
-			if (noOfElements > 1) {
-				while (offset <= (initPos+ptr.getLength())) {
-					int nextOff = 0;
-					// Skip those many offsets as given in the arrayIndex
-					// If suppose there are 5 elements in the array and the arrayIndex = 3
-					// This means we need to read the 4th element of the array
-					// So inorder to know the length of the 4th element we will read the offset of 4th element and the offset of 5th element.
-					// Subtracting the offset of 5th element and 4th element will give the length of 4th element
-					// So we could just skip reading the other elements.
-					if(useShort) {
-						// If the arrayIndex is already the last element then read the last before one element and the last element
-						offset = indexOffset + (Bytes.SIZEOF_SHORT * arrayIndex);
-						if (arrayIndex == (noOfElements - 1)) {
-							currOff = Bytes.toShort(bytes, offset, baseSize) + Short.MAX_VALUE;
-							nextOff = indexOffset;
-							offset += baseSize;
-						} else {
-							currOff = Bytes.toShort(bytes, offset, baseSize) + Short.MAX_VALUE;
-							offset += baseSize;
-							nextOff = Bytes.toShort(bytes, offset, baseSize) + Short.MAX_VALUE;
-							offset += baseSize;
-						}
-					} else {
-						// If the arrayIndex is already the last element then read the last before one element and the last element
-						offset = indexOffset + (Bytes.SIZEOF_INT * arrayIndex);
-						if (arrayIndex == (noOfElements - 1)) {
-							currOff = Bytes.toInt(bytes, offset, baseSize);
-							nextOff = indexOffset;
-							offset += baseSize;
-						} else {
-							currOff = Bytes.toInt(bytes, offset, baseSize);
-							offset += baseSize;
-							nextOff = Bytes.toInt(bytes, offset, baseSize);
-							offset += baseSize;
-						}
-					}
-					int elementLength = nextOff - currOff;
-					ptr.set(bytes, currOff + initPos, elementLength);
-					break;
-				}
-			} else {
-				ptr.set(bytes, valArrayPostion + initPos, indexOffset - valArrayPostion);
+			// Offsets, including the one of the offset table itself, are relative to the start of the array
+			int indexOffset = Bytes.toInt(bytes, valArrayPosition);
+			valArrayPosition += Bytes.SIZEOF_INT;
+			if (noOfElements == 1) {
+				ptr.set(bytes, valArrayPosition, indexOffset + initPos - valArrayPosition);
+				return;
 			}
+			int currOff = getElementOffset(bytes, initPos + indexOffset, arrayIndex, useShort);
+			// The last element ends where the offset table starts
+			int nextOff = arrayIndex == noOfElements - 1 ? indexOffset : getElementOffset(bytes, initPos + indexOffset, arrayIndex + 1, useShort);
+			ptr.set(bytes, initPos + currOff, nextOff - currOff);
 		} else {
-			ptr.set(bytes,
-					ptr.getOffset() + arrayIndex * baseDataType.getByteSize()
-							+ noOFElementsSize + Bytes.SIZEOF_BYTE, baseDataType.getByteSize());
+			ptr.set(bytes, valArrayPosition + arrayIndex * baseDataType.getByteSize(), baseDataType.getByteSize());
+		}
+	}
+
+	private static int getElementOffset(byte[] bytes, int indexPosition, int arrayIndex, boolean useShort) {
+		if (useShort) {
+			return Bytes.toShort(bytes, indexPosition + Bytes.SIZEOF_SHORT * arrayIndex, Bytes.SIZEOF_SHORT) + Short.MAX_VALUE;
 		}
+		return Bytes.toInt(bytes, indexPosition + Bytes.SIZEOF_INT * arrayIndex, Bytes.SIZEOF_INT);
 	}
 
 	public Object toObject(byte[] bytes, int offset, int length, PDataType baseType) {
@@ -385,10 +358,12 @@ public class PArrayDataType {
 	public static int getArrayLength(ImmutableBytesWritable ptr,
 			PDataType baseType) {
 		byte[] bytes = ptr.get();
-		if(baseType.isFixedWidth()) {
+		if(baseType.getByteSize() != null) {
 			return ((ptr.getLength() - (Bytes.SIZEOF_BYTE + Bytes.SIZEOF_INT))/baseType.getByteSize());
 		}
-		return Bytes.toInt(bytes, ptr.getOffset() + Bytes.SIZEOF_BYTE);
+		int noOfElements = Bytes.toInt(bytes, ptr.getOffset() + Bytes.SIZEOF_BYTE);
+		// A negative count indicates that INT offsets were used
+		return noOfElements < 0 ? -noOfElements : noOfElements;
 	}
 
 }
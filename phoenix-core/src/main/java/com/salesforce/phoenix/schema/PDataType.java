@@ -51,6 +51,7 @@ import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.util.ByteUtil;
 import com.salesforce.phoenix.util.DateUtil;
+import com.salesforce.phoenix.util.LongDecimal;
 import com.salesforce.phoenix.util.NumberUtil;
 import com.salesforce.phoenix.util.StringUtil;
 
@@ -6520,6 +6521,112 @@ public enum PDataType {
         return v;
     }
 
+    /**
+     * Deserialize a variable length byte array into the unscaled value and scale of a
+     * {@link LongDecimal} without allocating a BigDecimal. The resulting value has the
+     * same unscaled value and scale as the BigDecimal returned by {@link #toBigDecimal(byte[], int, int)}.
+     * @param bytes the bytes containing the number
+     * @param offset the offset into the byte array
+     * @param length the length of the serialized BigDecimal
+     * @param v the LongDecimal to set
+     * @return true if the unscaled value fits into a long and false otherwise, in which
+     * case v is left unchanged.
+     */
+    public static boolean toLongDecimal(byte[] bytes, int offset, int length, LongDecimal v) {
+        if (length == 1 && bytes[offset] == ZERO_BYTE) {
+            v.set(0, 0);
+            return true;
+        }
+        int signum = ((bytes[offset] & 0x80) == 0) ? -1 : 1;
+        int scale;
+        int index;
+        int digitOffset;
+        long multiplier = 100L;
+        int begIndex = offset + 1;
+        if (signum == 1) {
+            scale = (byte)(((bytes[offset] & 0x7F) - 65) * -2);
+            index = offset + length;
+            digitOffset = POS_DIGIT_OFFSET;
+        } else {
+            scale = (byte)((~bytes[offset] - 65 - 128) * -2);
+            index = offset + length - (bytes[offset + length - 1] == NEG_TERMINAL_BYTE ? 1 : 0);
+            digitOffset = -NEG_DIGIT_OFFSET;
+        }
+        length = index - offset;
+        long l = signum * bytes[--index] - digitOffset;
+        if (l % 10 == 0) { // trailing zero
+            scale--; // drop trailing zero and compensate in the scale
+            l /= 10;
+            multiplier = 10;
+        }
+        while (index > begIndex) {
+            if (l >= MAX_LONG_FOR_DESERIALIZE || multiplier >= Long.MAX_VALUE / 100) {
+                return false; // Too many digits to fit into a long
+            }
+            int digit100 = signum * bytes[--index] - digitOffset;
+            l += digit100*multiplier;
+            multiplier *= 100;
+        }
+        // Update the scale based on the precision
+        scale += (length - 2) * 2;
+        v.set(l * signum, scale);
+        return true;
+    }
+
+    /**
+     * Serialize the decimal number represented by an unscaled long value and a scale in the
+     * same way as {@link #DECIMAL} serializes the equivalent BigDecimal, without allocating one.
+     * @param unscaled the unscaled value
+     * @param scale the scale
+     * @param result the byte array to contain the serialized bytes. Max size
+     * necessary would be 12 bytes.
+     * @param offset the offset into the byte array
+     * @return the number of bytes that make up the serialized number
+     */
+    public static int toBytes(long unscaled, int scale, byte[] result, final int offset) {
+        if (unscaled == 0) {
+            result[offset] = ZERO_BYTE;
+            return 1;
+        }
+        if (unscaled == Long.MIN_VALUE) { // Cannot be negated
+            return DECIMAL.toBytes(BigDecimal.valueOf(unscaled, scale), result, offset);
+        }
+        // Normalize by stripping trailing zeros
+        while (unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        int signum = unscaled < 0 ? -1 : 1;
+        int precision = LongMath.log10(Math.abs(unscaled), RoundingMode.FLOOR) + 1;
+        // See DECIMAL.getLength(BigDecimal)
+        int length = (signum < 0 ? 2 : 1) + (precision +  1 + (scale % 2 == 0 ? 0 : 1)) / 2;
+        int index = offset + length;
+        int expOffset = scale % 2 * (scale < 0 ? -1 : 1);
+        int multiplyBy = expOffset == 0 ? 1 : 10;
+        int digitOffset;
+        if (signum == 1) {
+            digitOffset = POS_DIGIT_OFFSET;
+            scale -= (length - 2) * 2;
+            result[offset] = (byte)((-(scale+expOffset)/2 + EXP_BYTE_OFFSET) | 0x80);
+        } else {
+            digitOffset = NEG_DIGIT_OFFSET;
+            // Scale adjustment shouldn't include terminal byte in length
+            scale -= (length - 2 - 1) * 2;
+            result[offset] = (byte)(~(-(scale+expOffset)/2 + EXP_BYTE_OFFSET + 128) & 0x7F);
+            result[--index] = NEG_TERMINAL_BYTE;
+        }
+        long l = unscaled;
+        do {
+            long divBy = 100/multiplyBy;
+            long digit = l % divBy;
+            l /= divBy;
+            result[--index] = (byte)(digit * multiplyBy + digitOffset);
+            multiplyBy = 1;
+        } while (l != 0);
+
+        return length;
+    }
+
     // Calculate the precision and scale of a raw decimal bytes. Returns the values as an int
     // array. The first value is precision, the second value is scale.
     // Default scope for testing
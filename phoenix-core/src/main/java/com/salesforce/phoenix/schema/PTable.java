@@ -249,6 +249,11 @@ public interface PTable extends Writable {
 
     PName getPhysicalName();
     boolean isImmutableRows();
+    /**
+     * @return true if the non PK column values of each row are packed into a single cell per
+     * column family instead of one cell per column. Only supported for tables with immutable rows.
+     */
+    boolean isPackedRows();
 
     void getIndexMaintainers(ImmutableBytesWritable ptr);
     IndexMaintainer getIndexMaintainer(PTable dataTable);
@@ -68,6 +68,7 @@ import com.salesforce.phoenix.schema.RowKeySchema.RowKeySchemaBuilder;
 import com.salesforce.phoenix.schema.stat.PTableStats;
 import com.salesforce.phoenix.schema.stat.PTableStatsImpl;
 import com.salesforce.phoenix.util.ByteUtil;
+import com.salesforce.phoenix.util.PackedRowUtil;
 import com.salesforce.phoenix.util.SchemaUtil;
 import com.salesforce.phoenix.util.StringUtil;
 import com.salesforce.phoenix.util.TrustedByteArrayOutputStream;
@@ -113,6 +114,7 @@ public class PTableImpl implements PTable {
     private PName baseTableName;
     private PName baseName;
     private boolean isImmutableRows;
+    private boolean packedRows;
     private IndexMaintainer indexMaintainer;
     private ImmutableBytesWritable indexMaintainersPtr;
     private PName defaultFamilyName;
@@ -175,26 +177,26 @@ public class PTableImpl implements PTable {
     public static PTableImpl makePTable(PTable table, long timeStamp, List<PTable> indexes) throws SQLException {
         return new PTableImpl(
                 table.getSchemaName(), table.getTableName(), table.getType(), table.getIndexState(), timeStamp, table.getSequenceNumber() + 1, 
-                table.getPKName(), table.getBucketNum(), getColumnsToClone(table), table.getParentTableName(), indexes, table.isImmutableRows(),
+                table.getPKName(), table.getBucketNum(), getColumnsToClone(table), table.getParentTableName(), indexes, table.isImmutableRows(), table.isPackedRows(),
                 table.getBaseSchemaName(), table.getBaseTableName(), table.getDefaultFamilyName(), table.getViewExpression(), table.isWALDisabled(), table.isMultiTenant(), table.getViewType());
     }
 
     public static PTableImpl makePTable(PTable table, List<PColumn> columns) throws SQLException {
         return new PTableImpl(
                 table.getSchemaName(), table.getTableName(), table.getType(), table.getIndexState(), table.getTimeStamp(), table.getSequenceNumber(), 
-                table.getPKName(), table.getBucketNum(), columns, table.getParentTableName(), table.getIndexes(), table.isImmutableRows(), table.getBaseSchemaName(), table.getBaseTableName(), table.getDefaultFamilyName(), table.getViewExpression(), table.isWALDisabled(), table.isMultiTenant(), table.getViewType());
+                table.getPKName(), table.getBucketNum(), columns, table.getParentTableName(), table.getIndexes(), table.isImmutableRows(), table.isPackedRows(), table.getBaseSchemaName(), table.getBaseTableName(), table.getDefaultFamilyName(), table.getViewExpression(), table.isWALDisabled(), table.isMultiTenant(), table.getViewType());
     }
 
     public static PTableImpl makePTable(PTable table, long timeStamp, long sequenceNumber, List<PColumn> columns) throws SQLException {
         return new PTableImpl(
                 table.getSchemaName(), table.getTableName(), table.getType(), table.getIndexState(), timeStamp, sequenceNumber, 
-                table.getPKName(), table.getBucketNum(), columns, table.getParentTableName(), table.getIndexes(), table.isImmutableRows(), table.getBaseSchemaName(), table.getBaseTableName(), table.getDefaultFamilyName(), table.getViewExpression(), table.isWALDisabled(), table.isMultiTenant(), table.getViewType());
+                table.getPKName(), table.getBucketNum(), columns, table.getParentTableName(), table.getIndexes(), table.isImmutableRows(), table.isPackedRows(), table.getBaseSchemaName(), table.getBaseTableName(), table.getDefaultFamilyName(), table.getViewExpression(), table.isWALDisabled(), table.isMultiTenant(), table.getViewType());
     }
 
     public static PTableImpl makePTable(PTable table, long timeStamp, long sequenceNumber, List<PColumn> columns, boolean isImmutableRows) throws SQLException {
         return new PTableImpl(
                 table.getSchemaName(), table.getTableName(), table.getType(), table.getIndexState(), timeStamp, sequenceNumber, 
-                table.getPKName(), table.getBucketNum(), columns, table.getParentTableName(), table.getIndexes(), isImmutableRows,
+                table.getPKName(), table.getBucketNum(), columns, table.getParentTableName(), table.getIndexes(), isImmutableRows, table.isPackedRows(),
                 table.getBaseSchemaName(), table.getBaseTableName(), table.getDefaultFamilyName(), table.getViewExpression(), table.isWALDisabled(), table.isMultiTenant(), table.getViewType());
     }
 
@@ -202,22 +204,22 @@ public class PTableImpl implements PTable {
         return new PTableImpl(
                 table.getSchemaName(), table.getTableName(), table.getType(), state, table.getTimeStamp(), table.getSequenceNumber(), 
                 table.getPKName(), table.getBucketNum(), getColumnsToClone(table), table.getParentTableName(), 
-                table.getIndexes(), table.isImmutableRows(), table.getBaseSchemaName(), table.getBaseTableName(),
+                table.getIndexes(), table.isImmutableRows(), table.isPackedRows(), table.getBaseSchemaName(), table.getBaseTableName(),
                 table.getDefaultFamilyName(), table.getViewExpression(), table.isWALDisabled(), table.isMultiTenant(), table.getViewType());
     }
 
     public static PTableImpl makePTable(PName schemaName, PName tableName, PTableType type, PIndexState state, long timeStamp, long sequenceNumber, PName pkName,
-            Integer bucketNum, List<PColumn> columns, PName dataTableName, List<PTable> indexes, boolean isImmutableRows, PName baseSchemaName,
+            Integer bucketNum, List<PColumn> columns, PName dataTableName, List<PTable> indexes, boolean isImmutableRows, boolean packedRows, PName baseSchemaName,
             PName baseTableName, PName defaultFamilyName, String viewExpression, boolean disableWAL, boolean multiTenant, ViewType viewType) throws SQLException {
         return new PTableImpl(schemaName, tableName, type, state, timeStamp, sequenceNumber, pkName, bucketNum, columns, dataTableName, indexes,
-                isImmutableRows, baseSchemaName, baseTableName, defaultFamilyName, viewExpression, disableWAL, multiTenant, viewType);
+                isImmutableRows, packedRows, baseSchemaName, baseTableName, defaultFamilyName, viewExpression, disableWAL, multiTenant, viewType);
     }
 
     private PTableImpl(PName schemaName, PName tableName, PTableType type, PIndexState state, long timeStamp, long sequenceNumber, PName pkName,
-            Integer bucketNum, List<PColumn> columns, PName dataTableName, List<PTable> indexes, boolean isImmutableRows, PName baseSchemaName,
+            Integer bucketNum, List<PColumn> columns, PName dataTableName, List<PTable> indexes, boolean isImmutableRows, boolean packedRows, PName baseSchemaName,
             PName baseTableName, PName defaultFamilyName, String viewExpression, boolean disableWAL, boolean multiTenant, ViewType viewType) throws SQLException {
         init(schemaName, tableName, type, state, timeStamp, sequenceNumber, pkName, bucketNum, columns, new PTableStatsImpl(),
-                dataTableName, indexes, isImmutableRows, baseSchemaName, baseTableName, defaultFamilyName, viewExpression, disableWAL, multiTenant, viewType);
+                dataTableName, indexes, isImmutableRows, packedRows, baseSchemaName, baseTableName, defaultFamilyName, viewExpression, disableWAL, multiTenant, viewType);
     }
 
     @Override
@@ -232,7 +234,7 @@ public class PTableImpl implements PTable {
     
     private void init(PName schemaName, PName tableName, PTableType type, PIndexState state, long timeStamp, long sequenceNumber, PName pkName,
             Integer bucketNum, List<PColumn> columns, PTableStats stats, PName parentTableName, List<PTable> indexes, boolean isImmutableRows,
-            PName baseSchemaName, PName baseTableName, PName defaultFamilyName, String viewExpression, boolean disableWAL, boolean multiTenant, ViewType viewType) throws SQLException {
+            boolean packedRows, PName baseSchemaName, PName baseTableName, PName defaultFamilyName, String viewExpression, boolean disableWAL, boolean multiTenant, ViewType viewType) throws SQLException {
         if (schemaName == null) {
             throw new NullPointerException();
         }
@@ -245,6 +247,7 @@ public class PTableImpl implements PTable {
         this.sequenceNumber = sequenceNumber;
         this.pkName = pkName;
         this.isImmutableRows = isImmutableRows;
+        this.packedRows = packedRows;
         this.defaultFamilyName = defaultFamilyName;
         this.viewExpression = viewExpression;
         this.disableWAL = disableWAL;
@@ -269,9 +272,6 @@ public class PTableImpl implements PTable {
             PColumn column = columns.get(i);
             allColumns[column.getPosition()] = column;
             PName familyName = column.getFamilyName();
-            if (familyName == null) {
-                pkColumns.add(column);
-            }
             String columnName = column.getName().getString();
             if (columnsByName.put(columnName, column)) {
                 int count = 0;
@@ -285,6 +285,13 @@ public class PTableImpl implements PTable {
                 }
             }
         }
+        // Add PK columns in position order, as the columns may be passed in any order
+        // (for example, in row key order when built from SYSTEM.TABLE on the server).
+        for (int i = pkColumns.size(); i < allColumns.length; i++) {
+            if (allColumns[i].getFamilyName() == null) {
+                pkColumns.add(allColumns[i]);
+            }
+        }
         this.bucketNum = bucketNum;
         this.pkColumns = ImmutableList.copyOf(pkColumns);
         this.allColumns = ImmutableList.copyOf(allColumns);
@@ -337,6 +344,11 @@ public class PTableImpl implements PTable {
     public boolean isImmutableRows() {
         return isImmutableRows;
     }
+
+    @Override
+    public boolean isPackedRows() {
+        return packedRows;
+    }
     
     @Override
     public String toString() {
@@ -505,6 +517,8 @@ public class PTableImpl implements PTable {
         private Put setValues;
         private Delete unsetValues;
         private Delete deleteRow;
+        // Values by slot of each column family for tables with packed rows
+        private Map<PColumnFamily, byte[][]> packedValues;
         private final long ts;
 
         public PRowImpl(KeyValueBuilder kvBuilder, ImmutableBytesWritable key, long ts, Integer bucketNum) {
@@ -527,6 +541,7 @@ public class PTableImpl implements PTable {
             this.unsetValues = new Delete(this.key);
             this.setValues.setWriteToWAL(!isWALDisabled());
             this.unsetValues.setWriteToWAL(!isWALDisabled());
+            this.packedValues = null;
        }
 
         @Override
@@ -542,6 +557,9 @@ public class PTableImpl implements PTable {
                 addQuietly(setValues, kvBuilder, kvBuilder.buildPut(keyPtr,
                     SchemaUtil.getEmptyColumnFamilyPtr(getColumnFamilies()),
                     QueryConstants.EMPTY_COLUMN_BYTES_PTR, ts, ByteUtil.EMPTY_BYTE_ARRAY_PTR));
+                if (packedValues != null) {
+                    addPackedValues();
+                }
                 mutations.add(setValues);
                 if (!unsetValues.isEmpty()) {
                     mutations.add(unsetValues);
@@ -550,6 +568,34 @@ public class PTableImpl implements PTable {
             return mutations;
         }
 
+        private void addPackedValues() {
+            for (Map.Entry<PColumnFamily, byte[][]> entry : packedValues.entrySet()) {
+                byte[][] values = entry.getValue();
+                // Trailing null values are left out, as slots past the end of the cell are null
+                int nSlots = values.length;
+                while (nSlots > 0 && values[nSlots-1] == null) {
+                    nSlots--;
+                }
+                if (nSlots > 0) {
+                    addQuietly(setValues, kvBuilder, kvBuilder.buildPut(keyPtr, entry.getKey().getName().getBytesPtr(),
+                        QueryConstants.PACKED_COLUMN_BYTES_PTR, ts, new ImmutableBytesPtr(PackedRowUtil.pack(values, nSlots))));
+                }
+            }
+        }
+
+        private void setPackedValue(PColumn column, byte[] byteValue) {
+            PColumnFamily family = familyByBytes.get(column.getFamilyName().getBytes());
+            if (packedValues == null) {
+                packedValues = Maps.newLinkedHashMap();
+            }
+            byte[][] values = packedValues.get(family);
+            if (values == null) {
+                values = new byte[family.getColumns().size()][];
+                packedValues.put(family, values);
+            }
+            values[PackedRowUtil.getSlot(family, column)] = byteValue;
+        }
+
         private void removeIfPresent(Mutation m, byte[] family, byte[] qualifier) {
             Map<byte[],List<KeyValue>> familyMap = m.getFamilyMap();
             List<KeyValue> kvs = familyMap.get(family);
@@ -581,6 +627,11 @@ public class PTableImpl implements PTable {
                 if (!column.isNullable()) { 
                     throw new ConstraintViolationException(name.getString() + "." + column.getName().getString() + " may not be null");
                 }
+                if (packedRows) {
+                    // Immutable rows are written once, so there's no prior value to delete
+                    setPackedValue(column, null);
+                    return;
+                }
                 removeIfPresent(setValues, family, qualifier);
                 deleteQuietly(unsetValues, kvBuilder, kvBuilder.buildDeleteColumns(keyPtr, column
                         .getFamilyName().getBytesPtr(), column.getName().getBytesPtr(), ts));
@@ -592,6 +643,10 @@ public class PTableImpl implements PTable {
                 } else if (byteSize != null && byteValue.length > byteSize) {
                     throw new ConstraintViolationException(name.getString() + "." + column.getName().getString() + " may not exceed " + byteSize + " bytes (" + type.toObject(byteValue) + ")");
                 }
+                if (packedRows) {
+                    setPackedValue(column, byteValue);
+                    return;
+                }
                 removeIfPresent(unsetValues, family, qualifier);
                 addQuietly(setValues, kvBuilder, kvBuilder.buildPut(keyPtr, column.getFamilyName()
                         .getBytesPtr(),
@@ -702,6 +757,7 @@ public class PTableImpl implements PTable {
         PName defaultFamilyName = defaultFamilyNameBytes.length == 0 ? null : PNameFactory.newName(defaultFamilyNameBytes);
         boolean disableWAL = input.readBoolean();
         boolean multiTenant = input.readBoolean();
+        boolean packedRows = input.readBoolean();
         ViewType viewType = null;
         String viewExpression = null;
         PName baseSchemaName = null;
@@ -719,7 +775,7 @@ public class PTableImpl implements PTable {
         try {
             init(schemaName, tableName, tableType, indexState, timeStamp, sequenceNumber, pkName,
                  bucketNum.equals(NO_SALTING) ? null : bucketNum, columns, stats, dataTableName,
-                 indexes, isImmutableRows, baseSchemaName, baseTableName, defaultFamilyName,
+                 indexes, isImmutableRows, packedRows, baseSchemaName, baseTableName, defaultFamilyName,
                  viewExpression, disableWAL, multiTenant, viewType);
         } catch (SQLException e) {
             throw new RuntimeException(e); // Impossible
@@ -760,6 +816,7 @@ public class PTableImpl implements PTable {
         Bytes.writeByteArray(output, defaultFamilyName == null ? ByteUtil.EMPTY_BYTE_ARRAY : defaultFamilyName.getBytes());
         output.writeBoolean(disableWAL);
         output.writeBoolean(multiTenant);
+        output.writeBoolean(packedRows);
         if (type == PTableType.VIEW) {
             output.writeByte(viewType.getSerializedValue());
             Bytes.writeByteArray(output, viewExpression == null ? ByteUtil.EMPTY_BYTE_ARRAY : PDataType.VARCHAR.toBytes(viewExpression));
@@ -123,7 +123,7 @@ public class ValueBitSet {
         // size of a short), then serialize the long array followed by the
         // array length.
         if (isVarLength()) {
-            short nLongs = (short)((maxSetBit + BITS_PER_LONG - 1) / BITS_PER_LONG);
+            short nLongs = (short)((maxSetBit + BITS_PER_LONG) / BITS_PER_LONG);
             for (int i = 0; i < nLongs; i++) {
                 offset = Bytes.putLong(b, offset, bits[i]);
             }
@@ -166,7 +166,7 @@ public class ValueBitSet {
                 bits[i] |= Bytes.toLong(ptr.get(), offset);
                 offset += Bytes.SIZEOF_LONG;
             }
-            maxSetBit = Math.max(maxSetBit, nLongs * Bytes.SIZEOF_LONG - 1);
+            maxSetBit = Math.max(maxSetBit, nLongs * BITS_PER_LONG - 1);
         } else {
             long l = Bytes.toShort(ptr.get(), ptr.getOffset() + ptr.getLength() - Bytes.SIZEOF_SHORT);
             bits[0] |= l;
@@ -182,7 +182,7 @@ public class ValueBitSet {
         if (schema == null) {
             return 0;
         }
-        return Bytes.SIZEOF_SHORT + (isVarLength() ? (maxSetBit + BITS_PER_LONG - 1) / BITS_PER_LONG * Bytes.SIZEOF_LONG : 0);
+        return Bytes.SIZEOF_SHORT + (isVarLength() ? (maxSetBit + BITS_PER_LONG) / BITS_PER_LONG * Bytes.SIZEOF_LONG : 0);
     }
     
     public static int getSize(int nBits) {
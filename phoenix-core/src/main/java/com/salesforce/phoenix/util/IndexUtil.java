@@ -168,7 +168,7 @@ public class IndexUtil {
                     ValueGetter valueGetter = new ValueGetter() {
         
                         @Override
-                        public ImmutableBytesPtr getLatestValue(ColumnReference ref) {
+                        public ImmutableBytesPtr getLatestValue(ColumnReference ref) throws IOException {
                             // Always return null for our empty key value, as this will cause the index
                             // maintainer to always treat this Put as a new row.
                             if (isEmptyKeyValue(table, ref)) {
@@ -181,10 +181,25 @@ public class IndexUtil {
                                 return null;
                             }
                             byte[] qualifier = ref.getQualifier();
+                            int slot = -1;
+                            // For packed rows, every column of the family lives in a single cell
+                            if (table.isPackedRows()) {
+                                try {
+                                    PColumnFamily columnFamily = table.getColumnFamily(family);
+                                    slot = PackedRowUtil.getSlot(columnFamily, columnFamily.getColumn(qualifier));
+                                } catch (SQLException e) {
+                                    throw new IOException(e);
+                                }
+                                qualifier = QueryConstants.PACKED_COLUMN_BYTES;
+                            }
                             for (KeyValue kv : kvs) {
                                 if (Bytes.compareTo(kv.getBuffer(), kv.getFamilyOffset(), kv.getFamilyLength(), family, 0, family.length) == 0 &&
                                     Bytes.compareTo(kv.getBuffer(), kv.getQualifierOffset(), kv.getQualifierLength(), qualifier, 0, qualifier.length) == 0) {
-                                    return new ImmutableBytesPtr(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+                                    ImmutableBytesPtr value = new ImmutableBytesPtr(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+                                    if (slot >= 0 && !PackedRowUtil.unpack(value, slot)) {
+                                        return null;
+                                    }
+                                    return value;
                                 }
                             }
                             return null;
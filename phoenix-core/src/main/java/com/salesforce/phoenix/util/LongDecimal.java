@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+
+import com.google.common.math.LongMath;
+import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.PDataType;
+
+/**
+ * 
+ * Mutable decimal number represented by an unscaled long value and a scale, used to
+ * perform DECIMAL arithmetic without allocating a BigDecimal for every value. Once an
+ * operation overflows a long, the number is promoted to a BigDecimal and subsequent
+ * operations are done using BigDecimal arithmetic. The unscaled value and scale of
+ * the result are always the same as those of the equivalent BigDecimal operation.
+ *
+ * @since 3.0.0
+ */
+public class LongDecimal {
+    private static final int MAX_POWER_OF_TEN = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_POWER_OF_TEN + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+        }
+    }
+    
+    private long unscaled;
+    private int scale;
+    // Non null once the number no longer fits into a long
+    private BigDecimal bigValue;
+    
+    public LongDecimal() {
+    }
+    
+    public LongDecimal(long unscaled, int scale) {
+        set(unscaled, scale);
+    }
+    
+    public void set(long unscaled, int scale) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.bigValue = null;
+    }
+    
+    public void set(BigDecimal v) {
+        if (v.unscaledValue().bitLength() < Long.SIZE) {
+            set(v.unscaledValue().longValue(), v.scale());
+        } else {
+            bigValue = v;
+        }
+    }
+    
+    public void set(LongDecimal v) {
+        this.unscaled = v.unscaled;
+        this.scale = v.scale;
+        this.bigValue = v.bigValue;
+    }
+    
+    /**
+     * Set the number from its serialized form, in the same way as
+     * {@link PDataType#toObject(ImmutableBytesWritable, PDataType, ColumnModifier)} would for {@link PDataType#DECIMAL}.
+     * @param ptr the serialized value
+     * @param actualType the type of the serialized value
+     * @param columnModifier the column modifier of the serialized value or null if none
+     */
+    public void set(ImmutableBytesWritable ptr, PDataType actualType, ColumnModifier columnModifier) {
+        if (actualType == PDataType.DECIMAL) {
+            if (columnModifier == null && PDataType.toLongDecimal(ptr.get(), ptr.getOffset(), ptr.getLength(), this)) {
+                return;
+            }
+        } else if (actualType.isCoercibleTo(PDataType.LONG)) {
+            set(actualType.getCodec().decodeLong(ptr, columnModifier), 0);
+            return;
+        }
+        set((BigDecimal)PDataType.DECIMAL.toObject(ptr, actualType, columnModifier));
+    }
+    
+    public boolean isLong() {
+        return bigValue == null;
+    }
+    
+    public void add(LongDecimal v) {
+        if (bigValue == null && v.bigValue == null && addLong(v.unscaled, v.scale)) {
+            return;
+        }
+        bigValue = toBigDecimal().add(v.toBigDecimal());
+    }
+    
+    public void subtract(LongDecimal v) {
+        if (bigValue == null && v.bigValue == null && v.unscaled != Long.MIN_VALUE && addLong(-v.unscaled, v.scale)) {
+            return;
+        }
+        bigValue = toBigDecimal().subtract(v.toBigDecimal());
+    }
+    
+    private boolean addLong(long rhs, int rhsScale) {
+        long lhs = unscaled;
+        int newScale = Math.max(scale, rhsScale);
+        if (!canRescale(lhs, newScale - scale) || !canRescale(rhs, newScale - rhsScale)) {
+            return false;
+        }
+        lhs = rescale(lhs, newScale - scale);
+        rhs = rescale(rhs, newScale - rhsScale);
+        long result = lhs + rhs;
+        // Overflow if both operands have the same sign and the result has a different one
+        if (((lhs ^ result) & (rhs ^ result)) < 0) {
+            return false;
+        }
+        set(result, newScale);
+        return true;
+    }
+    
+    public void multiply(LongDecimal v) {
+        if (bigValue == null && v.bigValue == null) {
+            long lhs = unscaled;
+            long rhs = v.unscaled;
+            long result = lhs * rhs;
+            // Same overflow check as Math.multiplyExact in Java 8
+            if (((Math.abs(lhs) | Math.abs(rhs)) >>> 31 == 0) || 
+                    ((rhs == 0 || result / rhs == lhs) && (lhs != Long.MIN_VALUE || rhs != -1))) {
+                set(result, scale + v.scale);
+                return;
+            }
+        }
+        bigValue = toBigDecimal().multiply(v.toBigDecimal());
+    }
+    
+    /**
+     * Adjusts the number to the given precision and scale in the same way as
+     * {@link NumberUtil#setDecimalWidthAndScale(BigDecimal, int, int)}.
+     * @return false if the digits before the decimal point do not fit into the precision
+     * and true otherwise.
+     */
+    public boolean setWidthAndScale(int precision, int scale) {
+        if (bigValue == null && unscaled != Long.MIN_VALUE) {
+            int numDigits = unscaled == 0 ? 1 : LongMath.log10(Math.abs(unscaled), RoundingMode.FLOOR) + 1;
+            if (precision - scale < numDigits - this.scale) {
+                return false;
+            }
+            if (scale <= this.scale) {
+                int diff = this.scale - scale;
+                // Integer division truncates like BigDecimal.ROUND_DOWN
+                set(diff > MAX_POWER_OF_TEN ? 0 : unscaled / POWERS_OF_TEN[diff], scale);
+                return true;
+            }
+            if (canRescale(unscaled, scale - this.scale)) {
+                set(rescale(unscaled, scale - this.scale), scale);
+                return true;
+            }
+        }
+        BigDecimal result = NumberUtil.setDecimalWidthAndScale(toBigDecimal(), precision, scale);
+        if (result == null) {
+            return false;
+        }
+        bigValue = result;
+        return true;
+    }
+    
+    public BigDecimal toBigDecimal() {
+        return bigValue == null ? BigDecimal.valueOf(unscaled, scale) : bigValue;
+    }
+    
+    /**
+     * Serialize the number as a {@link PDataType#DECIMAL}
+     * @param bytes the byte array to contain the serialized bytes, of at least
+     * {@link PDataType#getByteSize()} bytes for DECIMAL.
+     * @param offset the offset into the byte array
+     * @return the number of bytes that make up the serialized number
+     */
+    public int toBytes(byte[] bytes, int offset) {
+        if (bigValue == null) {
+            return PDataType.toBytes(unscaled, scale, bytes, offset);
+        }
+        return PDataType.DECIMAL.toBytes(bigValue, bytes, offset);
+    }
+    
+    public byte[] toBytes() {
+        if (bigValue == null) {
+            byte[] bytes = new byte[PDataType.DECIMAL.getByteSize()];
+            int length = PDataType.toBytes(unscaled, scale, bytes, 0);
+            return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+        }
+        return PDataType.DECIMAL.toBytes(bigValue);
+    }
+    
+    private static boolean canRescale(long v, int increase) {
+        if (v == 0 || increase == 0) {
+            return true;
+        }
+        if (increase > MAX_POWER_OF_TEN) {
+            return false;
+        }
+        long factor = POWERS_OF_TEN[increase];
+        return v <= Long.MAX_VALUE / factor && v >= Long.MIN_VALUE / factor;
+    }
+    
+    private static long rescale(long v, int increase) {
+        return v == 0 ? 0 : v * POWERS_OF_TEN[increase];
+    }
+    
+    @Override
+    public String toString() {
+        return toBigDecimal().toString();
+    }
+}
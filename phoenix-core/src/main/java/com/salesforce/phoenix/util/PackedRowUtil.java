@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.util;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.schema.PColumn;
+import com.salesforce.phoenix.schema.PColumnFamily;
+import com.salesforce.phoenix.schema.PTable;
+
+
+/**
+ * 
+ * Utilities for the packed row storage format used by tables with PACKED_ROWS, in which
+ * all the column values of a column family are stored in a single cell with the
+ * {@link QueryConstants#PACKED_COLUMN_BYTES} qualifier instead of one cell per column.
+ * 
+ * Each column is assigned a slot, which is its index among the columns of its family
+ * ordered by position. A packed cell holds the values of slots 0 through n-1 one after
+ * the other, followed by an offset table with the int start offset of each value and
+ * finally the int number of slots n. The value of a slot ends where the next one starts,
+ * so a null value takes no space. Columns added after the cell was written have a slot
+ * beyond n and are null.
+ *
+ * @since 3.0.0
+ */
+public class PackedRowUtil {
+    private PackedRowUtil() {
+    }
+
+    /**
+     * @return the slot of the column in the packed cell of its column family
+     */
+    public static int getSlot(PTable table, PColumn column) {
+        byte[] familyName = column.getFamilyName().getBytes();
+        for (PColumnFamily family : table.getColumnFamilies()) {
+            if (Bytes.equals(familyName, family.getName().getBytes())) {
+                return getSlot(family, column);
+            }
+        }
+        throw new IllegalArgumentException("Column family of " + column + " not found in " + table.getName().getString());
+    }
+
+    /**
+     * @return the slot of the column in the packed cell of the given column family
+     */
+    public static int getSlot(PColumnFamily family, PColumn column) {
+        int slot = 0;
+        for (PColumn familyColumn : family.getColumns()) {
+            if (familyColumn.getPosition() == column.getPosition()) {
+                return slot;
+            }
+            slot++;
+        }
+        throw new IllegalArgumentException("Column " + column + " not found in column family " + family.getName().getString());
+    }
+    
+    /**
+     * @return the qualifier of the cell that stores the value of the column
+     */
+    public static byte[] getColumnQualifier(PTable table, PColumn column) {
+        return table.isPackedRows() ? QueryConstants.PACKED_COLUMN_BYTES : column.getName().getBytes();
+    }
+
+    /**
+     * Pack the values of the slots of a column family into the value of a single cell.
+     * @param values the value of each slot, null or empty for a null value
+     * @param nSlots the number of leading slots to include
+     */
+    public static byte[] pack(byte[][] values, int nSlots) {
+        int length = 0;
+        for (int i = 0; i < nSlots; i++) {
+            length += values[i] == null ? 0 : values[i].length;
+        }
+        byte[] packed = new byte[length + (nSlots + 1) * Bytes.SIZEOF_INT];
+        int offset = 0;
+        int offsetTableOffset = length;
+        for (int i = 0; i < nSlots; i++) {
+            offsetTableOffset = Bytes.putInt(packed, offsetTableOffset, offset);
+            if (values[i] != null) {
+                offset = Bytes.putBytes(packed, offset, values[i], 0, values[i].length);
+            }
+        }
+        Bytes.putInt(packed, offsetTableOffset, nSlots);
+        return packed;
+    }
+
+    /**
+     * Narrow the pointer from a packed cell value down to the value of a single slot.
+     * @param ptr the packed cell value on input and the slot value on output
+     * @param slot the slot to get
+     * @return true if the slot has a non null value and false otherwise, in which
+     * case the pointer is left set to an empty value.
+     */
+    public static boolean unpack(ImmutableBytesWritable ptr, int slot) {
+        byte[] buf = ptr.get();
+        int cellOffset = ptr.getOffset();
+        int cellEnd = cellOffset + ptr.getLength();
+        int nSlots = Bytes.toInt(buf, cellEnd - Bytes.SIZEOF_INT);
+        if (slot >= nSlots) {
+            ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            return false;
+        }
+        int offsetTableOffset = cellEnd - (nSlots + 1) * Bytes.SIZEOF_INT;
+        int slotOffset = offsetTableOffset + slot * Bytes.SIZEOF_INT;
+        int start = Bytes.toInt(buf, slotOffset);
+        int end = slot + 1 == nSlots ? offsetTableOffset - cellOffset : Bytes.toInt(buf, slotOffset + Bytes.SIZEOF_INT);
+        if (start == end) {
+            ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            return false;
+        }
+        ptr.set(buf, cellOffset + start, end - start);
+        return true;
+    }
+}
@@ -33,7 +33,9 @@ import java.io.IOException;
 import java.io.Reader;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -47,6 +49,10 @@ import org.apache.hadoop.hbase.util.Pair;
 
 import com.google.common.collect.Lists;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.jdbc.PhoenixResultSet;
+import com.salesforce.phoenix.jdbc.PhoenixStatement;
+import com.salesforce.phoenix.monitoring.GlobalMetrics;
+import com.salesforce.phoenix.monitoring.StatementMetrics;
 
 /**
  * 
@@ -248,6 +254,38 @@ public class PhoenixRuntime {
         return pconn.executeStatements(reader, binds, System.out);
     }
     
+    /**
+     * Get the metrics collected while executing the last query or DML statement
+     * of the given statement.
+     * @param stmt a Phoenix JDBC statement
+     * @return the statement metrics
+     * @throws SQLException
+     */
+    public static StatementMetrics getStatementMetrics(Statement stmt) throws SQLException {
+        return stmt.unwrap(PhoenixStatement.class).getMetrics();
+    }
+    
+    /**
+     * Get the metrics collected while executing the query that produced the given
+     * result set. Scans complete as the rows are iterated, so the metrics are
+     * complete once the last row has been read.
+     * @param rs a Phoenix JDBC result set
+     * @return the statement metrics
+     * @throws SQLException
+     */
+    public static StatementMetrics getStatementMetrics(ResultSet rs) throws SQLException {
+        return rs.unwrap(PhoenixResultSet.class).getMetrics();
+    }
+    
+    /**
+     * Get the metrics aggregated across all statements executed in this JVM, which are
+     * also available through JMX under {@link GlobalMetrics#OBJECT_NAME}.
+     * @return the global metrics
+     */
+    public static GlobalMetrics getGlobalMetrics() {
+        return GlobalMetrics.getInstance();
+    }
+    
     /**
      * Get the list of uncommitted KeyValues for the connection. Currently used to write an
      * Phoenix-compliant HFile from a map/reduce job.
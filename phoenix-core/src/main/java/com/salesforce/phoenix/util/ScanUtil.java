@@ -47,6 +47,7 @@ import org.apache.hadoop.hbase.util.Bytes;
 import com.google.common.collect.Lists;
 import com.salesforce.phoenix.compile.ScanRanges;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol;
+import com.salesforce.phoenix.filter.EssentialFamilyFilterList;
 import com.salesforce.phoenix.filter.SkipScanFilter;
 import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.query.KeyRange.Bound;
@@ -156,7 +157,7 @@ public class ScanUtil {
                     List<Filter> allFilters = new ArrayList<Filter>(filterList.getFilters().size());
                     allFilters.addAll(filterList.getFilters());
                     allFilters.set(0, newFilter);
-                    scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL,allFilters));
+                    scan.setFilter(new EssentialFamilyFilterList(allFilters));
                 }
             }
         }
@@ -175,9 +176,9 @@ public class ScanUtil {
             List<Filter> allFilters = new ArrayList<Filter>(filterList.getFilters().size() + 1);
             allFilters.add(andWithFilter);
             allFilters.addAll(filterList.getFilters());
-            scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL,allFilters));
+            scan.setFilter(new EssentialFamilyFilterList(allFilters));
         } else {
-            scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL,Arrays.asList(andWithFilter, filter)));
+            scan.setFilter(new EssentialFamilyFilterList(Arrays.asList(andWithFilter, filter)));
         }
     }
 
@@ -193,9 +194,9 @@ public class ScanUtil {
             List<Filter> allFilters = new ArrayList<Filter>(filterList.getFilters().size() + 1);
             allFilters.addAll(filterList.getFilters());
             allFilters.add(andWithFilter);
-            scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL,allFilters));
+            scan.setFilter(new EssentialFamilyFilterList(allFilters));
         } else {
-            scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL,Arrays.asList(filter, andWithFilter)));
+            scan.setFilter(new EssentialFamilyFilterList(Arrays.asList(filter, andWithFilter)));
         }
     }
 
@@ -307,7 +308,9 @@ public class ScanUtil {
              * incrementing the key value itself, and thus bumping it up too much.
              */
             boolean inclusiveUpper = range.isInclusive(bound) && bound == Bound.UPPER;
-            boolean exclusiveLower = !range.isInclusive(bound) && bound == Bound.LOWER;
+            // A slot that isn't constrained at all (as opposed to one that's only unbound
+            // below, like col < 'x') must not filter out null values.
+            boolean exclusiveLower = !range.isInclusive(bound) && bound == Bound.LOWER && !(range.isUnbound(Bound.LOWER) && range.isUnbound(Bound.UPPER));
             if (!isFixedWidth && ( i < schema.getMaxFields()-1 || inclusiveUpper || exclusiveLower)) {
                 key[offset++] = QueryConstants.SEPARATOR_BYTE;
             }
@@ -91,7 +91,7 @@ public class ServerUtil {
         return constructSQLErrorMessage(code.getErrorCode(), code.getSQLState(), code.getMessage() + " " + e.getMessage() + " " + message);
     }
 
-    private static String constructSQLErrorMessage(SQLException e, String message) {
+    public static String constructSQLErrorMessage(SQLException e, String message) {
         return constructSQLErrorMessage(e.getErrorCode(), e.getSQLState(), e.getMessage() + " " + message);
     }
 
@@ -58,6 +58,7 @@ public class SizedUtil {
     public static final int BIG_DECIMAL_SIZE = 
         OBJECT_SIZE + 2 * INT_SIZE + LONG_SIZE + 2 * POINTER_SIZE +
         OBJECT_SIZE /* BigInteger */ + 5 * INT_SIZE + ARRAY_SIZE /*mag[]*/ + 2 * INT_SIZE /* est mag[2] */;
+    public static final int LONG_DECIMAL_SIZE = OBJECT_SIZE + LONG_SIZE + INT_SIZE + POINTER_SIZE;
 
     private SizedUtil() {
     }
@@ -30,12 +30,16 @@ package com.salesforce.hbase.index.covered;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.KeyValue.Type;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.regionserver.HRegion;
@@ -47,10 +51,12 @@ import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import com.salesforce.hbase.index.covered.data.CachedLocalTable;
 import com.salesforce.hbase.index.covered.data.LocalHBaseState;
 import com.salesforce.hbase.index.covered.data.LocalTable;
 import com.salesforce.hbase.index.covered.update.ColumnReference;
 import com.salesforce.hbase.index.scanner.Scanner;
+import com.salesforce.hbase.index.util.ImmutableBytesPtr;
 
 /**
  *
@@ -201,6 +207,29 @@ public class TestLocalTableState {
     Mockito.verify(region, Mockito.times(1)).getScanner(Mockito.any(Scan.class));
   }
 
+  /**
+   * Test that the state of a row loaded up front for a batch is used instead of scanning the row
+   * @throws Exception
+   */
+  @Test
+  public void testCachedRowStateDoesNotScan() throws Exception {
+    Put m = new Put(row);
+    m.add(fam, qual, ts, val);
+    // setup mocks
+    RegionCoprocessorEnvironment env = Mockito.mock(RegionCoprocessorEnvironment.class);
+    HRegion region = Mockito.mock(HRegion.class);
+    Mockito.when(env.getRegion()).thenReturn(region);
+
+    final byte[] stored = Bytes.toBytes("stored-value");
+    KeyValue storedKv = new KeyValue(row, fam, qual, ts, Type.Put, stored);
+    Map<ImmutableBytesPtr, List<KeyValue>> rowValues = new HashMap<ImmutableBytesPtr, List<KeyValue>>();
+    rowValues.put(new ImmutableBytesPtr(row), Collections.singletonList(storedKv));
+    LocalHBaseState state = new CachedLocalTable(rowValues, new LocalTable(env));
+    Result r = state.getCurrentRowState(m, Arrays.asList(new ColumnReference(fam, qual)));
+    assertEquals(Collections.singletonList(storedKv), r.list());
+    Mockito.verify(region, Mockito.never()).getScanner(Mockito.any(Scan.class));
+  }
+
   // TODO add test here for making sure multiple column references with the same column family don't
   // cause an infinite loop
 }
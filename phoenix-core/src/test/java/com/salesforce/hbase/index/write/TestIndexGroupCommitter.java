@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.hbase.index.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestIndexGroupCommitter {
+
+  private static List<Mutation> mutations(String... rows) {
+    List<Mutation> mutations = new ArrayList<Mutation>();
+    for (String row : rows) {
+      Put p = new Put(Bytes.toBytes(row));
+      p.add(Bytes.toBytes("family"), Bytes.toBytes("qual"), null);
+      mutations.add(p);
+    }
+    return mutations;
+  }
+
+  private static Future<Void> submitWrite(ExecutorService exec, final IndexGroupCommitter committer,
+      final HTableInterface table, final List<Mutation> mutations) {
+    return exec.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        committer.write(table, mutations);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Writes that queue up while a batch is in flight should be sent together as the next batch,
+   * and none of the writers should return before its own batch is written.
+   */
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testCombinesWritesQueuedBehindInflightBatch() throws Exception {
+    final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    final List<List<Mutation>> batches =
+        Collections.synchronizedList(new ArrayList<List<Mutation>>());
+    HTableInterface table = Mockito.mock(HTableInterface.class);
+    Mockito.when(table.batch(Mockito.anyList())).thenAnswer(new Answer<Object[]>() {
+      @Override
+      public Object[] answer(InvocationOnMock invocation) throws Throwable {
+        List<Mutation> batch = new ArrayList<Mutation>((List<Mutation>) invocation.getArguments()[0]);
+        batches.add(batch);
+        if (batches.size() == 1) {
+          firstBatchStarted.countDown();
+          releaseFirstBatch.await();
+        }
+        return new Object[batch.size()];
+      }
+    });
+
+    IndexGroupCommitter committer = new IndexGroupCommitter(0, 100);
+    ExecutorService exec = Executors.newFixedThreadPool(3);
+    try {
+      Future<Void> first = submitWrite(exec, committer, table, mutations("a"));
+      assertTrue("First batch never started",
+        firstBatchStarted.await(10, TimeUnit.SECONDS));
+      Future<Void> second = submitWrite(exec, committer, table, mutations("b", "c"));
+      Future<Void> third = submitWrite(exec, committer, table, mutations("d"));
+      // give the followers a chance to queue up behind the in-flight batch
+      while (committer.getPendingSize() < 3) {
+        Thread.sleep(10);
+      }
+      assertTrue("Writer returned before its batch was written", !second.isDone() && !third.isDone());
+      releaseFirstBatch.countDown();
+      first.get();
+      second.get();
+      third.get();
+    } finally {
+      releaseFirstBatch.countDown();
+      exec.shutdownNow();
+    }
+    assertEquals("Queued up writes should have been combined into a single batch", 2, batches.size());
+    assertEquals(1, batches.get(0).size());
+    assertEquals(3, batches.get(1).size());
+  }
+
+  /**
+   * If a combined batch fails partway, only the writer whose updates could not be written should
+   * see the failure; the updates of the other writers should be retried on their own.
+   */
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testFailureOnlyPropagatesToFailedWriter() throws Exception {
+    final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    final List<List<Mutation>> batches =
+        Collections.synchronizedList(new ArrayList<List<Mutation>>());
+    final IOException failure = new IOException("Intentional failure");
+    HTableInterface table = Mockito.mock(HTableInterface.class);
+    Mockito.when(table.batch(Mockito.anyList())).thenAnswer(new Answer<Object[]>() {
+      @Override
+      public Object[] answer(InvocationOnMock invocation) throws Throwable {
+        List<Mutation> batch = new ArrayList<Mutation>((List<Mutation>) invocation.getArguments()[0]);
+        batches.add(batch);
+        if (firstBatchStarted.getCount() > 0) {
+          firstBatchStarted.countDown();
+          releaseFirstBatch.await();
+          return new Object[batch.size()];
+        }
+        for (Mutation m : batch) {
+          if (Bytes.equals(Bytes.toBytes("c"), m.getRow())) {
+            throw failure;
+          }
+        }
+        return new Object[batch.size()];
+      }
+    });
+
+    IndexGroupCommitter committer = new IndexGroupCommitter(0, 100);
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      Future<Void> first = submitWrite(exec, committer, table, mutations("a"));
+      assertTrue("First batch never started",
+        firstBatchStarted.await(10, TimeUnit.SECONDS));
+      Future<Void> second = submitWrite(exec, committer, table, mutations("b"));
+      while (committer.getPendingSize() < 1) {
+        Thread.sleep(10);
+      }
+      Future<Void> third = submitWrite(exec, committer, table, mutations("c"));
+      while (committer.getPendingSize() < 2) {
+        Thread.sleep(10);
+      }
+      Future<Void> fourth = submitWrite(exec, committer, table, mutations("d"));
+      while (committer.getPendingSize() < 3) {
+        Thread.sleep(10);
+      }
+      releaseFirstBatch.countDown();
+      first.get();
+      second.get();
+      fourth.get();
+      try {
+        third.get();
+        fail("Writer whose updates failed should have seen the failure");
+      } catch (ExecutionException e) {
+        assertSame(failure, e.getCause());
+      }
+    } finally {
+      releaseFirstBatch.countDown();
+      exec.shutdownNow();
+    }
+    assertEquals("Failed combined batch should have been retried per writer", 5, batches.size());
+    assertEquals(3, batches.get(1).size());
+    for (int i = 2; i < 5; i++) {
+      assertEquals(1, batches.get(i).size());
+    }
+  }
+
+  /**
+   * If the leader is interrupted while writing a combined batch, the other writers should not see
+   * the interrupt, but have their updates written by the next leader.
+   */
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testLeaderInterruptDoesNotFailOtherWriters() throws Exception {
+    final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    final CountDownLatch combinedBatchStarted = new CountDownLatch(1);
+    final Thread[] leader = new Thread[1];
+    final List<List<Mutation>> batches =
+        Collections.synchronizedList(new ArrayList<List<Mutation>>());
+    HTableInterface table = Mockito.mock(HTableInterface.class);
+    Mockito.when(table.batch(Mockito.anyList())).thenAnswer(new Answer<Object[]>() {
+      @Override
+      public Object[] answer(InvocationOnMock invocation) throws Throwable {
+        List<Mutation> batch = new ArrayList<Mutation>((List<Mutation>) invocation.getArguments()[0]);
+        batches.add(batch);
+        if (firstBatchStarted.getCount() > 0) {
+          firstBatchStarted.countDown();
+          releaseFirstBatch.await();
+        } else if (combinedBatchStarted.getCount() > 0) {
+          leader[0] = Thread.currentThread();
+          combinedBatchStarted.countDown();
+          // block until the leader is interrupted
+          new CountDownLatch(1).await();
+        }
+        return new Object[batch.size()];
+      }
+    });
+
+    IndexGroupCommitter committer = new IndexGroupCommitter(0, 100);
+    ExecutorService exec = Executors.newFixedThreadPool(3);
+    try {
+      Future<Void> first = submitWrite(exec, committer, table, mutations("a"));
+      assertTrue("First batch never started",
+        firstBatchStarted.await(10, TimeUnit.SECONDS));
+      Future<Void> second = submitWrite(exec, committer, table, mutations("b"));
+      Future<Void> third = submitWrite(exec, committer, table, mutations("c"));
+      while (committer.getPendingSize() < 2) {
+        Thread.sleep(10);
+      }
+      releaseFirstBatch.countDown();
+      first.get();
+      assertTrue("Combined batch never started",
+        combinedBatchStarted.await(10, TimeUnit.SECONDS));
+      leader[0].interrupt();
+      int failed = 0;
+      for (Future<Void> f : new Future[] { second, third }) {
+        try {
+          f.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+          assertTrue(e.getCause() instanceof InterruptedException);
+          failed++;
+        }
+      }
+      assertEquals("Only the interrupted leader should have failed", 1, failed);
+    } finally {
+      releaseFirstBatch.countDown();
+      exec.shutdownNow();
+    }
+    assertEquals(2, batches.get(1).size());
+    assertEquals("Next leader should have written the other writer's updates", 3, batches.size());
+    assertEquals(1, batches.get(2).size());
+  }
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.SQLException;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.hbase.index.util.ImmutableBytesPtr;
+import com.salesforce.phoenix.coprocessor.ServerCachingProtocol.ServerCacheFactory;
+import com.salesforce.phoenix.memory.GlobalMemoryManager;
+import com.salesforce.phoenix.memory.MemoryManager;
+import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+
+/**
+ * 
+ * Tests for pinning and evicting reusable server caches
+ *
+ */
+public class TenantCacheImplTest {
+    private static final ImmutableBytesPtr CACHE_A = new ImmutableBytesPtr(Bytes.toBytes("a"));
+    private static final ImmutableBytesPtr CACHE_B = new ImmutableBytesPtr(Bytes.toBytes("b"));
+    private static final ImmutableBytesPtr PIN_1 = new ImmutableBytesPtr(Bytes.toBytes("p1"));
+    private static final ImmutableBytesPtr PIN_2 = new ImmutableBytesPtr(Bytes.toBytes("p2"));
+    private static final ImmutableBytesPtr PIN_3 = new ImmutableBytesPtr(Bytes.toBytes("p3"));
+    
+    private final MemoryManager memoryManager = new GlobalMemoryManager(10000, 1);
+    
+    private static class TestCache implements Closeable {
+        private final MemoryChunk chunk;
+        private boolean isClosed;
+        
+        private TestCache(MemoryChunk chunk) {
+            this.chunk = chunk;
+        }
+        
+        @Override
+        public void close() {
+            isClosed = true;
+            chunk.close();
+        }
+    }
+    
+    private static class TestCacheFactory implements ServerCacheFactory {
+        @Override
+        public void readFields(DataInput input) throws IOException {
+        }
+
+        @Override
+        public void write(DataOutput output) throws IOException {
+        }
+
+        @Override
+        public Closeable newCache(ImmutableBytesWritable cachePtr, MemoryChunk chunk) throws SQLException {
+            return new TestCache(chunk);
+        }
+    }
+    
+    private static ImmutableBytesWritable newCachePtr(int size) {
+        return new ImmutableBytesWritable(new byte[size]);
+    }
+    
+    @Test
+    public void testPinnedCacheSurvivesEviction() throws Exception {
+        TenantCache tenantCache = new TenantCacheImpl(memoryManager, 30000, 60000, 100);
+        TestCache cacheA = (TestCache)tenantCache.addReusableServerCache(CACHE_A, PIN_1, newCachePtr(60), new TestCacheFactory());
+        // Evicts cache A, which is still pinned by the query that added it
+        tenantCache.addReusableServerCache(CACHE_B, PIN_2, newCachePtr(60), new TestCacheFactory());
+        assertFalse(tenantCache.pinReusableServerCache(CACHE_A, PIN_3));
+        assertTrue(tenantCache.getServerCache(CACHE_A) == cacheA);
+        assertFalse(cacheA.isClosed);
+        
+        tenantCache.removeServerCache(PIN_1);
+        assertTrue(cacheA.isClosed);
+        assertNull(tenantCache.getServerCache(CACHE_A));
+        assertEquals(60, memoryManager.getMaxMemory() - memoryManager.getAvailableMemory());
+        
+        // Cache B stays for reuse once unpinned
+        tenantCache.removeServerCache(PIN_2);
+        assertTrue(tenantCache.pinReusableServerCache(CACHE_B, PIN_3));
+        assertNotNull(tenantCache.getServerCache(CACHE_B));
+    }
+    
+    @Test
+    public void testOversizedCacheNotReusable() throws Exception {
+        TenantCache tenantCache = new TenantCacheImpl(memoryManager, 30000, 60000, 100);
+        tenantCache.addReusableServerCache(CACHE_A, PIN_1, newCachePtr(60), new TestCacheFactory());
+        tenantCache.removeServerCache(PIN_1);
+        TestCache cacheB = (TestCache)tenantCache.addReusableServerCache(CACHE_B, PIN_2, newCachePtr(200), new TestCacheFactory());
+        assertTrue(tenantCache.getServerCache(CACHE_B) == cacheB);
+        assertFalse(tenantCache.pinReusableServerCache(CACHE_B, PIN_3));
+        // The smaller cache is not evicted to make room
+        assertTrue(tenantCache.pinReusableServerCache(CACHE_A, PIN_3));
+        
+        tenantCache.removeServerCache(PIN_2);
+        assertTrue(cacheB.isClosed);
+        assertNull(tenantCache.getServerCache(CACHE_B));
+    }
+    
+    @Test
+    public void testCacheLargerThanSegmentKept() throws Exception {
+        // Larger than the maximum weight divided among the default number of segments
+        TenantCache tenantCache = new TenantCacheImpl(memoryManager, 30000, 60000, 1000);
+        tenantCache.addReusableServerCache(CACHE_A, PIN_1, newCachePtr(900), new TestCacheFactory());
+        tenantCache.removeServerCache(PIN_1);
+        assertTrue(tenantCache.pinReusableServerCache(CACHE_A, PIN_2));
+    }
+}
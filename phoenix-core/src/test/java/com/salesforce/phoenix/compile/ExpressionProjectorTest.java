@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.compile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.junit.Test;
+
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.LiteralExpression;
+import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.IllegalDataException;
+import com.salesforce.phoenix.schema.PDataType;
+
+
+public class ExpressionProjectorTest {
+    
+    private static ExpressionProjector newProjector(Expression expression) {
+        return new ExpressionProjector("C", "T", expression, false);
+    }
+    
+    @Test
+    public void testPrimitiveGetters() throws Exception {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        ExpressionProjector projector = newProjector(LiteralExpression.newConstant(42, PDataType.INTEGER));
+        assertEquals(42L, projector.getLong(null, ptr));
+        assertEquals(42, projector.getInt(null, ptr));
+        assertEquals((short)42, projector.getShort(null, ptr));
+        assertEquals((byte)42, projector.getByte(null, ptr));
+        assertEquals(42.0, projector.getDouble(null, ptr), 0);
+        assertEquals(42.0f, projector.getFloat(null, ptr), 0);
+        assertTrue(ptr.getLength() > 0);
+        
+        projector = newProjector(LiteralExpression.newConstant(-7.5, PDataType.DOUBLE));
+        assertEquals(-7.5, projector.getDouble(null, ptr), 0);
+        assertEquals(-7L, projector.getLong(null, ptr));
+    }
+    
+    @Test
+    public void testPrimitiveGettersWithColumnModifier() throws Exception {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        ExpressionProjector projector = newProjector(LiteralExpression.newConstant(-123456789L, PDataType.LONG, ColumnModifier.SORT_DESC));
+        assertEquals(-123456789L, projector.getLong(null, ptr));
+        assertEquals(-123456789, projector.getInt(null, ptr));
+        assertEquals(-123456789.0, projector.getDouble(null, ptr), 0);
+        assertEquals(projector.getValue(null, PDataType.LONG, ptr), projector.getLong(null, ptr));
+    }
+    
+    @Test
+    public void testPrimitiveGettersWithNull() throws Exception {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(new byte[] {1});
+        ExpressionProjector projector = newProjector(LiteralExpression.newConstant(null, PDataType.LONG));
+        assertEquals(0L, projector.getLong(null, ptr));
+        assertEquals(0, ptr.getLength());
+        ptr.set(new byte[] {1});
+        assertEquals(0.0, projector.getDouble(null, ptr), 0);
+        assertEquals(0, ptr.getLength());
+    }
+    
+    @Test
+    public void testPrimitiveGettersWithConversion() throws Exception {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        ExpressionProjector projector = newProjector(LiteralExpression.newConstant(new BigDecimal("12"), PDataType.DECIMAL));
+        assertEquals(12L, projector.getLong(null, ptr));
+        assertEquals(12, projector.getInt(null, ptr));
+        assertEquals(12.0, projector.getDouble(null, ptr), 0);
+    }
+    
+    @Test
+    public void testPrimitiveGetterOverflow() throws Exception {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        ExpressionProjector projector = newProjector(LiteralExpression.newConstant(Long.MAX_VALUE, PDataType.LONG));
+        try {
+            projector.getInt(null, ptr);
+            fail();
+        } catch (IllegalDataException e) {
+        }
+    }
+}
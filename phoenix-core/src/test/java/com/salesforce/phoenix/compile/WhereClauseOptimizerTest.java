@@ -32,6 +32,7 @@ import static com.salesforce.phoenix.util.TestUtil.assertDegenerate;
 import static com.salesforce.phoenix.util.TestUtil.assertEmptyScanKey;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -50,6 +51,8 @@ import java.util.Set;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 
 import com.google.common.collect.Sets;
@@ -58,6 +61,7 @@ import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.OrExpression;
 import com.salesforce.phoenix.filter.RowKeyComparisonFilter;
 import com.salesforce.phoenix.filter.SkipScanFilter;
+import com.salesforce.phoenix.filter.UnionSkipScanFilter;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.jdbc.PhoenixStatement;
 import com.salesforce.phoenix.parse.SQLParser;
@@ -1082,11 +1086,13 @@ public class WhereClauseOptimizerTest extends BaseConnectionlessQueryTest {
 
         Filter filter = scan.getFilter();
         assertNotNull(filter);
-        assertTrue(filter instanceof RowKeyComparisonFilter);
+        assertTrue(filter instanceof FilterList);
+        assertTrue(((FilterList)filter).getFilters().get(0) instanceof UnionSkipScanFilter);
+        assertTrue(((FilterList)filter).getFilters().get(1) instanceof RowKeyComparisonFilter);
         ScanRanges scanRanges = context.getScanRanges();
-        assertEquals(ScanRanges.EVERYTHING,scanRanges);
-        assertArrayEquals(HConstants.EMPTY_START_ROW, scan.getStartRow());
-        assertArrayEquals(HConstants.EMPTY_END_ROW, scan.getStopRow());
+        assertTrue(scanRanges.isUnion());
+        assertArrayEquals(ByteUtil.concat(PDataType.CHAR.toBytes(tenantId1), PDataType.CHAR.toBytes(entityId1)), scan.getStartRow());
+        assertArrayEquals(ByteUtil.nextKey(ByteUtil.concat(PDataType.CHAR.toBytes(tenantId2), PDataType.CHAR.toBytes(entityId2))), scan.getStopRow());
     }
     
     @Test
@@ -1625,4 +1631,53 @@ public class WhereClauseOptimizerTest extends BaseConnectionlessQueryTest {
         assertArrayEquals(ByteUtil.concat(PDataType.CHAR.toBytes(firstOrgId), PDataType.CHAR.toBytes(firstParentId)), scan.getStartRow());
         assertArrayEquals(ByteUtil.nextKey(ByteUtil.concat(PDataType.CHAR.toBytes(secondOrgId), PDataType.CHAR.toBytes(secondParentId), QueryConstants.SEPARATOR_BYTE_ARRAY)), scan.getStopRow());
     }
+    
+    @Test
+    public void testOrOfDifferentPKColumnsUsesUnionSkipScan() throws SQLException {
+        String tenantId1 = "000000000000001";
+        String tenantId2 = "000000000000003";
+        String entityId = "002333333333331";
+        String query = "select * from atable where organization_id = ? and entity_id = ? or organization_id = ? and a_string = 'foo'";
+        Scan scan = new Scan();
+        List<Object> binds = Arrays.<Object>asList(tenantId1, entityId, tenantId2);
+        StatementContext context = compileStatement(query, scan, binds);
+        ScanRanges scanRanges = context.getScanRanges();
+        assertTrue(scanRanges.isUnion());
+        assertEquals(2, scanRanges.getBranches().size());
+        assertArrayEquals(ByteUtil.concat(PDataType.CHAR.toBytes(tenantId1), PDataType.CHAR.toBytes(entityId)), scan.getStartRow());
+        assertArrayEquals(ByteUtil.nextKey(PDataType.CHAR.toBytes(tenantId2)), scan.getStopRow());
+        Filter filter = scan.getFilter();
+        assertTrue(filter instanceof FilterList);
+        assertTrue(((FilterList)filter).getFilters().get(0) instanceof UnionSkipScanFilter);
+    }
+    
+    @Test
+    public void testOrOfDuplicateBranchesIsNotUnioned() throws SQLException {
+        String tenantId = "000000000000001";
+        String query = "select * from atable where organization_id = ? and a_string = 'foo' or organization_id = ? and a_integer = 5";
+        Scan scan = new Scan();
+        List<Object> binds = Arrays.<Object>asList(tenantId, tenantId);
+        StatementContext context = compileStatement(query, scan, binds);
+        assertFalse(context.getScanRanges().isUnion());
+        assertArrayEquals(PDataType.VARCHAR.toBytes(tenantId), scan.getStartRow());
+        assertArrayEquals(ByteUtil.nextKey(PDataType.VARCHAR.toBytes(tenantId)), scan.getStopRow());
+    }
+    
+    @Test
+    public void testSkipScanOverUnconstrainedNullableLeadingColumns() throws SQLException {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE null_prefix_test (k1 VARCHAR, k2 VARCHAR, k3 VARCHAR NOT NULL CONSTRAINT pk PRIMARY KEY (k1,k2,k3))");
+        conn.close();
+
+        String query = "select /*+ SKIP_SCAN */ * from null_prefix_test where k3 = 'c'";
+        Scan scan = new Scan();
+        List<Object> binds = Collections.emptyList();
+        compileStatement(query, scan, binds);
+
+        assertTrue(scan.getFilter() instanceof SkipScanFilter);
+        // Rows with null leading columns must not be skipped by the start row
+        byte[] nullPrefixKey = ByteUtil.concat(QueryConstants.SEPARATOR_BYTE_ARRAY, PDataType.VARCHAR.toBytes("a"), QueryConstants.SEPARATOR_BYTE_ARRAY, PDataType.VARCHAR.toBytes("c"));
+        assertTrue(Bytes.compareTo(scan.getStartRow(), nullPrefixKey) <= 0);
+        assertArrayEquals(HConstants.EMPTY_END_ROW, scan.getStopRow());
+    }
 }
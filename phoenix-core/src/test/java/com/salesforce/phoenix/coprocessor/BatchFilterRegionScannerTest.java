@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.coprocessor;
+
+import static com.salesforce.phoenix.util.TestUtil.and;
+import static com.salesforce.phoenix.util.TestUtil.constantComparison;
+import static com.salesforce.phoenix.util.TestUtil.in;
+import static com.salesforce.phoenix.util.TestUtil.kvColumn;
+import static com.salesforce.phoenix.util.TestUtil.not;
+import static com.salesforce.phoenix.util.TestUtil.or;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.filter.MultiCQKeyValueComparisonFilter;
+import com.salesforce.phoenix.filter.SingleCQKeyValueComparisonFilter;
+import com.salesforce.phoenix.filter.SkipScanFilter;
+import com.salesforce.phoenix.query.BaseConnectionlessQueryTest;
+import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.schema.IllegalDataException;
+import com.salesforce.phoenix.schema.PColumn;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
+import com.salesforce.phoenix.util.ByteUtil;
+
+/**
+ * 
+ * Tests for the evaluation of the WHERE clause over batches of rows by the {@link BatchFilterRegionScanner}
+ *
+ * @since 3.0.0
+ */
+public class BatchFilterRegionScannerTest extends BaseConnectionlessQueryTest {
+    private static final String[] STRINGS = {"a", "b", "c"};
+    private static final List<byte[]> FAMILIES = Collections.singletonList(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES);
+    
+    private static KeyValue newKeyValue(byte[] row, PColumn column, byte[] value) {
+        return new KeyValue(row, column.getFamilyName().getBytes(), column.getName().getBytes(), 1, value);
+    }
+    
+    private static List<List<KeyValue>> newRows(int count) {
+        Random random = new Random(42);
+        List<List<KeyValue>> rows = Lists.newArrayListWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            byte[] row = Bytes.toBytes("000000000000001" + String.format("%015d", i));
+            List<KeyValue> kvs = Lists.newArrayList();
+            kvs.add(new KeyValue(row, QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES, 1, ByteUtil.EMPTY_BYTE_ARRAY));
+            // Leave about one value in four null for each column
+            if (random.nextInt(4) > 0) {
+                kvs.add(newKeyValue(row, A_INTEGER, PDataType.INTEGER.toBytes(random.nextInt(10))));
+            }
+            if (random.nextInt(4) > 0) {
+                kvs.add(newKeyValue(row, A_STRING, PDataType.VARCHAR.toBytes(STRINGS[random.nextInt(STRINGS.length)])));
+            }
+            Collections.sort(kvs, KeyValue.COMPARATOR);
+            rows.add(kvs);
+        }
+        return rows;
+    }
+    
+    private static boolean evaluate(Expression expression, List<KeyValue> row) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        expression.reset();
+        try {
+            if (!expression.evaluate(new MultiKeyValueTuple(row), ptr)) {
+                return false;
+            }
+        } catch (IllegalDataException e) {
+            return false;
+        }
+        return Boolean.TRUE.equals(PDataType.BOOLEAN.toObject(ptr));
+    }
+    
+    private static RegionScanner newScanner(Expression expression, int batchSize, List<List<KeyValue>> rows) {
+        Scan scan = new Scan();
+        scan.setFilter(new MultiCQKeyValueComparisonFilter(expression));
+        assertTrue(BatchFilterRegionScanner.serializeIntoScan(scan, batchSize, FAMILIES));
+        assertNull(scan.getFilter());
+        return BatchFilterRegionScanner.deserializeFromScan(scan, new ListRegionScanner(rows));
+    }
+    
+    private static void assertSameAsRowAtATime(Expression expression, int batchSize, int rowCount) throws IOException {
+        List<List<KeyValue>> rows = newRows(rowCount);
+        List<List<KeyValue>> expected = Lists.newArrayList();
+        for (List<KeyValue> row : rows) {
+            if (evaluate(expression, row)) {
+                expected.add(row);
+            }
+        }
+        RegionScanner scanner = newScanner(expression, batchSize, rows);
+        List<List<KeyValue>> actual = Lists.newArrayList();
+        boolean hasMore;
+        do {
+            List<KeyValue> results = Lists.newArrayList();
+            hasMore = scanner.next(results);
+            if (!results.isEmpty()) {
+                actual.add(results);
+            }
+        } while (hasMore);
+        assertEquals(expression + " with batches of " + batchSize + " over " + rowCount + " rows", expected, actual);
+        assertTrue(scanner.isFilterDone());
+    }
+    
+    @Test
+    public void testSameAsRowAtATime() throws Exception {
+        List<Expression> expressions = Arrays.asList(
+                constantComparison(CompareOp.GREATER_OR_EQUAL, A_INTEGER, 5),
+                and(constantComparison(CompareOp.GREATER, A_INTEGER, 2), constantComparison(CompareOp.EQUAL, A_STRING, "b")),
+                or(constantComparison(CompareOp.LESS, A_INTEGER, 2), in(kvColumn(A_STRING), "a", "c")));
+        for (Expression expression : expressions) {
+            for (int batchSize : new int[] {1, 7, 64}) {
+                for (int rowCount : new int[] {0, 1, 7, 50}) {
+                    assertSameAsRowAtATime(expression, batchSize, rowCount);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testAllRowsSkipped() throws Exception {
+        RegionScanner scanner = newScanner(constantComparison(CompareOp.GREATER, A_INTEGER, 100), 8, newRows(20));
+        List<KeyValue> results = Lists.newArrayList();
+        assertFalse(scanner.next(results));
+        assertTrue(results.isEmpty());
+        assertTrue(scanner.isFilterDone());
+    }
+    
+    @Test
+    public void testSerializeIntoScan() throws Exception {
+        Expression expression = constantComparison(CompareOp.EQUAL, A_STRING, "b");
+        Filter expressionFilter = new MultiCQKeyValueComparisonFilter(expression);
+        Scan scan = new Scan();
+        scan.setFilter(expressionFilter);
+        assertFalse(BatchFilterRegionScanner.serializeIntoScan(scan, 0, FAMILIES));
+        assertSame(expressionFilter, scan.getFilter());
+        
+        // The skip scan stays on the scan
+        SkipScanFilter skipScanFilter = new SkipScanFilter();
+        scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, Arrays.<Filter>asList(skipScanFilter, expressionFilter)));
+        assertTrue(BatchFilterRegionScanner.serializeIntoScan(scan, 10, FAMILIES));
+        assertSame(skipScanFilter, scan.getFilter());
+        RegionScanner s = new ListRegionScanner(Collections.<List<KeyValue>>emptyList());
+        assertTrue(BatchFilterRegionScanner.deserializeFromScan(scan, s) instanceof BatchFilterRegionScanner);
+        assertSame(s, BatchFilterRegionScanner.deserializeFromScan(new Scan(), s));
+        
+        // A page filter must only see the rows passing the WHERE clause
+        Filter filter = new FilterList(FilterList.Operator.MUST_PASS_ALL, Arrays.<Filter>asList(expressionFilter, new PageFilter(10)));
+        scan = new Scan();
+        scan.setFilter(filter);
+        assertFalse(BatchFilterRegionScanner.serializeIntoScan(scan, 10, FAMILIES));
+        assertSame(filter, scan.getFilter());
+        
+        // Expressions without a kernel for every node are evaluated row at a time
+        filter = new MultiCQKeyValueComparisonFilter(and(expression, not(constantComparison(CompareOp.EQUAL, A_INTEGER, 1))));
+        scan.setFilter(filter);
+        assertFalse(BatchFilterRegionScanner.serializeIntoScan(scan, 10, FAMILIES));
+        assertSame(filter, scan.getFilter());
+        
+        // Single key value filters already skip to the next row as soon as their column fails
+        filter = new SingleCQKeyValueComparisonFilter(expression);
+        scan.setFilter(filter);
+        assertFalse(BatchFilterRegionScanner.serializeIntoScan(scan, 10, FAMILIES));
+        assertSame(filter, scan.getFilter());
+    }
+    
+    @Test
+    public void testNonEssentialFamilies() throws Exception {
+        Filter filter = new MultiCQKeyValueComparisonFilter(and(constantComparison(CompareOp.GREATER, A_INTEGER, 2), constantComparison(CompareOp.EQUAL, A_STRING, "b")));
+        List<byte[]> families = Arrays.asList(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, Bytes.toBytes("OTHER"));
+        // Only the family of the WHERE clause would be loaded for rows failing it
+        Scan scan = new Scan();
+        scan.setLoadColumnFamiliesOnDemand(true);
+        scan.setFilter(filter);
+        assertFalse(BatchFilterRegionScanner.serializeIntoScan(scan, 10, families));
+        assertSame(filter, scan.getFilter());
+        
+        // Unless only the family of the WHERE clause is scanned
+        scan.addFamily(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES);
+        assertTrue(BatchFilterRegionScanner.serializeIntoScan(scan, 10, families));
+        assertNull(scan.getFilter());
+        
+        // Or families are not loaded on demand
+        scan = new Scan();
+        scan.setFilter(filter);
+        assertTrue(BatchFilterRegionScanner.serializeIntoScan(scan, 10, families));
+        assertNull(scan.getFilter());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static ObserverContext<RegionCoprocessorEnvironment> newObserverContext(Configuration config) {
+        HTableDescriptor tableDesc = new HTableDescriptor("T");
+        tableDesc.addFamily(new HColumnDescriptor(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES));
+        HRegion region = Mockito.mock(HRegion.class);
+        Mockito.when(region.getTableDesc()).thenReturn(tableDesc);
+        RegionCoprocessorEnvironment env = Mockito.mock(RegionCoprocessorEnvironment.class);
+        Mockito.when(env.getConfiguration()).thenReturn(config);
+        Mockito.when(env.getRegion()).thenReturn(region);
+        ObserverContext<RegionCoprocessorEnvironment> c = Mockito.mock(ObserverContext.class);
+        Mockito.when(c.getEnvironment()).thenReturn(env);
+        return c;
+    }
+    
+    @Test
+    public void testPreScannerOpen() throws Exception {
+        Filter filter = new MultiCQKeyValueComparisonFilter(constantComparison(CompareOp.EQUAL, A_STRING, "b"));
+        Configuration config = HBaseConfiguration.create();
+        config.setInt(QueryServices.FILTER_BATCH_SIZE_ATTRIB, 256);
+        ObserverContext<RegionCoprocessorEnvironment> c = newObserverContext(config);
+        
+        // Only non aggregate scans are batched by the scan observer
+        Scan scan = new Scan();
+        scan.setFilter(filter);
+        new ScanRegionObserver().preScannerOpen(c, scan, null);
+        assertSame(filter, scan.getFilter());
+        
+        scan.setAttribute(ScanRegionObserver.NON_AGGREGATE_QUERY, QueryConstants.TRUE);
+        new ScanRegionObserver().preScannerOpen(c, scan, null);
+        assertNull(scan.getFilter());
+        
+        // A non positive batch size, as by default, turns batching off
+        config.setInt(QueryServices.FILTER_BATCH_SIZE_ATTRIB, 0);
+        scan = new Scan();
+        scan.setFilter(filter);
+        scan.setAttribute(ScanRegionObserver.NON_AGGREGATE_QUERY, QueryConstants.TRUE);
+        new ScanRegionObserver().preScannerOpen(c, scan, null);
+        assertSame(filter, scan.getFilter());
+    }
+    
+    private static class ListRegionScanner extends BaseRegionScanner {
+        private final Iterator<List<KeyValue>> iterator;
+        
+        private ListRegionScanner(List<List<KeyValue>> rows) {
+            this.iterator = rows.iterator();
+        }
+        
+        @Override
+        public boolean next(List<KeyValue> results) throws IOException {
+            if (iterator.hasNext()) {
+                results.addAll(iterator.next());
+            }
+            return iterator.hasNext();
+        }
+
+        @Override
+        public HRegionInfo getRegionInfo() {
+            return null;
+        }
+
+        @Override
+        public boolean isFilterDone() {
+            return !iterator.hasNext();
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.coprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.schema.tuple.ResultTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
+
+/**
+ * 
+ * Tests for the packing of rows into a single cell by the {@link CompactRowsRegionScanner}
+ *
+ * @since 3.0.0
+ */
+public class CompactRowsRegionScannerTest {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final long TIMESTAMP = 1000;
+    
+    private static List<KeyValue> newRow(String key, long timestamp, int nColumns, int skip) {
+        List<KeyValue> row = Lists.newArrayList();
+        for (int i = 0; i < nColumns; i++) {
+            if (skip > 0 && i % skip == 0) {
+                continue;
+            }
+            // Use an empty value for the first column
+            byte[] value = i == 0 ? ByteUtil.EMPTY_BYTE_ARRAY : Bytes.toBytes("v" + key + i);
+            row.add(new KeyValue(Bytes.toBytes(key), FAMILY, Bytes.toBytes(String.format("c%02d", i)), timestamp, value));
+        }
+        return row;
+    }
+    
+    private static void assertRowEquals(List<KeyValue> expected, Tuple actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            KeyValue e = expected.get(i);
+            KeyValue a = actual.getValue(i);
+            assertTrue(Bytes.equals(e.getRow(), a.getRow()));
+            assertTrue(Bytes.equals(e.getFamily(), a.getFamily()));
+            assertTrue(Bytes.equals(e.getQualifier(), a.getQualifier()));
+            assertEquals(e.getTimestamp(), a.getTimestamp());
+            assertTrue(Bytes.equals(e.getValue(), a.getValue()));
+        }
+    }
+    
+    @Test
+    public void testCompactAndExpand() throws IOException {
+        List<List<KeyValue>> rows = Lists.newArrayList();
+        rows.add(newRow("a", TIMESTAMP, 20, 0));
+        rows.add(newRow("b", TIMESTAMP - 1, 20, 3));
+        rows.add(newRow("c", TIMESTAMP, 5, 0));
+        rows.add(newRow("d", TIMESTAMP + 1, 20, 19));
+        Result result = new Result(new KeyValue[] {CompactRowsRegionScanner.compact(rows)});
+        assertTrue(CompactRowsRegionScanner.isCompact(result));
+        
+        List<Tuple> tuples = Lists.newArrayList();
+        assertEquals(rows.size(), CompactRowsRegionScanner.expand(result, tuples));
+        assertEquals(rows.size(), tuples.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertRowEquals(rows.get(i), tuples.get(i));
+        }
+    }
+    
+    @Test
+    public void testSerializeIntoScan() {
+        Scan scan = new Scan();
+        scan.setCaching(1000);
+        assertFalse(CompactRowsRegionScanner.serializeIntoScan(scan, 0));
+        assertEquals(1000, scan.getCaching());
+        assertTrue(CompactRowsRegionScanner.serializeIntoScan(scan, 100));
+        assertEquals(10, scan.getCaching());
+        // Already serialized, so the caching isn't reduced again
+        assertTrue(CompactRowsRegionScanner.serializeIntoScan(scan, 100));
+        assertEquals(10, scan.getCaching());
+        
+        RegionScanner s = new ListRegionScanner(Lists.<List<KeyValue>>newArrayList());
+        assertTrue(CompactRowsRegionScanner.deserializeFromScan(scan, s) instanceof CompactRowsRegionScanner);
+        assertTrue(CompactRowsRegionScanner.deserializeFromScan(new Scan(), s) == s);
+    }
+    
+    @Test
+    public void testUnpackableRow() throws IOException {
+        List<KeyValue> unpackable = newRow("c", TIMESTAMP, 3, 0);
+        unpackable.add(new KeyValue(Bytes.toBytes("c"), FAMILY, Bytes.toBytes("c03"), TIMESTAMP - 1, Bytes.toBytes("x")));
+        List<List<KeyValue>> rows = Lists.newArrayList();
+        rows.add(newRow("a", TIMESTAMP, 3, 0));
+        rows.add(newRow("b", TIMESTAMP, 3, 0));
+        rows.add(unpackable);
+        rows.add(newRow("d", TIMESTAMP, 3, 0));
+        
+        Scan scan = new Scan();
+        CompactRowsRegionScanner.serializeIntoScan(scan, 10);
+        RegionScanner scanner = CompactRowsRegionScanner.deserializeFromScan(scan, new ListRegionScanner(rows));
+        List<Tuple> tuples = Lists.newArrayList();
+        List<KeyValue> results = Lists.newArrayList();
+        
+        assertTrue(scanner.next(results));
+        Result result = new Result(results);
+        assertTrue(CompactRowsRegionScanner.isCompact(result));
+        assertEquals(2, CompactRowsRegionScanner.expand(result, tuples));
+        
+        results.clear();
+        assertTrue(scanner.next(results));
+        assertEquals(unpackable, results);
+        
+        // A single row left is not packed
+        results.clear();
+        assertFalse(scanner.next(results));
+        assertEquals(rows.get(3), results);
+        
+        assertRowEquals(rows.get(0), tuples.get(0));
+        assertRowEquals(rows.get(1), tuples.get(1));
+    }
+    
+    @Test
+    public void testRestartAfterPackedResult() throws IOException {
+        List<List<KeyValue>> rows = Lists.newArrayList();
+        for (char c = 'a'; c <= 'j'; c++) {
+            rows.add(newRow(Character.toString(c), TIMESTAMP, 3, 0));
+        }
+        Scan scan = new Scan();
+        CompactRowsRegionScanner.serializeIntoScan(scan, 4);
+        RegionScanner scanner = CompactRowsRegionScanner.deserializeFromScan(scan, new ListRegionScanner(rows));
+        List<KeyValue> results = Lists.newArrayList();
+        assertTrue(scanner.next(results));
+        Result result = new Result(results);
+        List<Tuple> tuples = Lists.newArrayList();
+        assertEquals(4, CompactRowsRegionScanner.expand(result, tuples));
+        
+        // Restart the scan as the client scanner does, after the row of the last Result received
+        byte[] startRow = Bytes.add(result.getRow(), new byte[1]);
+        List<List<KeyValue>> remainingRows = Lists.newArrayList();
+        for (List<KeyValue> row : rows) {
+            if (Bytes.compareTo(row.get(0).getRow(), startRow) >= 0) {
+                remainingRows.add(row);
+            }
+        }
+        scanner = CompactRowsRegionScanner.deserializeFromScan(scan, new ListRegionScanner(remainingRows));
+        boolean hasMore;
+        do {
+            results.clear();
+            hasMore = scanner.next(results);
+            result = new Result(results);
+            if (CompactRowsRegionScanner.isCompact(result)) {
+                CompactRowsRegionScanner.expand(result, tuples);
+            } else if (!results.isEmpty()) {
+                tuples.add(new ResultTuple(result));
+            }
+        } while (hasMore);
+        
+        // Each row is returned exactly once
+        assertEquals(rows.size(), tuples.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertRowEquals(rows.get(i), tuples.get(i));
+        }
+    }
+    
+    private static class ListRegionScanner extends BaseRegionScanner {
+        private final Iterator<List<KeyValue>> iterator;
+        
+        private ListRegionScanner(List<List<KeyValue>> rows) {
+            this.iterator = rows.iterator();
+        }
+        
+        @Override
+        public boolean next(List<KeyValue> results) throws IOException {
+            if (iterator.hasNext()) {
+                results.addAll(iterator.next());
+            }
+            return iterator.hasNext();
+        }
+
+        @Override
+        public HRegionInfo getRegionInfo() {
+            return null;
+        }
+
+        @Override
+        public boolean isFilterDone() {
+            return !iterator.hasNext();
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.coprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.RegionTooBusyException;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.exception.SQLExceptionCode;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.util.PhoenixRuntime;
+import com.salesforce.phoenix.util.ServerUtil;
+
+/**
+ * 
+ * Tests for the admission of tenant scans by the {@link TenantGovernor}
+ *
+ * @since 3.0.0
+ */
+public class TenantGovernorTest {
+    private static final TenantGovernor GOVERNOR = TenantGovernor.getInstance();
+    
+    private static Configuration newConfiguration(int maxScanners, long maxRowsPerSec, int waitMs) {
+        Configuration conf = new Configuration(false);
+        conf.setInt(QueryServices.MAX_TENANT_SCANNERS_ATTRIB, maxScanners);
+        conf.setLong(QueryServices.MAX_TENANT_ROWS_PER_SEC_ATTRIB, maxRowsPerSec);
+        conf.setInt(QueryServices.TENANT_ADMISSION_WAIT_MS_ATTRIB, waitMs);
+        return conf;
+    }
+    
+    private static ImmutableBytesWritable tenantId(String tenantId) {
+        return new ImmutableBytesWritable(Bytes.toBytes(tenantId));
+    }
+    
+    private static void assertRejected(Configuration conf, ImmutableBytesWritable tenantId) throws IOException {
+        try {
+            GOVERNOR.admit(conf, tenantId, "region");
+            fail();
+        } catch (RegionTooBusyException e) {
+            assertEquals(SQLExceptionCode.TENANT_QUOTA_EXCEEDED.getErrorCode(), ServerUtil.parseServerException(e).getErrorCode());
+        }
+    }
+    
+    @Test
+    public void testNotGoverned() throws Exception {
+        assertNull(GOVERNOR.admit(new Configuration(false), tenantId("notGoverned"), "region"));
+        assertNull(GOVERNOR.admit(newConfiguration(1, 0, 0), null, "region"));
+    }
+    
+    @Test
+    public void testMaxScanners() throws Exception {
+        Configuration conf = newConfiguration(2, 0, 0);
+        ImmutableBytesWritable tenantId = tenantId("maxScanners");
+        TenantGovernor.Lease lease1 = GOVERNOR.admit(conf, tenantId, "region");
+        TenantGovernor.Lease lease2 = GOVERNOR.admit(conf, tenantId, "region");
+        assertEquals(2, GOVERNOR.getScannerCount(tenantId));
+        assertRejected(conf, tenantId);
+        // Other tenants are not affected
+        assertNotNull(GOVERNOR.admit(conf, tenantId("otherTenant"), "region"));
+        
+        lease1.close();
+        lease1.close();
+        assertEquals(1, GOVERNOR.getScannerCount(tenantId));
+        TenantGovernor.Lease lease3 = GOVERNOR.admit(conf, tenantId, "region");
+        lease2.close();
+        lease3.close();
+        assertEquals(0, GOVERNOR.getScannerCount(tenantId));
+    }
+    
+    @Test
+    public void testWaitForScanner() throws Exception {
+        Configuration conf = newConfiguration(1, 0, 10000);
+        ImmutableBytesWritable tenantId = tenantId("waitForScanner");
+        final TenantGovernor.Lease lease1 = GOVERNOR.admit(conf, tenantId, "region");
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                }
+                lease1.close();
+            }
+        };
+        thread.start();
+        TenantGovernor.Lease lease2 = GOVERNOR.admit(conf, tenantId, "region");
+        thread.join();
+        lease2.close();
+        assertEquals(0, GOVERNOR.getScannerCount(tenantId));
+    }
+    
+    @Test
+    public void testRowRate() throws Exception {
+        Configuration conf = newConfiguration(0, 3, 0);
+        ImmutableBytesWritable tenantId = tenantId("rowRate");
+        final List<KeyValue> rows = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            rows.add(new KeyValue(Bytes.toBytes("row" + i), Bytes.toBytes("cf"), Bytes.toBytes("cq"), Bytes.toBytes(i)));
+        }
+        TenantGovernor.Lease lease = GOVERNOR.admit(conf, tenantId, "region");
+        GovernedRegionScanner scanner = new GovernedRegionScanner(new BaseRegionScanner() {
+            private int index;
+            
+            @Override
+            public HRegionInfo getRegionInfo() {
+                return null;
+            }
+
+            @Override
+            public boolean next(List<KeyValue> results) throws IOException {
+                results.add(rows.get(index++));
+                return index < rows.size();
+            }
+
+            @Override
+            public void close() throws IOException {
+            }
+        }, lease, true);
+        List<KeyValue> results = Lists.newArrayList();
+        while (scanner.nextRaw(results, null)) {
+        }
+        assertEquals(3, results.size());
+        scanner.close();
+        assertEquals(0, GOVERNOR.getScannerCount(tenantId));
+        // The rows scanned within the last second put the tenant at its quota
+        assertRejected(conf, tenantId);
+    }
+    
+    /**
+     * Observer of a test table, which handles no scans itself
+     */
+    private static class TestRegionObserver extends BaseScannerRegionObserver {
+        @Override
+        protected RegionScanner doPostScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c, Scan scan, RegionScanner s) throws Throwable {
+            return s;
+        }
+    }
+    
+    /**
+     * Opens a scanner the way the region server does, with two observers on the region
+     */
+    private static RegionScanner openScanner(ObserverContext<RegionCoprocessorEnvironment> c, BaseScannerRegionObserver[] observers, Scan scan) throws IOException {
+        RegionScanner s = null;
+        for (BaseScannerRegionObserver observer : observers) {
+            s = observer.preScannerOpen(c, scan, s);
+        }
+        if (s == null) {
+            s = c.getEnvironment().getRegion().getScanner(scan);
+        }
+        for (BaseScannerRegionObserver observer : observers) {
+            s = observer.postScannerOpen(c, scan, s);
+        }
+        return s;
+    }
+    
+    @Test
+    public void testRejectedScanOpensNoScanner() throws Exception {
+        ImmutableBytesWritable tenantId = tenantId("rejectedScan");
+        HRegion region = Mockito.mock(HRegion.class);
+        Mockito.when(region.getRegionNameAsString()).thenReturn("region");
+        Mockito.when(region.getScanner(Mockito.any(Scan.class))).thenAnswer(new Answer<RegionScanner>() {
+            @Override
+            public RegionScanner answer(InvocationOnMock invocation) throws Throwable {
+                return Mockito.mock(RegionScanner.class);
+            }
+        });
+        RegionCoprocessorEnvironment env = Mockito.mock(RegionCoprocessorEnvironment.class);
+        Mockito.when(env.getConfiguration()).thenReturn(newConfiguration(1, 0, 0));
+        Mockito.when(env.getRegion()).thenReturn(region);
+        @SuppressWarnings("unchecked")
+        ObserverContext<RegionCoprocessorEnvironment> c = Mockito.mock(ObserverContext.class);
+        Mockito.when(c.getEnvironment()).thenReturn(env);
+        BaseScannerRegionObserver[] observers = new BaseScannerRegionObserver[] {new TestRegionObserver(), new TestRegionObserver()};
+        
+        Scan scan1 = new Scan();
+        scan1.setAttribute(PhoenixRuntime.TENANT_ID_ATTRIB, tenantId.copyBytes());
+        RegionScanner scanner1 = openScanner(c, observers, scan1);
+        // Admitted once, even though each observer of the region sees the scan
+        assertEquals(1, GOVERNOR.getScannerCount(tenantId));
+        Mockito.verify(region, Mockito.times(1)).getScanner(Mockito.any(Scan.class));
+        
+        Scan scan2 = new Scan();
+        scan2.setAttribute(PhoenixRuntime.TENANT_ID_ATTRIB, tenantId.copyBytes());
+        try {
+            openScanner(c, observers, scan2);
+            fail();
+        } catch (IOException e) {
+            assertEquals(SQLExceptionCode.TENANT_QUOTA_EXCEEDED.getErrorCode(), ServerUtil.parseServerException(e).getErrorCode());
+        }
+        // The rejected scan did not open a scanner that would have been left open
+        Mockito.verify(region, Mockito.times(1)).getScanner(Mockito.any(Scan.class));
+        assertEquals(1, GOVERNOR.getScannerCount(tenantId));
+        
+        scanner1.close();
+        assertEquals(0, GOVERNOR.getScannerCount(tenantId));
+    }
+    
+    @Test
+    public void testLeaseOfScanFailingToOpenReleased() throws Exception {
+        ImmutableBytesWritable tenantId = tenantId("failedScan");
+        HRegion region = Mockito.mock(HRegion.class);
+        Mockito.when(region.getRegionNameAsString()).thenReturn("region");
+        RegionCoprocessorEnvironment env = Mockito.mock(RegionCoprocessorEnvironment.class);
+        Mockito.when(env.getConfiguration()).thenReturn(newConfiguration(1, 0, 0));
+        Mockito.when(env.getRegion()).thenReturn(region);
+        @SuppressWarnings("unchecked")
+        ObserverContext<RegionCoprocessorEnvironment> c = Mockito.mock(ObserverContext.class);
+        Mockito.when(c.getEnvironment()).thenReturn(env);
+        BaseScannerRegionObserver observer = new TestRegionObserver();
+        
+        // Admitted, but the region fails to open the scanner, so postScannerOpen is never called
+        Scan scan1 = new Scan();
+        scan1.setAttribute(PhoenixRuntime.TENANT_ID_ATTRIB, tenantId.copyBytes());
+        observer.preScannerOpen(c, scan1, null);
+        assertEquals(1, GOVERNOR.getScannerCount(tenantId));
+        
+        // The next scan opened by the same handler releases the lease left behind
+        Scan scan2 = new Scan();
+        scan2.setAttribute(PhoenixRuntime.TENANT_ID_ATTRIB, tenantId.copyBytes());
+        RegionScanner scanner2 = observer.postScannerOpen(c, scan2, observer.preScannerOpen(c, scan2, Mockito.mock(RegionScanner.class)));
+        assertEquals(1, GOVERNOR.getScannerCount(tenantId));
+        scanner2.close();
+        assertEquals(0, GOVERNOR.getScannerCount(tenantId));
+    }
+}
@@ -52,6 +52,8 @@ import org.junit.Test;
 
 import com.salesforce.phoenix.exception.SQLExceptionCode;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.query.ConnectionQueryServices;
+import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.schema.TableNotFoundException;
 import com.salesforce.phoenix.util.SchemaUtil;
 
@@ -797,5 +799,103 @@ public class AlterTableTest extends BaseHBaseManagedTimeTest {
             conn.close();
         }
     }
+
+    @Test
+    public void testAddColumnSeenByConnectionTrustingCachedMetaData() throws Exception {
+        Properties props = new Properties(TEST_PROPERTIES);
+        props.setProperty(QueryServices.METADATA_UPDATE_FREQ_MS_ATTRIB, Integer.toString(60 * 60000));
+        Connection conn1 = DriverManager.getConnection(getUrl(), props);
+        Connection conn2 = DriverManager.getConnection(getUrl(), new Properties(TEST_PROPERTIES));
+        try {
+            conn1.createStatement().execute("CREATE TABLE update_freq_test (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR)");
+            conn1.createStatement().execute("UPSERT INTO update_freq_test VALUES('a','b')");
+            conn1.commit();
+            ResultSet rs = conn1.createStatement().executeQuery("SELECT v1 FROM update_freq_test");
+            assertTrue(rs.next());
+            assertEquals("b", rs.getString(1));
+            assertFalse(rs.next());
+            
+            // Meta data resolved within the update frequency is not checked against the server again
+            ConnectionQueryServices services = conn1.unwrap(PhoenixConnection.class).getQueryServices();
+            long resolvedTime = services.getTableResolvedTime(null, "UPDATE_FREQ_TEST");
+            assertTrue(resolvedTime > 0);
+            Thread.sleep(10);
+            rs = conn1.createStatement().executeQuery("SELECT v1 FROM update_freq_test");
+            assertTrue(rs.next());
+            assertEquals(resolvedTime, services.getTableResolvedTime(null, "UPDATE_FREQ_TEST"));
+            
+            // A column added through another connection is found by refreshing the stale meta data
+            conn2.createStatement().execute("ALTER TABLE update_freq_test ADD v2 VARCHAR");
+            conn2.createStatement().execute("UPSERT INTO update_freq_test VALUES('a','b','c')");
+            conn2.commit();
+            rs = conn1.createStatement().executeQuery("SELECT v2 FROM update_freq_test");
+            assertTrue(rs.next());
+            assertEquals("c", rs.getString(1));
+            assertFalse(rs.next());
+            assertTrue(services.getTableResolvedTime(null, "UPDATE_FREQ_TEST") > resolvedTime);
+        } finally {
+            conn1.close();
+            conn2.close();
+        }
+    }
    
- }
+     @Test
+    public void testOnlyStaleTableRefreshedForConnectionTrustingCachedMetaData() throws Exception {
+        Properties props = new Properties(TEST_PROPERTIES);
+        props.setProperty(QueryServices.METADATA_UPDATE_FREQ_MS_ATTRIB, Integer.toString(60 * 60000));
+        Connection conn1 = DriverManager.getConnection(getUrl(), props);
+        Connection conn2 = DriverManager.getConnection(getUrl(), new Properties(TEST_PROPERTIES));
+        try {
+            conn1.createStatement().execute("CREATE TABLE update_freq_test1 (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR)");
+            conn1.createStatement().execute("CREATE TABLE update_freq_test2 (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR)");
+            conn1.createStatement().executeQuery("SELECT v1 FROM update_freq_test1").close();
+            conn1.createStatement().executeQuery("SELECT v1 FROM update_freq_test2").close();
+            ConnectionQueryServices services = conn1.unwrap(PhoenixConnection.class).getQueryServices();
+            long resolvedTime2 = services.getTableResolvedTime(null, "UPDATE_FREQ_TEST2");
+            assertTrue(resolvedTime2 > 0);
+            
+            conn2.createStatement().execute("ALTER TABLE update_freq_test1 ADD v2 VARCHAR");
+            Thread.sleep(10);
+            ResultSet rs = conn1.createStatement().executeQuery("SELECT v2 FROM update_freq_test1");
+            assertFalse(rs.next());
+            // Only the table found to be stale is checked against the server again
+            assertEquals(resolvedTime2, services.getTableResolvedTime(null, "UPDATE_FREQ_TEST2"));
+        } finally {
+            conn1.close();
+            conn2.close();
+        }
+    }
+
+    @Test
+    public void testIndexMaintainedByConnectionTrustingCachedMetaData() throws Exception {
+        Properties props = new Properties(TEST_PROPERTIES);
+        props.setProperty(QueryServices.METADATA_UPDATE_FREQ_MS_ATTRIB, Integer.toString(60 * 60000));
+        Connection conn1 = DriverManager.getConnection(getUrl(), props);
+        Connection conn2 = DriverManager.getConnection(getUrl(), new Properties(TEST_PROPERTIES));
+        try {
+            conn1.createStatement().execute("CREATE TABLE update_freq_index_test (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR) IMMUTABLE_ROWS=true");
+            conn1.createStatement().executeQuery("SELECT v1 FROM update_freq_index_test").close();
+            
+            // An index created through another connection is maintained by writes, since the
+            // meta data of a table being written to is always checked against the server
+            conn2.createStatement().execute("CREATE INDEX update_freq_index_test_idx ON update_freq_index_test (v1)");
+            conn1.setAutoCommit(true);
+            conn1.createStatement().execute("UPSERT INTO update_freq_index_test VALUES('a','b')");
+            ResultSet rs = conn2.createStatement().executeQuery("SELECT * FROM update_freq_index_test_idx");
+            assertTrue(rs.next());
+            assertEquals("b", rs.getString(1));
+            assertFalse(rs.next());
+            
+            // Once the table has indexes, queries check its meta data against the server too
+            ConnectionQueryServices services = conn1.unwrap(PhoenixConnection.class).getQueryServices();
+            conn1.createStatement().executeQuery("SELECT v1 FROM update_freq_index_test").close();
+            long resolvedTime = services.getTableResolvedTime(null, "UPDATE_FREQ_INDEX_TEST");
+            Thread.sleep(10);
+            conn1.createStatement().executeQuery("SELECT v1 FROM update_freq_index_test").close();
+            assertTrue(services.getTableResolvedTime(null, "UPDATE_FREQ_INDEX_TEST") > resolvedTime);
+        } finally {
+            conn1.close();
+            conn2.close();
+        }
+    }
+}
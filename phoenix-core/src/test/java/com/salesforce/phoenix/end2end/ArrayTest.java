@@ -710,6 +710,96 @@ public class ArrayTest extends BaseClientManagedTimeTest {
 			conn.close();
 		}
 	}
+	@Test
+	public void testArrayAnyComparisonInWhereClause() throws Exception {
+		long ts = nextTimestamp();
+		String tenantId = getOrganizationId();
+		createTableWithArray(BaseConnectedQueryTest.getUrl(),
+				getDefaultSplits(tenantId), null, ts - 2);
+		initTablesWithArrays(tenantId, null, ts, false);
+		Properties props = new Properties(TEST_PROPERTIES);
+		props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB,
+				Long.toString(ts + 2)); // Execute at timestamp 2
+		Connection conn = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+		try {
+			ResultSet rs = conn.createStatement().executeQuery("SELECT b_string FROM table_with_array WHERE 'XYZWER' = ANY(a_string_array)");
+			assertTrue(rs.next());
+			assertEquals(B_VALUE, rs.getString(1));
+			assertFalse(rs.next());
+			// Last element of a variable length array
+			rs = conn.createStatement().executeQuery("SELECT b_string FROM table_with_array WHERE 'AB' = ANY(a_string_array)");
+			assertTrue(rs.next());
+			assertFalse(rs.next());
+			rs = conn.createStatement().executeQuery("SELECT b_string FROM table_with_array WHERE 'XYZ' = ANY(a_string_array)");
+			assertFalse(rs.next());
+			rs = conn.createStatement().executeQuery("SELECT b_string FROM table_with_array WHERE 300 < ANY(a_double_array)");
+			assertTrue(rs.next());
+			assertFalse(rs.next());
+			PreparedStatement statement = conn.prepareStatement("SELECT b_string FROM table_with_array WHERE ? = ANY(a_byte_array)");
+			statement.setInt(1, 36);
+			rs = statement.executeQuery();
+			assertTrue(rs.next());
+			assertFalse(rs.next());
+			statement.setInt(1, 37);
+			rs = statement.executeQuery();
+			assertFalse(rs.next());
+		} finally {
+			conn.close();
+		}
+	}
+
+	@Test
+	public void testArrayAllComparisonInWhereClause() throws Exception {
+		long ts = nextTimestamp();
+		String tenantId = getOrganizationId();
+		createTableWithArray(BaseConnectedQueryTest.getUrl(),
+				getDefaultSplits(tenantId), null, ts - 2);
+		initTablesWithArrays(tenantId, null, ts, false);
+		Properties props = new Properties(TEST_PROPERTIES);
+		props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB,
+				Long.toString(ts + 2)); // Execute at timestamp 2
+		Connection conn = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+		try {
+			ResultSet rs = conn.createStatement().executeQuery("SELECT b_string FROM table_with_array WHERE 20 < ALL(a_double_array)");
+			assertTrue(rs.next());
+			assertEquals(B_VALUE, rs.getString(1));
+			assertFalse(rs.next());
+			rs = conn.createStatement().executeQuery("SELECT b_string FROM table_with_array WHERE 30 < ALL(a_double_array)");
+			assertFalse(rs.next());
+			rs = conn.createStatement().executeQuery("SELECT b_string FROM table_with_array WHERE 'ZZZ' != ALL(a_string_array)");
+			assertTrue(rs.next());
+			assertFalse(rs.next());
+		} finally {
+			conn.close();
+		}
+	}
+
+	@Test
+	public void testArrayAnyComparisonWithNullElement() throws Exception {
+		long ts = nextTimestamp();
+		String tenantId = getOrganizationId();
+		createTableWithArray(BaseConnectedQueryTest.getUrl(),
+				getDefaultSplits(tenantId), null, ts - 2);
+		initTablesWithArrays(tenantId, null, ts, true);
+		Properties props = new Properties(TEST_PROPERTIES);
+		props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB,
+				Long.toString(ts + 2)); // Execute at timestamp 2
+		Connection conn = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+		try {
+			ResultSet rs = conn.createStatement().executeQuery("SELECT b_string FROM table_with_array WHERE 'ABC' = ANY(a_string_array)");
+			assertTrue(rs.next());
+			assertFalse(rs.next());
+			// Unknown rather than false, since the null element might have matched
+			rs = conn.createStatement().executeQuery("SELECT ARRAY_ANY('CEDF', a_string_array, 'EQUAL') FROM table_with_array");
+			assertTrue(rs.next());
+			rs.getBoolean(1);
+			assertTrue(rs.wasNull());
+			assertFalse(rs.next());
+		} finally {
+			conn.close();
+		}
+	}
+
 	static void createTableWithArray(String url, byte[][] bs, Object object,
 			long ts) throws SQLException {
 		String ddlStmt = "create table "
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.end2end;
+
+import static com.salesforce.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.util.ReadOnlyProps;
+
+/**
+ * Tests for queries whose rows are packed into a single cell by the region servers.
+ */
+public class CompactRowsTest extends BaseHBaseManagedTimeTest {
+    private static final int ROW_COUNT = 95;
+    
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String,String> props = Maps.newHashMapWithExpectedSize(1);
+        props.put(QueryServices.COMPACT_ROWS_PER_RESULT_ATTRIB, Integer.toString(10));
+        // Must update config before starting server
+        startServer(getUrl(), new ReadOnlyProps(props.entrySet().iterator()));
+    }
+    
+    private static void loadRows(Connection conn) throws Exception {
+        conn.createStatement().execute("CREATE TABLE COMPACT_ROWS_TEST (k INTEGER NOT NULL PRIMARY KEY, a.v1 VARCHAR, a.v2 BIGINT, b.v3 VARCHAR)");
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO COMPACT_ROWS_TEST VALUES(?, ?, ?, ?)");
+        for (int i = 0; i < ROW_COUNT; i++) {
+            stmt.setInt(1, i);
+            stmt.setString(2, "v" + (i % 10));
+            stmt.setLong(3, i * 10L);
+            // Leave some of the values null
+            stmt.setString(4, i % 3 == 0 ? null : "w" + i);
+            stmt.executeUpdate();
+        }
+        conn.commit();
+    }
+    
+    @Test
+    public void testCompactRows() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES);
+        try {
+            loadRows(conn);
+            ResultSet rs = conn.createStatement().executeQuery("SELECT k, v1, v2, v3 FROM COMPACT_ROWS_TEST");
+            for (int i = 0; i < ROW_COUNT; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+                assertEquals("v" + (i % 10), rs.getString(2));
+                assertEquals(i * 10L, rs.getLong(3));
+                if (i % 3 == 0) {
+                    assertNull(rs.getString(4));
+                } else {
+                    assertEquals("w" + i, rs.getString(4));
+                }
+            }
+            assertFalse(rs.next());
+            
+            rs = conn.createStatement().executeQuery("SELECT k, v3 FROM COMPACT_ROWS_TEST WHERE v3 IS NOT NULL ORDER BY v2 DESC LIMIT 5");
+            for (int i = ROW_COUNT - 1, count = 0; count < 5; i--) {
+                if (i % 3 == 0) {
+                    continue;
+                }
+                count++;
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+                assertEquals("w" + i, rs.getString(2));
+            }
+            assertFalse(rs.next());
+            
+            rs = conn.createStatement().executeQuery("SELECT v1, count(*), sum(v2) FROM COMPACT_ROWS_TEST GROUP BY v1");
+            for (int i = 0; i < 10; i++) {
+                assertTrue(rs.next());
+                assertEquals("v" + i, rs.getString(1));
+                assertEquals(i < 5 ? 10 : 9, rs.getLong(2));
+            }
+            assertFalse(rs.next());
+            
+            rs = conn.createStatement().executeQuery("SELECT count(v3) FROM COMPACT_ROWS_TEST");
+            assertTrue(rs.next());
+            assertEquals(ROW_COUNT - (ROW_COUNT + 2) / 3, rs.getLong(1));
+        } finally {
+            conn.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.end2end;
+
+import static com.salesforce.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.StatsManager;
+import com.salesforce.phoenix.schema.TableRef;
+import com.salesforce.phoenix.util.QueryUtil;
+import com.salesforce.phoenix.util.ReadOnlyProps;
+
+/**
+ * Tests for the choice of a query plan based on the size of the regions of the tables.
+ */
+public class CostBasedOptimizerTest extends BaseHBaseManagedTimeTest {
+    private static final int ROW_COUNT = 4000;
+    private static final int VALUE_LENGTH = 400;
+    private static final long MAX_WAIT_MS = 60000;
+    
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String,String> props = Maps.newHashMapWithExpectedSize(1);
+        // Refresh the region sizes often, so we don't wait long for the ones of the tables we load
+        props.put(QueryServices.STATS_UPDATE_FREQ_MS_ATTRIB, Integer.toString(1000));
+        // Must update config before starting server
+        startServer(getUrl(), new ReadOnlyProps(props.entrySet().iterator()));
+    }
+    
+    private static Map<String,Long> waitForRegionSizes(StatsManager statsManager, TableRef tableRef) throws Exception {
+        long endTime = System.currentTimeMillis() + MAX_WAIT_MS;
+        Map<String,Long> regionSizes;
+        // The region servers report their load to the master periodically
+        while ((regionSizes = statsManager.getRegionSizes(tableRef)) == null && System.currentTimeMillis() < endTime) {
+            Thread.sleep(1000);
+        }
+        return regionSizes;
+    }
+    
+    @Test
+    public void testChooseCheaperPlan() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES);
+        try {
+            conn.createStatement().execute("CREATE TABLE COST_TEST (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR) IMMUTABLE_ROWS=true");
+            conn.createStatement().execute("CREATE INDEX COST_TEST_IDX ON COST_TEST(v1) INCLUDE (v2)");
+            StringBuilder buf = new StringBuilder();
+            for (int i = 0; i < VALUE_LENGTH; i++) {
+                buf.append('x');
+            }
+            String value = buf.toString();
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO COST_TEST VALUES(?, ?, ?)");
+            for (int i = 0; i < ROW_COUNT; i++) {
+                stmt.setString(1, String.format("k%05d", i));
+                stmt.setString(2, String.format("v%05d", i));
+                stmt.setString(3, value);
+                stmt.execute();
+                if (i % 1000 == 999) {
+                    conn.commit();
+                }
+            }
+            conn.commit();
+            
+            PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+            StatsManager statsManager = pconn.getQueryServices().getStatsManager();
+            assertNotNull(waitForRegionSizes(statsManager, new TableRef(pconn.getPMetaData().getTable("COST_TEST"))));
+            assertNotNull(waitForRegionSizes(statsManager, new TableRef(pconn.getPMetaData().getTable("COST_TEST_IDX"))));
+            
+            // Both plans bind a single leading primary key column, but the point lookup over the
+            // data table reads far fewer bytes than the range scan over most of the index.
+            String query = "SELECT k, v2 FROM COST_TEST WHERE k = 'k00010' AND v1 > 'v00001'";
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            String plan = QueryUtil.getExplainPlan(rs);
+            assertTrue(plan, plan.contains("OVER COST_TEST ['k00010']"));
+            assertTrue(plan, plan.contains("ESTIMATED 1 ROWS"));
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("k00010", rs.getString(1));
+            assertEquals(value, rs.getString(2));
+            assertFalse(rs.next());
+            
+            // The index is still chosen when it's cheaper
+            query = "SELECT k FROM COST_TEST WHERE v1 = 'v00020'";
+            rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            plan = QueryUtil.getExplainPlan(rs);
+            assertTrue(plan, plan.contains("OVER COST_TEST_IDX"));
+            assertTrue(plan, plan.contains("ESTIMATED "));
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("k00020", rs.getString(1));
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+}
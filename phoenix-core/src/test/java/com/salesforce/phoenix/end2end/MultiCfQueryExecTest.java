@@ -236,4 +236,49 @@ public class MultiCfQueryExecTest extends BaseClientManagedTimeTest {
         }
     }
     
+    @Test
+    public void testEssentialColumnFamilyForIsNull() throws Exception {
+        long ts = nextTimestamp();
+        initTableValues(ts);
+        String url = PHOENIX_JDBC_URL + ";" + PhoenixRuntime.CURRENT_SCN_ATTRIB + "=" + (ts + 2);
+        Connection conn = DriverManager.getConnection(url);
+        conn.createStatement().execute("UPSERT INTO multi_cf(ID, B.UNIQUE_ORG_COUNT) VALUES ('000000000000003', 3)");
+        conn.commit();
+        conn.close();
+
+        // No row has a value in the other families, so they must be essential for IS NULL to find them
+        String query = "SELECT ID, UNIQUE_ORG_COUNT from multi_cf where F.RESPONSE_TIME IS NULL";
+        url = PHOENIX_JDBC_URL + ";" + PhoenixRuntime.CURRENT_SCN_ATTRIB + "=" + (ts + 5); // Run query at timestamp 5
+        conn = DriverManager.getConnection(url);
+        try {
+            ResultSet rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("000000000000003", rs.getString(1));
+            assertEquals(3, rs.getInt(2));
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+    
+    @Test
+    public void testEssentialColumnFamiliesWithSkipScan() throws Exception {
+        long ts = nextTimestamp();
+        String query = "SELECT ID, F.RESPONSE_TIME, G.RESPONSE_TIME from multi_cf where ID IN ('000000000000001','000000000000002') AND TRANSACTION_COUNT = 200 AND CPU_UTILIZATION > 2";
+        String url = PHOENIX_JDBC_URL + ";" + PhoenixRuntime.CURRENT_SCN_ATTRIB + "=" + (ts + 5); // Run query at timestamp 5
+        Properties props = new Properties(TEST_PROPERTIES);
+        Connection conn = DriverManager.getConnection(url, props);
+        try {
+            initTableValues(ts);
+            ResultSet rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("000000000000002", rs.getString(1));
+            assertEquals(2222, rs.getLong(2));
+            assertEquals(22222, rs.getLong(3));
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+    
 }
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+import com.salesforce.phoenix.exception.SQLExceptionCode;
+import com.salesforce.phoenix.util.QueryUtil;
+
+public class PackedRowsTest extends BaseHBaseManagedTimeTest {
+
+    private static void initTable(Connection conn) throws SQLException {
+        conn.createStatement().execute("CREATE TABLE t (k VARCHAR NOT NULL PRIMARY KEY, a.v1 VARCHAR, a.v2 INTEGER, b.v3 VARCHAR, b.v4 BIGINT) IMMUTABLE_ROWS=true, PACKED_ROWS=true");
+        conn.createStatement().execute("UPSERT INTO t VALUES('a','x',1,'y',10)");
+        conn.createStatement().execute("UPSERT INTO t VALUES('b',null,2,'z',null)");
+        conn.createStatement().execute("UPSERT INTO t(k,v2) VALUES('c',3)");
+        conn.commit();
+    }
+    
+    @Test
+    public void testSelectPackedColumns() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        initTable(conn);
+        
+        ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM t");
+        assertTrue(rs.next());
+        assertEquals("a", rs.getString(1));
+        assertEquals("x", rs.getString(2));
+        assertEquals(1, rs.getInt(3));
+        assertEquals("y", rs.getString(4));
+        assertEquals(10, rs.getLong(5));
+        assertTrue(rs.next());
+        assertEquals("b", rs.getString(1));
+        assertNull(rs.getString(2));
+        assertEquals(2, rs.getInt(3));
+        assertEquals("z", rs.getString(4));
+        assertNull(rs.getObject(5));
+        assertTrue(rs.next());
+        assertEquals("c", rs.getString(1));
+        assertNull(rs.getString(2));
+        assertEquals(3, rs.getInt(3));
+        assertNull(rs.getString(4));
+        assertNull(rs.getObject(5));
+        assertFalse(rs.next());
+        
+        rs = conn.createStatement().executeQuery("SELECT k, v4 FROM t WHERE v2 >= 2 AND v3 = 'z'");
+        assertTrue(rs.next());
+        assertEquals("b", rs.getString(1));
+        assertNull(rs.getObject(2));
+        assertFalse(rs.next());
+        
+        rs = conn.createStatement().executeQuery("SELECT k FROM t WHERE v1 IS NULL AND v2 > 2");
+        assertTrue(rs.next());
+        assertEquals("c", rs.getString(1));
+        assertFalse(rs.next());
+    }
+    
+    @Test
+    public void testAddColumn() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        initTable(conn);
+        
+        conn.createStatement().execute("ALTER TABLE t ADD a.v5 VARCHAR");
+        conn.createStatement().execute("UPSERT INTO t VALUES('d','w',4,null,40,'new')");
+        conn.commit();
+        
+        ResultSet rs = conn.createStatement().executeQuery("SELECT k, v1, v5 FROM t WHERE v2 >= 3");
+        assertTrue(rs.next());
+        assertEquals("c", rs.getString(1));
+        assertNull(rs.getString(2));
+        assertNull(rs.getString(3));
+        assertTrue(rs.next());
+        assertEquals("d", rs.getString(1));
+        assertEquals("w", rs.getString(2));
+        assertEquals("new", rs.getString(3));
+        assertFalse(rs.next());
+    }
+    
+    @Test
+    public void testInvalidPackedRows() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        try {
+            conn.createStatement().execute("CREATE TABLE t (k VARCHAR NOT NULL PRIMARY KEY, v VARCHAR) PACKED_ROWS=true");
+            fail();
+        } catch (SQLException e) {
+            assertEquals(SQLExceptionCode.INVALID_PACKED_ROWS.getErrorCode(), e.getErrorCode());
+        }
+        
+        initTable(conn);
+        try {
+            conn.createStatement().execute("ALTER TABLE t DROP COLUMN v1");
+            fail();
+        } catch (SQLException e) {
+            assertEquals(SQLExceptionCode.CANNOT_MUTATE_PACKED_ROWS_COLUMNS.getErrorCode(), e.getErrorCode());
+        }
+        try {
+            conn.createStatement().execute("ALTER TABLE t SET IMMUTABLE_ROWS=false");
+            fail();
+        } catch (SQLException e) {
+            assertEquals(SQLExceptionCode.INVALID_PACKED_ROWS.getErrorCode(), e.getErrorCode());
+        }
+    }
+    
+    @Test
+    public void testImmutableIndexOnPackedRows() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        initTable(conn);
+        conn.createStatement().execute("CREATE INDEX i ON t (v3) INCLUDE (v2)");
+        conn.createStatement().execute("UPSERT INTO t VALUES('d','w',4,'v',40)");
+        conn.commit();
+        
+        String query = "SELECT k, v2 FROM t WHERE v3 >= 'v'";
+        ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+        assertTrue(QueryUtil.getExplainPlan(rs).contains(" I "));
+        rs = conn.createStatement().executeQuery(query);
+        assertTrue(rs.next());
+        assertEquals("d", rs.getString(1));
+        assertEquals(4, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals("a", rs.getString(1));
+        assertEquals(1, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals("b", rs.getString(1));
+        assertEquals(2, rs.getInt(2));
+        assertFalse(rs.next());
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.end2end;
+
+import static com.salesforce.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.phoenix.cache.ServerCacheClient;
+import com.salesforce.phoenix.coprocessor.ServerCachingProtocol;
+import com.salesforce.phoenix.coprocessor.ServerCachingProtocol.ServerCacheFactory;
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+
+/**
+ * Tests for relaying a server cache from one region server to another.
+ */
+public class ServerCacheRelayTest extends BaseHBaseManagedTimeTest {
+    private static final AtomicInteger CACHES_CREATED = new AtomicInteger();
+    
+    public static class CountingCacheFactory implements ServerCacheFactory {
+        public CountingCacheFactory() {
+        }
+        
+        @Override
+        public void readFields(DataInput input) throws IOException {
+        }
+
+        @Override
+        public void write(DataOutput output) throws IOException {
+        }
+
+        @Override
+        public Closeable newCache(ImmutableBytesWritable cachePtr, final MemoryChunk chunk) throws SQLException {
+            CACHES_CREATED.incrementAndGet();
+            return new Closeable() {
+                @Override
+                public void close() throws IOException {
+                    chunk.close();
+                }
+            };
+        }
+    }
+    
+    @Test
+    public void testPartitionForRelay() {
+        List<byte[]> keys = Arrays.asList(new byte[][] {Bytes.toBytes("a"), Bytes.toBytes("b"), Bytes.toBytes("c"), Bytes.toBytes("d"), Bytes.toBytes("e")});
+        assertEquals(3, ServerCacheClient.partitionForRelay(keys, 3).size());
+        assertEquals(2, ServerCacheClient.partitionForRelay(keys, 3).get(0).size());
+        assertEquals(1, ServerCacheClient.partitionForRelay(keys, 3).get(2).size());
+        assertEquals(1, ServerCacheClient.partitionForRelay(keys, 1).size());
+        assertEquals(5, ServerCacheClient.partitionForRelay(keys, 0).size());
+        assertEquals(5, ServerCacheClient.partitionForRelay(keys, 10).size());
+        assertTrue(ServerCacheClient.partitionForRelay(keys.subList(0, 0), 3).isEmpty());
+    }
+    
+    @Test
+    public void testRelayServerCache() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES);
+        try {
+            conn.createStatement().execute("CREATE TABLE RELAY_TEST (k VARCHAR PRIMARY KEY) SPLIT ON ('b','c','d')");
+            HTableInterface htable = conn.unwrap(PhoenixConnection.class).getQueryServices().getTable(Bytes.toBytes("RELAY_TEST"));
+            try {
+                // Each key is on the same region server, which already holds the cache and so does not relay it to itself
+                List<byte[]> keys = Arrays.asList(new byte[][] {HConstants.EMPTY_START_ROW, Bytes.toBytes("b"), Bytes.toBytes("c"), Bytes.toBytes("d")});
+                byte[] cacheId = ServerCacheClient.generateId();
+                int created = CACHES_CREATED.get();
+                ServerCacheClient.sendServerCache(htable, null, cacheId, null, new ImmutableBytesWritable(Bytes.toBytes("cache")), new CountingCacheFactory(), keys, 2);
+                assertEquals(created + 1, CACHES_CREATED.get());
+                ServerCacheClient.confirmRelayedServerCache(htable, null, cacheId, null, new ImmutableBytesWritable(Bytes.toBytes("cache")), new CountingCacheFactory(), keys.subList(1, keys.size()), 0);
+                assertEquals(created + 1, CACHES_CREATED.get());
+                for (byte[] key : keys) {
+                    assertTrue(htable.coprocessorProxy(ServerCachingProtocol.class, key).hasServerCache(null, cacheId));
+                }
+                htable.coprocessorProxy(ServerCachingProtocol.class, HConstants.EMPTY_START_ROW).removeServerCache(null, cacheId);
+                assertFalse(htable.coprocessorProxy(ServerCachingProtocol.class, HConstants.EMPTY_START_ROW).hasServerCache(null, cacheId));
+            } finally {
+                htable.close();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+    
+    @Test
+    public void testSendDirectlyWhenNotRelayed() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES);
+        try {
+            conn.createStatement().execute("CREATE TABLE RELAY_FALLBACK_TEST (k VARCHAR PRIMARY KEY) SPLIT ON ('b')");
+            HTableInterface htable = conn.unwrap(PhoenixConnection.class).getQueryServices().getTable(Bytes.toBytes("RELAY_FALLBACK_TEST"));
+            try {
+                // The cache was never relayed, so it is sent directly once the wait is over
+                byte[] key = Bytes.toBytes("b");
+                byte[] cacheId = ServerCacheClient.generateId();
+                int created = CACHES_CREATED.get();
+                assertFalse(htable.coprocessorProxy(ServerCachingProtocol.class, key).hasServerCache(null, cacheId));
+                ServerCacheClient.confirmRelayedServerCache(htable, null, cacheId, null, new ImmutableBytesWritable(Bytes.toBytes("cache")), new CountingCacheFactory(), Collections.singletonList(key), 0);
+                assertEquals(created + 1, CACHES_CREATED.get());
+                assertTrue(htable.coprocessorProxy(ServerCachingProtocol.class, key).hasServerCache(null, cacheId));
+                htable.coprocessorProxy(ServerCachingProtocol.class, key).removeServerCache(null, cacheId);
+            } finally {
+                htable.close();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+}
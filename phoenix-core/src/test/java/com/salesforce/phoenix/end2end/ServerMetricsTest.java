@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.end2end;
+
+import static com.salesforce.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.monitoring.ServerMetricType;
+import com.salesforce.phoenix.monitoring.ServerMetricsSink;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.util.ReadOnlyProps;
+
+/**
+ * Tests for the metrics collected by the coprocessors on the region servers.
+ */
+public class ServerMetricsTest extends BaseHBaseManagedTimeTest {
+    
+    public static class TestServerMetricsSink implements ServerMetricsSink {
+        private static final AtomicLongArray COUNTS = new AtomicLongArray(ServerMetricType.values().length);
+        private static final AtomicLongArray TOTALS = new AtomicLongArray(ServerMetricType.values().length);
+        
+        @Override
+        public void update(ServerMetricType type, long value) {
+            COUNTS.incrementAndGet(type.ordinal());
+            TOTALS.addAndGet(type.ordinal(), value);
+        }
+        
+        private static long getCount(ServerMetricType type) {
+            return COUNTS.get(type.ordinal());
+        }
+        
+        private static long getTotal(ServerMetricType type) {
+            return TOTALS.get(type.ordinal());
+        }
+        
+        private static void reset() {
+            for (int i = 0; i < COUNTS.length(); i++) {
+                COUNTS.set(i, 0);
+                TOTALS.set(i, 0);
+            }
+        }
+    }
+    
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String,String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.SERVER_METRICS_SINK_CLASS_ATTRIB, TestServerMetricsSink.class.getName());
+        // Forces the index metadata to be sent as a server cache
+        props.put(QueryServices.INDEX_MUTATE_BATCH_SIZE_THRESHOLD_ATTRIB, Integer.toString(2));
+        // Must update config before starting server
+        startServer(getUrl(), new ReadOnlyProps(props.entrySet().iterator()));
+    }
+    
+    @Before
+    public void resetSink() {
+        TestServerMetricsSink.reset();
+    }
+    
+    private static void loadRows(Connection conn, String tableName, int rowCount) throws Exception {
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES(?, ?)");
+        for (int i = 0; i < rowCount; i++) {
+            stmt.setString(1, "k" + i);
+            stmt.setString(2, "v" + (i % 10));
+            stmt.executeUpdate();
+        }
+        conn.commit();
+    }
+    
+    @Test
+    public void testAggregateMetrics() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES);
+        try {
+            conn.createStatement().execute("CREATE TABLE METRICS_AGG_TEST (k VARCHAR PRIMARY KEY, v VARCHAR)");
+            loadRows(conn, "METRICS_AGG_TEST", 100);
+            
+            ResultSet rs = conn.createStatement().executeQuery("SELECT v, count(*) FROM METRICS_AGG_TEST GROUP BY v");
+            int groupCount = 0;
+            while (rs.next()) {
+                assertEquals(10, rs.getLong(2));
+                groupCount++;
+            }
+            assertEquals(10, groupCount);
+            assertTrue(TestServerMetricsSink.getCount(ServerMetricType.GROUPED_AGGREGATE_TIME_MS) > 0);
+            assertTrue(TestServerMetricsSink.getCount(ServerMetricType.SCANNER_OPEN_TIME_MS) > 0);
+            
+            long ungroupedCount = TestServerMetricsSink.getCount(ServerMetricType.UNGROUPED_AGGREGATE_TIME_MS);
+            rs = conn.createStatement().executeQuery("SELECT count(*) FROM METRICS_AGG_TEST");
+            assertTrue(rs.next());
+            assertEquals(100, rs.getLong(1));
+            assertTrue(TestServerMetricsSink.getCount(ServerMetricType.UNGROUPED_AGGREGATE_TIME_MS) > ungroupedCount);
+        } finally {
+            conn.close();
+        }
+    }
+    
+    @Test
+    public void testIndexWriteMetrics() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES);
+        try {
+            conn.createStatement().execute("CREATE TABLE METRICS_INDEX_TEST (k VARCHAR PRIMARY KEY, v VARCHAR)");
+            conn.createStatement().execute("CREATE INDEX METRICS_INDEX_TEST_IDX ON METRICS_INDEX_TEST(v)");
+            loadRows(conn, "METRICS_INDEX_TEST", 10);
+            
+            // Each new row also removes any prior index row for it
+            assertEquals(20, TestServerMetricsSink.getTotal(ServerMetricType.INDEX_UPDATE_COUNT));
+            assertTrue(TestServerMetricsSink.getCount(ServerMetricType.INDEX_WRITE_TIME_MS) > 0);
+            // The index metadata was sent as a server cache since the batch exceeds the threshold
+            assertTrue(TestServerMetricsSink.getTotal(ServerMetricType.SERVER_CACHE_BYTES) > 0);
+            
+            ObjectName mbeanName = new ObjectName("hadoop:service=Phoenix,name=ServerMetrics");
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(mbeanName));
+        } finally {
+            conn.close();
+        }
+    }
+}
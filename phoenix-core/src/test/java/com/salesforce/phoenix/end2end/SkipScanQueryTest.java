@@ -43,7 +43,11 @@ import java.util.List;
 
 import org.junit.Test;
 
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.query.StatsManager;
+import com.salesforce.phoenix.schema.TableRef;
 import com.salesforce.phoenix.util.PhoenixRuntime;
+import com.salesforce.phoenix.util.QueryUtil;
 
 public class SkipScanQueryTest extends BaseHBaseManagedTimeTest {
     
@@ -151,6 +155,95 @@ public class SkipScanQueryTest extends BaseHBaseManagedTimeTest {
         }
     }
 
+    @Test
+    public void testOrOfDifferentPKColumnsQuery() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.setAutoCommit(false);
+        initVarCharCrossProductInTable(conn,Arrays.asList("d","da","db"),Arrays.asList("m","mc","tt"));
+        try {
+            String query;
+            // The second and third branches overlap, but each row must only be returned once
+            query = "SELECT s1,s2 FROM inVarTest WHERE s1 = 'd' OR (s1 = 'db' AND s2 = 'mc') OR (s1 = 'db' AND s2 >= 'm' AND s2 < 'n')";
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            assertTrue(QueryUtil.getExplainPlan(rs).contains("SKIP SCAN UNION OF 3 BRANCHES"));
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("d", rs.getString(1));
+            assertEquals("m", rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals("d", rs.getString(1));
+            assertEquals("mc", rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals("d", rs.getString(1));
+            assertEquals("tt", rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals("db", rs.getString(1));
+            assertEquals("m", rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals("db", rs.getString(1));
+            assertEquals("mc", rs.getString(2));
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    public void testSkipScanOverLowCardinalityLeadingColumn() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        try {
+            conn.createStatement().execute("CREATE TABLE lowCardTest (region CHAR(2) NOT NULL, id INTEGER NOT NULL, v VARCHAR CONSTRAINT pk PRIMARY KEY (region, id))");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO lowCardTest VALUES(?,?,?)");
+            for (String region : Arrays.asList("EU","NA","SA")) {
+                for (int i = 0; i < 10; i++) {
+                    stmt.setString(1, region);
+                    stmt.setInt(2, i);
+                    stmt.setString(3, region + i);
+                    stmt.execute();
+                }
+            }
+            conn.commit();
+            
+            String query = "SELECT v FROM lowCardTest WHERE id = 5";
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            assertTrue(QueryUtil.getExplainPlan(rs).contains("FULL SCAN"));
+            
+            PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+            TableRef tableRef = new TableRef(pconn.getPMetaData().getTable("LOWCARDTEST"));
+            StatsManager statsManager = pconn.getQueryServices().getStatsManager();
+            statsManager.getLeadingPKCardinality(tableRef, 1);
+            statsManager.updateStats(tableRef);
+            assertEquals(3, statsManager.getLeadingPKCardinality(tableRef, 1));
+            
+            rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            assertTrue(QueryUtil.getExplainPlan(rs).contains("SKIP SCAN"));
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("EU5", rs.getString(1));
+            assertTrue(rs.next());
+            assertEquals("NA5", rs.getString(1));
+            assertTrue(rs.next());
+            assertEquals("SA5", rs.getString(1));
+            assertFalse(rs.next());
+            
+            query = "SELECT v FROM lowCardTest WHERE region > 'F' AND id IN (2,3)";
+            rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            assertTrue(QueryUtil.getExplainPlan(rs).contains("SKIP SCAN"));
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("NA2", rs.getString(1));
+            assertTrue(rs.next());
+            assertEquals("NA3", rs.getString(1));
+            assertTrue(rs.next());
+            assertEquals("SA2", rs.getString(1));
+            assertTrue(rs.next());
+            assertEquals("SA3", rs.getString(1));
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+
     @Test
     public void testVarCharParallelListInQuery() throws Exception {
         Connection conn = DriverManager.getConnection(getUrl());
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.end2end;
+
+import static com.salesforce.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.salesforce.phoenix.monitoring.GlobalMetrics;
+import com.salesforce.phoenix.monitoring.MetricType;
+import com.salesforce.phoenix.monitoring.ScanMetrics;
+import com.salesforce.phoenix.monitoring.StatementMetrics;
+import com.salesforce.phoenix.util.PhoenixRuntime;
+
+/**
+ * Tests for the metrics collected while executing statements.
+ */
+public class StatementMetricsTest extends BaseHBaseManagedTimeTest {
+    
+    @Test
+    public void testMutationMetrics() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES);
+        try {
+            conn.createStatement().execute("CREATE TABLE METRICS_MUTATION_TEST (k VARCHAR PRIMARY KEY, v INTEGER)");
+            conn.setAutoCommit(true);
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO METRICS_MUTATION_TEST VALUES('a', 1)");
+            stmt.executeUpdate();
+            StatementMetrics metrics = PhoenixRuntime.getStatementMetrics(stmt);
+            assertEquals(1, metrics.get(MetricType.MUTATION_BATCH_COUNT));
+            assertEquals(1, metrics.get(MetricType.MUTATION_ROW_COUNT));
+            assertTrue(metrics.get(MetricType.MUTATION_COMMIT_TIME_MS) >= 0);
+            
+            // Rows committed without auto commit are not attributed to the statement
+            conn.setAutoCommit(false);
+            long globalRowCount = PhoenixRuntime.getGlobalMetrics().getMutationRowCount();
+            stmt = conn.prepareStatement("UPSERT INTO METRICS_MUTATION_TEST VALUES(?, 2)");
+            stmt.setString(1, "b");
+            stmt.executeUpdate();
+            stmt.setString(1, "c");
+            stmt.executeUpdate();
+            conn.commit();
+            assertEquals(0, PhoenixRuntime.getStatementMetrics(stmt).get(MetricType.MUTATION_ROW_COUNT));
+            assertEquals(globalRowCount + 2, PhoenixRuntime.getGlobalMetrics().getMutationRowCount());
+        } finally {
+            conn.close();
+        }
+    }
+    
+    @Test
+    public void testScanMetrics() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES);
+        try {
+            conn.createStatement().execute("CREATE TABLE METRICS_SCAN_TEST (k VARCHAR PRIMARY KEY, v INTEGER) SPLIT ON ('c')");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO METRICS_SCAN_TEST VALUES(?, ?)");
+            String[] keys = new String[] {"a", "b", "c", "d", "e"};
+            for (int i = 0; i < keys.length; i++) {
+                stmt.setString(1, keys[i]);
+                stmt.setInt(2, i);
+                stmt.executeUpdate();
+            }
+            conn.commit();
+            
+            long statementCount = PhoenixRuntime.getGlobalMetrics().getStatementCount();
+            long scanRowCount = PhoenixRuntime.getGlobalMetrics().getScanRowCount();
+            ResultSet rs = conn.createStatement().executeQuery("SELECT k, v FROM METRICS_SCAN_TEST");
+            int rowCount = 0;
+            while (rs.next()) {
+                rowCount++;
+            }
+            assertEquals(keys.length, rowCount);
+            StatementMetrics metrics = PhoenixRuntime.getStatementMetrics(rs);
+            // At least one scan per region
+            long scanCount = metrics.get(MetricType.SCAN_COUNT);
+            assertTrue(scanCount >= 2);
+            assertEquals(keys.length, metrics.get(MetricType.SCAN_ROW_COUNT));
+            assertTrue(metrics.get(MetricType.SCAN_BYTES) > 0);
+            // Each scan opens, fetches one batch and closes
+            assertEquals(3 * scanCount, metrics.get(MetricType.SCAN_RPC_COUNT));
+            assertEquals(0, metrics.get(MetricType.SPOOL_BYTES));
+            
+            assertEquals(scanCount, metrics.getScanMetrics().size());
+            long scannedRows = 0;
+            for (ScanMetrics scanMetrics : metrics.getScanMetrics().values()) {
+                scannedRows += scanMetrics.getRowCount();
+            }
+            assertEquals(keys.length, scannedRows);
+            
+            assertEquals(statementCount + 1, PhoenixRuntime.getGlobalMetrics().getStatementCount());
+            assertEquals(scanRowCount + keys.length, PhoenixRuntime.getGlobalMetrics().getScanRowCount());
+            ObjectName name = new ObjectName(GlobalMetrics.OBJECT_NAME);
+            assertEquals(PhoenixRuntime.getGlobalMetrics().getScanRowCount(), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ScanRowCount"));
+        } finally {
+            conn.close();
+        }
+    }
+}
@@ -41,16 +41,20 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.common.collect.Maps;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.query.ConnectionQueryServices;
+import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.schema.PIndexState;
 import com.salesforce.phoenix.schema.PTableType;
+import com.salesforce.phoenix.util.QueryUtil;
 import com.salesforce.phoenix.util.ReadOnlyProps;
 import com.salesforce.phoenix.util.StringUtil;
 
@@ -65,27 +69,52 @@ import com.salesforce.phoenix.util.StringUtil;
 public class MutableIndexFailureTest extends BaseMutableIndexTest {
     @BeforeClass 
     public static void doSetup() throws Exception {
-        Map<String,String> props = Maps.newHashMapWithExpectedSize(1);
+        Map<String,String> props = Maps.newHashMapWithExpectedSize(4);
         props.put("hbase.client.retries.number", Integer.toString(2));
         props.put("hbase.client.pause", Integer.toString(5000));
+        props.put(QueryServices.INDEX_FAILURE_HANDLING_REBUILD_ATTRIB, Boolean.TRUE.toString());
+        props.put(QueryServices.INDEX_FAILURE_HANDLING_REBUILD_INTERVAL_ATTRIB, Integer.toString(1000));
         // Must update config before starting server
         startServer(getUrl(), new ReadOnlyProps(props.entrySet().iterator()));
     }
     
     
-    private static void destroyIndexTable() throws Exception {
+    private static HTableDescriptor destroyIndexTable() throws Exception {
         Properties props = new Properties(TEST_PROPERTIES);
         ConnectionQueryServices services = DriverManager.getConnection(getUrl(), props).unwrap(PhoenixConnection.class).getQueryServices();
         HBaseAdmin admin = services.getAdmin();
         try {
+            HTableDescriptor descriptor = admin.getTableDescriptor(Bytes.toBytes(INDEX_TABLE_FULL_NAME));
             admin.disableTable(INDEX_TABLE_FULL_NAME);
             admin.deleteTable(INDEX_TABLE_FULL_NAME);
+            return descriptor;
         } catch (TableNotFoundException e) {
+            return null;
         } finally {
             admin.close();
         }
     }
     
+    private static void createIndexTable(HTableDescriptor descriptor) throws Exception {
+        Properties props = new Properties(TEST_PROPERTIES);
+        ConnectionQueryServices services = DriverManager.getConnection(getUrl(), props).unwrap(PhoenixConnection.class).getQueryServices();
+        HBaseAdmin admin = services.getAdmin();
+        try {
+            admin.createTable(descriptor);
+        } finally {
+            admin.close();
+        }
+    }
+    
+    private static String getIndexState(Connection conn) throws SQLException {
+        ResultSet rs = conn.getMetaData().getTables(null, StringUtil.escapeLike(SCHEMA_NAME), INDEX_TABLE_NAME, new String[] {PTableType.INDEX.toString()});
+        assertTrue(rs.next());
+        assertEquals(INDEX_TABLE_NAME, rs.getString(3));
+        String state = rs.getString("INDEX_STATE");
+        assertFalse(rs.next());
+        return state;
+    }
+    
     @Test
     public void testWriteFailureDisablesIndex() throws Exception {
         String query;
@@ -111,7 +140,7 @@ public class MutableIndexFailureTest extends BaseMutableIndexTest {
         assertEquals(PIndexState.ACTIVE.toString(), rs.getString("INDEX_STATE"));
         assertFalse(rs.next());
 
-        destroyIndexTable();
+        HTableDescriptor indexDescriptor = destroyIndexTable();
         
         PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + DATA_TABLE_FULL_NAME + " VALUES(?,?,?)");
         stmt.setString(1,"a");
@@ -130,5 +159,33 @@ public class MutableIndexFailureTest extends BaseMutableIndexTest {
         assertEquals(INDEX_TABLE_NAME, rs.getString(3));
         assertEquals(PIndexState.DISABLE.toString(), rs.getString("INDEX_STATE"));
         assertFalse(rs.next());
+        
+        // Once the index table is back, the index is rebuilt from the time it was disabled,
+        // including rows written while it was disabled, and becomes active again.
+        createIndexTable(indexDescriptor);
+        stmt.setString(1,"b");
+        stmt.setString(2, "y");
+        stmt.setString(3, "2");
+        stmt.execute();
+        conn.commit();
+        long endTime = System.currentTimeMillis() + 60000;
+        while (!PIndexState.ACTIVE.toString().equals(getIndexState(conn))) {
+            assertTrue("Index was not rebuilt", System.currentTimeMillis() < endTime);
+            Thread.sleep(1000);
+        }
+        query = "SELECT v1, k, v2 FROM " + DATA_TABLE_FULL_NAME;
+        rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+        assertEquals("CLIENT PARALLEL 1-WAY FULL SCAN OVER " + INDEX_TABLE_FULL_NAME, QueryUtil.getExplainPlan(rs));
+        rs = conn.createStatement().executeQuery(query);
+        rs = conn.createStatement().executeQuery(query);
+        assertTrue(rs.next());
+        assertEquals("x", rs.getString(1));
+        assertEquals("a", rs.getString(2));
+        assertEquals("1", rs.getString(3));
+        assertTrue(rs.next());
+        assertEquals("y", rs.getString(1));
+        assertEquals("b", rs.getString(2));
+        assertEquals("2", rs.getString(3));
+        assertFalse(rs.next());
     }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.batch;
+
+import static com.salesforce.phoenix.util.TestUtil.and;
+import static com.salesforce.phoenix.util.TestUtil.constantComparison;
+import static com.salesforce.phoenix.util.TestUtil.in;
+import static com.salesforce.phoenix.util.TestUtil.kvColumn;
+import static com.salesforce.phoenix.util.TestUtil.not;
+import static com.salesforce.phoenix.util.TestUtil.or;
+import static com.salesforce.phoenix.util.TestUtil.pkColumn;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.expression.ComparisonExpression;
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.LiteralExpression;
+import com.salesforce.phoenix.expression.LongAddExpression;
+import com.salesforce.phoenix.expression.LongMultiplyExpression;
+import com.salesforce.phoenix.query.BaseConnectionlessQueryTest;
+import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.schema.IllegalDataException;
+import com.salesforce.phoenix.schema.PColumn;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
+
+
+public class BatchExpressionCompilerTest extends BaseConnectionlessQueryTest {
+    private static final int BATCH_SIZE = 64;
+    private static final String[] STRINGS = {"a", "b", "c", "d"};
+    private static final String[] ORG_IDS = {"000000000000001", "000000000000002"};
+    
+    private static KeyValue newKeyValue(byte[] row, PColumn column, byte[] value) {
+        return new KeyValue(row, column.getFamilyName().getBytes(), column.getName().getBytes(), 1, value);
+    }
+    
+    private static Tuple[] newRows(int count) throws Exception {
+        Random random = new Random(42);
+        PColumn xLong = ATABLE.getColumn("X_LONG");
+        PColumn xInteger = ATABLE.getColumn("X_INTEGER");
+        Tuple[] rows = new Tuple[count];
+        for (int i = 0; i < count; i++) {
+            byte[] row = Bytes.toBytes(ORG_IDS[random.nextInt(ORG_IDS.length)] + String.format("%015d", i));
+            List<KeyValue> kvs = Lists.newArrayList();
+            kvs.add(new KeyValue(row, QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES, 1, ByteUtil.EMPTY_BYTE_ARRAY));
+            // Leave about one value in five null for each column
+            if (random.nextInt(5) > 0) {
+                kvs.add(newKeyValue(row, A_INTEGER, PDataType.INTEGER.toBytes(random.nextInt(10))));
+            }
+            if (random.nextInt(5) > 0) {
+                kvs.add(newKeyValue(row, A_STRING, PDataType.VARCHAR.toBytes(STRINGS[random.nextInt(STRINGS.length)])));
+            }
+            if (random.nextInt(5) > 0) {
+                kvs.add(newKeyValue(row, xLong, PDataType.LONG.toBytes((long)random.nextInt(20) - 5)));
+            }
+            if (random.nextInt(5) > 0) {
+                kvs.add(newKeyValue(row, xInteger, PDataType.INTEGER.toBytes(random.nextInt(7))));
+            }
+            Collections.sort(kvs, KeyValue.COMPARATOR);
+            rows[i] = new MultiKeyValueTuple(kvs);
+        }
+        return rows;
+    }
+    
+    private static boolean evaluate(Expression expression, Tuple tuple) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        expression.reset();
+        try {
+            if (!expression.evaluate(tuple, ptr)) {
+                return false;
+            }
+        } catch (IllegalDataException e) {
+            return false;
+        }
+        return Boolean.TRUE.equals(PDataType.BOOLEAN.toObject(ptr));
+    }
+    
+    private static void assertSameAsRowAtATime(Expression expression) throws Exception {
+        BatchExpression batchExpression = BatchExpressionCompiler.compile(expression, BATCH_SIZE);
+        assertNotNull(batchExpression);
+        Tuple[] rows = newRows(BATCH_SIZE * 3 + 10);
+        Tuple[] batch = new Tuple[BATCH_SIZE];
+        for (int start = 0; start < rows.length; start += BATCH_SIZE) {
+            int size = Math.min(BATCH_SIZE, rows.length - start);
+            System.arraycopy(rows, start, batch, 0, size);
+            ValueVector result = batchExpression.evaluate(batch, size);
+            for (int i = 0; i < size; i++) {
+                boolean expected = evaluate(expression, batch[i]);
+                boolean actual = result.getState(i) == ValueVector.UNKNOWN ? evaluate(expression, batch[i]) : result.isTrue(i);
+                assertEquals(expression + " for " + batch[i], expected, actual);
+            }
+        }
+    }
+    
+    @Test
+    public void testLongComparison() throws Exception {
+        for (CompareOp op : Arrays.asList(CompareOp.LESS, CompareOp.LESS_OR_EQUAL, CompareOp.EQUAL, CompareOp.NOT_EQUAL, CompareOp.GREATER_OR_EQUAL, CompareOp.GREATER)) {
+            assertSameAsRowAtATime(constantComparison(op, A_INTEGER, 5));
+            assertSameAsRowAtATime(constantComparison(op, ATABLE.getColumn("X_LONG"), 0L));
+        }
+    }
+    
+    @Test
+    public void testAndOrIn() throws Exception {
+        assertSameAsRowAtATime(and(constantComparison(CompareOp.GREATER_OR_EQUAL, A_INTEGER, 3), constantComparison(CompareOp.EQUAL, A_STRING, "b")));
+        assertSameAsRowAtATime(or(constantComparison(CompareOp.LESS, ATABLE.getColumn("X_LONG"), 2L), in(kvColumn(A_STRING), "a", "c")));
+        assertSameAsRowAtATime(and(in(kvColumn(A_STRING), "a", null, "d"), constantComparison(CompareOp.LESS, A_INTEGER, 8)));
+        assertSameAsRowAtATime(or(constantComparison(CompareOp.EQUAL, pkColumn(ORGANIZATION_ID, ATABLE.getPKColumns()), ORG_IDS[0]), constantComparison(CompareOp.EQUAL, A_INTEGER, 1)));
+    }
+    
+    @Test
+    public void testArithmetic() throws Exception {
+        Expression sum = new LongAddExpression(Arrays.asList(kvColumn(A_INTEGER), kvColumn(ATABLE.getColumn("X_LONG"))));
+        assertSameAsRowAtATime(new ComparisonExpression(CompareOp.GREATER, Arrays.asList(sum, LiteralExpression.newConstant(6L))));
+        Expression product = new LongMultiplyExpression(Arrays.asList(kvColumn(ATABLE.getColumn("X_INTEGER")), kvColumn(A_INTEGER)));
+        assertSameAsRowAtATime(and(constantComparison(CompareOp.LESS_OR_EQUAL, product, 12L), constantComparison(CompareOp.NOT_EQUAL, A_STRING, "a")));
+    }
+    
+    @Test
+    public void testNotBatchable() throws Exception {
+        assertNull(BatchExpressionCompiler.compile(not(constantComparison(CompareOp.EQUAL, A_INTEGER, 1)), BATCH_SIZE));
+        assertNull(BatchExpressionCompiler.compile(and(constantComparison(CompareOp.EQUAL, A_STRING, "a"), not(constantComparison(CompareOp.EQUAL, A_INTEGER, 1))), BATCH_SIZE));
+        assertNull(BatchExpressionCompiler.compile(kvColumn(A_INTEGER), BATCH_SIZE));
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.filter;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+
+public class EssentialFamilyFilterListTest {
+    private static final byte[] A = Bytes.toBytes("A");
+    private static final byte[] B = Bytes.toBytes("B");
+    
+    private static class FamilyFilter extends FilterBase {
+        private final byte[] family;
+        
+        private FamilyFilter(byte[] family) {
+            this.family = family;
+        }
+
+        @Override
+        public boolean isFamilyEssential(byte[] name) {
+            return Bytes.equals(family, name);
+        }
+        
+        @Override
+        public void write(DataOutput out) {
+        }
+
+        @Override
+        public void readFields(DataInput in) {
+        }
+    }
+    
+    @Test
+    public void testRowKeyFiltersDoNotMakeFamiliesEssential() {
+        EssentialFamilyFilterList filterList = new EssentialFamilyFilterList(Arrays.<Filter>asList(new FamilyFilter(A), new PageFilter(10)));
+        assertTrue(filterList.isFamilyEssential(A));
+        assertFalse(filterList.isFamilyEssential(B));
+    }
+    
+    @Test
+    public void testAllFamiliesEssentialWithOnlyRowKeyFilters() {
+        EssentialFamilyFilterList filterList = new EssentialFamilyFilterList(Collections.<Filter>singletonList(new PageFilter(10)));
+        assertTrue(filterList.isFamilyEssential(A));
+        assertTrue(filterList.isFamilyEssential(B));
+    }
+    
+    @Test
+    public void testAnyKeyValueFilterMakesFamilyEssential() {
+        EssentialFamilyFilterList filterList = new EssentialFamilyFilterList(Arrays.<Filter>asList(new PageFilter(10), new FamilyFilter(A), new FamilyFilter(B)));
+        assertTrue(filterList.isFamilyEssential(A));
+        assertTrue(filterList.isFamilyEssential(B));
+        assertFalse(filterList.isFamilyEssential(Bytes.toBytes("C")));
+    }
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.query.KeyRange;
+import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.PDatum;
+import com.salesforce.phoenix.schema.RowKeySchema;
+import com.salesforce.phoenix.schema.RowKeySchema.RowKeySchemaBuilder;
+
+
+/**
+ * Test for {@link UnionSkipScanFilter}, navigating a sorted set of keys the way
+ * the region scanner would and comparing against the rows expected by each branch.
+ */
+public class UnionSkipScanFilterTest {
+    private static final byte[] FAMILY = Bytes.toBytes("a");
+    private static final byte[] QUALIFIER = Bytes.toBytes("b");
+    private static final String CHARS = "abcdef";
+
+    private static RowKeySchema newSchema() {
+        RowKeySchemaBuilder builder = new RowKeySchemaBuilder(2);
+        for (int i = 0; i < 2; i++) {
+            builder.addField(new PDatum() {
+                @Override
+                public boolean isNullable() {
+                    return false;
+                }
+                @Override
+                public PDataType getDataType() {
+                    return PDataType.CHAR;
+                }
+                @Override
+                public Integer getByteSize() {
+                    return 1;
+                }
+                @Override
+                public Integer getMaxLength() {
+                    return 1;
+                }
+                @Override
+                public Integer getScale() {
+                    return null;
+                }
+                @Override
+                public ColumnModifier getColumnModifier() {
+                    return null;
+                }
+            }, false, null);
+        }
+        return builder.build();
+    }
+
+    private static KeyRange key(String s) {
+        return PDataType.CHAR.getKeyRange(Bytes.toBytes(s));
+    }
+
+    private static List<String> allKeys() {
+        List<String> keys = Lists.newArrayList();
+        for (char c1 : CHARS.toCharArray()) {
+            for (char c2 : CHARS.toCharArray()) {
+                keys.add("" + c1 + c2);
+            }
+        }
+        return keys;
+    }
+
+    private static List<String> scan(SkipScanFilter filter, List<String> keys) {
+        List<String> results = Lists.newArrayList();
+        int i = 0;
+        while (i < keys.size() && !filter.filterAllRemaining()) {
+            KeyValue kv = new KeyValue(Bytes.toBytes(keys.get(i)), FAMILY, QUALIFIER);
+            ReturnCode code = filter.filterKeyValue(kv);
+            if (code == ReturnCode.SEEK_NEXT_USING_HINT) {
+                KeyValue hint = filter.getNextKeyHint(kv);
+                String hintRow = Bytes.toString(hint.getRow());
+                assertTrue(hintRow.compareTo(keys.get(i)) > 0);
+                while (i < keys.size() && keys.get(i).compareTo(hintRow) < 0) {
+                    i++;
+                }
+            } else {
+                if (code == ReturnCode.INCLUDE) {
+                    results.add(keys.get(i));
+                }
+                i++;
+            }
+        }
+        return results;
+    }
+
+    private static UnionSkipScanFilter newFilter(RowKeySchema schema) {
+        // c1 IN ('b','d')
+        SkipScanFilter first = new SkipScanFilter(Collections.singletonList(Arrays.asList(key("b"), key("d"))), schema);
+        // c2 = 'c'
+        List<List<KeyRange>> secondSlots = Lists.newArrayList();
+        secondSlots.add(Collections.singletonList(KeyRange.EVERYTHING_RANGE));
+        secondSlots.add(Collections.singletonList(key("c")));
+        SkipScanFilter second = new SkipScanFilter(secondSlots, schema);
+        // c1 = 'd' AND c2 = 'e' overlaps with the first branch
+        List<List<KeyRange>> thirdSlots = Lists.newArrayList();
+        thirdSlots.add(Collections.singletonList(key("d")));
+        thirdSlots.add(Collections.singletonList(key("e")));
+        SkipScanFilter third = new SkipScanFilter(thirdSlots, schema);
+        return new UnionSkipScanFilter(Arrays.asList(first, second, third));
+    }
+
+    @Test
+    public void testUnionOfBranches() {
+        List<String> keys = allKeys();
+        List<String> expected = Lists.newArrayList();
+        for (String key : keys) {
+            if (key.charAt(0) == 'b' || key.charAt(0) == 'd' || key.charAt(1) == 'c') {
+                expected.add(key);
+            }
+        }
+        assertEquals(expected, scan(newFilter(newSchema()), keys));
+    }
+
+    private static class RecordingSkipScanFilter extends SkipScanFilter {
+        private final List<String> keys = Lists.newArrayList();
+
+        private RecordingSkipScanFilter(List<List<KeyRange>> slots, RowKeySchema schema) {
+            super(slots, schema);
+        }
+
+        @Override
+        public ReturnCode filterKeyValue(KeyValue kv) {
+            keys.add(Bytes.toString(kv.getRow()));
+            return super.filterKeyValue(kv);
+        }
+    }
+
+    @Test
+    public void testEveryChildSeesIncludedKeys() {
+        RowKeySchema schema = newSchema();
+        // c1 = 'b' includes every key the second branch does
+        SkipScanFilter first = new SkipScanFilter(Collections.singletonList(Collections.singletonList(key("b"))), schema);
+        // c1 = 'b' AND c2 IN ('c','e')
+        List<List<KeyRange>> secondSlots = Lists.newArrayList();
+        secondSlots.add(Collections.singletonList(key("b")));
+        secondSlots.add(Arrays.asList(key("c"), key("e")));
+        RecordingSkipScanFilter second = new RecordingSkipScanFilter(secondSlots, schema);
+        List<String> keys = allKeys();
+        assertEquals(Arrays.asList("ba", "bb", "bc", "bd", "be", "bf"), scan(new UnionSkipScanFilter(Arrays.<SkipScanFilter>asList(first, second)), keys));
+        // The second branch sees the keys included by the first one, up to the end of its own keys
+        assertEquals(Arrays.asList("aa", "ba", "bb", "bc", "bd", "be", "bf"), second.keys);
+        assertTrue(second.filterAllRemaining());
+    }
+
+    @Test
+    public void testIntersect() {
+        RowKeySchema schema = newSchema();
+        UnionSkipScanFilter filter = newFilter(schema);
+        assertTrue(filter.hasIntersect(Bytes.toBytes("ea"), Bytes.toBytes("fa")));
+        // Only the c2 = 'c' branch may match within [ea,fa)
+        SkipScanFilter intersected = filter.intersect(Bytes.toBytes("ea"), Bytes.toBytes("fa"));
+        assertTrue(intersected != null && !(intersected instanceof UnionSkipScanFilter));
+        assertEquals(Arrays.asList("ec"), scan(intersected, allKeys().subList(CHARS.indexOf('e') * CHARS.length(), CHARS.indexOf('f') * CHARS.length())));
+        
+        SkipScanFilter first = new SkipScanFilter(Collections.singletonList(Collections.singletonList(key("b"))), schema);
+        SkipScanFilter second = new SkipScanFilter(Collections.singletonList(Collections.singletonList(key("d"))), schema);
+        UnionSkipScanFilter pointFilter = new UnionSkipScanFilter(Arrays.asList(first, second));
+        assertNull(pointFilter.intersect(Bytes.toBytes("ea"), Bytes.toBytes("fa")));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        UnionSkipScanFilter filter = newFilter(newSchema());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.write(new DataOutputStream(bytes));
+        UnionSkipScanFilter copy = new UnionSkipScanFilter();
+        copy.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(filter, copy);
+        assertEquals(scan(newFilter(newSchema()), allKeys()), scan(copy, allKeys()));
+    }
+}
@@ -57,7 +57,9 @@ import com.salesforce.phoenix.expression.function.SingleAggregateFunction;
 import com.salesforce.phoenix.expression.function.SumAggregateFunction;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.jdbc.PhoenixStatement;
+import com.salesforce.phoenix.memory.GlobalMemoryManager;
 import com.salesforce.phoenix.query.BaseConnectionlessQueryTest;
+import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.PLongColumn;
@@ -98,6 +100,79 @@ public class AggregateResultScannerTest extends BaseConnectionlessQueryTest {
                 new SingleKeyValueTuple(new KeyValue(B, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(2L))),
             };
 
+        ClientAggregators aggregators = newSumAggregators();
+        ResultIterators iterators = newResultIterators(results);
+        ResultIterator scanner = new GroupedAggregatingResultIterator(new MergeSortRowKeyResultIterator(iterators), aggregators);
+        AssertResults.assertResults(scanner, expectedResults);
+    }
+    
+    @Test
+    public void testHashAggregation() throws Throwable {
+        Tuple[] results1 = new Tuple[] {
+                new SingleKeyValueTuple(new KeyValue(B, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(1L))),
+                new SingleKeyValueTuple(new KeyValue(A, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(1L))),
+            };
+        Tuple[] results2 = new Tuple[] {
+                new SingleKeyValueTuple(new KeyValue(A, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(2L))),
+                new SingleKeyValueTuple(new KeyValue(B, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(1L))),
+            };
+        final List<PeekingResultIterator>results = new ArrayList<PeekingResultIterator>(Arrays.asList(new PeekingResultIterator[] {
+                new MaterializedResultIterator(Arrays.asList(results1)), 
+                new MaterializedResultIterator(Arrays.asList(results2))}));
+
+        Tuple[] expectedResults = new Tuple[] {
+                new SingleKeyValueTuple(new KeyValue(A, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(3L))),
+                new SingleKeyValueTuple(new KeyValue(B, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(2L))),
+            };
+
+        ResultIterator scanner = new HashAggregatingResultIterator(new ConcatResultIterator(newResultIterators(results)), newSumAggregators(), 
+                new GlobalMemoryManager(Long.MAX_VALUE, 0), QueryServicesOptions.DEFAULT_GROUPBY_MAX_CACHE_MAX, QueryServicesOptions.DEFAULT_GROUPBY_SPILL_FILES, 10);
+        AssertResults.assertUnorderedResults(scanner, expectedResults);
+    }
+    
+    @Test
+    public void testHashAggregationWithSpill() throws Throwable {
+        int nGroups = 2000;
+        List<Tuple> results1 = new ArrayList<Tuple>(nGroups);
+        List<Tuple> results2 = new ArrayList<Tuple>(nGroups);
+        Tuple[] expectedResults = new Tuple[nGroups];
+        for (int i = 0; i < nGroups; i++) {
+            byte[] key = Bytes.toBytes(i);
+            results1.add(new SingleKeyValueTuple(new KeyValue(key, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(1L))));
+            results2.add(new SingleKeyValueTuple(new KeyValue(key, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes((long)i))));
+            expectedResults[i] = new SingleKeyValueTuple(new KeyValue(key, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, PDataType.LONG.toBytes(i + 1L)));
+        }
+        final List<PeekingResultIterator>results = new ArrayList<PeekingResultIterator>(Arrays.asList(new PeekingResultIterator[] {
+                new MaterializedResultIterator(results1), 
+                new MaterializedResultIterator(results2)}));
+
+        // Limit the cache to its minimum size so that most groups are spilled
+        ResultIterator scanner = new HashAggregatingResultIterator(new ConcatResultIterator(newResultIterators(results)), newSumAggregators(), 
+                new GlobalMemoryManager(Long.MAX_VALUE, 0), 0, QueryServicesOptions.DEFAULT_GROUPBY_SPILL_FILES, 10);
+        AssertResults.assertUnorderedResults(scanner, expectedResults);
+    }
+    
+    private static ResultIterators newResultIterators(final List<PeekingResultIterator> results) {
+        return new ResultIterators() {
+
+            @Override
+            public List<PeekingResultIterator> getIterators() throws SQLException {
+                return results;
+            }
+
+            @Override
+            public int size() {
+                return results.size();
+            }
+
+            @Override
+            public void explain(List<String> planSteps) {
+            }
+            
+        };
+    }
+    
+    private static ClientAggregators newSumAggregators() throws SQLException {
         PhoenixConnection pconn = DriverManager.getConnection(getUrl(), TEST_PROPERTIES).unwrap(PhoenixConnection.class);
         StatementContext context = new StatementContext(new PhoenixStatement(pconn), null, Collections.emptyList(), new Scan());
         AggregationManager aggregationManager = context.getAggregationManager();
@@ -128,24 +203,6 @@ public class AggregateResultScannerTest extends BaseConnectionlessQueryTest {
             }
         })), null);
         aggregationManager.setAggregators(new ClientAggregators(Collections.<SingleAggregateFunction>singletonList(func), 1));
-        ResultIterators iterators = new ResultIterators() {
-
-            @Override
-            public List<PeekingResultIterator> getIterators() throws SQLException {
-                return results;
-            }
-
-            @Override
-            public int size() {
-                return results.size();
-            }
-
-            @Override
-            public void explain(List<String> planSteps) {
-            }
-            
-        };
-        ResultIterator scanner = new GroupedAggregatingResultIterator(new MergeSortRowKeyResultIterator(iterators), aggregationManager.getAggregators());
-        AssertResults.assertResults(scanner, expectedResults);
+        return aggregationManager.getAggregators();
     }
 }
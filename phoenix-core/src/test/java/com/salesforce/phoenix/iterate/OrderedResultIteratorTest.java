@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY_NAME;
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN_NAME;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.expression.KeyValueColumnExpression;
+import com.salesforce.phoenix.expression.OrderByExpression;
+import com.salesforce.phoenix.schema.PColumnImpl;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.SingleKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+
+public class OrderedResultIteratorTest {
+    private static final KeyValueColumnExpression VALUE_COLUMN = new KeyValueColumnExpression(
+            new PColumnImpl(SINGLE_COLUMN_NAME, SINGLE_COLUMN_FAMILY_NAME, PDataType.VARBINARY, null, null, true, 0, null));
+    
+    // Values that share prefixes, contain zero bytes and span more than eight bytes
+    private static final byte[][] VALUES = new byte[][] {
+        null,
+        new byte[] {0},
+        new byte[] {0, 0},
+        new byte[] {0, 1},
+        new byte[] {1},
+        new byte[] {1, 0},
+        new byte[] {1, 0, 0, 0, 0, 0, 0, 0, 0},
+        new byte[] {1, 0, 0, 0, 0, 0, 0, 0, 1},
+        new byte[] {1, (byte)0xFF},
+        Bytes.toBytes("abcdefgh"),
+        Bytes.toBytes("abcdefghi"),
+        Bytes.toBytes("abcdefghj"),
+        new byte[] {(byte)0xFF},
+        new byte[] {(byte)0xFF, (byte)0xFF},
+        null,
+    };
+    
+    private static List<Tuple> newTuples(List<byte[]> values) {
+        List<Tuple> tuples = Lists.newArrayListWithExpectedSize(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            byte[] value = values.get(i) == null ? new byte[0] : values.get(i);
+            tuples.add(new SingleKeyValueTuple(new KeyValue(Bytes.toBytes(i), SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, value)));
+        }
+        return tuples;
+    }
+    
+    private static List<byte[]> getValues(ResultIterator iterator) throws Exception {
+        List<byte[]> values = Lists.newArrayList();
+        try {
+            for (Tuple tuple = iterator.next(); tuple != null; tuple = iterator.next()) {
+                byte[] value = tuple.getValue(0).getValue();
+                values.add(value.length == 0 ? null : value);
+            }
+        } finally {
+            iterator.close();
+        }
+        return values;
+    }
+    
+    private static void assertValuesEqual(List<byte[]> expected, List<byte[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("At position " + i, Bytes.toStringBinary(expected.get(i)), Bytes.toStringBinary(actual.get(i)));
+        }
+    }
+    
+    private static void testOrderBy(List<byte[]> input, boolean isAscending, boolean isNullsLast, Integer limit, int thresholdBytes) throws Exception {
+        List<OrderByExpression> orderBy = Collections.singletonList(new OrderByExpression(VALUE_COLUMN, isNullsLast, isAscending));
+        OrderedResultIterator iterator = new OrderedResultIterator(new MaterializedResultIterator(newTuples(input)), orderBy, thresholdBytes, limit);
+        
+        List<byte[]> nulls = Lists.newArrayList();
+        List<byte[]> nonNulls = Lists.newArrayList();
+        for (byte[] value : input) {
+            (value == null ? nulls : nonNulls).add(value);
+        }
+        Collections.sort(nonNulls, Bytes.BYTES_COMPARATOR);
+        if (!isAscending) {
+            Collections.reverse(nonNulls);
+        }
+        List<byte[]> expected = Lists.newArrayList();
+        if (!isNullsLast) {
+            expected.addAll(nulls);
+        }
+        expected.addAll(nonNulls);
+        if (isNullsLast) {
+            expected.addAll(nulls);
+        }
+        if (limit != null && limit < expected.size()) {
+            expected = expected.subList(0, limit);
+        }
+        assertValuesEqual(expected, getValues(iterator));
+    }
+    
+    private static List<byte[]> shuffledValues() {
+        List<byte[]> values = Lists.newArrayList(VALUES);
+        Collections.shuffle(values, new Random(7));
+        return values;
+    }
+    
+    @Test
+    public void testAscendingNullsFirst() throws Exception {
+        testOrderBy(shuffledValues(), true, false, null, 1024 * 1024);
+    }
+    
+    @Test
+    public void testAscendingNullsLast() throws Exception {
+        testOrderBy(shuffledValues(), true, true, null, 1024 * 1024);
+    }
+    
+    @Test
+    public void testDescendingNullsFirst() throws Exception {
+        testOrderBy(shuffledValues(), false, false, null, 1024 * 1024);
+    }
+    
+    @Test
+    public void testDescendingNullsLast() throws Exception {
+        testOrderBy(shuffledValues(), false, true, null, 1024 * 1024);
+    }
+    
+    @Test
+    public void testLimit() throws Exception {
+        testOrderBy(shuffledValues(), true, false, 4, 1024 * 1024);
+        testOrderBy(shuffledValues(), false, true, 4, 1024 * 1024);
+    }
+    
+    @Test
+    public void testSpillToDisk() throws Exception {
+        Random random = new Random(11);
+        List<byte[]> values = Lists.newArrayList();
+        for (int i = 0; i < 2000; i++) {
+            byte[] value = new byte[random.nextInt(12)];
+            random.nextBytes(value);
+            values.add(value.length == 0 ? null : value);
+        }
+        testOrderBy(values, true, false, null, 4096);
+        testOrderBy(values, false, true, null, 4096);
+        testOrderBy(values, true, true, 100, 4096);
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.salesforce.phoenix.exception.SQLExceptionCode;
+import com.salesforce.phoenix.job.JobPriority;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
+import com.salesforce.phoenix.util.ReadOnlyProps;
+
+
+public class ParallelIteratorsTest {
+    private static final ReadOnlyProps PROPS = ReadOnlyProps.EMPTY_PROPS;
+    private static final int MAX_BYTES = (int)QueryServicesOptions.DEFAULT_SCAN_CACHE_MAX_BYTES;
+
+    @Test
+    public void testExplicitFetchSize() {
+        assertEquals(7, ParallelIterators.getScanCacheSize(7, 100, 1, null, PROPS));
+        assertEquals(7, ParallelIterators.getScanCacheSize(7, 100, 1, 10, PROPS));
+        assertEquals(5, ParallelIterators.getScanCacheSize(7, 100, 1, 5, PROPS));
+    }
+
+    @Test
+    public void testScanCacheSizeFromRowSize() {
+        // Narrow rows are capped by the max scan cache size
+        assertEquals(QueryServicesOptions.DEFAULT_MAX_SCAN_CACHE_SIZE, ParallelIterators.getScanCacheSize(0, 10, 1, null, PROPS));
+        assertEquals(MAX_BYTES / 1000, ParallelIterators.getScanCacheSize(0, 1000, 1, null, PROPS));
+        // Rows observed to be larger than estimated
+        assertEquals(MAX_BYTES / 4000, ParallelIterators.getScanCacheSize(0, 1000, 4, null, PROPS));
+        // Rows larger than the max bytes still fetch a row at a time
+        assertEquals(1, ParallelIterators.getScanCacheSize(0, MAX_BYTES * 2, 1, null, PROPS));
+        assertEquals(10, ParallelIterators.getScanCacheSize(0, 1000, 1, 10, PROPS));
+    }
+
+    @Test
+    public void testScanCacheSizeCappedByMaxScanCacheSize() {
+        // As set by QueryServicesOptions.withDefaults() for an explicitly set scan cache size
+        ReadOnlyProps props = new ReadOnlyProps(Collections.singletonMap(QueryServices.MAX_SCAN_CACHE_SIZE_ATTRIB, "50"));
+        assertEquals(50, ParallelIterators.getScanCacheSize(0, 10, 1, null, props));
+        assertEquals(MAX_BYTES / 100000, ParallelIterators.getScanCacheSize(0, 100000, 1, null, props));
+    }
+
+    @Test
+    public void testScanCacheSizeDisabled() {
+        ReadOnlyProps props = new ReadOnlyProps(Collections.singletonMap(QueryServices.SCAN_CACHE_MAX_BYTES_ATTRIB, "0"));
+        assertEquals(QueryServicesOptions.DEFAULT_SCAN_CACHE_SIZE, ParallelIterators.getScanCacheSize(0, 1000, 1, null, props));
+        assertEquals(QueryServicesOptions.DEFAULT_SCAN_CACHE_SIZE, ParallelIterators.getScanCacheSize(0, 0, 1, null, PROPS));
+    }
+
+    @Test
+    public void testJobPriority() throws SQLException {
+        assertEquals(JobPriority.INTERACTIVE, ParallelIterators.getJobPriority(PROPS, 1));
+        assertEquals(JobPriority.NORMAL, ParallelIterators.getJobPriority(PROPS, QueryServicesOptions.DEFAULT_INTERACTIVE_MAX_SPLITS + 1));
+        ReadOnlyProps props = new ReadOnlyProps(Collections.singletonMap(QueryServices.QUERY_PRIORITY_ATTRIB, "batch"));
+        assertEquals(JobPriority.BATCH, ParallelIterators.getJobPriority(props, 1));
+    }
+
+    @Test
+    public void testInvalidJobPriority() {
+        ReadOnlyProps props = new ReadOnlyProps(Collections.singletonMap(QueryServices.QUERY_PRIORITY_ATTRIB, "urgent"));
+        try {
+            ParallelIterators.getJobPriority(props, 1);
+            fail();
+        } catch (SQLException e) {
+            assertEquals(SQLExceptionCode.INVALID_QUERY_PRIORITY.getErrorCode(), e.getErrorCode());
+        }
+    }
+}
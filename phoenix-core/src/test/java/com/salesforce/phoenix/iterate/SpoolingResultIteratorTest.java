@@ -29,14 +29,20 @@ package com.salesforce.phoenix.iterate;
 
 import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN;
 import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.salesforce.phoenix.memory.*;
+import com.salesforce.phoenix.monitoring.MetricType;
+import com.salesforce.phoenix.monitoring.StatementMetrics;
 import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.tuple.SingleKeyValueTuple;
 import com.salesforce.phoenix.schema.tuple.Tuple;
@@ -47,6 +53,8 @@ import com.salesforce.phoenix.util.AssertResults;
 public class SpoolingResultIteratorTest {
     private final static byte[] A = Bytes.toBytes("a");
     private final static byte[] B = Bytes.toBytes("b");
+    // Room for the blocks of a spill waiting to be written, on top of the threshold
+    private final static int PENDING_BLOCKS_BYTES = 2 * 1024 * 1024;
 
     private void testSpooling(int threshold, long maxSizeSpool) throws Throwable {
         Tuple[] results = new Tuple[] {
@@ -60,9 +68,10 @@ public class SpoolingResultIteratorTest {
                 new SingleKeyValueTuple(new KeyValue(B, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1))),
             };
 
-        MemoryManager memoryManager = new DelegatingMemoryManager(new GlobalMemoryManager(threshold, 0));
+        MemoryManager memoryManager = new DelegatingMemoryManager(new GlobalMemoryManager(threshold + PENDING_BLOCKS_BYTES, 0));
         ResultIterator scanner = new SpoolingResultIterator(iterator, memoryManager, threshold, maxSizeSpool);
         AssertResults.assertResults(scanner, expectedResults);
+        assertEquals(memoryManager.getMaxMemory(), memoryManager.getAvailableMemory());
     }
 
     @Test
@@ -78,4 +87,50 @@ public class SpoolingResultIteratorTest {
     public void testFailToSpool() throws Throwable{
     		testSpooling(1, 0L);
     }
+    
+    private static List<Tuple> manyResults(int nResults) {
+        List<Tuple> results = Lists.newArrayListWithExpectedSize(nResults);
+        for (int i = 0; i < nResults; i++) {
+            byte[] row = Bytes.toBytes(String.format("row%08d", i));
+            results.add(new SingleKeyValueTuple(new KeyValue(row, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(i))));
+        }
+        return results;
+    }
+    
+    private void testSpoolingManyBlocks(boolean compress) throws Throwable {
+        // Enough results to span several blocks of the spill file
+        int nResults = 10000;
+        List<Tuple> results = manyResults(nResults);
+        List<Tuple> expectedResults = manyResults(nResults);
+        int threshold = 1024;
+        MemoryManager memoryManager = new DelegatingMemoryManager(new GlobalMemoryManager(threshold + PENDING_BLOCKS_BYTES, 0));
+        StatementMetrics metrics = new StatementMetrics();
+        ResultIterator scanner = new SpoolingResultIterator(new MaterializedResultIterator(results), memoryManager, threshold, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES, compress, metrics);
+        assertTrue(metrics.get(MetricType.SPOOL_BYTES) > threshold);
+        // The memory of the blocks is released once they are written
+        assertEquals(memoryManager.getMaxMemory(), memoryManager.getAvailableMemory());
+        AssertResults.assertResults(scanner, expectedResults.toArray(new Tuple[nResults]));
+    }
+    
+    @Test
+    public void testOnDiskSpoolingCompressed() throws Throwable {
+        testSpoolingManyBlocks(true);
+    }
+    
+    @Test
+    public void testOnDiskSpoolingUncompressed() throws Throwable {
+        testSpoolingManyBlocks(false);
+    }
+    
+    @Test(expected = InsufficientMemoryException.class)
+    public void testPendingBlocksUseMemory() throws Throwable {
+        int threshold = 1024;
+        // No room for the blocks waiting to be written beyond the threshold
+        MemoryManager memoryManager = new DelegatingMemoryManager(new GlobalMemoryManager(threshold, 0));
+        try {
+            new SpoolingResultIterator(new MaterializedResultIterator(manyResults(10000)), memoryManager, threshold, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES);
+        } finally {
+            assertEquals(memoryManager.getMaxMemory(), memoryManager.getAvailableMemory());
+        }
+    }
 }
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.job.JobManager.ScheduledJobCallable;
+
+/**
+ * 
+ * Tests for the scheduling of tasks by the executor created by {@link JobManager}
+ *
+ * @since 3.0.0
+ */
+public class JobManagerTest {
+    
+    /**
+     * Task that tracks how many tasks of its job execute at once, blocking until released.
+     */
+    private static class BlockingTask implements ScheduledJobCallable<Integer> {
+        private final Object jobId;
+        private final JobSchedule schedule;
+        private final AtomicInteger executing;
+        private final AtomicInteger maxExecuting;
+        private final CountDownLatch release;
+        
+        private BlockingTask(Object jobId, JobSchedule schedule, AtomicInteger executing, AtomicInteger maxExecuting, CountDownLatch release) {
+            this.jobId = jobId;
+            this.schedule = schedule;
+            this.executing = executing;
+            this.maxExecuting = maxExecuting;
+            this.release = release;
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            int count = executing.incrementAndGet();
+            synchronized (maxExecuting) {
+                maxExecuting.set(Math.max(maxExecuting.get(), count));
+            }
+            try {
+                release.await();
+            } finally {
+                executing.decrementAndGet();
+            }
+            return count;
+        }
+
+        @Override
+        public Object getJobId() {
+            return jobId;
+        }
+
+        @Override
+        public JobSchedule getJobSchedule() {
+            return schedule;
+        }
+    }
+    
+    @Test
+    public void testMaxConcurrency() throws Exception {
+        // Fewer tasks than threads, so that none of them go through the queue
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(1000, 10, 100);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger limitedExecuting = new AtomicInteger();
+            AtomicInteger limitedMaxExecuting = new AtomicInteger();
+            JobSchedule limited = new JobSchedule(JobPriority.NORMAL, null, 1, 2);
+            List<Future<Integer>> futures = Lists.newArrayList();
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.submit(new BlockingTask("limited", limited, limitedExecuting, limitedMaxExecuting, release)));
+            }
+            // Tasks of other jobs are not held back by the limited job
+            AtomicInteger otherExecuting = new AtomicInteger();
+            AtomicInteger otherMaxExecuting = new AtomicInteger();
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(new BlockingTask("other", JobSchedule.DEFAULT, otherExecuting, otherMaxExecuting, release)));
+            }
+            long endAt = System.currentTimeMillis() + 10000;
+            while ((limitedExecuting.get() < 2 || otherExecuting.get() < 3) && System.currentTimeMillis() < endAt) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            assertEquals(2, limitedExecuting.get());
+            assertEquals(3, otherExecuting.get());
+            
+            release.countDown();
+            for (Future<Integer> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(2, limitedMaxExecuting.get());
+            assertEquals(3, otherMaxExecuting.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void testHeldTasksReleasedAsTasksFinish() throws Exception {
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(1000, 10, 100);
+        try {
+            AtomicInteger executing = new AtomicInteger();
+            AtomicInteger maxExecuting = new AtomicInteger();
+            JobSchedule limited = new JobSchedule(JobPriority.NORMAL, null, 1, 1);
+            List<Future<Integer>> futures = Lists.newArrayList();
+            // Tasks that finish right away still run one at a time
+            CountDownLatch released = new CountDownLatch(0);
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.submit(new BlockingTask("limited", limited, executing, maxExecuting, released)));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(1, future.get(10, TimeUnit.SECONDS).intValue());
+            }
+            assertEquals(1, maxExecuting.get());
+            assertTrue(executor.getQueue().isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
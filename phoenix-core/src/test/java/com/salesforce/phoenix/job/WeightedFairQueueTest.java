@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/**
+ * 
+ * Tests for the order in which {@link AbstractWeightedFairQueue} hands out elements
+ *
+ * @since 3.0.0
+ */
+public class WeightedFairQueueTest {
+    
+    private static class Task {
+        private final String producer;
+        private final JobSchedule schedule;
+        
+        private Task(String producer, JobSchedule schedule) {
+            this.producer = producer;
+            this.schedule = schedule;
+        }
+    }
+    
+    private static class TaskQueue extends AbstractWeightedFairQueue<Task> {
+        private TaskQueue(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected Object extractProducer(Task o) {
+            return o.producer;
+        }
+
+        @Override
+        protected JobSchedule extractSchedule(Task o) {
+            return o.schedule;
+        }
+        
+        private void offer(String producer, JobSchedule schedule, int count) {
+            for (int i = 0; i < count; i++) {
+                offer(new Task(producer, schedule));
+            }
+        }
+        
+        /**
+         * Polls the given number of elements and counts them by producer.
+         */
+        private Map<String,Integer> pollAndCount(int count) {
+            Map<String,Integer> counts = Maps.newHashMap();
+            for (int i = 0; i < count; i++) {
+                Task task = poll();
+                Integer c = counts.get(task.producer);
+                counts.put(task.producer, c == null ? 1 : c + 1);
+            }
+            return counts;
+        }
+    }
+    
+    private static JobSchedule schedule(JobPriority priority) {
+        return new JobSchedule(priority, null, 1, JobSchedule.NO_CONCURRENCY_LIMIT);
+    }
+    
+    @Test
+    public void testPriorityWeights() {
+        TaskQueue queue = new TaskQueue(100);
+        queue.offer("normal", schedule(JobPriority.NORMAL), 20);
+        queue.offer("batch", schedule(JobPriority.BATCH), 20);
+        Map<String,Integer> counts = queue.pollAndCount(10);
+        assertEquals(8, counts.get("normal").intValue());
+        assertEquals(2, counts.get("batch").intValue());
+        assertEquals(30, queue.size());
+    }
+    
+    @Test
+    public void testNewJobGoesAheadOfBacklog() {
+        TaskQueue queue = new TaskQueue(100);
+        queue.offer("scan1", schedule(JobPriority.BATCH), 10);
+        queue.offer("scan2", schedule(JobPriority.NORMAL), 10);
+        queue.pollAndCount(5);
+        Task lookup = new Task("lookup", schedule(JobPriority.BATCH));
+        queue.offer(lookup);
+        assertSame(lookup, queue.poll());
+    }
+    
+    @Test
+    public void testTenantWeightIsShared() {
+        TaskQueue queue = new TaskQueue(100);
+        JobSchedule tenant1 = new JobSchedule(JobPriority.NORMAL, "tenant1", 1, JobSchedule.NO_CONCURRENCY_LIMIT);
+        JobSchedule tenant2 = new JobSchedule(JobPriority.NORMAL, "tenant2", 1, JobSchedule.NO_CONCURRENCY_LIMIT);
+        queue.offer("tenant1-query1", tenant1, 10);
+        queue.offer("tenant1-query2", tenant1, 10);
+        queue.offer("tenant2-query1", tenant2, 10);
+        Map<String,Integer> counts = queue.pollAndCount(12);
+        assertEquals(3, counts.get("tenant1-query1").intValue());
+        assertEquals(3, counts.get("tenant1-query2").intValue());
+        assertEquals(6, counts.get("tenant2-query1").intValue());
+    }
+    
+    @Test
+    public void testMaxSize() {
+        TaskQueue queue = new TaskQueue(2);
+        queue.offer("job", schedule(JobPriority.NORMAL), 2);
+        assertEquals(false, queue.offer(new Task("job", schedule(JobPriority.NORMAL))));
+        assertEquals(0, queue.remainingCapacity());
+        queue.poll();
+        assertEquals(true, queue.offer(new Task("job", schedule(JobPriority.NORMAL))));
+    }
+}
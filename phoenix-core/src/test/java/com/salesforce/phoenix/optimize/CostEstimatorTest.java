@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.optimize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.phoenix.compile.QueryPlan;
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.jdbc.PhoenixStatement;
+import com.salesforce.phoenix.query.BaseConnectionlessQueryTest;
+import com.salesforce.phoenix.util.ByteUtil;
+
+/**
+ * 
+ * Tests for the estimation of the cost of query plans
+ *
+ * @since 3.0.0
+ */
+public class CostEstimatorTest extends BaseConnectionlessQueryTest {
+    private static final byte[] UNBOUND = ByteUtil.EMPTY_BYTE_ARRAY;
+    private static final double DELTA = 0.0001;
+    
+    @Test
+    public void testCoveredFraction() {
+        byte[] a = Bytes.toBytes("a");
+        byte[] c = Bytes.toBytes("c");
+        byte[] e = Bytes.toBytes("e");
+        byte[] g = Bytes.toBytes("g");
+        byte[] i = Bytes.toBytes("i");
+        assertEquals(1, CostEstimator.getCoveredFraction(a, i, a, i), DELTA);
+        assertEquals(1, CostEstimator.getCoveredFraction(a, i, UNBOUND, UNBOUND), DELTA);
+        assertEquals(0.5, CostEstimator.getCoveredFraction(a, i, a, e), DELTA);
+        assertEquals(0.25, CostEstimator.getCoveredFraction(a, i, c, e), DELTA);
+        assertEquals(0.25, CostEstimator.getCoveredFraction(a, i, g, UNBOUND), DELTA);
+        assertEquals(0, CostEstimator.getCoveredFraction(a, i, c, c), DELTA);
+        // The range may extend past stale bounds
+        assertEquals(1, CostEstimator.getCoveredFraction(c, g, a, i), DELTA);
+    }
+    
+    @Test
+    public void testCoveredFractionWithCommonPrefix() {
+        byte[] lower = Bytes.toBytes("prefix_a");
+        byte[] upper = Bytes.toBytes("prefix_i");
+        assertEquals(0.25, CostEstimator.getCoveredFraction(lower, upper, Bytes.toBytes("prefix_c"), Bytes.toBytes("prefix_e")), DELTA);
+        // Longer keys past the differing byte barely matter
+        assertEquals(0.25, CostEstimator.getCoveredFraction(lower, upper, Bytes.toBytes("prefix_c0"), Bytes.toBytes("prefix_e0")), 0.01);
+    }
+    
+    @Test
+    public void testCoveredFractionUnboundRegion() {
+        assertEquals(0.5, CostEstimator.getCoveredFraction(UNBOUND, UNBOUND, new byte[] {(byte)0x80}, UNBOUND), DELTA);
+        assertEquals(0.25, CostEstimator.getCoveredFraction(UNBOUND, new byte[] {(byte)0x80}, new byte[] {(byte)0x20}, new byte[] {(byte)0x40}), DELTA);
+    }
+    
+    @Test
+    public void testEstimateRowSize() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE narrow (k VARCHAR NOT NULL PRIMARY KEY, v VARCHAR)");
+        conn.createStatement().execute("CREATE TABLE wide (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR, v2 CHAR(100), v3 BIGINT)");
+        PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+        int narrowSize = CostEstimator.estimateRowSize(pconn.getPMetaData().getTable("NARROW"));
+        int wideSize = CostEstimator.estimateRowSize(pconn.getPMetaData().getTable("WIDE"));
+        assertTrue(narrowSize > 0);
+        assertTrue(wideSize > narrowSize + 100 + Bytes.SIZEOF_LONG);
+    }
+    
+    @Test
+    public void testNoStats() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE nostats (k VARCHAR NOT NULL PRIMARY KEY, v VARCHAR)");
+        PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+        QueryPlan plan = stmt.optimizeQuery("SELECT * FROM nostats");
+        assertNull(CostEstimator.estimate(plan));
+        plan = stmt.optimizeQuery("SELECT * FROM nostats WHERE k = 'a' AND k = 'b'");
+        assertEquals(0, CostEstimator.estimate(plan).getByteCount());
+    }
+}
@@ -193,6 +193,47 @@ public class PDataTypeForArraysTest {
 		assertEquals("random12", Bytes.toString(res));
 	}
 
+	@Test
+	public void testForVarCharArrayWithIndexAtNonZeroOffset() {
+		String[] strArr = new String[3];
+		strArr[0] = "abx";
+		strArr[1] = "ereref";
+		strArr[2] = "random";
+		PhoenixArray arr = PArrayDataType.instantiatePhoenixArray(
+				PDataType.VARCHAR, strArr);
+		byte[] bytes = PDataType.VARCHAR_ARRAY.toBytes(arr);
+		// Embed the array in a larger buffer, as is the case for a KeyValue
+		byte[] buf = new byte[bytes.length + 10];
+		System.arraycopy(bytes, 0, buf, 7, bytes.length);
+		ImmutableBytesWritable ptr = new ImmutableBytesWritable(buf, 7, bytes.length);
+		assertEquals(3, PArrayDataType.getArrayLength(ptr, PDataType.VARCHAR));
+		for (int i = 0; i < strArr.length; i++) {
+			ptr.set(buf, 7, bytes.length);
+			PArrayDataType.positionAtArrayElement(ptr, i, PDataType.VARCHAR);
+			assertEquals(strArr[i], Bytes.toString(ptr.get(), ptr.getOffset(), ptr.getLength()));
+		}
+	}
+
+	@Test
+	public void testForIntArrayWithIndexAtNonZeroOffset() {
+		Integer[] intArr = new Integer[3];
+		intArr[0] = 7;
+		intArr[1] = -2;
+		intArr[2] = 1000;
+		PhoenixArray arr = PArrayDataType.instantiatePhoenixArray(
+				PDataType.INTEGER, intArr);
+		byte[] bytes = PDataType.INTEGER_ARRAY.toBytes(arr);
+		byte[] buf = new byte[bytes.length + 10];
+		System.arraycopy(bytes, 0, buf, 5, bytes.length);
+		ImmutableBytesWritable ptr = new ImmutableBytesWritable(buf, 5, bytes.length);
+		assertEquals(3, PArrayDataType.getArrayLength(ptr, PDataType.INTEGER));
+		for (int i = 0; i < intArr.length; i++) {
+			ptr.set(buf, 5, bytes.length);
+			PArrayDataType.positionAtArrayElement(ptr, i, PDataType.INTEGER);
+			assertEquals(intArr[i], PDataType.INTEGER.toObject(ptr));
+		}
+	}
+
 	@Test
 	public void testForVarCharArrayForOneElementArrayWithIndex() {
 		String[] strArr = new String[1];
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.util;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.phoenix.schema.PDataType;
+
+
+public class LongDecimalTest {
+    private static final BigDecimal[] VALUES = new BigDecimal[] {
+        BigDecimal.ZERO,
+        new BigDecimal("1"),
+        new BigDecimal("-1"),
+        new BigDecimal("100"),
+        new BigDecimal("-1000"),
+        new BigDecimal("0.5"),
+        new BigDecimal("-0.05"),
+        new BigDecimal("12345.6789"),
+        new BigDecimal("-98765.4321"),
+        new BigDecimal("1E-20"),
+        new BigDecimal("9E+20"),
+        new BigDecimal("999999999999999999"),
+        new BigDecimal("-999999999999999999"),
+        new BigDecimal("9223372036854775807"),
+        new BigDecimal("-9223372036854775808"),
+        new BigDecimal("123456789012345678901234567890.12"),
+    };
+    
+    private static void assertSameBytes(BigDecimal expected, LongDecimal actual) {
+        byte[] expectedBytes = PDataType.DECIMAL.toBytes(expected);
+        assertEquals(expected + " != " + actual, Bytes.toStringBinary(expectedBytes), Bytes.toStringBinary(actual.toBytes()));
+        byte[] buf = new byte[PDataType.DECIMAL.getByteSize() + 2];
+        int length = actual.toBytes(buf, 1);
+        assertEquals(Bytes.toStringBinary(expectedBytes), Bytes.toStringBinary(buf, 1, length));
+    }
+    
+    private static LongDecimal fromBytes(BigDecimal v) {
+        LongDecimal d = new LongDecimal();
+        d.set(new ImmutableBytesWritable(PDataType.DECIMAL.toBytes(v)), PDataType.DECIMAL, null);
+        return d;
+    }
+    
+    @Test
+    public void testRoundTrip() {
+        for (BigDecimal v : VALUES) {
+            BigDecimal expected = (BigDecimal)PDataType.DECIMAL.toObject(PDataType.DECIMAL.toBytes(v));
+            LongDecimal d = fromBytes(v);
+            assertEquals(expected.unscaledValue(), d.toBigDecimal().unscaledValue());
+            assertEquals(expected.scale(), d.toBigDecimal().scale());
+            assertSameBytes(v, d);
+        }
+        assertTrue(fromBytes(new BigDecimal("12345.6789")).isLong());
+        assertFalse(fromBytes(new BigDecimal("123456789012345678901234567890.12")).isLong());
+    }
+    
+    @Test
+    public void testArithmetic() {
+        for (BigDecimal v1 : VALUES) {
+            for (BigDecimal v2 : VALUES) {
+                BigDecimal bd1 = (BigDecimal)PDataType.DECIMAL.toObject(PDataType.DECIMAL.toBytes(v1));
+                BigDecimal bd2 = (BigDecimal)PDataType.DECIMAL.toObject(PDataType.DECIMAL.toBytes(v2));
+                LongDecimal d = fromBytes(v1);
+                d.add(fromBytes(v2));
+                assertSameBytes(bd1.add(bd2), d);
+                d = fromBytes(v1);
+                d.subtract(fromBytes(v2));
+                assertSameBytes(bd1.subtract(bd2), d);
+                d = fromBytes(v1);
+                d.multiply(fromBytes(v2));
+                assertSameBytes(bd1.multiply(bd2), d);
+            }
+        }
+    }
+    
+    @Test
+    public void testOverflow() {
+        LongDecimal d = new LongDecimal(Long.MAX_VALUE, 0);
+        d.add(new LongDecimal(1, 0));
+        assertFalse(d.isLong());
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).add(BigDecimal.ONE), d.toBigDecimal());
+        
+        d = new LongDecimal(Long.MAX_VALUE / 10 + 1, 0);
+        d.add(new LongDecimal(1, 1));
+        assertFalse(d.isLong());
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE / 10 + 1).add(new BigDecimal("0.1")), d.toBigDecimal());
+        
+        d = new LongDecimal(Long.MAX_VALUE / 2 + 1, 0);
+        d.multiply(new LongDecimal(2, 0));
+        assertFalse(d.isLong());
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE / 2 + 1).multiply(BigDecimal.valueOf(2)), d.toBigDecimal());
+    }
+    
+    @Test
+    public void testRandomSum() {
+        Random r = new Random(0);
+        BigDecimal expected = BigDecimal.ZERO;
+        LongDecimal sum = new LongDecimal();
+        LongDecimal value = new LongDecimal();
+        for (int i = 0; i < 10000; i++) {
+            BigDecimal v = new BigDecimal(BigInteger.valueOf(r.nextLong() / 1000), r.nextInt(4));
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable(PDataType.DECIMAL.toBytes(v));
+            expected = expected.add((BigDecimal)PDataType.DECIMAL.toObject(ptr));
+            value.set(ptr, PDataType.DECIMAL, null);
+            sum.add(value);
+        }
+        assertSameBytes(expected, sum);
+    }
+    
+    @Test
+    public void testSetWidthAndScale() {
+        for (BigDecimal v : VALUES) {
+            BigDecimal bd = (BigDecimal)PDataType.DECIMAL.toObject(PDataType.DECIMAL.toBytes(v));
+            for (int precision = 1; precision <= 38; precision += 4) {
+                for (int scale = 0; scale <= precision; scale += 3) {
+                    BigDecimal expected = NumberUtil.setDecimalWidthAndScale(bd, precision, scale);
+                    LongDecimal d = fromBytes(v);
+                    boolean fits = d.setWidthAndScale(precision, scale);
+                    assertEquals(expected != null, fits);
+                    if (fits) {
+                        assertSameBytes(expected, d);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+
+public class PackedRowUtilTest {
+
+    private static String unpack(byte[] packed, int slot) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(packed);
+        if (!PackedRowUtil.unpack(ptr, slot)) {
+            assertEquals(0, ptr.getLength());
+            return null;
+        }
+        return Bytes.toString(ptr.get(), ptr.getOffset(), ptr.getLength());
+    }
+    
+    @Test
+    public void testPackUnpack() {
+        byte[][] values = new byte[][] {Bytes.toBytes("a"), null, Bytes.toBytes("bcd"), ByteUtil.EMPTY_BYTE_ARRAY, Bytes.toBytes("e")};
+        byte[] packed = PackedRowUtil.pack(values, values.length);
+        assertEquals("a", unpack(packed, 0));
+        assertEquals(null, unpack(packed, 1));
+        assertEquals("bcd", unpack(packed, 2));
+        assertEquals(null, unpack(packed, 3));
+        assertEquals("e", unpack(packed, 4));
+        // Slots added after the cell was written are null
+        assertEquals(null, unpack(packed, 5));
+    }
+    
+    @Test
+    public void testUnpackWithinLargerBuffer() {
+        byte[] packed = PackedRowUtil.pack(new byte[][] {Bytes.toBytes("xy"), Bytes.toBytes("z")}, 2);
+        byte[] buf = new byte[packed.length + 6];
+        System.arraycopy(packed, 0, buf, 3, packed.length);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(buf, 3, packed.length);
+        assertTrue(PackedRowUtil.unpack(ptr, 1));
+        assertEquals("z", Bytes.toString(ptr.get(), ptr.getOffset(), ptr.getLength()));
+        ptr.set(buf, 3, packed.length);
+        assertTrue(PackedRowUtil.unpack(ptr, 0));
+        assertEquals("xy", Bytes.toString(ptr.get(), ptr.getOffset(), ptr.getLength()));
+    }
+    
+    @Test
+    public void testPackNoSlots() {
+        byte[] packed = PackedRowUtil.pack(new byte[][] {Bytes.toBytes("ignored")}, 0);
+        assertEquals(Bytes.SIZEOF_INT, packed.length);
+        assertFalse(PackedRowUtil.unpack(new ImmutableBytesWritable(packed), 0));
+    }
+}